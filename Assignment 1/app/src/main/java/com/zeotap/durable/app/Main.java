@@ -1,16 +1,39 @@
 package com.zeotap.durable.app;
 
+import com.zeotap.durable.engine.BlobSpillConfig;
+import com.zeotap.durable.engine.EngineOptions;
+import com.zeotap.durable.engine.FsyncPolicy;
+import com.zeotap.durable.engine.GroupCommitConfig;
+import com.zeotap.durable.engine.JacksonStepCodec;
+import com.zeotap.durable.engine.LogStepStore;
+import com.zeotap.durable.engine.LogStoreOptions;
+import com.zeotap.durable.engine.MetricsListener;
+import com.zeotap.durable.engine.RetentionOptions;
+import com.zeotap.durable.engine.RetentionService;
+import com.zeotap.durable.engine.SQLiteStepStore;
+import com.zeotap.durable.engine.StepCodec;
+import com.zeotap.durable.engine.StepStore;
+import com.zeotap.durable.engine.StoreOptions;
+import com.zeotap.durable.engine.TimelineConfig;
+import com.zeotap.durable.engine.TimelineExport;
+import com.zeotap.durable.engine.WorkerOptions;
+import com.zeotap.durable.engine.WorkflowEngine;
 import com.zeotap.durable.engine.WorkflowRunner;
+import com.zeotap.durable.engine.WorkflowSummary;
 import com.zeotap.durable.examples.onboarding.CrashConfig;
 import com.zeotap.durable.examples.onboarding.EmployeeOnboardingWorkflow;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
 
 public final class Main {
+  private static final String ONBOARDING_TYPE = "onboarding";
+
   public static void main(String[] args) throws Exception {
     Map<String, String> parsed = parseArgs(args);
 
@@ -20,25 +43,229 @@ public final class Main {
     String dbPath = parsed.getOrDefault("--db", "./state.sqlite");
     boolean reset = Boolean.parseBoolean(parsed.getOrDefault("--reset", "false"));
     long zombieTimeoutMs = Long.parseLong(parsed.getOrDefault("--zombieTimeoutMs", "0"));
+    int replayCacheMaxEntries =
+        Integer.parseInt(
+            parsed.getOrDefault(
+                "--replayCacheMaxEntries", String.valueOf(WorkflowRunner.DEFAULT_REPLAY_CACHE_MAX_ENTRIES)));
+    int groupCommitBatch = Integer.parseInt(parsed.getOrDefault("--groupCommitBatch", "0"));
+    long groupCommitLingerMs = Long.parseLong(parsed.getOrDefault("--groupCommitLingerMs", "2"));
+    long heartbeatMs =
+        Long.parseLong(
+            parsed.getOrDefault(
+                "--heartbeatMs", String.valueOf(StoreOptions.DEFAULT_HEARTBEAT_INTERVAL.toMillis())));
+    int readerPoolSize =
+        Integer.parseInt(
+            parsed.getOrDefault("--readerPoolSize", String.valueOf(StoreOptions.DEFAULT_READER_POOL_SIZE)));
+
+    if (parsed.containsKey("--trace")) {
+      exportTrace(parsed, workflowId);
+      return;
+    }
 
     Path dbFile = Path.of(dbPath).toAbsolutePath();
     if (dbFile.getParent() != null) {
       Files.createDirectories(dbFile.getParent());
     }
 
-    WorkflowRunner runner = new WorkflowRunner(dbFile.toString(), Duration.ofMillis(zombieTimeoutMs));
+    GroupCommitConfig groupCommit =
+        groupCommitBatch > 0
+            ? GroupCommitConfig.of(groupCommitBatch, Duration.ofMillis(groupCommitLingerMs))
+            : GroupCommitConfig.disabled();
+    BlobSpillConfig blobSpill =
+        parsed.containsKey("--blobDir")
+            ? BlobSpillConfig.of(
+                    Path.of(parsed.get("--blobDir")).toAbsolutePath(),
+                    Integer.parseInt(
+                        parsed.getOrDefault(
+                            "--blobThresholdBytes", String.valueOf(BlobSpillConfig.DEFAULT_THRESHOLD_BYTES))),
+                    Boolean.parseBoolean(parsed.getOrDefault("--blobCompress", "true")))
+                .withGcGrace(
+                    Duration.ofMillis(
+                        Long.parseLong(
+                            parsed.getOrDefault(
+                                "--blobGcGraceMs", String.valueOf(BlobSpillConfig.DEFAULT_GC_GRACE.toMillis())))))
+            : BlobSpillConfig.disabled();
+    StoreOptions storeOptions =
+        StoreOptions.defaults()
+            .withGroupCommit(groupCommit)
+            .withReaderPoolSize(readerPoolSize)
+            .withHeartbeatInterval(Duration.ofMillis(heartbeatMs))
+            .withCodec(codec(parsed.getOrDefault("--codec", "smile")))
+            .withBlobSpill(blobSpill)
+            .withTimeline(
+                parsed.containsKey("--timelineDir")
+                    ? TimelineConfig.of(
+                        Path.of(parsed.get("--timelineDir")).toAbsolutePath(),
+                        Integer.parseInt(
+                            parsed.getOrDefault(
+                                "--timelineCapacity", String.valueOf(TimelineConfig.DEFAULT_CAPACITY))))
+                    : TimelineConfig.disabled());
+
+    StepStore store = openStore(parsed, dbFile, Duration.ofMillis(zombieTimeoutMs), storeOptions);
+
+    if (parsed.containsKey("--retain")) {
+      try (store) {
+        runRetention(store, parsed, dbFile);
+      }
+      return;
+    }
+
+    if (parsed.containsKey("--stress")) {
+      if (!(store instanceof SQLiteStepStore)) {
+        throw new IllegalArgumentException("--stress requires --store sqlite");
+      }
+      try (store) {
+        StressHarness.run(store, parsed, dbFile);
+      }
+      return;
+    }
+
+    if (parsed.containsKey("--enqueue") || parsed.containsKey("--worker") || parsed.containsKey("--stressWorker")) {
+      EngineOptions engineOptions =
+          EngineOptions.defaults()
+              .withMaxConcurrentWorkflows(
+                  Integer.parseInt(
+                      parsed.getOrDefault(
+                          "--maxConcurrentWorkflows",
+                          String.valueOf(EngineOptions.DEFAULT_MAX_CONCURRENT_WORKFLOWS))))
+              .withReplayCacheMaxEntries(replayCacheMaxEntries)
+              .withStoreOptions(storeOptions);
+      WorkflowEngine engine = new WorkflowEngine(store, engineOptions);
+      if (parsed.containsKey("--enqueue")) {
+        try (store;
+            engine) {
+          boolean added = engine.enqueue(workflowId, ONBOARDING_TYPE, employeeName);
+          System.out.println((added ? "Enqueued" : "Already known") + " workflowId=" + workflowId + " db=" + dbFile);
+        }
+        return;
+      }
+      if (parsed.containsKey("--stressWorker")) {
+        StressHarness.runWorker(engine, parsed);
+        return;
+      }
+      runWorker(engine, parsed, crashAt, dbFile);
+      return;
+    }
+
+    try (store;
+        WorkflowRunner runner = new WorkflowRunner(store, replayCacheMaxEntries, storeOptions)) {
+      runner.addMetricsListener(
+          new MetricsListener() {
+            @Override
+            public void onWorkflowFinished(WorkflowSummary summary) {
+              System.out.println("Summary: " + summary);
+            }
+          });
 
-    var executor = Executors.newFixedThreadPool(4);
-    try {
       System.out.println("Starting/resuming workflowId=" + workflowId + " db=" + dbFile);
+      EmployeeOnboardingWorkflow workflow = new EmployeeOnboardingWorkflow(employeeName, new CrashConfig(crashAt));
       runner.runWithOptions(
           workflowId,
-          new EmployeeOnboardingWorkflow(employeeName, executor, new CrashConfig(crashAt)),
+          ctx -> {
+            workflow.run(ctx);
+            System.out.println("Lock wait: " + ctx.lockWaitStats());
+          },
           reset,
           Duration.ofMillis(zombieTimeoutMs));
-      System.out.println("Workflow completed successfully.");
-    } finally {
-      executor.shutdownNow();
+      if (parsed.containsKey("--metrics")) {
+        System.out.println("Metrics: " + store.metrics());
+      }
+    }
+    System.out.println("Workflow completed successfully.");
+  }
+
+  private static StepStore openStore(
+      Map<String, String> parsed, Path dbFile, Duration zombieTimeout, StoreOptions storeOptions) {
+    String kind = parsed.getOrDefault("--store", "sqlite");
+    switch (kind) {
+      case "sqlite":
+        return new SQLiteStepStore(dbFile.toString(), zombieTimeout, storeOptions);
+      case "log":
+        LogStoreOptions logOptions =
+            LogStoreOptions.defaults()
+                .withFsyncPolicy(FsyncPolicy.valueOf(parsed.getOrDefault("--fsync", "interval").toUpperCase()))
+                .withHeartbeatInterval(storeOptions.heartbeatInterval());
+        return new LogStepStore(dbFile, zombieTimeout, logOptions);
+      default:
+        throw new IllegalArgumentException("Unknown --store: " + kind + " (expected sqlite or log)");
+    }
+  }
+
+  private static void runRetention(StepStore store, Map<String, String> parsed, Path dbFile) {
+    if (!(store instanceof SQLiteStepStore sqlite)) {
+      throw new IllegalArgumentException("--retain requires --store sqlite");
+    }
+    Path archiveDir =
+        Path.of(parsed.getOrDefault("--archiveDir", dbFile.resolveSibling("archive").toString())).toAbsolutePath();
+    RetentionOptions retentionOptions =
+        RetentionOptions.defaults()
+            .withTtl(
+                Duration.ofMillis(
+                    Long.parseLong(
+                        parsed.getOrDefault(
+                            "--retentionTtlMs", String.valueOf(RetentionOptions.DEFAULT_TTL.toMillis())))));
+    try (RetentionService retention = new RetentionService(sqlite, archiveDir, retentionOptions)) {
+      int archived = retention.runOnce();
+      System.out.println("Archived " + archived + " workflow(s) to " + archiveDir);
+    }
+  }
+
+  private static void exportTrace(Map<String, String> parsed, String workflowId) throws IOException {
+    Path timelineDir = Path.of(parsed.getOrDefault("--timelineDir", "./timelines")).toAbsolutePath();
+    List<String> runIds = TimelineExport.runIds(timelineDir, workflowId);
+    if (runIds.isEmpty()) {
+      throw new IllegalArgumentException("No timelines for workflowId=" + workflowId + " in " + timelineDir);
+    }
+    String runId = parsed.getOrDefault("--runId", runIds.get(runIds.size() - 1));
+    if (!runIds.contains(runId)) {
+      throw new IllegalArgumentException("Unknown --runId: " + runId + " (recorded runs: " + runIds + ")");
+    }
+    Path out = Path.of(parsed.getOrDefault("--out", workflowId + "-" + runId + ".trace.json")).toAbsolutePath();
+    try (OutputStream stream = Files.newOutputStream(out)) {
+      int events = TimelineExport.writeChromeTrace(timelineDir, workflowId, runId, stream);
+      System.out.println(
+          "Wrote " + events + " event(s) for workflowId=" + workflowId + " runId=" + runId + " to " + out);
+    }
+  }
+
+  private static void runWorker(WorkflowEngine engine, Map<String, String> parsed, String crashAt, Path dbFile)
+      throws InterruptedException {
+    WorkerOptions workerOptions =
+        WorkerOptions.defaults()
+            .withClaimBatchSize(
+                Integer.parseInt(
+                    parsed.getOrDefault(
+                        "--workerBatch", String.valueOf(WorkerOptions.DEFAULT_CLAIM_BATCH_SIZE))))
+            .withLeaseDuration(
+                Duration.ofMillis(
+                    Long.parseLong(
+                        parsed.getOrDefault(
+                            "--leaseMs", String.valueOf(WorkerOptions.DEFAULT_LEASE_DURATION.toMillis())))));
+    engine.registerWorkflowType(
+        ONBOARDING_TYPE,
+        (id, input) -> {
+          EmployeeOnboardingWorkflow workflow = new EmployeeOnboardingWorkflow(input, new CrashConfig(crashAt));
+          return ctx -> {
+            workflow.run(ctx);
+            System.out.println("Workflow completed: " + id);
+          };
+        });
+
+    engine.startWorker(workerOptions);
+    System.out.println("Worker " + engine.workerId() + " polling db=" + dbFile);
+    Thread.currentThread().join();
+  }
+
+  private static StepCodec codec(String name) {
+    switch (name) {
+      case "json":
+        return JacksonStepCodec.json();
+      case "smile":
+        return JacksonStepCodec.smile();
+      case "cbor":
+        return JacksonStepCodec.cbor();
+      default:
+        throw new IllegalArgumentException("Unknown --codec: " + name + " (expected json, smile or cbor)");
     }
   }
 
@@ -0,0 +1,298 @@
+package com.zeotap.durable.app;
+
+import com.zeotap.durable.engine.LatencyHistogram;
+import com.zeotap.durable.engine.MetricsListener;
+import com.zeotap.durable.engine.StepStore;
+import com.zeotap.durable.engine.WorkerOptions;
+import com.zeotap.durable.engine.WorkflowEngine;
+import com.zeotap.durable.engine.WorkflowPriority;
+import com.zeotap.durable.engine.WorkflowStatus;
+import com.zeotap.durable.engine.WorkflowSummary;
+import com.zeotap.durable.examples.onboarding.CrashConfig;
+import com.zeotap.durable.examples.onboarding.EmployeeOnboardingWorkflow;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+final class StressHarness {
+  static final String STRESS_TYPE = "stress";
+
+  private static final String EVENT_PREFIX = "@stress ";
+  private static final String[] ONBOARDING_CRASH_POINTS = {
+    "after-create-record",
+    "before-provision-laptop",
+    "before-provision-access",
+    "before-send-welcome-email",
+    "after-workflow"
+  };
+
+  private static final class Worker {
+    final Process process;
+    final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    volatile boolean ready;
+    volatile long killedAtNanos;
+
+    Worker(Process process) {
+      this.process = process;
+    }
+  }
+
+  private final Map<String, String> parsed;
+  private final Path dbFile;
+  private final int workflows;
+  private final int workerCount;
+  private final int workerConcurrency;
+  private final long killIntervalNanos;
+  private final long timeoutNanos;
+  private final Set<String> done = ConcurrentHashMap.newKeySet();
+  private final ConcurrentHashMap<String, Long> orphanedAt = new ConcurrentHashMap<>();
+  private final LatencyHistogram stepLatency = new LatencyHistogram();
+  private final LatencyHistogram recovery = new LatencyHistogram();
+  private final List<Worker> workers = new ArrayList<>();
+  private int kills;
+  private int crashes;
+
+  private StressHarness(Map<String, String> parsed, Path dbFile) {
+    this.parsed = parsed;
+    this.dbFile = dbFile;
+    this.workflows = Integer.parseInt(parsed.getOrDefault("--workflows", "100"));
+    this.workerCount = Integer.parseInt(parsed.getOrDefault("--workers", "4"));
+    this.workerConcurrency = Integer.parseInt(parsed.getOrDefault("--workerConcurrency", "32"));
+    this.killIntervalNanos = Long.parseLong(parsed.getOrDefault("--killIntervalMs", "5000")) * 1_000_000;
+    this.timeoutNanos = Long.parseLong(parsed.getOrDefault("--stressTimeoutMs", "600000")) * 1_000_000;
+    if (workflows < 1) {
+      throw new IllegalArgumentException("--workflows must be >= 1");
+    }
+    if (workerCount < 1) {
+      throw new IllegalArgumentException("--workers must be >= 1");
+    }
+    if (workerConcurrency < 1) {
+      throw new IllegalArgumentException("--workerConcurrency must be >= 1");
+    }
+  }
+
+  static void run(StepStore store, Map<String, String> parsed, Path dbFile) throws Exception {
+    new StressHarness(parsed, dbFile).run(store);
+  }
+
+  static void runWorker(WorkflowEngine engine, Map<String, String> parsed) throws InterruptedException {
+    String workload = parsed.getOrDefault("--workload", "synthetic");
+    double crashProbability = Double.parseDouble(parsed.getOrDefault("--crashProbability", "0.02"));
+    engine.metrics().addListener(
+        new MetricsListener() {
+          @Override
+          public void onStepExecuted(
+              String workflowId, String stepKey, long activityNanos, long persistenceNanos, int outputBytes) {
+            emit("step " + (activityNanos + persistenceNanos));
+          }
+
+          @Override
+          public void onWorkflowFinished(WorkflowSummary summary) {
+            if (summary.status() == WorkflowStatus.COMPLETED) {
+              emit("done " + summary.workflowId());
+            }
+          }
+        });
+    engine.registerWorkflowType(
+        STRESS_TYPE,
+        (id, input) -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          boolean crash = random.nextDouble() < crashProbability;
+          if (workload.equals("onboarding")) {
+            String point = crash ? ONBOARDING_CRASH_POINTS[random.nextInt(ONBOARDING_CRASH_POINTS.length)] : null;
+            EmployeeOnboardingWorkflow workflow = new EmployeeOnboardingWorkflow(input, new CrashConfig(point));
+            return ctx -> {
+              emit("start " + id);
+              workflow.run(ctx);
+            };
+          }
+          SyntheticWorkflow synthetic = SyntheticWorkflow.fromInput(input);
+          SyntheticWorkflow workflow = crash ? synthetic.crashingAt(random.nextInt(synthetic.steps())) : synthetic;
+          return ctx -> {
+            emit("start " + id);
+            workflow.run(ctx);
+          };
+        });
+    engine.startWorker(
+        WorkerOptions.defaults()
+            .withClaimBatchSize(
+                Integer.parseInt(
+                    parsed.getOrDefault(
+                        "--workerBatch", String.valueOf(WorkerOptions.DEFAULT_CLAIM_BATCH_SIZE))))
+            .withPollInterval(Duration.ofMillis(Long.parseLong(parsed.getOrDefault("--pollMs", "50"))))
+            .withLeaseDuration(Duration.ofMillis(Long.parseLong(parsed.getOrDefault("--leaseMs", "2000")))));
+    emit("ready");
+    Thread.currentThread().join();
+  }
+
+  private static void emit(String event) {
+    System.out.println(EVENT_PREFIX + event);
+  }
+
+  private void run(StepStore store) throws Exception {
+    String workload = parsed.getOrDefault("--workload", "synthetic");
+    String input =
+        workload.equals("onboarding")
+            ? "Employee"
+            : SyntheticWorkflow.input(
+                Integer.parseInt(parsed.getOrDefault("--steps", "10")),
+                Integer.parseInt(parsed.getOrDefault("--fanOut", "1")),
+                Integer.parseInt(parsed.getOrDefault("--outputBytes", "256")));
+    if (!workload.equals("onboarding") && !workload.equals("synthetic")) {
+      throw new IllegalArgumentException("Unknown --workload: " + workload + " (expected onboarding or synthetic)");
+    }
+    String prefix = "stress-" + System.currentTimeMillis() + "-";
+    for (int i = 0; i < workflows; i++) {
+      store.enqueueWorkflow(prefix + i, STRESS_TYPE, input, WorkflowPriority.NORMAL);
+    }
+    System.out.println(
+        "Stress: " + workflows + " " + workload + " workflow(s), " + workerCount + " worker process(es), db=" + dbFile);
+
+    long startedAt = System.nanoTime();
+    long nextKillAt = killIntervalNanos > 0 ? startedAt + killIntervalNanos : Long.MAX_VALUE;
+    try {
+      for (int i = 0; i < workerCount; i++) {
+        workers.add(spawn());
+      }
+      while (done.size() < workflows) {
+        long now = System.nanoTime();
+        if (now - startedAt > timeoutNanos) {
+          System.out.println("Stress: timed out with " + done.size() + "/" + workflows + " workflow(s) done");
+          break;
+        }
+        if (now >= nextKillAt) {
+          List<Worker> ready = new ArrayList<>();
+          for (Worker worker : workers) {
+            if (worker.ready && worker.process.isAlive()) {
+              ready.add(worker);
+            }
+          }
+          if (!ready.isEmpty()) {
+            Worker victim = ready.get(ThreadLocalRandom.current().nextInt(ready.size()));
+            victim.killedAtNanos = now;
+            victim.process.destroyForcibly();
+            kills++;
+            nextKillAt = now + killIntervalNanos;
+          }
+        }
+        for (int i = 0; i < workers.size(); i++) {
+          Worker worker = workers.get(i);
+          if (worker.process.isAlive()) {
+            continue;
+          }
+          long exitedAt = worker.killedAtNanos > 0 ? worker.killedAtNanos : now;
+          if (worker.killedAtNanos == 0) {
+            crashes++;
+          }
+          for (String workflowId : worker.inFlight) {
+            if (!done.contains(workflowId)) {
+              orphanedAt.putIfAbsent(workflowId, exitedAt);
+            }
+          }
+          workers.set(i, spawn());
+        }
+        Thread.sleep(20);
+      }
+    } finally {
+      for (Worker worker : workers) {
+        worker.process.destroyForcibly();
+      }
+    }
+    report(System.nanoTime() - startedAt);
+  }
+
+  private Worker spawn() throws IOException {
+    List<String> command = new ArrayList<>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(Main.class.getName());
+    command.add("--stressWorker");
+    command.add("--db");
+    command.add(dbFile.toString());
+    command.add("--maxConcurrentWorkflows");
+    command.add(String.valueOf(workerConcurrency));
+    for (String option :
+        new String[] {
+          "--workload", "--crashProbability", "--leaseMs", "--pollMs", "--workerBatch", "--codec", "--heartbeatMs"
+        }) {
+      if (parsed.containsKey(option)) {
+        command.add(option);
+        command.add(parsed.get(option));
+      }
+    }
+    Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+    Worker worker = new Worker(process);
+    Thread.ofVirtual().name("stress-worker-" + process.pid()).start(() -> consume(worker));
+    return worker;
+  }
+
+  private void consume(Worker worker) {
+    try (BufferedReader in =
+        new BufferedReader(new InputStreamReader(worker.process.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (!line.startsWith(EVENT_PREFIX)) {
+          continue;
+        }
+        String event = line.substring(EVENT_PREFIX.length());
+        if (event.startsWith("step ")) {
+          stepLatency.record(Long.parseLong(event.substring(5)));
+        } else if (event.startsWith("start ")) {
+          String workflowId = event.substring(6);
+          worker.inFlight.add(workflowId);
+          Long orphaned = orphanedAt.remove(workflowId);
+          if (orphaned != null) {
+            recovery.record(System.nanoTime() - orphaned);
+          }
+        } else if (event.equals("ready")) {
+          worker.ready = true;
+        } else if (event.startsWith("done ")) {
+          String workflowId = event.substring(5);
+          worker.inFlight.remove(workflowId);
+          done.add(workflowId);
+        }
+      }
+    } catch (IOException e) {
+      return;
+    }
+  }
+
+  private void report(long elapsedNanos) throws IOException {
+    double seconds = elapsedNanos / 1_000_000_000.0;
+    long storeBytes = 0;
+    for (String suffix : new String[] {"", "-wal", "-shm"}) {
+      Path file = Path.of(dbFile + suffix);
+      if (Files.exists(file)) {
+        storeBytes += Files.size(file);
+      }
+    }
+    System.out.printf(
+        "Stress: %d/%d workflow(s) done in %.1f s, %.1f workflows/s, %.1f steps/s%n",
+        done.size(), workflows, seconds, done.size() / seconds, stepLatency.count() / seconds);
+    System.out.printf(
+        "Stress: step latency p50Us=%.1f p99Us=%.1f maxUs=%.1f%n",
+        stepLatency.percentileNanos(50) / 1_000.0,
+        stepLatency.percentileNanos(99) / 1_000.0,
+        stepLatency.maxNanos() / 1_000.0);
+    System.out.printf(
+        "Stress: %d kill(s), %d crash(es), time to recovery p50Ms=%.1f p99Ms=%.1f maxMs=%.1f (%d workflow(s))%n",
+        kills,
+        crashes,
+        recovery.percentileNanos(50) / 1_000_000.0,
+        recovery.percentileNanos(99) / 1_000_000.0,
+        recovery.maxNanos() / 1_000_000.0,
+        recovery.count());
+    System.out.printf("Stress: store size %.1f MiB%n", storeBytes / (1024.0 * 1024.0));
+  }
+}
@@ -0,0 +1,73 @@
+package com.zeotap.durable.app;
+
+import com.zeotap.durable.engine.DurableContext;
+import com.zeotap.durable.engine.ParallelScope;
+import com.zeotap.durable.engine.Workflow;
+
+final class SyntheticWorkflow implements Workflow {
+  private final int steps;
+  private final int fanOut;
+  private final int outputBytes;
+  private final String output;
+  private final int crashAtStep;
+
+  SyntheticWorkflow(int steps, int fanOut, int outputBytes, int crashAtStep) {
+    if (steps < 1) {
+      throw new IllegalArgumentException("steps must be >= 1");
+    }
+    if (fanOut < 1) {
+      throw new IllegalArgumentException("fanOut must be >= 1");
+    }
+    if (outputBytes < 0) {
+      throw new IllegalArgumentException("outputBytes must be >= 0");
+    }
+    this.steps = steps;
+    this.fanOut = fanOut;
+    this.outputBytes = outputBytes;
+    this.output = "x".repeat(outputBytes);
+    this.crashAtStep = crashAtStep;
+  }
+
+  static String input(int steps, int fanOut, int outputBytes) {
+    return steps + "," + fanOut + "," + outputBytes;
+  }
+
+  static SyntheticWorkflow fromInput(String input) {
+    String[] parts = input.split(",");
+    return new SyntheticWorkflow(
+        Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), -1);
+  }
+
+  SyntheticWorkflow crashingAt(int step) {
+    return new SyntheticWorkflow(steps, fanOut, outputBytes, step);
+  }
+
+  int steps() {
+    return steps;
+  }
+
+  @Override
+  public void run(DurableContext ctx) throws Exception {
+    for (int i = 0; i < steps; i++) {
+      int index = i;
+      if (fanOut == 1) {
+        ctx.step("step", String.class, () -> produce(index));
+        continue;
+      }
+      try (ParallelScope parallel = ctx.parallel("fan-out")) {
+        for (int b = 0; b < fanOut; b++) {
+          parallel.stepAsync("branch", String.class, () -> produce(index));
+        }
+        parallel.join();
+      }
+    }
+  }
+
+  private String produce(int index) {
+    if (index == crashAtStep) {
+      System.err.println("Simulating crash at step: " + index);
+      Runtime.getRuntime().halt(3);
+    }
+    return output;
+  }
+}
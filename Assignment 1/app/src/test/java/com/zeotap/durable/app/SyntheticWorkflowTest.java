@@ -0,0 +1,90 @@
+package com.zeotap.durable.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.zeotap.durable.engine.EngineMetrics;
+import com.zeotap.durable.engine.EngineOptions;
+import com.zeotap.durable.engine.InMemoryStepStore;
+import com.zeotap.durable.engine.MetricsListener;
+import com.zeotap.durable.engine.SQLiteStepStore;
+import com.zeotap.durable.engine.WorkerOptions;
+import com.zeotap.durable.engine.WorkflowEngine;
+import com.zeotap.durable.engine.WorkflowRunner;
+import com.zeotap.durable.engine.WorkflowStatus;
+import com.zeotap.durable.engine.WorkflowSummary;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SyntheticWorkflowTest {
+  @TempDir Path tmp;
+
+  @Test
+  void validatesShape() {
+    assertThrows(IllegalArgumentException.class, () -> new SyntheticWorkflow(0, 1, 0, -1));
+    assertThrows(IllegalArgumentException.class, () -> new SyntheticWorkflow(1, 0, 0, -1));
+    assertThrows(IllegalArgumentException.class, () -> new SyntheticWorkflow(1, 1, -1, -1));
+  }
+
+  @Test
+  void inputRoundTrips() {
+    SyntheticWorkflow workflow = SyntheticWorkflow.fromInput(SyntheticWorkflow.input(7, 2, 64));
+    assertEquals(7, workflow.steps());
+    assertEquals(7, workflow.crashingAt(3).steps());
+  }
+
+  @Test
+  void sequentialStepsReplay() throws Exception {
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      SyntheticWorkflow workflow = new SyntheticWorkflow(3, 1, 16, -1);
+      runner.run("wf", workflow);
+      assertEquals(3, store.readCompletedSteps("wf", 100).size());
+      assertEquals(3, store.metrics().getStepExecutions());
+
+      runner.run("wf", workflow);
+      assertEquals(3, store.metrics().getStepExecutions());
+      assertEquals(3, store.metrics().getReplayHits());
+    }
+  }
+
+  @Test
+  void fanOutRecordsEveryBranch() throws Exception {
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      runner.run("wf", new SyntheticWorkflow(2, 3, 0, -1));
+      assertEquals(6, store.readCompletedSteps("wf", 100).size());
+    }
+  }
+
+  @Test
+  void workersDrainEnqueuedStressWorkflows() throws Exception {
+    int workflows = 5;
+    CountDownLatch finished = new CountDownLatch(workflows);
+    try (SQLiteStepStore store = new SQLiteStepStore(tmp.resolve("stress.sqlite").toString(), Duration.ZERO);
+        WorkflowEngine engine =
+            new WorkflowEngine(store, EngineOptions.defaults().withMaxConcurrentWorkflows(2))) {
+      engine.metrics().addListener(
+          new MetricsListener() {
+            @Override
+            public void onWorkflowFinished(WorkflowSummary summary) {
+              if (summary.status() == WorkflowStatus.COMPLETED) {
+                finished.countDown();
+              }
+            }
+          });
+      engine.registerWorkflowType(StressHarness.STRESS_TYPE, (id, input) -> SyntheticWorkflow.fromInput(input));
+      for (int i = 0; i < workflows; i++) {
+        assertTrue(engine.enqueue("wf-" + i, StressHarness.STRESS_TYPE, SyntheticWorkflow.input(2, 2, 8)));
+      }
+      engine.startWorker(WorkerOptions.defaults().withPollInterval(Duration.ofMillis(10)));
+      assertTrue(finished.await(10, TimeUnit.SECONDS));
+
+      EngineMetrics metrics = engine.metrics();
+      assertEquals(workflows * 4, metrics.getStepExecutions());
+    }
+  }
+}
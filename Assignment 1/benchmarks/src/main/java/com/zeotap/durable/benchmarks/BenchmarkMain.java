@@ -0,0 +1,22 @@
+package com.zeotap.durable.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class BenchmarkMain {
+  private BenchmarkMain() {}
+
+  public static void main(String[] args) throws Exception {
+    List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+    if (!jmhArgs.contains("-rf")) {
+      jmhArgs.add("-rf");
+      jmhArgs.add("json");
+    }
+    if (!jmhArgs.contains("-rff")) {
+      jmhArgs.add("-rff");
+      jmhArgs.add("jmh-result.json");
+    }
+    org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+  }
+}
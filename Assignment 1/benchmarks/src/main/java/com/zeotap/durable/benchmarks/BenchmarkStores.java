@@ -0,0 +1,52 @@
+package com.zeotap.durable.benchmarks;
+
+import com.zeotap.durable.engine.InMemoryStepStore;
+import com.zeotap.durable.engine.LogStepStore;
+import com.zeotap.durable.engine.SQLiteStepStore;
+import com.zeotap.durable.engine.StepStore;
+import com.zeotap.durable.engine.StoreOptions;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+final class BenchmarkStores {
+  private BenchmarkStores() {}
+
+  static Path createDirectory() {
+    try {
+      return Files.createTempDirectory("durable-bench-");
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to create benchmark directory", e);
+    }
+  }
+
+  static StepStore open(String kind, Path directory, Duration zombieTimeout) {
+    switch (kind) {
+      case "sqlite":
+        return new SQLiteStepStore(
+            directory.resolve("state.sqlite").toString(), zombieTimeout, StoreOptions.defaults());
+      case "log":
+        return new LogStepStore(directory.resolve("log"), zombieTimeout);
+      case "memory":
+        return new InMemoryStepStore(zombieTimeout);
+      default:
+        throw new IllegalArgumentException("Unknown store: " + kind + " (expected sqlite, log or memory)");
+    }
+  }
+
+  static void delete(Path directory) {
+    if (directory == null || !Files.exists(directory)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.deleteIfExists(p);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to delete benchmark directory " + directory, e);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package com.zeotap.durable.benchmarks;
+
+import com.zeotap.durable.engine.ParallelScope;
+import com.zeotap.durable.engine.StepStore;
+import com.zeotap.durable.engine.WorkflowRunner;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParallelStepBenchmark {
+  static final int STEPS_PER_WORKFLOW = 64;
+
+  @Param({"sqlite", "log", "memory"})
+  public String store;
+
+  @Param({"1", "2", "4", "8", "16", "32", "64"})
+  public int threads;
+
+  private Path directory;
+  private StepStore stepStore;
+  private WorkflowRunner runner;
+  private long sequence;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    directory = BenchmarkStores.createDirectory();
+    stepStore = BenchmarkStores.open(store, directory, Duration.ofSeconds(10));
+    runner = new WorkflowRunner(stepStore);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    runner.close();
+    stepStore.close();
+    BenchmarkStores.delete(directory);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(STEPS_PER_WORKFLOW)
+  public void contendedStep() throws Exception {
+    runner.run(
+        "parallel-" + sequence++,
+        ctx -> {
+          try (ParallelScope scope = ctx.parallel("fan-out", threads)) {
+            for (int i = 0; i < STEPS_PER_WORKFLOW; i++) {
+              int value = i;
+              scope.stepAsync("branch-" + i, () -> value);
+            }
+            scope.join();
+          }
+        });
+  }
+}
@@ -0,0 +1,122 @@
+package com.zeotap.durable.benchmarks;
+
+import com.zeotap.durable.engine.JacksonStepCodec;
+import com.zeotap.durable.engine.StepCodec;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SerializationBenchmark {
+  @Param({"json", "smile", "cbor"})
+  public String codec;
+
+  @Param({"small", "large"})
+  public String payload;
+
+  private StepCodec stepCodec;
+  private Object value;
+  private byte[] encoded;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    stepCodec = codec(codec);
+    value = "small".equals(payload) ? Account.sample(0) : accounts(200);
+    encoded = stepCodec.encode(value);
+  }
+
+  @Benchmark
+  public byte[] encode() throws Exception {
+    return stepCodec.encode(value);
+  }
+
+  @Benchmark
+  public Object decode() throws Exception {
+    return stepCodec.decode(encoded, 0, encoded.length, value.getClass());
+  }
+
+  @Benchmark
+  public byte[] encodedSize(EncodedSize size) throws Exception {
+    byte[] bytes = stepCodec.encode(value);
+    if (size.recording) {
+      size.encodedBytes = bytes.length;
+    }
+    return bytes;
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class EncodedSize {
+    public long encodedBytes;
+    private boolean recording;
+    private boolean recorded;
+
+    @Setup(Level.Iteration)
+    public void reset(IterationParams params) {
+      encodedBytes = 0;
+      recording = params.getType() == IterationType.MEASUREMENT && !recorded;
+      recorded |= recording;
+    }
+  }
+
+  private static StepCodec codec(String name) {
+    switch (name) {
+      case "json":
+        return JacksonStepCodec.json();
+      case "smile":
+        return JacksonStepCodec.smile();
+      case "cbor":
+        return JacksonStepCodec.cbor();
+      default:
+        throw new IllegalArgumentException("Unknown codec: " + name + " (expected json, smile or cbor)");
+    }
+  }
+
+  private static AccountBatch accounts(int count) {
+    List<Account> accounts = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      accounts.add(Account.sample(i));
+    }
+    return new AccountBatch(accounts);
+  }
+
+  public record AccountBatch(List<Account> accounts) {}
+
+  public record Account(
+      String employeeId, String email, List<String> groups, Map<String, Integer> quotas, long createdAtMs, boolean active) {
+    static Account sample(int i) {
+      Map<String, Integer> quotas = new LinkedHashMap<>();
+      quotas.put("storageGb", 50 + i);
+      quotas.put("seats", 1);
+      return new Account(
+          "emp-" + i,
+          "employee" + i + "@example.com",
+          List.of("engineering", "vpn", "github"),
+          quotas,
+          1_700_000_000_000L + i,
+          true);
+    }
+  }
+}
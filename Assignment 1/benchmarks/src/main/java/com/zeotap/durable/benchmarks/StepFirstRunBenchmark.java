@@ -0,0 +1,66 @@
+package com.zeotap.durable.benchmarks;
+
+import com.zeotap.durable.engine.StepStore;
+import com.zeotap.durable.engine.WorkflowRunner;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StepFirstRunBenchmark {
+  static final int STEPS_PER_WORKFLOW = 100;
+
+  @Param({"sqlite", "log", "memory"})
+  public String store;
+
+  private Path directory;
+  private StepStore stepStore;
+  private WorkflowRunner runner;
+  private long sequence;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    directory = BenchmarkStores.createDirectory();
+    stepStore = BenchmarkStores.open(store, directory, Duration.ofSeconds(10));
+    runner = new WorkflowRunner(stepStore);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    runner.close();
+    stepStore.close();
+    BenchmarkStores.delete(directory);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(STEPS_PER_WORKFLOW)
+  public void firstRunStep() throws Exception {
+    runner.run(
+        "first-run-" + sequence++,
+        ctx -> {
+          for (int i = 0; i < STEPS_PER_WORKFLOW; i++) {
+            int value = i;
+            ctx.step("step", () -> value);
+          }
+        });
+  }
+}
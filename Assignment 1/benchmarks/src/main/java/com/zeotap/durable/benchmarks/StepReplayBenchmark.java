@@ -0,0 +1,72 @@
+package com.zeotap.durable.benchmarks;
+
+import com.zeotap.durable.engine.StepStore;
+import com.zeotap.durable.engine.Workflow;
+import com.zeotap.durable.engine.WorkflowRunner;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StepReplayBenchmark {
+  private static final String WORKFLOW_ID = "replay";
+
+  @Param({"sqlite", "log", "memory"})
+  public String store;
+
+  @Param({"10", "100", "1000"})
+  public int steps;
+
+  private Path directory;
+  private StepStore stepStore;
+  private WorkflowRunner runner;
+  private Workflow workflow;
+  private Blackhole blackhole;
+
+  @Setup(Level.Trial)
+  public void setUp(Blackhole blackhole) throws Exception {
+    this.blackhole = blackhole;
+    directory = BenchmarkStores.createDirectory();
+    stepStore = BenchmarkStores.open(store, directory, Duration.ofSeconds(10));
+    runner = new WorkflowRunner(stepStore);
+    workflow =
+        ctx -> {
+          for (int i = 0; i < steps; i++) {
+            int value = i;
+            this.blackhole.consume(ctx.step("step", Integer.class, () -> value));
+          }
+        };
+    runner.run(WORKFLOW_ID, workflow);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    runner.close();
+    stepStore.close();
+    BenchmarkStores.delete(directory);
+  }
+
+  @Benchmark
+  public void replayCompletedSteps() throws Exception {
+    runner.run(WORKFLOW_ID, workflow);
+  }
+}
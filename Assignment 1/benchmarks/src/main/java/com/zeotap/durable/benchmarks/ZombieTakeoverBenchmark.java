@@ -0,0 +1,68 @@
+package com.zeotap.durable.benchmarks;
+
+import com.zeotap.durable.engine.StepKey;
+import com.zeotap.durable.engine.StepStore;
+import com.zeotap.durable.engine.WorkflowRunner;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ZombieTakeoverBenchmark {
+  private static final String STEP_ID = "charge";
+  private static final String DEAD_RUN_ID = "dead-run";
+
+  @Param({"sqlite", "log", "memory"})
+  public String store;
+
+  private Path directory;
+  private StepStore stepStore;
+  private WorkflowRunner runner;
+  private long sequence;
+  private String workflowId;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    directory = BenchmarkStores.createDirectory();
+    stepStore = BenchmarkStores.open(store, directory, Duration.ZERO);
+    runner = new WorkflowRunner(stepStore);
+  }
+
+  @Setup(Level.Invocation)
+  public void abandonStep() {
+    workflowId = "zombie-" + sequence++;
+    if (stepStore.tryStartStep(workflowId, StepKey.of(STEP_ID, 0), DEAD_RUN_ID) == 0) {
+      throw new IllegalStateException("Failed to leave a RUNNING step for " + workflowId);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    runner.close();
+    stepStore.close();
+    BenchmarkStores.delete(directory);
+  }
+
+  @Benchmark
+  public void takeOverZombieStep() throws Exception {
+    runner.run(workflowId, ctx -> ctx.step(STEP_ID, () -> 1));
+  }
+}
@@ -0,0 +1,91 @@
+package com.zeotap.durable.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.zeotap.durable.engine.StepStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class BenchmarkSmokeTest {
+  private static final String[] STORES = {"sqlite", "log", "memory"};
+
+  @Test
+  void opensEveryStoreKind() throws Exception {
+    Path directory = BenchmarkStores.createDirectory();
+    try {
+      for (String kind : STORES) {
+        Path storeDirectory = Files.createDirectories(directory.resolve(kind));
+        try (StepStore store = BenchmarkStores.open(kind, storeDirectory, Duration.ofSeconds(10))) {
+          assertEquals(Duration.ofSeconds(10), store.zombieTimeout());
+        }
+      }
+      assertThrows(IllegalArgumentException.class, () -> BenchmarkStores.open("mongo", directory, Duration.ZERO));
+    } finally {
+      BenchmarkStores.delete(directory);
+    }
+    assertFalse(Files.exists(directory));
+  }
+
+  @Test
+  void firstRunBenchmarkRunsAgainstEveryStore() throws Exception {
+    for (String kind : STORES) {
+      StepFirstRunBenchmark benchmark = new StepFirstRunBenchmark();
+      benchmark.store = kind;
+      benchmark.setUp();
+      try {
+        benchmark.firstRunStep();
+        benchmark.firstRunStep();
+      } finally {
+        benchmark.tearDown();
+      }
+    }
+  }
+
+  @Test
+  void parallelBenchmarkRunsAgainstEveryStore() throws Exception {
+    for (String kind : STORES) {
+      ParallelStepBenchmark benchmark = new ParallelStepBenchmark();
+      benchmark.store = kind;
+      benchmark.threads = 4;
+      benchmark.setUp();
+      try {
+        benchmark.contendedStep();
+      } finally {
+        benchmark.tearDown();
+      }
+    }
+  }
+
+  @Test
+  void zombieBenchmarkTakesOverAbandonedSteps() throws Exception {
+    for (String kind : STORES) {
+      ZombieTakeoverBenchmark benchmark = new ZombieTakeoverBenchmark();
+      benchmark.store = kind;
+      benchmark.setUp();
+      try {
+        benchmark.abandonStep();
+        benchmark.takeOverZombieStep();
+        benchmark.abandonStep();
+        benchmark.takeOverZombieStep();
+      } finally {
+        benchmark.tearDown();
+      }
+    }
+  }
+
+  @Test
+  void serializationBenchmarkRoundTripsEveryCodec() throws Exception {
+    for (String codec : new String[] {"json", "smile", "cbor"}) {
+      for (String payload : new String[] {"small", "large"}) {
+        SerializationBenchmark benchmark = new SerializationBenchmark();
+        benchmark.codec = codec;
+        benchmark.payload = payload;
+        benchmark.setUp();
+        assertNotNull(benchmark.decode());
+        assertTrue(benchmark.encode().length > 0);
+      }
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package com.zeotap.durable.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+final class ArchivedWorkflow {
+  final String workflowId;
+  final String workflowType;
+  final String input;
+  final String status;
+  final String error;
+  final long createdAtEpochMs;
+  final long updatedAtEpochMs;
+  final Map<String, StepRecord> steps = new LinkedHashMap<>();
+
+  ArchivedWorkflow(
+      String workflowId,
+      String workflowType,
+      String input,
+      String status,
+      String error,
+      long createdAtEpochMs,
+      long updatedAtEpochMs) {
+    this.workflowId = workflowId;
+    this.workflowType = workflowType;
+    this.input = input;
+    this.status = status;
+    this.error = error;
+    this.createdAtEpochMs = createdAtEpochMs;
+    this.updatedAtEpochMs = updatedAtEpochMs;
+  }
+}
@@ -0,0 +1,71 @@
+package com.zeotap.durable.engine;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+
+public final class BlobSpillConfig {
+  public static final int DEFAULT_THRESHOLD_BYTES = 64 * 1024;
+  public static final Duration DEFAULT_GC_GRACE = Duration.ofMinutes(5);
+
+  private static final BlobSpillConfig DISABLED =
+      new BlobSpillConfig(false, null, Integer.MAX_VALUE, false, DEFAULT_GC_GRACE);
+
+  private final boolean enabled;
+  private final Path directory;
+  private final int thresholdBytes;
+  private final boolean compress;
+  private final Duration gcGrace;
+
+  private BlobSpillConfig(boolean enabled, Path directory, int thresholdBytes, boolean compress, Duration gcGrace) {
+    this.enabled = enabled;
+    this.directory = directory;
+    this.thresholdBytes = thresholdBytes;
+    this.compress = compress;
+    this.gcGrace = gcGrace;
+  }
+
+  public static BlobSpillConfig disabled() {
+    return DISABLED;
+  }
+
+  public static BlobSpillConfig of(Path directory) {
+    return of(directory, DEFAULT_THRESHOLD_BYTES, true);
+  }
+
+  public static BlobSpillConfig of(Path directory, int thresholdBytes, boolean compress) {
+    Objects.requireNonNull(directory, "directory");
+    if (thresholdBytes < 0) {
+      throw new IllegalArgumentException("thresholdBytes must be >= 0");
+    }
+    return new BlobSpillConfig(true, directory, thresholdBytes, compress, DEFAULT_GC_GRACE);
+  }
+
+  public BlobSpillConfig withGcGrace(Duration gcGrace) {
+    Objects.requireNonNull(gcGrace, "gcGrace");
+    if (gcGrace.isNegative()) {
+      throw new IllegalArgumentException("gcGrace must be >= 0");
+    }
+    return new BlobSpillConfig(enabled, directory, thresholdBytes, compress, gcGrace);
+  }
+
+  public boolean enabled() {
+    return enabled;
+  }
+
+  public Path directory() {
+    return directory;
+  }
+
+  public int thresholdBytes() {
+    return thresholdBytes;
+  }
+
+  public boolean compress() {
+    return compress;
+  }
+
+  public Duration gcGrace() {
+    return gcGrace;
+  }
+}
@@ -0,0 +1,126 @@
+package com.zeotap.durable.engine;
+
+import java.io.BufferedInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+final class BlobStore {
+  private static final int FORMAT_RAW = 0;
+  private static final int FORMAT_DEFLATE = 1;
+  private static final boolean WINDOWS = System.getProperty("os.name", "").startsWith("Windows");
+
+  private final Path directory;
+  private final boolean compress;
+
+  BlobStore(Path directory, boolean compress) {
+    this.directory = directory;
+    this.compress = compress;
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to create blob directory " + directory, e);
+    }
+  }
+
+  static String hash(byte[] payload) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(payload));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  boolean write(String hash, byte[] payload) throws IOException {
+    Path target = path(hash);
+    if (Files.exists(target)) {
+      return false;
+    }
+    if (!Files.isDirectory(target.getParent())) {
+      Files.createDirectories(target.getParent());
+      syncDirectory(directory);
+    }
+    Path partial = target.resolveSibling(hash + "." + UUID.randomUUID() + ".partial");
+    try (FileOutputStream file = new FileOutputStream(partial.toFile())) {
+      file.write(compress ? FORMAT_DEFLATE : FORMAT_RAW);
+      if (compress) {
+        Deflater deflater = new Deflater();
+        try {
+          DeflaterOutputStream out = new DeflaterOutputStream(file, deflater, 64 * 1024);
+          out.write(payload);
+          out.finish();
+        } finally {
+          deflater.end();
+        }
+      } else {
+        file.write(payload);
+      }
+      file.getFD().sync();
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(partial);
+      throw e;
+    }
+    Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    syncDirectory(target.getParent());
+    return true;
+  }
+
+  boolean exists(String hash) {
+    return Files.exists(path(hash));
+  }
+
+  InputStream open(String hash) throws IOException {
+    InputStream in;
+    try {
+      in = new BufferedInputStream(Files.newInputStream(path(hash)), 64 * 1024);
+    } catch (NoSuchFileException e) {
+      throw new IOException("Step output blob is missing: " + hash, e);
+    }
+    int format = in.read();
+    switch (format) {
+      case FORMAT_RAW:
+        return in;
+      case FORMAT_DEFLATE:
+        return new InflaterInputStream(in);
+      default:
+        in.close();
+        throw new IOException("Unknown blob format " + format + " for " + hash);
+    }
+  }
+
+  byte[] read(String hash) throws IOException {
+    try (InputStream in = open(hash)) {
+      return in.readAllBytes();
+    }
+  }
+
+  void delete(String hash) throws IOException {
+    Files.deleteIfExists(path(hash));
+  }
+
+  private static void syncDirectory(Path dir) throws IOException {
+    if (WINDOWS) {
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+      channel.force(true);
+    }
+  }
+
+  private Path path(String hash) {
+    return directory.resolve(hash.substring(0, 2)).resolve(hash);
+  }
+}
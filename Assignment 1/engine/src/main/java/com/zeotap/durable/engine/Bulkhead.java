@@ -0,0 +1,75 @@
+package com.zeotap.durable.engine;
+
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class Bulkhead {
+  private final String name;
+  private final BulkheadConfig config;
+  private final Semaphore permits;
+  private final long intervalNanos;
+  private final AtomicLong nextStartAtNanos = new AtomicLong(System.nanoTime());
+  private final AtomicInteger queued = new AtomicInteger();
+  private final LatencyHistogram waits = new LatencyHistogram();
+
+  Bulkhead(String name, BulkheadConfig config) {
+    this.name = Objects.requireNonNull(name, "name");
+    this.config = Objects.requireNonNull(config, "config");
+    this.permits = new Semaphore(config.maxConcurrency(), true);
+    this.intervalNanos = config.rateLimited() ? (long) (1_000_000_000L / config.permitsPerSecond()) : 0;
+  }
+
+  String name() {
+    return name;
+  }
+
+  BulkheadConfig config() {
+    return config;
+  }
+
+  LatencyHistogram waits() {
+    return waits;
+  }
+
+  int queueDepth() {
+    return queued.get();
+  }
+
+  int active() {
+    return config.maxConcurrency() - permits.availablePermits();
+  }
+
+  void acquire() throws InterruptedException {
+    queued.incrementAndGet();
+    try {
+      pace();
+      permits.acquire();
+    } finally {
+      queued.decrementAndGet();
+    }
+  }
+
+  void release() {
+    permits.release();
+  }
+
+  private void pace() throws InterruptedException {
+    if (intervalNanos == 0) {
+      return;
+    }
+    long now = System.nanoTime();
+    long startAt = nextStartAtNanos.getAndAccumulate(now, (next, at) -> Math.max(next, at) + intervalNanos);
+    long delay = Math.max(startAt, now) - now;
+    if (delay > 0) {
+      TimeUnit.NANOSECONDS.sleep(delay);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "active=" + active() + " queued=" + queueDepth() + " wait: " + waits;
+  }
+}
@@ -0,0 +1,37 @@
+package com.zeotap.durable.engine;
+
+public final class BulkheadConfig {
+  private final int maxConcurrency;
+  private final double permitsPerSecond;
+
+  private BulkheadConfig(int maxConcurrency, double permitsPerSecond) {
+    this.maxConcurrency = maxConcurrency;
+    this.permitsPerSecond = permitsPerSecond;
+  }
+
+  public static BulkheadConfig of(int maxConcurrency) {
+    return of(maxConcurrency, 0);
+  }
+
+  public static BulkheadConfig of(int maxConcurrency, double permitsPerSecond) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be >= 1");
+    }
+    if (!(permitsPerSecond >= 0) || Double.isInfinite(permitsPerSecond)) {
+      throw new IllegalArgumentException("permitsPerSecond must be >= 0 and finite");
+    }
+    return new BulkheadConfig(maxConcurrency, permitsPerSecond);
+  }
+
+  public int maxConcurrency() {
+    return maxConcurrency;
+  }
+
+  public double permitsPerSecond() {
+    return permitsPerSecond;
+  }
+
+  public boolean rateLimited() {
+    return permitsPerSecond > 0;
+  }
+}
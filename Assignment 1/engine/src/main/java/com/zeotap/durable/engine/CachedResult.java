@@ -0,0 +1,35 @@
+package com.zeotap.durable.engine;
+
+public final class CachedResult {
+  final String cacheKey;
+  final int outputTypeId;
+  final byte[] outputBlob;
+  final long expiresAtEpochMs;
+
+  public CachedResult(String cacheKey, int outputTypeId, byte[] outputBlob, long expiresAtEpochMs) {
+    this.cacheKey = cacheKey;
+    this.outputTypeId = outputTypeId;
+    this.outputBlob = outputBlob;
+    this.expiresAtEpochMs = expiresAtEpochMs;
+  }
+
+  public String cacheKey() {
+    return cacheKey;
+  }
+
+  public int outputTypeId() {
+    return outputTypeId;
+  }
+
+  public byte[] outputBlob() {
+    return outputBlob;
+  }
+
+  public long expiresAtEpochMs() {
+    return expiresAtEpochMs;
+  }
+
+  boolean expired(long nowEpochMs) {
+    return expiresAtEpochMs <= nowEpochMs;
+  }
+}
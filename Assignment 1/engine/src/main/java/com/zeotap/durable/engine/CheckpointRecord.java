@@ -0,0 +1,81 @@
+package com.zeotap.durable.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class CheckpointRecord {
+  final int sequence;
+  final int stateTypeId;
+  final byte[] stateBlob;
+  final Map<String, Integer> counters;
+  final long updatedAtEpochMs;
+
+  public CheckpointRecord(
+      int sequence, int stateTypeId, byte[] stateBlob, Map<String, Integer> counters, long updatedAtEpochMs) {
+    this.sequence = sequence;
+    this.stateTypeId = stateTypeId;
+    this.stateBlob = stateBlob;
+    this.counters = Collections.unmodifiableMap(new LinkedHashMap<>(counters));
+    this.updatedAtEpochMs = updatedAtEpochMs;
+  }
+
+  public int sequence() {
+    return sequence;
+  }
+
+  public int stateTypeId() {
+    return stateTypeId;
+  }
+
+  public byte[] stateBlob() {
+    return stateBlob;
+  }
+
+  public Map<String, Integer> counters() {
+    return counters;
+  }
+
+  public long updatedAtEpochMs() {
+    return updatedAtEpochMs;
+  }
+
+  boolean covers(String stepKey) {
+    StepKey key = StepKey.parse(stepKey);
+    Integer next = counters.get(key.id());
+    return next != null && key.sequence() >= 0 && key.sequence() < next;
+  }
+
+  byte[] encodeCounters() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(counters.size());
+      for (Map.Entry<String, Integer> e : counters.entrySet()) {
+        out.writeUTF(e.getKey());
+        out.writeInt(e.getValue());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to encode checkpoint counters", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  static Map<String, Integer> decodeCounters(byte[] encoded) {
+    Map<String, Integer> counters = new LinkedHashMap<>();
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        counters.put(in.readUTF(), in.readInt());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to decode checkpoint counters", e);
+    }
+    return counters;
+  }
+}
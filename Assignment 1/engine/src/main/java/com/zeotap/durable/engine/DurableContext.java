@@ -1,35 +1,51 @@
 package com.zeotap.durable.engine;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public final class DurableContext {
+  public static final Duration DEFAULT_CACHE_TTL = Duration.ofHours(1);
+
+  private static final System.Logger LOGGER = System.getLogger(DurableContext.class.getName());
+  private static final Duration TIMEOUT_GRACE = Duration.ofMillis(100);
+  private static final String SLEEP_ID = "$sleep";
+  private static final String CHECKPOINT_ID = "$checkpoint";
+  private static final String SIGNAL_ID = "$signal/";
+
+  private final RunState run;
   private final String workflowId;
-  private final SQLiteStepStore stepStore;
-  private final ObjectMapper objectMapper;
+  private final StepStore stepStore;
+  private final OutputSerializer serializer;
   private final String runId;
   private final String scopePrefix;
-  private final ConcurrentHashMap<String, AtomicInteger> perIdSequence;
+  private final ConcurrentHashMap<String, StepPath> paths;
+  private final ConcurrentHashMap<String, StepPath> scopePaths = new ConcurrentHashMap<>();
+  private final ReplayCache replayCache;
+  private final EngineMetrics metrics;
 
-  DurableContext(
-      String workflowId,
-      SQLiteStepStore stepStore,
-      ObjectMapper objectMapper,
-      String runId,
-      String scopePrefix,
-      ConcurrentHashMap<String, AtomicInteger> perIdSequence) {
-    this.workflowId = Objects.requireNonNull(workflowId, "workflowId");
-    this.stepStore = Objects.requireNonNull(stepStore, "stepStore");
-    this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper");
-    this.runId = Objects.requireNonNull(runId, "runId");
+  DurableContext(RunState run, String scopePrefix) {
+    this.run = Objects.requireNonNull(run, "run");
+    this.workflowId = run.workflowId;
+    this.stepStore = run.stepStore;
+    this.serializer = run.serializer;
+    this.runId = run.runId;
     this.scopePrefix = Objects.requireNonNull(scopePrefix, "scopePrefix");
-    this.perIdSequence = Objects.requireNonNull(perIdSequence, "perIdSequence");
+    this.paths = run.paths;
+    this.replayCache = run.replayCache;
+    this.metrics = run.stepStore.metrics();
   }
 
   public String workflowId() {
@@ -44,8 +60,21 @@ public final class DurableContext {
     return stepStore.zombieTimeout();
   }
 
+  public LockWaitStats lockWaitStats() {
+    return stepStore.lockWaitStats();
+  }
+
+  StepStore stepStore() {
+    return stepStore;
+  }
+
+  WorkflowSummary summarize(WorkflowStatus status) {
+    return run.stats.summarize(workflowId, runId, status);
+  }
+
   public void resetWorkflowState() {
     stepStore.deleteWorkflow(workflowId);
+    replayCache.clear();
   }
 
   public DurableContext scoped(String scope) {
@@ -54,150 +83,678 @@ public final class DurableContext {
       throw new IllegalArgumentException("scope must be non-empty");
     }
     String newPrefix = scopePrefix + normalized + "/";
-    return new DurableContext(workflowId, stepStore, objectMapper, runId, newPrefix, perIdSequence);
+    return new DurableContext(run, newPrefix);
   }
 
   public <T> T step(String id, Class<T> clazz, StepCallable<T> fn) throws Exception {
+    return step(id, StepOptions.defaults(), clazz, fn);
+  }
+
+  public <T> T step(String id, StepCallable<T> fn) throws Exception {
     Objects.requireNonNull(id, "id");
+    Objects.requireNonNull(fn, "fn");
+    return runStep(nextStepKey(id), null, StepOptions.defaults(), fn, null);
+  }
+
+  public <T> T step(String id, StepOptions options, Class<T> clazz, StepCallable<T> fn) throws Exception {
+    Objects.requireNonNull(id, "id");
+    Objects.requireNonNull(options, "options");
     Objects.requireNonNull(clazz, "clazz");
     Objects.requireNonNull(fn, "fn");
+    return runStep(nextStepKey(id), clazz, options, fn, null);
+  }
 
-    String fullId = scopePrefix + id;
-    int seq = nextSequence(fullId);
-    StepKey key = new StepKey(fullId, seq);
-    String stepKey = key.keyString();
+  public <T> T step(String id, StepOptions options, StepCallable<T> fn) throws Exception {
+    Objects.requireNonNull(id, "id");
+    Objects.requireNonNull(options, "options");
+    Objects.requireNonNull(fn, "fn");
+    return runStep(nextStepKey(id), null, options, fn, null);
+  }
+
+  private <T> T call(String stepKey, Duration timeout, StepCallable<T> fn) throws Exception {
+    return timeout == null ? fn.call() : callWithTimeout(stepKey, timeout, fn);
+  }
 
-    Optional<StepRecord> existing = stepStore.readStep(workflowId, stepKey);
-    if (existing.isPresent() && existing.get().status == StepStatus.COMPLETED) {
-      String json = existing.get().outputJson;
-      if (json == null) {
-        return null;
+  private <T> T callWithTimeout(String stepKey, Duration timeout, StepCallable<T> fn) throws Exception {
+    CompletableFuture<T> attempt = new CompletableFuture<>();
+    Thread activity =
+        Thread.ofVirtual()
+            .name("step-" + stepKey)
+            .start(
+                () -> {
+                  RunTimeline previous = bindTimeline();
+                  try {
+                    attempt.complete(fn.call());
+                  } catch (Throwable t) {
+                    attempt.completeExceptionally(t);
+                  } finally {
+                    unbindTimeline(previous);
+                  }
+                });
+    try {
+      return attempt.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      StepTimeoutException timedOut = new StepTimeoutException(stepKey, timeout);
+      if (!attempt.completeExceptionally(timedOut)) {
+        return unwrap(attempt);
       }
-      return objectMapper.readValue(json, clazz);
+      activity.interrupt();
+      metrics.recordStepTimeout(workflowId, stepKey);
+      activity.join(TIMEOUT_GRACE);
+      throw timedOut;
+    } catch (InterruptedException e) {
+      activity.interrupt();
+      throw e;
+    } catch (ExecutionException e) {
+      throw rethrow(e);
+    }
+  }
+
+  private static <T> T unwrap(CompletableFuture<T> completed) throws Exception {
+    try {
+      return completed.get();
+    } catch (ExecutionException e) {
+      throw rethrow(e);
     }
+  }
+
+  private static Exception rethrow(ExecutionException e) {
+    Throwable cause = e.getCause();
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return cause instanceof Exception ? (Exception) cause : e;
+  }
+
+  public <T> T cachedStep(String id, Object inputKey, Class<T> clazz, StepCallable<T> fn) throws Exception {
+    return cachedStep(id, inputKey, DEFAULT_CACHE_TTL, clazz, fn);
+  }
 
-    boolean canRun = stepStore.tryStartStep(workflowId, stepKey, runId);
-    if (!canRun) {
-      Optional<StepRecord> after = stepStore.readStep(workflowId, stepKey);
-      if (after.isPresent() && after.get().status == StepStatus.COMPLETED) {
-        String json = after.get().outputJson;
-        if (json == null) {
-          return null;
+  public <T> T cachedStep(String id, Object inputKey, Duration ttl, Class<T> clazz, StepCallable<T> fn)
+      throws Exception {
+    Objects.requireNonNull(id, "id");
+    Objects.requireNonNull(ttl, "ttl");
+    Objects.requireNonNull(clazz, "clazz");
+    Objects.requireNonNull(fn, "fn");
+    if (ttl.isNegative() || ttl.isZero()) {
+      throw new IllegalArgumentException("ttl must be > 0");
+    }
+    byte[] input = serializer.encode(inputKey);
+    String cacheKey = id + "/" + BlobStore.hash(input == null ? new byte[0] : input);
+    return runStep(
+        nextStepKey(id), clazz, StepOptions.defaults(), () -> cachedCall(id, cacheKey, ttl, clazz, fn), null);
+  }
+
+  private <T> T cachedCall(String id, String cacheKey, Duration ttl, Class<T> clazz, StepCallable<T> fn)
+      throws Exception {
+    SingleFlight flights = stepStore.cachedCalls();
+    String flightKey = cacheKey + '\u0000' + clazz.getName();
+    while (true) {
+      CompletableFuture<Object> flight = new CompletableFuture<>();
+      CompletableFuture<Object> leader = flights.join(flightKey, flight);
+      if (leader != null) {
+        try {
+          Object shared = leader.get();
+          metrics.recordResultCacheLookup(id, true);
+          return clazz.cast(shared);
+        } catch (ExecutionException e) {
+          continue;
         }
-        return objectMapper.readValue(json, clazz);
       }
+      try {
+        T result = lookupOrCall(id, cacheKey, ttl, clazz, fn);
+        flight.complete(result);
+        return result;
+      } catch (Exception | Error e) {
+        flight.completeExceptionally(e);
+        throw e;
+      } finally {
+        flights.leave(flightKey, flight);
+      }
+    }
+  }
 
-      if (after.isPresent() && after.get().status == StepStatus.RUNNING) {
-        throw new IllegalStateException(
-            "Step is currently RUNNING and within zombie timeout: " + stepKey);
+  private <T> T lookupOrCall(String id, String cacheKey, Duration ttl, Class<T> clazz, StepCallable<T> fn)
+      throws Exception {
+    long readAt = System.nanoTime();
+    Optional<CachedResult> cached = stepStore.readCachedResult(cacheKey, System.currentTimeMillis());
+    timed(StoreOperation.READ, readAt);
+    metrics.recordResultCacheLookup(id, cached.isPresent());
+    if (cached.isPresent()) {
+      return serializer.decode(cached.get().outputBlob, clazz);
+    }
+    T result = fn.call();
+    long saveAt = System.nanoTime();
+    stepStore.saveCachedResult(
+        new CachedResult(
+            cacheKey,
+            stepStore.internType(clazz.getName()),
+            serializer.encode(result),
+            System.currentTimeMillis() + ttl.toMillis()));
+    timed(StoreOperation.SAVE, saveAt);
+    return result;
+  }
+
+  public <I, O> List<O> map(
+      String id, List<I> items, int concurrency, Class<O> clazz, ItemCallable<I, O> fn) throws Exception {
+    Objects.requireNonNull(id, "id");
+    Objects.requireNonNull(items, "items");
+    Objects.requireNonNull(clazz, "clazz");
+    Objects.requireNonNull(fn, "fn");
+    return runMap(new MapRun<>(this, nextStepKey(id).keyString(), items, concurrency, clazz, fn));
+  }
+
+  public <I, O> List<O> map(String id, List<I> items, int concurrency, ItemCallable<I, O> fn)
+      throws Exception {
+    Objects.requireNonNull(id, "id");
+    Objects.requireNonNull(items, "items");
+    Objects.requireNonNull(fn, "fn");
+    return runMap(new MapRun<I, O>(this, nextStepKey(id).keyString(), items, concurrency, null, fn));
+  }
+
+  private <I, O> List<O> runMap(MapRun<I, O> map) throws Exception {
+    run.enterStep();
+    try {
+      return map.run();
+    } finally {
+      run.exitStep();
+    }
+  }
+
+  public <S> Optional<S> restore(Class<S> clazz) throws Exception {
+    Objects.requireNonNull(clazz, "clazz");
+    if (!paths.isEmpty()) {
+      throw new IllegalStateException("restore must be called before the first step of a run");
+    }
+    long readAt = System.nanoTime();
+    Optional<CheckpointRecord> checkpoint = stepStore.readCheckpoint(workflowId);
+    timed(StoreOperation.READ, readAt);
+    run.restored = true;
+    if (checkpoint.isEmpty()) {
+      return Optional.empty();
+    }
+    for (Map.Entry<String, Integer> e : checkpoint.get().counters.entrySet()) {
+      paths.put(e.getKey(), new StepPath(e.getKey(), e.getValue()));
+    }
+    byte[] state = checkpoint.get().stateBlob;
+    return Optional.ofNullable(state == null ? null : serializer.decode(state, clazz, stepStore));
+  }
+
+  public void checkpoint(Object state) {
+    if (!run.restored) {
+      throw new IllegalStateException("restore must be called before checkpoint");
+    }
+    String stateClass = state == null ? Void.class.getName() : state.getClass().getName();
+    int stateTypeId = stepStore.internType(stateClass);
+    byte[] stateBlob = serializer.encode(state);
+    run.beginSnapshot();
+    try {
+      nextSequence(CHECKPOINT_ID);
+      Map<String, Integer> counters = new HashMap<>();
+      for (Map.Entry<String, StepPath> e : paths.entrySet()) {
+        counters.put(e.getKey(), e.getValue().current());
       }
+      CheckpointRecord checkpoint =
+          new CheckpointRecord(
+              counters.get(CHECKPOINT_ID), stateTypeId, stateBlob, counters, System.currentTimeMillis());
+      long saveAt = System.nanoTime();
+      stepStore.saveCheckpoint(workflowId, checkpoint);
+      timed(StoreOperation.SAVE, saveAt);
+    } finally {
+      run.endSnapshot();
+    }
+  }
+
+  public void sleep(Duration duration) throws InterruptedException {
+    Objects.requireNonNull(duration, "duration");
+    if (duration.isNegative()) {
+      throw new IllegalArgumentException("duration must be >= 0");
+    }
+    sleepUntil(Instant.now().plus(duration));
+  }
+
+  public void sleepUntil(Instant wakeAt) throws InterruptedException {
+    Objects.requireNonNull(wakeAt, "wakeAt");
+    String timerKey = nextStepKey(SLEEP_ID).keyString();
+    TimerRecord timer = stepStore.scheduleTimer(workflowId, timerKey, wakeAt.toEpochMilli());
+    if (timer.fired) {
+      return;
+    }
 
-      if (after.isPresent() && after.get().status == StepStatus.FAILED) {
-        throw new IllegalStateException(
-            "Step previously FAILED and was not completed: " + stepKey + " error=" + after.get().error);
+    waitUntil(timer.wakeAtEpochMs, timerKey);
+    stepStore.fireTimer(workflowId, timerKey);
+  }
+
+  public <T> T awaitSignal(String name, Class<T> clazz) throws Exception {
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(clazz, "clazz");
+    int sequence = nextSequence(SIGNAL_ID + name);
+    while (true) {
+      CompletableFuture<Void> wake = stepStore.watchSignal(workflowId, name, sequence);
+      boolean parked = false;
+      try {
+        long readAt = System.nanoTime();
+        Optional<SignalRecord> signal = stepStore.readSignal(workflowId, name, sequence);
+        timed(StoreOperation.READ, readAt);
+        if (signal.isPresent()) {
+          byte[] payload = signal.get().payload;
+          return payload == null ? null : serializer.decode(payload, clazz, stepStore);
+        }
+        if (run.canSuspend()) {
+          parked = true;
+          throw new WorkflowSuspendedException(workflowId, name, wake);
+        }
+        long waitAt = System.nanoTime();
+        try {
+          wake.get();
+        } catch (ExecutionException | CancellationException e) {
+          throw new IllegalStateException("Signal wait failed: " + name, e);
+        } finally {
+          trace(RunTimeline.WAIT, SIGNAL_ID + name, waitAt, System.nanoTime() - waitAt);
+        }
+      } finally {
+        if (!parked) {
+          wake.cancel(false);
+        }
       }
+    }
+  }
+
+  static int sendSignal(StepStore store, OutputSerializer serializer, String workflowId, String name, Object payload) {
+    Objects.requireNonNull(workflowId, "workflowId");
+    Objects.requireNonNull(name, "name");
+    String payloadClass = payload == null ? Void.class.getName() : payload.getClass().getName();
+    return store.sendSignal(workflowId, name, store.internType(payloadClass), serializer.encode(payload));
+  }
+
+  public ParallelScope parallel(String scope) {
+    return parallel(scope, Integer.MAX_VALUE);
+  }
+
+  public ParallelScope parallel(String scope, int maxConcurrency) {
+    return new ParallelScope(scoped(scope), maxConcurrency);
+  }
+
+  StepKey nextStepKey(String id) {
+    StepPath path = scopePaths.get(id);
+    if (path == null) {
+      path = scopePaths.computeIfAbsent(id, local -> paths.computeIfAbsent(scopePrefix + local, StepPath::new));
+    }
+    return path.next();
+  }
+
+  void enterStep() {
+    run.enterStep();
+  }
+
+  void exitStep() {
+    run.exitStep();
+  }
 
-      throw new IllegalStateException("Step could not be started: " + stepKey);
+  void itemsCompleted(String itemId, int count) {
+    paths.computeIfAbsent(itemId, StepPath::new).advanceTo(count);
+  }
+
+  Bulkhead bulkhead(String pool) {
+    Bulkhead bulkhead = run.bulkheads.get(Objects.requireNonNull(pool, "pool"));
+    if (bulkhead == null) {
+      throw new IllegalArgumentException("Unknown bulkhead: " + pool);
     }
+    return bulkhead;
+  }
 
+  <T> T runStep(StepKey key, Class<T> clazz, StepOptions options, StepCallable<T> fn, ParallelScope owner)
+      throws Exception {
+    Bulkhead bulkhead = options.pool() == null ? null : bulkhead(options.pool());
+    run.enterStep();
     try {
-      T result = fn.call();
-      String json = serialize(result);
-      stepStore.completeStep(workflowId, stepKey, runId, clazz.getName(), json);
-      return result;
-    } catch (Exception e) {
-      stepStore.failStep(workflowId, stepKey, runId, e.toString());
-      throw e;
+      return attemptStep(key, clazz, options.retryPolicy(), options.timeout(), bulkhead, fn, owner);
+    } finally {
+      run.exitStep();
     }
   }
 
-  public <T> T step(String id, StepCallable<T> fn) throws Exception {
-    Objects.requireNonNull(id, "id");
-    Objects.requireNonNull(fn, "fn");
-
-    String fullId = scopePrefix + id;
-    int seq = nextSequence(fullId);
-    StepKey key = new StepKey(fullId, seq);
+  private <T> T attemptStep(
+      StepKey key,
+      Class<T> clazz,
+      RetryPolicy retryPolicy,
+      Duration timeout,
+      Bulkhead bulkhead,
+      StepCallable<T> fn,
+      ParallelScope owner)
+      throws Exception {
     String stepKey = key.keyString();
+    Optional<StepRecord> existing = lookupCompleted(key);
+    if (existing.isPresent()) {
+      replayed(stepKey);
+      return decode(existing.get(), clazz);
+    }
 
-    Optional<StepRecord> existing = stepStore.readStep(workflowId, stepKey);
-    if (existing.isPresent() && existing.get().status == StepStatus.COMPLETED) {
-      String json = existing.get().outputJson;
-      String className = existing.get().outputClass;
-      if (json == null) {
-        return null;
+    while (true) {
+      long startAt = System.nanoTime();
+      int attempt = stepStore.tryStartStep(workflowId, key, runId);
+      long persistence = timed(StoreOperation.START, startAt);
+      if (attempt == 0) {
+        long readAt = System.nanoTime();
+        Optional<StepRecord> current = stepStore.readStep(workflowId, key);
+        timed(StoreOperation.READ, readAt);
+        if (current.isPresent() && current.get().status == StepStatus.RETRYING) {
+          waitUntil(current.get().nextAttemptAtEpochMs, stepKey);
+          continue;
+        }
+        StepRecord completed = requireCompleted(stepKey, current);
+        replayed(stepKey);
+        return decode(completed, clazz);
       }
-      if (className == null || className.isBlank() || className.equals(Void.class.getName())) {
-        return null;
+
+      long activityAt = System.nanoTime();
+      if (bulkhead != null) {
+        try {
+          activityAt += acquire(bulkhead);
+        } catch (InterruptedException e) {
+          stepStore.releaseStep(workflowId, key, runId);
+          throw e;
+        }
       }
-      @SuppressWarnings("unchecked")
-      Class<T> clazz = (Class<T>) Class.forName(className);
-      return objectMapper.readValue(json, clazz);
-    }
-
-    boolean canRun = stepStore.tryStartStep(workflowId, stepKey, runId);
-    if (!canRun) {
-      Optional<StepRecord> after = stepStore.readStep(workflowId, stepKey);
-      if (after.isPresent() && after.get().status == StepStatus.COMPLETED) {
-        String json = after.get().outputJson;
-        String className = after.get().outputClass;
-        if (json == null) {
-          return null;
+      T result;
+      try {
+        try {
+          result = call(stepKey, timeout, fn);
+        } finally {
+          if (bulkhead != null) {
+            bulkhead.release();
+          }
+        }
+      } catch (Exception e) {
+        long activity = System.nanoTime() - activityAt;
+        trace(RunTimeline.STEP, stepKey, activityAt, activity);
+        if (owner != null && owner.isCancelled()) {
+          stepStore.releaseStep(workflowId, key, runId);
+          throw e;
         }
-        if (className == null || className.isBlank() || className.equals(Void.class.getName())) {
-          return null;
+        long failAt = System.nanoTime();
+        if (retryPolicy == null || !retryPolicy.shouldRetry(attempt, e)) {
+          if (e instanceof StepTimeoutException) {
+            stepStore.timeOutStep(workflowId, key, runId, e.toString());
+          } else {
+            stepStore.failStep(workflowId, key, runId, e.toString());
+          }
+          executed(stepKey, activity, persistence + timed(StoreOperation.FAIL, failAt), 0);
+          throw e;
         }
-        @SuppressWarnings("unchecked")
-        Class<T> clazz = (Class<T>) Class.forName(className);
-        return objectMapper.readValue(json, clazz);
+        long nextAttemptAt = System.currentTimeMillis() + retryPolicy.backoffMillis(attempt);
+        stepStore.scheduleRetry(workflowId, key, runId, e.toString(), nextAttemptAt);
+        executed(stepKey, activity, persistence + timed(StoreOperation.FAIL, failAt), 0);
+        waitUntil(nextAttemptAt, stepKey);
+        continue;
       }
 
-      if (after.isPresent() && after.get().status == StepStatus.RUNNING) {
-        throw new IllegalStateException(
-            "Step is currently RUNNING and within zombie timeout: " + stepKey);
-      }
+      long activity = System.nanoTime() - activityAt;
+      trace(RunTimeline.STEP, stepKey, activityAt, activity);
+      String outputClass =
+          clazz != null
+              ? clazz.getName()
+              : (result == null) ? Void.class.getName() : result.getClass().getName();
+      long completeAt = System.nanoTime();
+      int bytes = complete(key, outputClass, result);
+      persistence += timed(StoreOperation.COMPLETE, completeAt);
+      executed(stepKey, activity, persistence, bytes);
+      return result;
+    }
+  }
 
-      if (after.isPresent() && after.get().status == StepStatus.FAILED) {
-        throw new IllegalStateException(
-            "Step previously FAILED and was not completed: " + stepKey + " error=" + after.get().error);
-      }
+  private void waitUntil(long wakeAtEpochMs, String key) throws InterruptedException {
+    if (wakeAtEpochMs <= System.currentTimeMillis()) {
+      return;
+    }
+    if (run.canSuspend()) {
+      throw new WorkflowSuspendedException(workflowId, wakeAtEpochMs);
+    }
+    CompletableFuture<Void> due = new CompletableFuture<>();
+    HashedTimerWheel.Timeout timeout = run.timers.schedule(wakeAtEpochMs, () -> due.complete(null));
+    long waitAt = System.nanoTime();
+    try {
+      due.get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Timer failed: " + key, e.getCause());
+    } finally {
+      timeout.cancel();
+      trace(RunTimeline.WAIT, key, waitAt, System.nanoTime() - waitAt);
+    }
+  }
+
+  private long acquire(Bulkhead bulkhead) throws InterruptedException {
+    long waitAt = System.nanoTime();
+    bulkhead.acquire();
+    long waited = System.nanoTime() - waitAt;
+    trace(RunTimeline.WAIT, bulkhead.name(), waitAt, waited);
+    metrics.recordBulkheadWait(workflowId, bulkhead, waited);
+    return waited;
+  }
 
-      throw new IllegalStateException("Step could not be started: " + stepKey);
+  private StepRecord requireCompleted(String stepKey, Optional<StepRecord> after) {
+    if (after.isPresent() && after.get().status == StepStatus.COMPLETED) {
+      return after.get();
     }
 
+    if (after.isPresent() && after.get().status == StepStatus.RUNNING) {
+      throw new IllegalStateException(
+          "Step is currently RUNNING and within zombie timeout: " + stepKey);
+    }
+
+    if (after.isPresent()
+        && (after.get().status == StepStatus.FAILED || after.get().status == StepStatus.TIMED_OUT)) {
+      throw new IllegalStateException(
+          "Step previously "
+              + after.get().status
+              + " and was not completed: "
+              + stepKey
+              + " error="
+              + after.get().error);
+    }
+
+    throw new IllegalStateException("Step could not be started: " + stepKey);
+  }
+
+  private long timed(StoreOperation operation, long startedAtNanos) {
+    long nanos = System.nanoTime() - startedAtNanos;
+    metrics.recordStoreOperation(operation, nanos);
+    trace(RunTimeline.STORE, operation.name(), startedAtNanos, nanos);
+    return nanos;
+  }
+
+  void trace(byte kind, String name, long startedAtNanos, long nanos) {
+    RunTimeline timeline = run.timeline;
+    if (timeline != null) {
+      timeline.record(kind, name, startedAtNanos, nanos);
+    }
+  }
+
+  RunTimeline bindTimeline() {
+    return run.timeline == null ? null : run.timeline.bind();
+  }
+
+  void unbindTimeline(RunTimeline previous) {
+    if (run.timeline != null) {
+      RunTimeline.unbind(previous);
+    }
+  }
+
+  void finishTimeline(long startedAtNanos) {
+    RunTimeline timeline = run.timeline;
+    if (timeline == null) {
+      return;
+    }
+    timeline.record(RunTimeline.WORKFLOW, workflowId, startedAtNanos, System.nanoTime() - startedAtNanos);
     try {
-      T result = fn.call();
-      String outputClass = (result == null) ? Void.class.getName() : result.getClass().getName();
-      String json = serialize(result);
-      stepStore.completeStep(workflowId, stepKey, runId, outputClass, json);
-      return result;
-    } catch (Exception e) {
-      stepStore.failStep(workflowId, stepKey, runId, e.toString());
-      throw e;
+      timeline.write(workflowId, runId);
+    } catch (IOException e) {
+      LOGGER.log(System.Logger.Level.WARNING, "Workflow timeline write failed", e);
     }
   }
 
-  private int nextSequence(String fullId) {
-    AtomicInteger seq = perIdSequence.computeIfAbsent(fullId, ignored -> new AtomicInteger(0));
-    return seq.getAndIncrement();
+  void replayed(String stepKey) {
+    trace(RunTimeline.REPLAY, stepKey, System.nanoTime(), 0);
+    run.stats.stepReplayed();
+    metrics.recordStepReplayed(workflowId, stepKey);
+  }
+
+  void executed(String stepKey, long activityNanos, long persistenceNanos, int outputBytes) {
+    run.stats.stepExecuted(activityNanos, persistenceNanos, outputBytes);
+    metrics.recordStepExecuted(workflowId, stepKey, activityNanos, persistenceNanos, outputBytes);
+  }
+
+  private int complete(StepKey key, String outputClass, Object result) {
+    int typeId = stepStore.internType(outputClass);
+    byte[] blob = serializer.encode(result);
+    stepStore.completeStep(workflowId, key, runId, typeId, blob);
+    replayCache.put(
+        key.keyString(),
+        new StepRecord(
+            StepStatus.COMPLETED, null, null, typeId, blob, null, System.currentTimeMillis(), runId, 0, 0));
+    return blob == null ? 0 : blob.length;
+  }
+
+  Map<String, StepRecord> readCompletedItems(String itemId) {
+    long readAt = System.nanoTime();
+    Map<String, StepRecord> completed = stepStore.readCompletedOccurrences(workflowId, itemId);
+    timed(StoreOperation.READ, readAt);
+    return completed;
   }
 
-  private String serialize(Object obj) {
-    if (obj == null) {
+  StepRecord completedRecord(Class<?> clazz, Object result) {
+    String outputClass =
+        clazz != null
+            ? clazz.getName()
+            : (result == null) ? Void.class.getName() : result.getClass().getName();
+    int typeId = stepStore.internType(outputClass);
+    byte[] blob = serializer.encode(result);
+    return new StepRecord(
+        StepStatus.COMPLETED, null, null, typeId, blob, null, System.currentTimeMillis(), runId, 1, 0);
+  }
+
+  int completeItems(Map<String, StepRecord> records) {
+    long completeAt = System.nanoTime();
+    int inserted = stepStore.completeSteps(workflowId, records);
+    timed(StoreOperation.COMPLETE, completeAt);
+    return inserted;
+  }
+
+  Optional<StepRecord> readItem(StepKey key) {
+    long readAt = System.nanoTime();
+    Optional<StepRecord> rec = stepStore.readStep(workflowId, key);
+    timed(StoreOperation.READ, readAt);
+    return rec;
+  }
+
+  <T> T decodeRecord(StepRecord rec, Class<T> clazz) throws Exception {
+    return decode(rec, clazz);
+  }
+
+  private <T> T decode(StepRecord rec, Class<T> clazz) throws Exception {
+    if (clazz == null) {
+      return decodeUntyped(rec);
+    }
+    if (rec.outputBlob != null) {
+      return serializer.decode(rec.outputBlob, clazz, stepStore);
+    }
+    if (rec.outputJson != null) {
+      return serializer.decodeLegacyJson(rec.outputJson, clazz);
+    }
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T decodeUntyped(StepRecord rec) throws Exception {
+    if (rec.outputBlob != null) {
+      return (T) serializer.decode(rec.outputBlob, stepStore.resolveType(rec.outputTypeId), stepStore);
+    }
+    String json = rec.outputJson;
+    String className = rec.outputClass;
+    if (json == null) {
       return null;
     }
-    try {
-      return objectMapper.writeValueAsString(obj);
-    } catch (JsonProcessingException e) {
-      throw new RuntimeException("Failed to serialize step output", e);
+    if (className == null || className.isBlank() || className.equals(Void.class.getName())) {
+      return null;
+    }
+    Class<T> clazz = (Class<T>) Class.forName(className);
+    return serializer.decodeLegacyJson(json, clazz);
+  }
+
+  private int nextSequence(String fullId) {
+    return paths.computeIfAbsent(fullId, StepPath::new).nextSequence();
+  }
+
+  private Optional<StepRecord> lookupCompleted(StepKey key) {
+    StepRecord cached = replayCache.get(key.keyString());
+    if (cached != null && cached.status == StepStatus.COMPLETED) {
+      return Optional.of(cached);
     }
+    if (replayCache.isComplete()) {
+      return Optional.empty();
+    }
+    long readAt = System.nanoTime();
+    Optional<StepRecord> rec = stepStore.readStep(workflowId, key);
+    timed(StoreOperation.READ, readAt);
+    return rec.filter(r -> r.status == StepStatus.COMPLETED);
+  }
+
+  static DurableContext createRoot(
+      String workflowId,
+      String sqliteFilePath,
+      Duration zombieTimeout,
+      HashedTimerWheel timers,
+      int replayCacheMaxEntries,
+      StoreOptions storeOptions,
+      Map<String, Bulkhead> bulkheads) {
+    return createRoot(
+        workflowId,
+        new SQLiteStepStore(sqliteFilePath, zombieTimeout, storeOptions),
+        timers,
+        replayCacheMaxEntries,
+        storeOptions,
+        bulkheads);
   }
 
-  static DurableContext createRoot(String workflowId, String sqliteFilePath, Duration zombieTimeout) {
-    SQLiteStepStore store = new SQLiteStepStore(sqliteFilePath, zombieTimeout);
-    ObjectMapper mapper = new ObjectMapper();
+  static DurableContext createRoot(
+      String workflowId,
+      StepStore store,
+      HashedTimerWheel timers,
+      int replayCacheMaxEntries,
+      StoreOptions storeOptions,
+      Map<String, Bulkhead> bulkheads) {
+    return createForRun(
+        workflowId,
+        store,
+        new OutputSerializer(storeOptions.codec()),
+        timers,
+        replayCacheMaxEntries,
+        storeOptions.timeline(),
+        bulkheads);
+  }
+
+  static DurableContext createForRun(
+      String workflowId,
+      StepStore store,
+      OutputSerializer serializer,
+      HashedTimerWheel timers,
+      int replayCacheMaxEntries,
+      TimelineConfig timelineConfig,
+      Map<String, Bulkhead> bulkheads) {
     String runId = UUID.randomUUID().toString();
-    return new DurableContext(workflowId, store, mapper, runId, "", new ConcurrentHashMap<>());
+    RunTimeline timeline = timelineConfig.enabled() ? new RunTimeline(timelineConfig) : null;
+    ReplayCache cache = new ReplayCache(replayCacheMaxEntries);
+    long preloadAt = System.nanoTime();
+    cache.preload(store, workflowId);
+    if (timeline != null) {
+      timeline.record(RunTimeline.STORE, "PRELOAD", preloadAt, System.nanoTime() - preloadAt);
+    }
+    return new DurableContext(
+        new RunState(workflowId, runId, store, serializer, cache, timers, timeline, bulkheads), "");
+  }
+
+  RunState run() {
+    return run;
   }
 
   void close() {
@@ -0,0 +1,355 @@
+package com.zeotap.durable.engine;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public final class EngineMetrics implements EngineMetricsMXBean {
+  public static final String JMX_DOMAIN = "com.zeotap.durable";
+
+  private final LatencyHistogram stepActivity = new LatencyHistogram();
+  private final LatencyHistogram stepPersistence = new LatencyHistogram();
+  private final LatencyHistogram lockWait = new LatencyHistogram();
+  private final LatencyHistogram recovery = new LatencyHistogram();
+  private final EnumMap<StoreOperation, LatencyHistogram> storeOperations = new EnumMap<>(StoreOperation.class);
+  private final LongAdder replayHits = new LongAdder();
+  private final LongAdder serializedBytes = new LongAdder();
+  private final LongAdder zombieTakeovers = new LongAdder();
+  private final LongAdder stepTimeouts = new LongAdder();
+  private final LongAdder resultCacheHits = new LongAdder();
+  private final LongAdder resultCacheMisses = new LongAdder();
+  private final ConcurrentSkipListMap<String, Bulkhead> bulkheads = new ConcurrentSkipListMap<>();
+  private final List<MetricsListener> listeners = new CopyOnWriteArrayList<>();
+
+  public EngineMetrics() {
+    for (StoreOperation op : StoreOperation.values()) {
+      storeOperations.put(op, new LatencyHistogram());
+    }
+  }
+
+  public void addListener(MetricsListener listener) {
+    listeners.add(Objects.requireNonNull(listener, "listener"));
+  }
+
+  public void removeListener(MetricsListener listener) {
+    listeners.remove(listener);
+  }
+
+  public ObjectName registerMBean(String name) {
+    Objects.requireNonNull(name, "name");
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName objectName = objectName(name);
+      if (!server.isRegistered(objectName)) {
+        server.registerMBean(this, objectName);
+      }
+      return objectName;
+    } catch (JMException e) {
+      throw new RuntimeException("Failed to register metrics MBean " + name, e);
+    }
+  }
+
+  public void unregisterMBean(String name) {
+    Objects.requireNonNull(name, "name");
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName objectName = objectName(name);
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+    } catch (JMException e) {
+      throw new RuntimeException("Failed to unregister metrics MBean " + name, e);
+    }
+  }
+
+  public LatencyHistogram stepActivity() {
+    return stepActivity;
+  }
+
+  public LatencyHistogram stepPersistence() {
+    return stepPersistence;
+  }
+
+  public LatencyHistogram lockWait() {
+    return lockWait;
+  }
+
+  public LatencyHistogram recovery() {
+    return recovery;
+  }
+
+  public LatencyHistogram storeOperation(StoreOperation operation) {
+    return storeOperations.get(Objects.requireNonNull(operation, "operation"));
+  }
+
+  public LatencyHistogram bulkheadWait(String pool) {
+    return requireBulkhead(pool).waits();
+  }
+
+  public int bulkheadQueueDepth(String pool) {
+    return requireBulkhead(pool).queueDepth();
+  }
+
+  public int bulkheadActive(String pool) {
+    return requireBulkhead(pool).active();
+  }
+
+  @Override
+  public long getStepExecutions() {
+    return stepActivity.count();
+  }
+
+  @Override
+  public long getReplayHits() {
+    return replayHits.sum();
+  }
+
+  @Override
+  public long getSerializedBytes() {
+    return serializedBytes.sum();
+  }
+
+  @Override
+  public long getZombieTakeovers() {
+    return zombieTakeovers.sum();
+  }
+
+  @Override
+  public long getStepTimeouts() {
+    return stepTimeouts.sum();
+  }
+
+  @Override
+  public double getStepActivityMeanMicros() {
+    return stepActivity.meanNanos() / 1_000.0;
+  }
+
+  @Override
+  public double getStepActivityP99Micros() {
+    return stepActivity.percentileNanos(99) / 1_000.0;
+  }
+
+  @Override
+  public double getStepPersistenceMeanMicros() {
+    return stepPersistence.meanNanos() / 1_000.0;
+  }
+
+  @Override
+  public double getStepPersistenceP99Micros() {
+    return stepPersistence.percentileNanos(99) / 1_000.0;
+  }
+
+  @Override
+  public long getLockAcquisitions() {
+    return lockWait.count();
+  }
+
+  @Override
+  public double getLockWaitMeanMicros() {
+    return lockWait.meanNanos() / 1_000.0;
+  }
+
+  @Override
+  public double getLockWaitP99Micros() {
+    return lockWait.percentileNanos(99) / 1_000.0;
+  }
+
+  @Override
+  public long getResultCacheHits() {
+    return resultCacheHits.sum();
+  }
+
+  @Override
+  public long getResultCacheMisses() {
+    return resultCacheMisses.sum();
+  }
+
+  @Override
+  public long getRecoveredWorkflows() {
+    return recovery.count();
+  }
+
+  @Override
+  public double getMeanTimeToRecoveryMillis() {
+    return recovery.meanNanos() / 1_000_000.0;
+  }
+
+  @Override
+  public double getTimeToRecoveryP99Millis() {
+    return recovery.percentileNanos(99) / 1_000_000.0;
+  }
+
+  @Override
+  public Map<String, Long> getStoreOperationCounts() {
+    Map<String, Long> out = new LinkedHashMap<>();
+    storeOperations.forEach((op, h) -> out.put(op.name(), h.count()));
+    return out;
+  }
+
+  @Override
+  public Map<String, Double> getStoreOperationMeanMicros() {
+    return perOperation(h -> h.meanNanos() / 1_000.0);
+  }
+
+  @Override
+  public Map<String, Double> getStoreOperationP99Micros() {
+    return perOperation(h -> h.percentileNanos(99) / 1_000.0);
+  }
+
+  @Override
+  public Map<String, Integer> getBulkheadQueueDepths() {
+    return perBulkhead(Bulkhead::queueDepth);
+  }
+
+  @Override
+  public Map<String, Integer> getBulkheadActive() {
+    return perBulkhead(Bulkhead::active);
+  }
+
+  @Override
+  public Map<String, Double> getBulkheadWaitMeanMicros() {
+    return perBulkheadWait(h -> h.meanNanos() / 1_000.0);
+  }
+
+  @Override
+  public Map<String, Double> getBulkheadWaitP99Micros() {
+    return perBulkheadWait(h -> h.percentileNanos(99) / 1_000.0);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("steps: executed=").append(getStepExecutions()).append(" replayed=").append(getReplayHits());
+    sb.append(" bytes=").append(getSerializedBytes()).append(" zombieTakeovers=").append(getZombieTakeovers());
+    sb.append(" timeouts=").append(getStepTimeouts());
+    sb.append("\n  resultCache: hits=").append(getResultCacheHits()).append(" misses=").append(getResultCacheMisses());
+    sb.append("\n  activity: ").append(stepActivity);
+    sb.append("\n  persistence: ").append(stepPersistence);
+    sb.append("\n  lockWait: ").append(lockWait);
+    sb.append("\n  recovery: ").append(recovery);
+    storeOperations.forEach((op, h) -> sb.append("\n  ").append(op.name().toLowerCase()).append(": ").append(h));
+    bulkheads.forEach((name, b) -> sb.append("\n  bulkhead ").append(name).append(": ").append(b));
+    return sb.toString();
+  }
+
+  void recordStepExecuted(
+      String workflowId, String stepKey, long activityNanos, long persistenceNanos, int outputBytes) {
+    stepActivity.record(activityNanos);
+    stepPersistence.record(persistenceNanos);
+    serializedBytes.add(outputBytes);
+    for (MetricsListener l : listeners) {
+      l.onStepExecuted(workflowId, stepKey, activityNanos, persistenceNanos, outputBytes);
+    }
+  }
+
+  void recordStepReplayed(String workflowId, String stepKey) {
+    replayHits.increment();
+    for (MetricsListener l : listeners) {
+      l.onStepReplayed(workflowId, stepKey);
+    }
+  }
+
+  void recordStoreOperation(StoreOperation operation, long nanos) {
+    storeOperations.get(operation).record(nanos);
+    for (MetricsListener l : listeners) {
+      l.onStoreOperation(operation, nanos);
+    }
+  }
+
+  void recordLockWait(long nanos) {
+    lockWait.record(nanos);
+    for (MetricsListener l : listeners) {
+      l.onLockWait(nanos);
+    }
+  }
+
+  void recordZombieTakeover(String workflowId, String stepKey) {
+    zombieTakeovers.increment();
+    for (MetricsListener l : listeners) {
+      l.onZombieTakeover(workflowId, stepKey);
+    }
+  }
+
+  void recordStepTimeout(String workflowId, String stepKey) {
+    stepTimeouts.increment();
+    for (MetricsListener l : listeners) {
+      l.onStepTimedOut(workflowId, stepKey);
+    }
+  }
+
+  void recordResultCacheLookup(String stepId, boolean hit) {
+    if (hit) {
+      resultCacheHits.increment();
+    } else {
+      resultCacheMisses.increment();
+    }
+    for (MetricsListener l : listeners) {
+      l.onResultCacheLookup(stepId, hit);
+    }
+  }
+
+  void trackBulkhead(Bulkhead bulkhead) {
+    bulkheads.put(bulkhead.name(), bulkhead);
+  }
+
+  void recordBulkheadWait(String workflowId, Bulkhead bulkhead, long nanos) {
+    bulkhead.waits().record(nanos);
+    for (MetricsListener l : listeners) {
+      l.onBulkheadWait(workflowId, bulkhead.name(), nanos);
+    }
+  }
+
+  void recordWorkflowRecovered(String workflowId, long recoveryNanos) {
+    recovery.record(recoveryNanos);
+    for (MetricsListener l : listeners) {
+      l.onWorkflowRecovered(workflowId, recoveryNanos);
+    }
+  }
+
+  void recordWorkflowFinished(WorkflowSummary summary) {
+    for (MetricsListener l : listeners) {
+      l.onWorkflowFinished(summary);
+    }
+  }
+
+  private Map<String, Double> perOperation(ToDoubleFunction<LatencyHistogram> fn) {
+    Map<String, Double> out = new LinkedHashMap<>();
+    storeOperations.forEach((op, h) -> out.put(op.name(), fn.applyAsDouble(h)));
+    return out;
+  }
+
+  private Map<String, Integer> perBulkhead(ToIntFunction<Bulkhead> fn) {
+    Map<String, Integer> out = new LinkedHashMap<>();
+    bulkheads.forEach((name, b) -> out.put(name, fn.applyAsInt(b)));
+    return out;
+  }
+
+  private Map<String, Double> perBulkheadWait(ToDoubleFunction<LatencyHistogram> fn) {
+    Map<String, Double> out = new LinkedHashMap<>();
+    bulkheads.forEach((name, b) -> out.put(name, fn.applyAsDouble(b.waits())));
+    return out;
+  }
+
+  private Bulkhead requireBulkhead(String pool) {
+    Bulkhead bulkhead = bulkheads.get(Objects.requireNonNull(pool, "pool"));
+    if (bulkhead == null) {
+      throw new IllegalArgumentException("Unknown bulkhead: " + pool);
+    }
+    return bulkhead;
+  }
+
+  private static ObjectName objectName(String name) throws JMException {
+    return new ObjectName(JMX_DOMAIN + ":type=EngineMetrics,name=" + ObjectName.quote(name));
+  }
+}
@@ -0,0 +1,53 @@
+package com.zeotap.durable.engine;
+
+import java.util.Map;
+
+public interface EngineMetricsMXBean {
+  long getStepExecutions();
+
+  long getReplayHits();
+
+  long getSerializedBytes();
+
+  long getZombieTakeovers();
+
+  long getStepTimeouts();
+
+  double getStepActivityMeanMicros();
+
+  double getStepActivityP99Micros();
+
+  double getStepPersistenceMeanMicros();
+
+  double getStepPersistenceP99Micros();
+
+  long getLockAcquisitions();
+
+  double getLockWaitMeanMicros();
+
+  double getLockWaitP99Micros();
+
+  long getResultCacheHits();
+
+  long getResultCacheMisses();
+
+  long getRecoveredWorkflows();
+
+  double getMeanTimeToRecoveryMillis();
+
+  double getTimeToRecoveryP99Millis();
+
+  Map<String, Integer> getBulkheadQueueDepths();
+
+  Map<String, Integer> getBulkheadActive();
+
+  Map<String, Double> getBulkheadWaitMeanMicros();
+
+  Map<String, Double> getBulkheadWaitP99Micros();
+
+  Map<String, Long> getStoreOperationCounts();
+
+  Map<String, Double> getStoreOperationMeanMicros();
+
+  Map<String, Double> getStoreOperationP99Micros();
+}
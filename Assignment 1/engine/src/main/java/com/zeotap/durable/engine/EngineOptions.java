@@ -0,0 +1,77 @@
+package com.zeotap.durable.engine;
+
+import java.util.Objects;
+
+public final class EngineOptions {
+  public static final int DEFAULT_MAX_CONCURRENT_WORKFLOWS = 1_000;
+  public static final int DEFAULT_MAX_QUEUED_WORKFLOWS = 100_000;
+
+  private static final EngineOptions DEFAULTS =
+      new EngineOptions(
+          DEFAULT_MAX_CONCURRENT_WORKFLOWS,
+          DEFAULT_MAX_QUEUED_WORKFLOWS,
+          WorkflowRunner.DEFAULT_REPLAY_CACHE_MAX_ENTRIES,
+          StoreOptions.defaults());
+
+  private final int maxConcurrentWorkflows;
+  private final int maxQueuedWorkflows;
+  private final int replayCacheMaxEntries;
+  private final StoreOptions storeOptions;
+
+  private EngineOptions(
+      int maxConcurrentWorkflows, int maxQueuedWorkflows, int replayCacheMaxEntries, StoreOptions storeOptions) {
+    this.maxConcurrentWorkflows = maxConcurrentWorkflows;
+    this.maxQueuedWorkflows = maxQueuedWorkflows;
+    this.replayCacheMaxEntries = replayCacheMaxEntries;
+    this.storeOptions = storeOptions;
+  }
+
+  public static EngineOptions defaults() {
+    return DEFAULTS;
+  }
+
+  public EngineOptions withMaxConcurrentWorkflows(int maxConcurrentWorkflows) {
+    if (maxConcurrentWorkflows < 1) {
+      throw new IllegalArgumentException("maxConcurrentWorkflows must be >= 1");
+    }
+    return new EngineOptions(maxConcurrentWorkflows, maxQueuedWorkflows, replayCacheMaxEntries, storeOptions);
+  }
+
+  public EngineOptions withMaxQueuedWorkflows(int maxQueuedWorkflows) {
+    if (maxQueuedWorkflows < 0) {
+      throw new IllegalArgumentException("maxQueuedWorkflows must be >= 0");
+    }
+    return new EngineOptions(maxConcurrentWorkflows, maxQueuedWorkflows, replayCacheMaxEntries, storeOptions);
+  }
+
+  public EngineOptions withReplayCacheMaxEntries(int replayCacheMaxEntries) {
+    if (replayCacheMaxEntries < 0) {
+      throw new IllegalArgumentException("replayCacheMaxEntries must be >= 0");
+    }
+    return new EngineOptions(maxConcurrentWorkflows, maxQueuedWorkflows, replayCacheMaxEntries, storeOptions);
+  }
+
+  public EngineOptions withStoreOptions(StoreOptions storeOptions) {
+    return new EngineOptions(
+        maxConcurrentWorkflows,
+        maxQueuedWorkflows,
+        replayCacheMaxEntries,
+        Objects.requireNonNull(storeOptions, "storeOptions"));
+  }
+
+  public int maxConcurrentWorkflows() {
+    return maxConcurrentWorkflows;
+  }
+
+  public int maxQueuedWorkflows() {
+    return maxQueuedWorkflows;
+  }
+
+  public int replayCacheMaxEntries() {
+    return replayCacheMaxEntries;
+  }
+
+  public StoreOptions storeOptions() {
+    return storeOptions;
+  }
+}
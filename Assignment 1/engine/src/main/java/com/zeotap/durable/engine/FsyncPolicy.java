@@ -0,0 +1,7 @@
+package com.zeotap.durable.engine;
+
+public enum FsyncPolicy {
+  ALWAYS,
+  INTERVAL,
+  NEVER
+}
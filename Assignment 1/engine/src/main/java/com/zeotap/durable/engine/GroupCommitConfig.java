@@ -0,0 +1,45 @@
+package com.zeotap.durable.engine;
+
+import java.time.Duration;
+import java.util.Objects;
+
+public final class GroupCommitConfig {
+  private static final GroupCommitConfig DISABLED = new GroupCommitConfig(false, 1, Duration.ZERO);
+
+  private final boolean enabled;
+  private final int maxBatchSize;
+  private final Duration linger;
+
+  private GroupCommitConfig(boolean enabled, int maxBatchSize, Duration linger) {
+    this.enabled = enabled;
+    this.maxBatchSize = maxBatchSize;
+    this.linger = linger;
+  }
+
+  public static GroupCommitConfig disabled() {
+    return DISABLED;
+  }
+
+  public static GroupCommitConfig of(int maxBatchSize, Duration linger) {
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("maxBatchSize must be >= 1");
+    }
+    Objects.requireNonNull(linger, "linger");
+    if (linger.isNegative()) {
+      throw new IllegalArgumentException("linger must be >= 0");
+    }
+    return new GroupCommitConfig(true, maxBatchSize, linger);
+  }
+
+  public boolean enabled() {
+    return enabled;
+  }
+
+  public int maxBatchSize() {
+    return maxBatchSize;
+  }
+
+  public Duration linger() {
+    return linger;
+  }
+}
@@ -0,0 +1,188 @@
+package com.zeotap.durable.engine;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+final class GroupCommitWriter implements AutoCloseable {
+  @FunctionalInterface
+  interface SqlOp<T> {
+    T apply() throws SQLException;
+  }
+
+  private static final class Pending<T> {
+    final SqlOp<T> op;
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    T result;
+    Exception failure;
+
+    Pending(SqlOp<T> op) {
+      this.op = op;
+    }
+
+    void run(Connection connection) throws SQLException {
+      Savepoint savepoint = connection.setSavepoint();
+      try {
+        result = op.apply();
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback(savepoint);
+        failure = e;
+      }
+      connection.releaseSavepoint(savepoint);
+    }
+
+    void finish() {
+      if (failure != null) {
+        future.completeExceptionally(failure);
+      } else {
+        future.complete(result);
+      }
+    }
+  }
+
+  private final Connection connection;
+  private final TimedLock dbLock;
+  private final int maxBatchSize;
+  private final long lingerNanos;
+  private final LinkedBlockingQueue<Pending<?>> queue = new LinkedBlockingQueue<>();
+  private final Thread thread;
+  private volatile boolean running = true;
+  private volatile Throwable failure;
+
+  GroupCommitWriter(Connection connection, TimedLock dbLock, GroupCommitConfig config) {
+    this.connection = connection;
+    this.dbLock = dbLock;
+    this.maxBatchSize = config.maxBatchSize();
+    this.lingerNanos = config.linger().toNanos();
+    this.thread = new Thread(this::loop, "sqlite-group-commit");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  <T> CompletableFuture<T> submit(SqlOp<T> op) {
+    Pending<T> pending = new Pending<>(op);
+    if (!running) {
+      pending.future.completeExceptionally(stopped());
+      return pending.future;
+    }
+    queue.add(pending);
+    if (!running && queue.remove(pending)) {
+      pending.future.completeExceptionally(stopped());
+    }
+    return pending.future;
+  }
+
+  private void loop() {
+    List<Pending<?>> batch = new ArrayList<>(maxBatchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        Pending<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < maxBatchSize) {
+          Pending<?> next = queue.poll();
+          if (next == null) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+              break;
+            }
+            next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+              break;
+            }
+          }
+          batch.add(next);
+        }
+        commit(batch);
+      } catch (InterruptedException e) {
+        running = false;
+      } catch (Error e) {
+        die(e);
+        return;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void commit(List<Pending<?>> batch) {
+    dbLock.lock();
+    try {
+      connection.setAutoCommit(false);
+      try {
+        for (Pending<?> p : batch) {
+          p.run(connection);
+        }
+        connection.commit();
+      } catch (Throwable t) {
+        rollbackQuietly();
+        for (Pending<?> p : batch) {
+          p.future.completeExceptionally(t);
+        }
+        if (t instanceof Error) {
+          throw (Error) t;
+        }
+        return;
+      } finally {
+        connection.setAutoCommit(true);
+      }
+    } catch (SQLException e) {
+      for (Pending<?> p : batch) {
+        p.future.completeExceptionally(e);
+      }
+      return;
+    } finally {
+      dbLock.unlock();
+    }
+
+    for (Pending<?> p : batch) {
+      p.finish();
+    }
+  }
+
+  private void die(Error e) {
+    failure = e;
+    running = false;
+    drain();
+  }
+
+  private void drain() {
+    Pending<?> leftover;
+    while ((leftover = queue.poll()) != null) {
+      leftover.future.completeExceptionally(stopped());
+    }
+  }
+
+  private IllegalStateException stopped() {
+    Throwable cause = failure;
+    return cause == null
+        ? new IllegalStateException("Group commit writer is closed")
+        : new IllegalStateException("Group commit writer failed", cause);
+  }
+
+  private void rollbackQuietly() {
+    try {
+      connection.rollback();
+    } catch (SQLException ignored) {
+    }
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    drain();
+  }
+}
@@ -0,0 +1,126 @@
+package com.zeotap.durable.engine;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+final class HashedTimerWheel implements AutoCloseable {
+  private static final System.Logger LOGGER = System.getLogger(HashedTimerWheel.class.getName());
+
+  static final class Timeout {
+    final long deadlineMs;
+    final Runnable task;
+    long remainingRounds;
+    volatile boolean cancelled;
+
+    Timeout(long deadlineMs, Runnable task) {
+      this.deadlineMs = deadlineMs;
+      this.task = task;
+    }
+
+    void cancel() {
+      cancelled = true;
+    }
+  }
+
+  private final long tickMs;
+  private final List<ArrayDeque<Timeout>> buckets;
+  private final int mask;
+  private final ConcurrentLinkedQueue<Timeout> pending = new ConcurrentLinkedQueue<>();
+  private final Thread worker;
+  private final long startMs;
+  private volatile boolean running = true;
+  private long tick;
+
+  HashedTimerWheel(Duration tickDuration, int wheelSize, String name) {
+    if (tickDuration.toMillis() < 1) {
+      throw new IllegalArgumentException("tickDuration must be >= 1ms");
+    }
+    if (wheelSize < 1 || Integer.bitCount(wheelSize) != 1) {
+      throw new IllegalArgumentException("wheelSize must be a power of two");
+    }
+    this.tickMs = tickDuration.toMillis();
+    this.buckets = new ArrayList<>(wheelSize);
+    for (int i = 0; i < wheelSize; i++) {
+      buckets.add(new ArrayDeque<>());
+    }
+    this.mask = wheelSize - 1;
+    this.startMs = System.currentTimeMillis();
+    this.worker = new Thread(this::loop, name);
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  Timeout schedule(long deadlineEpochMs, Runnable task) {
+    Timeout timeout = new Timeout(deadlineEpochMs, task);
+    if (!running) {
+      throw new IllegalStateException("Timer wheel is closed");
+    }
+    pending.add(timeout);
+    return timeout;
+  }
+
+  private void loop() {
+    while (running) {
+      long tickDeadline = startMs + (tick + 1) * tickMs;
+      long sleepMs = tickDeadline - System.currentTimeMillis();
+      if (sleepMs > 0) {
+        LockSupport.parkNanos(sleepMs * 1_000_000L);
+        continue;
+      }
+      transferPending();
+      expire(buckets.get((int) (tick & mask)), tickDeadline);
+      tick++;
+    }
+  }
+
+  private void transferPending() {
+    Timeout t;
+    while ((t = pending.poll()) != null) {
+      if (t.cancelled) {
+        continue;
+      }
+      long ticksFromStart = Math.max(tick, (t.deadlineMs - startMs + tickMs - 1) / tickMs - 1);
+      t.remainingRounds = (ticksFromStart - tick) / buckets.size();
+      buckets.get((int) (ticksFromStart & mask)).add(t);
+    }
+  }
+
+  private void expire(ArrayDeque<Timeout> bucket, long tickDeadline) {
+    Iterator<Timeout> it = bucket.iterator();
+    while (it.hasNext()) {
+      Timeout t = it.next();
+      if (t.cancelled) {
+        it.remove();
+      } else if (t.remainingRounds <= 0 && t.deadlineMs <= tickDeadline) {
+        it.remove();
+        run(t);
+      } else if (t.remainingRounds > 0) {
+        t.remainingRounds--;
+      }
+    }
+  }
+
+  private static void run(Timeout t) {
+    try {
+      t.task.run();
+    } catch (RuntimeException e) {
+      LOGGER.log(System.Logger.Level.WARNING, "Timer task failed", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    LockSupport.unpark(worker);
+    try {
+      worker.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
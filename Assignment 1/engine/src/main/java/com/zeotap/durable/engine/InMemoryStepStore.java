@@ -0,0 +1,14 @@
+package com.zeotap.durable.engine;
+
+import java.time.Duration;
+
+public final class InMemoryStepStore extends IndexedStepStore {
+  public InMemoryStepStore() {
+    this(Duration.ZERO);
+  }
+
+  public InMemoryStepStore(Duration zombieTimeout) {
+    super(zombieTimeout);
+    startHeartbeat(LeaseHeartbeat.intervalFor(zombieTimeout));
+  }
+}
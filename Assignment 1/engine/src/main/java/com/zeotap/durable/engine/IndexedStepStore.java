@@ -0,0 +1,965 @@
+package com.zeotap.durable.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+abstract class IndexedStepStore implements StepStore {
+  private static final class StepRef {
+    final String workflowId;
+    final String stepKey;
+
+    StepRef(String workflowId, String stepKey) {
+      this.workflowId = workflowId;
+      this.stepKey = stepKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof StepRef)) {
+        return false;
+      }
+      StepRef other = (StepRef) o;
+      return workflowId.equals(other.workflowId) && stepKey.equals(other.stepKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * workflowId.hashCode() + stepKey.hashCode();
+    }
+  }
+
+  private static final Comparator<WorkflowRow> CLAIM_ORDER =
+      Comparator.<WorkflowRow, WorkflowPriority>comparing(r -> r.priority)
+          .thenComparingLong(r -> r.createdAtEpochMs);
+
+  private final EngineMetrics metrics = new EngineMetrics();
+  final TimedLock lock = new TimedLock(metrics);
+  private final Duration zombieTimeout;
+  private final TypeRegistry types = new TypeRegistry();
+  private final Map<String, LinkedHashMap<String, StepRecord>> steps = new HashMap<>();
+  private final Map<String, Set<StepRef>> runningByRun = new HashMap<>();
+  private final Map<String, LinkedHashMap<String, TimerRecord>> timers = new HashMap<>();
+  private final Map<String, WorkflowRow> workflows = new LinkedHashMap<>();
+  private final Map<String, CheckpointRecord> checkpoints = new HashMap<>();
+  private final Map<String, Map<String, List<SignalRecord>>> signals = new HashMap<>();
+  private final SignalNotifier signalWaiters = new SignalNotifier();
+  private final SingleFlight cachedCalls = new SingleFlight();
+  private final Map<String, CachedResult> results = new HashMap<>();
+  private final Map<Integer, String> typeNames = new LinkedHashMap<>();
+  private LeaseHeartbeat heartbeat;
+  private int nextTypeId = 1;
+
+  IndexedStepStore(Duration zombieTimeout) {
+    this.zombieTimeout = Objects.requireNonNull(zombieTimeout, "zombieTimeout");
+  }
+
+  void startHeartbeat(Duration interval) {
+    this.heartbeat = new LeaseHeartbeat(interval, zombieTimeout, this::renewLeases, this::renewOwnedWorkflows);
+  }
+
+  void persistType(int typeId, String className) {}
+
+  void persistStep(String workflowId, String stepKey, StepRecord record) {}
+
+  void persistHeartbeat(List<String> runIds, long now) {}
+
+  void persistWorkflowDeletion(String workflowId) {}
+
+  void persistTimer(TimerRecord timer) {}
+
+  void persistWorkflow(WorkflowRow row) {}
+
+  void persistCheckpoint(String workflowId, CheckpointRecord checkpoint) {}
+
+  void persistSignal(String workflowId, SignalRecord signal) {}
+
+  void persistCachedResult(CachedResult result) {}
+
+  void afterWrite() {}
+
+  void applyType(int typeId, String className) {
+    types.put(typeId, className);
+    typeNames.put(typeId, className);
+    nextTypeId = Math.max(nextTypeId, typeId + 1);
+  }
+
+  void applyStep(String workflowId, String stepKey, StepRecord record) {
+    LinkedHashMap<String, StepRecord> history = steps.computeIfAbsent(workflowId, ignored -> new LinkedHashMap<>());
+    StepRecord previous = history.remove(stepKey);
+    if (previous != null && previous.status == StepStatus.RUNNING) {
+      Set<StepRef> running = runningByRun.get(previous.runId);
+      if (running != null) {
+        running.remove(new StepRef(workflowId, stepKey));
+        if (running.isEmpty()) {
+          runningByRun.remove(previous.runId);
+        }
+      }
+    }
+    if (record == null) {
+      return;
+    }
+    history.put(stepKey, record);
+    if (record.status == StepStatus.RUNNING) {
+      runningByRun.computeIfAbsent(record.runId, ignored -> new HashSet<>()).add(new StepRef(workflowId, stepKey));
+    }
+  }
+
+  void applyHeartbeat(List<String> runIds, long now) {
+    for (String runId : runIds) {
+      Set<StepRef> running = runningByRun.get(runId);
+      if (running == null) {
+        continue;
+      }
+      for (StepRef ref : running) {
+        Map<String, StepRecord> history = steps.get(ref.workflowId);
+        StepRecord rec = history.get(ref.stepKey);
+        history.put(ref.stepKey, withUpdatedAt(rec, now));
+      }
+    }
+  }
+
+  void applyWorkflowDeletion(String workflowId) {
+    LinkedHashMap<String, StepRecord> history = steps.get(workflowId);
+    if (history != null) {
+      for (String stepKey : new ArrayList<>(history.keySet())) {
+        applyStep(workflowId, stepKey, null);
+      }
+      steps.remove(workflowId);
+    }
+    timers.remove(workflowId);
+    checkpoints.remove(workflowId);
+    signals.remove(workflowId);
+  }
+
+  void applyTimer(TimerRecord timer) {
+    timers.computeIfAbsent(timer.workflowId, ignored -> new LinkedHashMap<>()).put(timer.timerKey, timer);
+  }
+
+  void applyWorkflow(WorkflowRow row) {
+    workflows.put(row.workflowId, row);
+  }
+
+  int applyCheckpoint(String workflowId, CheckpointRecord checkpoint) {
+    CheckpointRecord existing = checkpoints.get(workflowId);
+    if (existing != null && existing.sequence >= checkpoint.sequence) {
+      return -1;
+    }
+    checkpoints.put(workflowId, checkpoint);
+    LinkedHashMap<String, StepRecord> history = steps.get(workflowId);
+    if (history == null) {
+      return 0;
+    }
+    List<String> covered = new ArrayList<>();
+    for (Map.Entry<String, StepRecord> e : history.entrySet()) {
+      if (e.getValue().status == StepStatus.COMPLETED && checkpoint.covers(e.getKey())) {
+        covered.add(e.getKey());
+      }
+    }
+    for (String stepKey : covered) {
+      applyStep(workflowId, stepKey, null);
+    }
+    return covered.size();
+  }
+
+  void applySignal(String workflowId, SignalRecord signal) {
+    List<SignalRecord> inbox =
+        signals
+            .computeIfAbsent(workflowId, ignored -> new HashMap<>())
+            .computeIfAbsent(signal.name, ignored -> new ArrayList<>());
+    if (signal.sequence == inbox.size()) {
+      inbox.add(signal);
+    }
+  }
+
+  void applyCachedResult(CachedResult result) {
+    results.put(result.cacheKey, result);
+  }
+
+  void writeSnapshot() {
+    for (Map.Entry<Integer, String> e : typeNames.entrySet()) {
+      persistType(e.getKey(), e.getValue());
+    }
+    for (Map.Entry<String, LinkedHashMap<String, StepRecord>> history : steps.entrySet()) {
+      for (Map.Entry<String, StepRecord> e : history.getValue().entrySet()) {
+        persistStep(history.getKey(), e.getKey(), e.getValue());
+      }
+    }
+    for (LinkedHashMap<String, TimerRecord> byKey : timers.values()) {
+      for (TimerRecord timer : byKey.values()) {
+        persistTimer(timer);
+      }
+    }
+    for (WorkflowRow row : workflows.values()) {
+      persistWorkflow(row);
+    }
+    for (Map.Entry<String, CheckpointRecord> e : checkpoints.entrySet()) {
+      persistCheckpoint(e.getKey(), e.getValue());
+    }
+    for (Map.Entry<String, Map<String, List<SignalRecord>>> byName : signals.entrySet()) {
+      for (List<SignalRecord> inbox : byName.getValue().values()) {
+        for (SignalRecord signal : inbox) {
+          persistSignal(byName.getKey(), signal);
+        }
+      }
+    }
+    long now = System.currentTimeMillis();
+    results.values().removeIf(result -> result.expired(now));
+    for (CachedResult result : results.values()) {
+      persistCachedResult(result);
+    }
+  }
+
+  @Override
+  public Duration zombieTimeout() {
+    return zombieTimeout;
+  }
+
+  @Override
+  public LockWaitStats lockWaitStats() {
+    return new LockWaitStats(lock.acquisitions(), lock.waitNanos(), 0, 0);
+  }
+
+  @Override
+  public EngineMetrics metrics() {
+    return metrics;
+  }
+
+  @Override
+  public InputStream openBlob(String hash) throws IOException {
+    throw new IOException(getClass().getSimpleName() + " does not spill step outputs to blobs: " + hash);
+  }
+
+  @Override
+  public int internType(String className) {
+    Objects.requireNonNull(className, "className");
+    Integer cached = types.cachedId(className);
+    if (cached != null) {
+      return cached;
+    }
+
+    lock.lock();
+    try {
+      cached = types.cachedId(className);
+      if (cached != null) {
+        return cached;
+      }
+      int typeId = nextTypeId;
+      applyType(typeId, className);
+      persistType(typeId, className);
+      afterWrite();
+      return typeId;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Class<?> resolveType(int typeId) throws ClassNotFoundException {
+    Class<?> cached = types.cachedClass(typeId);
+    if (cached != null) {
+      return cached;
+    }
+    String className = types.cachedName(typeId);
+    if (className == null) {
+      throw new ClassNotFoundException("Unknown output type id: " + typeId);
+    }
+    Class<?> clazz = Class.forName(className);
+    types.putClass(typeId, clazz);
+    return clazz;
+  }
+
+  @Override
+  public Optional<StepRecord> readStep(String workflowId, StepKey key) {
+    lock.lock();
+    try {
+      return Optional.ofNullable(lookup(workflowId, key.keyString()));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Map<String, StepRecord> readCompletedSteps(String workflowId, int limit) {
+    Map<String, StepRecord> out = new LinkedHashMap<>();
+    if (limit <= 0) {
+      return out;
+    }
+    lock.lock();
+    try {
+      LinkedHashMap<String, StepRecord> history = steps.get(workflowId);
+      if (history == null) {
+        return out;
+      }
+      for (Map.Entry<String, StepRecord> e : history.entrySet()) {
+        if (e.getValue().status != StepStatus.COMPLETED) {
+          continue;
+        }
+        out.put(e.getKey(), e.getValue());
+        if (out.size() >= limit) {
+          break;
+        }
+      }
+      return out;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int tryStartStep(String workflowId, StepKey key, String runId) {
+    String stepKey = key.keyString();
+    int attempt;
+    lock.lock();
+    try {
+      attempt = startStep(workflowId, stepKey, runId);
+    } finally {
+      lock.unlock();
+    }
+    if (attempt > 0 && heartbeat != null) {
+      heartbeat.acquired(workflowId, stepKey, runId);
+    }
+    return attempt;
+  }
+
+  private int startStep(String workflowId, String stepKey, String runId) {
+    long now = System.currentTimeMillis();
+    StepRecord rec = lookup(workflowId, stepKey);
+    int attempt;
+    if (rec == null) {
+      attempt = 1;
+    } else if (rec.status == StepStatus.COMPLETED) {
+      return 0;
+    } else if (rec.status == StepStatus.RUNNING && now - rec.updatedAtEpochMs < zombieTimeout.toMillis()) {
+      return 0;
+    } else if (rec.status == StepStatus.RETRYING && now < rec.nextAttemptAtEpochMs) {
+      return 0;
+    } else {
+      if (rec.status == StepStatus.RUNNING) {
+        metrics.recordZombieTakeover(workflowId, stepKey);
+      }
+      attempt = rec.status == StepStatus.FAILED || rec.status == StepStatus.TIMED_OUT ? 1 : rec.attempts + 1;
+    }
+    write(
+        workflowId,
+        stepKey,
+        new StepRecord(StepStatus.RUNNING, null, null, 0, null, null, now, runId, attempt, 0));
+    return attempt;
+  }
+
+  @Override
+  public Map<String, StepRecord> readCompletedOccurrences(String workflowId, String stepId) {
+    Objects.requireNonNull(stepId, "stepId");
+    Map<String, StepRecord> out = new LinkedHashMap<>();
+    lock.lock();
+    try {
+      LinkedHashMap<String, StepRecord> history = steps.get(workflowId);
+      if (history == null) {
+        return out;
+      }
+      for (Map.Entry<String, StepRecord> e : history.entrySet()) {
+        if (e.getValue().status == StepStatus.COMPLETED && isOccurrence(e.getKey(), stepId)) {
+          out.put(e.getKey(), e.getValue());
+        }
+      }
+      return out;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static boolean isOccurrence(String stepKey, String stepId) {
+    return stepKey.length() > stepId.length()
+        && stepKey.charAt(stepId.length()) == '#'
+        && stepKey.startsWith(stepId)
+        && StepKey.parse(stepKey).sequence() >= 0;
+  }
+
+  @Override
+  public int completeSteps(String workflowId, Map<String, StepRecord> records) {
+    if (records.isEmpty()) {
+      return 0;
+    }
+    lock.lock();
+    try {
+      int inserted = 0;
+      for (Map.Entry<String, StepRecord> e : records.entrySet()) {
+        if (lookup(workflowId, e.getKey()) != null) {
+          continue;
+        }
+        StepRecord rec = e.getValue();
+        StepRecord completed =
+            new StepRecord(
+                StepStatus.COMPLETED, null, null, rec.outputTypeId, rec.outputBlob, null, rec.updatedAtEpochMs,
+                rec.runId, 1, 0);
+        applyStep(workflowId, e.getKey(), completed);
+        persistStep(workflowId, e.getKey(), completed);
+        inserted++;
+      }
+      afterWrite();
+      return inserted;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void completeStep(String workflowId, StepKey key, String runId, int outputTypeId, byte[] outputBlob) {
+    String stepKey = key.keyString();
+    try {
+      lock.lock();
+      try {
+        StepRecord rec = owned(workflowId, stepKey, runId);
+        if (rec == null) {
+          throw new RuntimeException("Failed to complete step: lost lease or missing record for " + stepKey);
+        }
+        write(
+            workflowId,
+            stepKey,
+            new StepRecord(
+                StepStatus.COMPLETED,
+                null,
+                null,
+                outputTypeId,
+                outputBlob,
+                null,
+                System.currentTimeMillis(),
+                runId,
+                rec.attempts,
+                0));
+      } finally {
+        lock.unlock();
+      }
+    } finally {
+      released(workflowId, stepKey, runId);
+    }
+  }
+
+  @Override
+  public void failStep(String workflowId, StepKey key, String runId, String error) {
+    failStep(workflowId, key.keyString(), runId, error, StepStatus.FAILED);
+  }
+
+  @Override
+  public void timeOutStep(String workflowId, StepKey key, String runId, String error) {
+    failStep(workflowId, key.keyString(), runId, error, StepStatus.TIMED_OUT);
+  }
+
+  private void failStep(String workflowId, String stepKey, String runId, String error, StepStatus status) {
+    try {
+      lock.lock();
+      try {
+        StepRecord rec = owned(workflowId, stepKey, runId);
+        if (rec != null) {
+          write(
+              workflowId,
+              stepKey,
+              new StepRecord(
+                  status,
+                  null,
+                  null,
+                  rec.outputTypeId,
+                  rec.outputBlob,
+                  error,
+                  System.currentTimeMillis(),
+                  runId,
+                  rec.attempts,
+                  rec.nextAttemptAtEpochMs));
+        }
+      } finally {
+        lock.unlock();
+      }
+    } finally {
+      released(workflowId, stepKey, runId);
+    }
+  }
+
+  @Override
+  public void scheduleRetry(
+      String workflowId, StepKey key, String runId, String error, long nextAttemptAtEpochMs) {
+    String stepKey = key.keyString();
+    try {
+      lock.lock();
+      try {
+        StepRecord rec = owned(workflowId, stepKey, runId);
+        if (rec == null) {
+          throw new RuntimeException("Failed to schedule step retry: lost lease or missing record for " + stepKey);
+        }
+        write(
+            workflowId,
+            stepKey,
+            new StepRecord(
+                StepStatus.RETRYING,
+                null,
+                null,
+                rec.outputTypeId,
+                rec.outputBlob,
+                error,
+                System.currentTimeMillis(),
+                runId,
+                rec.attempts,
+                nextAttemptAtEpochMs));
+      } finally {
+        lock.unlock();
+      }
+    } finally {
+      released(workflowId, stepKey, runId);
+    }
+  }
+
+  @Override
+  public void releaseStep(String workflowId, StepKey key, String runId) {
+    String stepKey = key.keyString();
+    try {
+      lock.lock();
+      try {
+        StepRecord rec = owned(workflowId, stepKey, runId);
+        if (rec != null && rec.status == StepStatus.RUNNING) {
+          write(workflowId, stepKey, null);
+        }
+      } finally {
+        lock.unlock();
+      }
+    } finally {
+      released(workflowId, stepKey, runId);
+    }
+  }
+
+  @Override
+  public void deleteWorkflow(String workflowId) {
+    lock.lock();
+    try {
+      applyWorkflowDeletion(workflowId);
+      persistWorkflowDeletion(workflowId);
+      afterWrite();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Map<String, Long> findOrphanedWorkflows(long staleBeforeEpochMs, int limit) {
+    Map<String, Long> oldest = new HashMap<>();
+    lock.lock();
+    try {
+      for (Set<StepRef> running : runningByRun.values()) {
+        for (StepRef ref : running) {
+          StepRecord rec = steps.get(ref.workflowId).get(ref.stepKey);
+          if (rec.updatedAtEpochMs < staleBeforeEpochMs) {
+            oldest.merge(ref.workflowId, rec.updatedAtEpochMs, Math::min);
+          }
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    List<Map.Entry<String, Long>> sorted = new ArrayList<>(oldest.entrySet());
+    sorted.sort(Map.Entry.comparingByValue());
+    Map<String, Long> out = new LinkedHashMap<>();
+    for (Map.Entry<String, Long> e : sorted) {
+      if (out.size() >= limit) {
+        break;
+      }
+      out.put(e.getKey(), e.getValue());
+    }
+    return out;
+  }
+
+  @Override
+  public Optional<CheckpointRecord> readCheckpoint(String workflowId) {
+    lock.lock();
+    try {
+      return Optional.ofNullable(checkpoints.get(workflowId));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int saveCheckpoint(String workflowId, CheckpointRecord checkpoint) {
+    Objects.requireNonNull(checkpoint, "checkpoint");
+    lock.lock();
+    try {
+      int pruned = applyCheckpoint(workflowId, checkpoint);
+      if (pruned < 0) {
+        return 0;
+      }
+      persistCheckpoint(workflowId, checkpoint);
+      afterWrite();
+      return pruned;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int sendSignal(String workflowId, String name, int payloadTypeId, byte[] payload) {
+    Objects.requireNonNull(workflowId, "workflowId");
+    Objects.requireNonNull(name, "name");
+    int sequence;
+    lock.lock();
+    try {
+      Map<String, List<SignalRecord>> byName = signals.get(workflowId);
+      List<SignalRecord> inbox = byName == null ? null : byName.get(name);
+      SignalRecord signal =
+          new SignalRecord(
+              name, inbox == null ? 0 : inbox.size(), payloadTypeId, payload, System.currentTimeMillis());
+      applySignal(workflowId, signal);
+      persistSignal(workflowId, signal);
+      afterWrite();
+      sequence = signal.sequence;
+    } finally {
+      lock.unlock();
+    }
+    signalWaiters.signalled(workflowId, name, sequence);
+    return sequence;
+  }
+
+  @Override
+  public CompletableFuture<Void> watchSignal(String workflowId, String name, int sequence) {
+    Objects.requireNonNull(workflowId, "workflowId");
+    Objects.requireNonNull(name, "name");
+    return signalWaiters.register(workflowId, name, sequence);
+  }
+
+  @Override
+  public Optional<SignalRecord> readSignal(String workflowId, String name, int sequence) {
+    lock.lock();
+    try {
+      Map<String, List<SignalRecord>> byName = signals.get(workflowId);
+      List<SignalRecord> inbox = byName == null ? null : byName.get(name);
+      if (inbox == null || sequence < 0 || sequence >= inbox.size()) {
+        return Optional.empty();
+      }
+      return Optional.of(inbox.get(sequence));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Optional<CachedResult> readCachedResult(String cacheKey, long nowEpochMs) {
+    lock.lock();
+    try {
+      CachedResult cached = results.get(cacheKey);
+      if (cached == null) {
+        return Optional.empty();
+      }
+      if (cached.expired(nowEpochMs)) {
+        results.remove(cacheKey);
+        return Optional.empty();
+      }
+      return Optional.of(cached);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void saveCachedResult(CachedResult result) {
+    Objects.requireNonNull(result, "result");
+    lock.lock();
+    try {
+      applyCachedResult(result);
+      persistCachedResult(result);
+      afterWrite();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public SingleFlight cachedCalls() {
+    return cachedCalls;
+  }
+
+  @Override
+  public TimerRecord scheduleTimer(String workflowId, String timerKey, long wakeAtEpochMs) {
+    lock.lock();
+    try {
+      Map<String, TimerRecord> byKey = timers.get(workflowId);
+      TimerRecord existing = byKey == null ? null : byKey.get(timerKey);
+      if (existing != null) {
+        return existing;
+      }
+      TimerRecord timer = new TimerRecord(workflowId, timerKey, wakeAtEpochMs, false);
+      applyTimer(timer);
+      persistTimer(timer);
+      afterWrite();
+      return timer;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void fireTimer(String workflowId, String timerKey) {
+    lock.lock();
+    try {
+      Map<String, TimerRecord> byKey = timers.get(workflowId);
+      TimerRecord existing = byKey == null ? null : byKey.get(timerKey);
+      if (existing == null || existing.fired) {
+        return;
+      }
+      TimerRecord fired = new TimerRecord(workflowId, timerKey, existing.wakeAtEpochMs, true);
+      applyTimer(fired);
+      persistTimer(fired);
+      afterWrite();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public List<TimerRecord> pendingTimers(int limit) {
+    List<TimerRecord> out = new ArrayList<>();
+    lock.lock();
+    try {
+      for (LinkedHashMap<String, TimerRecord> byKey : timers.values()) {
+        for (TimerRecord timer : byKey.values()) {
+          if (!timer.fired) {
+            out.add(timer);
+          }
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    out.sort(Comparator.comparingLong(t -> t.wakeAtEpochMs));
+    return out.size() > limit ? new ArrayList<>(out.subList(0, limit)) : out;
+  }
+
+  @Override
+  public boolean enqueueWorkflow(String workflowId, String workflowType, String input, WorkflowPriority priority) {
+    lock.lock();
+    try {
+      if (workflows.containsKey(workflowId)) {
+        return false;
+      }
+      long now = System.currentTimeMillis();
+      writeWorkflow(
+          new WorkflowRow(
+              workflowId, workflowType, input, WorkflowStatus.PENDING, null, 0, priority, null, now, now));
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean startWorkflow(
+      String workflowId, String ownerRunId, WorkflowPriority priority, long leaseExpiresAtEpochMs) {
+    lock.lock();
+    try {
+      long now = System.currentTimeMillis();
+      WorkflowRow row = workflows.get(workflowId);
+      if (row != null && row.leaseExpiresAtEpochMs >= now && !ownerRunId.equals(row.ownerRunId)) {
+        return false;
+      }
+      if (row == null) {
+        row =
+            new WorkflowRow(
+                workflowId,
+                null,
+                null,
+                WorkflowStatus.RUNNING,
+                ownerRunId,
+                leaseExpiresAtEpochMs,
+                priority,
+                null,
+                now,
+                now);
+      } else {
+        row.status = WorkflowStatus.RUNNING;
+        row.ownerRunId = ownerRunId;
+        row.leaseExpiresAtEpochMs = Math.max(row.leaseExpiresAtEpochMs, leaseExpiresAtEpochMs);
+        row.error = null;
+        row.updatedAtEpochMs = now;
+      }
+      writeWorkflow(row);
+    } finally {
+      lock.unlock();
+    }
+    if (heartbeat != null) {
+      heartbeat.workflowStarted(workflowId, ownerRunId, leaseExpiresAtEpochMs - System.currentTimeMillis());
+    }
+    return true;
+  }
+
+  @Override
+  public List<WorkflowRecord> claimWorkflows(
+      String ownerRunId, List<String> workflowTypes, int limit, long leaseExpiresAtEpochMs) {
+    List<WorkflowRecord> out = new ArrayList<>();
+    if (workflowTypes.isEmpty() || limit <= 0) {
+      return out;
+    }
+    lock.lock();
+    try {
+      long now = System.currentTimeMillis();
+      List<WorkflowRow> candidates = new ArrayList<>();
+      for (WorkflowRow row : workflows.values()) {
+        if (row.workflowType != null && workflowTypes.contains(row.workflowType) && row.claimable(now)) {
+          candidates.add(row);
+        }
+      }
+      candidates.sort(CLAIM_ORDER);
+      for (WorkflowRow row : candidates.subList(0, Math.min(limit, candidates.size()))) {
+        row.status = WorkflowStatus.RUNNING;
+        row.ownerRunId = ownerRunId;
+        row.leaseExpiresAtEpochMs = leaseExpiresAtEpochMs;
+        row.updatedAtEpochMs = now;
+        persistWorkflow(row);
+        out.add(new WorkflowRecord(row.workflowId, row.workflowType, row.input, row.priority));
+      }
+      afterWrite();
+      return out;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int renewWorkflowLeases(String ownerRunId, long leaseExpiresAtEpochMs) {
+    lock.lock();
+    try {
+      int renewed = 0;
+      for (WorkflowRow row : workflows.values()) {
+        if (row.status == WorkflowStatus.RUNNING && ownerRunId.equals(row.ownerRunId)) {
+          row.leaseExpiresAtEpochMs = leaseExpiresAtEpochMs;
+          persistWorkflow(row);
+          renewed++;
+        }
+      }
+      if (renewed > 0) {
+        afterWrite();
+      }
+      return renewed;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void finishWorkflow(String workflowId, String ownerRunId, WorkflowStatus status, String error) {
+    workflowEnded(workflowId, ownerRunId);
+    lock.lock();
+    try {
+      WorkflowRow row = workflows.get(workflowId);
+      if (row == null || !ownerRunId.equals(row.ownerRunId)) {
+        return;
+      }
+      row.status = status;
+      row.error = error;
+      row.leaseExpiresAtEpochMs = 0;
+      row.updatedAtEpochMs = System.currentTimeMillis();
+      writeWorkflow(row);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void releaseWorkflow(String workflowId, String ownerRunId) {
+    workflowEnded(workflowId, ownerRunId);
+    lock.lock();
+    try {
+      WorkflowRow row = workflows.get(workflowId);
+      if (row == null || row.status != WorkflowStatus.RUNNING || !ownerRunId.equals(row.ownerRunId)) {
+        return;
+      }
+      row.status = WorkflowStatus.PENDING;
+      row.ownerRunId = null;
+      row.leaseExpiresAtEpochMs = 0;
+      row.updatedAtEpochMs = System.currentTimeMillis();
+      writeWorkflow(row);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    if (heartbeat != null) {
+      heartbeat.close();
+    }
+    signalWaiters.cancelAll();
+  }
+
+  private void renewLeases(List<String> runIds) {
+    lock.lock();
+    try {
+      long now = System.currentTimeMillis();
+      applyHeartbeat(runIds, now);
+      persistHeartbeat(runIds, now);
+      afterWrite();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void renewOwnedWorkflows(Map<String, Long> leaseMillisByOwner) {
+    long now = System.currentTimeMillis();
+    for (Map.Entry<String, Long> e : leaseMillisByOwner.entrySet()) {
+      renewWorkflowLeases(e.getKey(), now + e.getValue());
+    }
+  }
+
+  private void workflowEnded(String workflowId, String ownerRunId) {
+    if (heartbeat != null) {
+      heartbeat.workflowEnded(workflowId, ownerRunId);
+    }
+  }
+
+  void released(String workflowId, String stepKey, String runId) {
+    if (heartbeat != null) {
+      heartbeat.released(workflowId, stepKey, runId);
+    }
+  }
+
+  private StepRecord lookup(String workflowId, String stepKey) {
+    Map<String, StepRecord> history = steps.get(workflowId);
+    return history == null ? null : history.get(stepKey);
+  }
+
+  private StepRecord owned(String workflowId, String stepKey, String runId) {
+    StepRecord rec = lookup(workflowId, stepKey);
+    return rec != null && runId.equals(rec.runId) ? rec : null;
+  }
+
+  private void write(String workflowId, String stepKey, StepRecord record) {
+    applyStep(workflowId, stepKey, record);
+    persistStep(workflowId, stepKey, record);
+    afterWrite();
+  }
+
+  private void writeWorkflow(WorkflowRow row) {
+    applyWorkflow(row);
+    persistWorkflow(row);
+    afterWrite();
+  }
+
+  private static StepRecord withUpdatedAt(StepRecord rec, long updatedAtEpochMs) {
+    return new StepRecord(
+        rec.status,
+        rec.outputJson,
+        rec.outputClass,
+        rec.outputTypeId,
+        rec.outputBlob,
+        rec.error,
+        updatedAtEpochMs,
+        rec.runId,
+        rec.attempts,
+        rec.nextAttemptAtEpochMs);
+  }
+}
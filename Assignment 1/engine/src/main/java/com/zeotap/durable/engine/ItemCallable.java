@@ -0,0 +1,6 @@
+package com.zeotap.durable.engine;
+
+@FunctionalInterface
+public interface ItemCallable<I, O> {
+  O call(I item) throws Exception;
+}
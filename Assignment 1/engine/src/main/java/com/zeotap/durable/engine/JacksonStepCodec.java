@@ -0,0 +1,69 @@
+package com.zeotap.durable.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class JacksonStepCodec implements StepCodec {
+  public static final int JSON_ID = 1;
+  public static final int SMILE_ID = 2;
+  public static final int CBOR_ID = 3;
+
+  private static final JacksonStepCodec JSON = new JacksonStepCodec(JSON_ID, new ObjectMapper());
+  private static final JacksonStepCodec SMILE = new JacksonStepCodec(SMILE_ID, new SmileMapper());
+  private static final JacksonStepCodec CBOR = new JacksonStepCodec(CBOR_ID, new CBORMapper());
+
+  private final int id;
+  private final ObjectWriter writer;
+  private final ObjectMapper mapper;
+  private final ConcurrentHashMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+  public JacksonStepCodec(int id, ObjectMapper mapper) {
+    if (id < 1 || id > 255) {
+      throw new IllegalArgumentException("codec id must be in 1..255");
+    }
+    this.id = id;
+    this.mapper = Objects.requireNonNull(mapper, "mapper");
+    this.writer = mapper.writer();
+  }
+
+  public static JacksonStepCodec json() {
+    return JSON;
+  }
+
+  public static JacksonStepCodec smile() {
+    return SMILE;
+  }
+
+  public static JacksonStepCodec cbor() {
+    return CBOR;
+  }
+
+  @Override
+  public int id() {
+    return id;
+  }
+
+  @Override
+  public byte[] encode(Object value) throws IOException {
+    return writer.writeValueAsBytes(value);
+  }
+
+  @Override
+  public <T> T decode(byte[] data, int offset, int length, Class<T> type) throws IOException {
+    ObjectReader reader = readers.computeIfAbsent(type, mapper::readerFor);
+    return reader.readValue(data, offset, length);
+  }
+
+  @Override
+  public <T> T decode(InputStream in, Class<T> type) throws IOException {
+    ObjectReader reader = readers.computeIfAbsent(type, mapper::readerFor);
+    return reader.readValue(in);
+  }
+}
@@ -0,0 +1,97 @@
+package com.zeotap.durable.engine;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    buckets.incrementAndGet(bucketOf(value));
+    count.increment();
+    totalNanos.add(value);
+    maxNanos.accumulate(value);
+  }
+
+  public long count() {
+    return count.sum();
+  }
+
+  public long totalNanos() {
+    return totalNanos.sum();
+  }
+
+  public long maxNanos() {
+    return maxNanos.get();
+  }
+
+  public double meanNanos() {
+    long n = count.sum();
+    return n == 0 ? 0.0 : (double) totalNanos.sum() / n;
+  }
+
+  public long percentileNanos(double percentile) {
+    if (percentile < 0.0 || percentile > 100.0) {
+      throw new IllegalArgumentException("percentile must be between 0 and 100");
+    }
+    long[] snapshot = new long[BUCKETS];
+    long n = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = buckets.get(i);
+      n += snapshot[i];
+    }
+    if (n == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(i), maxNanos.get());
+      }
+    }
+    return maxNanos.get();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "count=%d meanUs=%.1f p50Us=%.1f p99Us=%.1f maxUs=%.1f",
+        count(),
+        meanNanos() / 1_000.0,
+        percentileNanos(50) / 1_000.0,
+        percentileNanos(99) / 1_000.0,
+        maxNanos() / 1_000.0);
+  }
+
+  static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int msb = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (msb - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int msb = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    int sub = bucket % SUB_BUCKETS;
+    int shift = msb - SUB_BUCKET_BITS;
+    long lower = (long) (SUB_BUCKETS + sub) << shift;
+    long upper = lower + (1L << shift) - 1;
+    return upper < 0 ? Long.MAX_VALUE : upper;
+  }
+}
@@ -0,0 +1,163 @@
+package com.zeotap.durable.engine;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+final class LeaseHeartbeat implements AutoCloseable {
+  private static final System.Logger LOGGER = System.getLogger(LeaseHeartbeat.class.getName());
+
+  static final class Lease {
+    final String runId;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Lease(String runId) {
+      this.runId = runId;
+    }
+  }
+
+  private final ConcurrentHashMap<String, AtomicInteger> inFlightByRun = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Lease> held = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Long> workflowLeases = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService scheduler;
+
+  LeaseHeartbeat(
+      Duration interval,
+      Duration zombieTimeout,
+      Consumer<List<String>> renew,
+      Consumer<Map<String, Long>> renewWorkflows) {
+    requireWithin(interval, zombieTimeout);
+    if (interval.isZero() || interval.isNegative()) {
+      this.scheduler = null;
+      return;
+    }
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "step-lease-heartbeat");
+              t.setDaemon(true);
+              return t;
+            });
+    long periodMs = interval.toMillis();
+    scheduler.scheduleAtFixedRate(
+        () -> {
+          List<String> runIds = activeRunIds();
+          if (!runIds.isEmpty()) {
+            try {
+              renew.accept(runIds);
+            } catch (RuntimeException e) {
+              LOGGER.log(System.Logger.Level.WARNING, "Step lease heartbeat failed", e);
+            }
+          }
+          Map<String, Long> owners = workflowOwners();
+          if (!owners.isEmpty()) {
+            try {
+              renewWorkflows.accept(owners);
+            } catch (RuntimeException e) {
+              LOGGER.log(System.Logger.Level.WARNING, "Workflow lease heartbeat failed", e);
+            }
+          }
+        },
+        periodMs,
+        periodMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  static void requireWithin(Duration interval, Duration zombieTimeout) {
+    if (interval.isZero() || zombieTimeout.isZero()) {
+      return;
+    }
+    if (interval.multipliedBy(2).compareTo(zombieTimeout) > 0) {
+      throw new IllegalArgumentException(
+          "heartbeatInterval must be <= zombieTimeout / 2 (heartbeatInterval="
+              + interval.toMillis()
+              + "ms, zombieTimeout="
+              + zombieTimeout.toMillis()
+              + "ms)");
+    }
+  }
+
+  static Duration intervalFor(Duration zombieTimeout) {
+    Duration half = zombieTimeout.dividedBy(2);
+    if (zombieTimeout.isZero() || half.compareTo(StoreOptions.DEFAULT_HEARTBEAT_INTERVAL) >= 0) {
+      return StoreOptions.DEFAULT_HEARTBEAT_INTERVAL;
+    }
+    return half.isZero() ? Duration.ofMillis(1) : half;
+  }
+
+  Lease acquired(String workflowId, String stepKey, String runId) {
+    Lease lease = new Lease(runId);
+    inFlightByRun.computeIfAbsent(runId, ignored -> new AtomicInteger()).incrementAndGet();
+    Lease previous = held.put(leaseKey(workflowId, stepKey, runId), lease);
+    if (previous != null) {
+      release(previous);
+    }
+    return lease;
+  }
+
+  void released(String workflowId, String stepKey, String runId) {
+    Lease lease = held.remove(leaseKey(workflowId, stepKey, runId));
+    if (lease != null) {
+      release(lease);
+    }
+  }
+
+  void workflowStarted(String workflowId, String ownerRunId, long leaseMillis) {
+    String key = leaseKey(workflowId, "", ownerRunId);
+    if (leaseMillis > 0) {
+      workflowLeases.put(key, leaseMillis);
+    } else {
+      workflowLeases.remove(key);
+    }
+  }
+
+  void workflowEnded(String workflowId, String ownerRunId) {
+    workflowLeases.remove(leaseKey(workflowId, "", ownerRunId));
+  }
+
+  private Map<String, Long> workflowOwners() {
+    Map<String, Long> out = new HashMap<>();
+    for (Map.Entry<String, Long> e : workflowLeases.entrySet()) {
+      String owner = e.getKey().substring(0, e.getKey().indexOf('\n'));
+      out.merge(owner, e.getValue(), Math::max);
+    }
+    return out;
+  }
+
+  private void release(Lease lease) {
+    if (lease.released.compareAndSet(false, true)) {
+      inFlightByRun.computeIfPresent(
+          lease.runId, (ignored, count) -> count.decrementAndGet() <= 0 ? null : count);
+    }
+  }
+
+  private static String leaseKey(String workflowId, String stepKey, String runId) {
+    return runId + '\n' + workflowId + '\n' + stepKey;
+  }
+
+  private List<String> activeRunIds() {
+    List<String> out = new ArrayList<>();
+    for (Map.Entry<String, AtomicInteger> e : inFlightByRun.entrySet()) {
+      if (e.getValue().get() > 0) {
+        out.add(e.getKey());
+      }
+    }
+    return out;
+  }
+
+  @Override
+  public void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.zeotap.durable.engine;
+
+public final class LockWaitStats {
+  private final long writerAcquisitions;
+  private final long writerWaitNanos;
+  private final long readerAcquisitions;
+  private final long readerWaitNanos;
+
+  LockWaitStats(long writerAcquisitions, long writerWaitNanos, long readerAcquisitions, long readerWaitNanos) {
+    this.writerAcquisitions = writerAcquisitions;
+    this.writerWaitNanos = writerWaitNanos;
+    this.readerAcquisitions = readerAcquisitions;
+    this.readerWaitNanos = readerWaitNanos;
+  }
+
+  public long writerAcquisitions() {
+    return writerAcquisitions;
+  }
+
+  public long writerWaitNanos() {
+    return writerWaitNanos;
+  }
+
+  public long readerAcquisitions() {
+    return readerAcquisitions;
+  }
+
+  public long readerWaitNanos() {
+    return readerWaitNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "writer: acquisitions="
+        + writerAcquisitions
+        + " waitMs="
+        + (writerWaitNanos / 1_000_000.0)
+        + ", readers: acquisitions="
+        + readerAcquisitions
+        + " waitMs="
+        + (readerWaitNanos / 1_000_000.0);
+  }
+}
@@ -0,0 +1,102 @@
+package com.zeotap.durable.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+final class LogSegment implements AutoCloseable {
+  static final int HEADER_BYTES = 8;
+
+  final long id;
+  final Path path;
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final CRC32C crc = new CRC32C();
+  private int forcedUpTo;
+
+  private LogSegment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+    this.id = id;
+    this.path = path;
+    this.channel = channel;
+    this.buffer = buffer;
+  }
+
+  static LogSegment create(Path path, long id, int sizeBytes) throws IOException {
+    FileChannel channel =
+        FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    return new LogSegment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, sizeBytes));
+  }
+
+  static LogSegment open(Path path, long id) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    return new LogSegment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+  }
+
+  int recover(Consumer<ByteBuffer> sink) {
+    int pos = 0;
+    while (pos + HEADER_BYTES <= buffer.capacity()) {
+      int length = buffer.getInt(pos);
+      if (length <= 0 || pos + HEADER_BYTES + length > buffer.capacity()) {
+        break;
+      }
+      int expected = buffer.getInt(pos + 4);
+      ByteBuffer payload = buffer.slice(pos + HEADER_BYTES, length);
+      crc.reset();
+      crc.update(payload.duplicate());
+      if ((int) crc.getValue() != expected) {
+        break;
+      }
+      sink.accept(payload);
+      pos += HEADER_BYTES + length;
+    }
+    buffer.position(pos);
+    forcedUpTo = pos;
+    return pos;
+  }
+
+  boolean append(byte[] payload, int length) {
+    int pos = buffer.position();
+    if (pos + HEADER_BYTES + length > buffer.capacity()) {
+      return false;
+    }
+    crc.reset();
+    crc.update(payload, 0, length);
+    buffer.put(pos + HEADER_BYTES, payload, 0, length);
+    buffer.putInt(pos + 4, (int) crc.getValue());
+    buffer.putInt(pos, length);
+    buffer.position(pos + HEADER_BYTES + length);
+    return true;
+  }
+
+  boolean isDirty() {
+    return buffer.position() > forcedUpTo;
+  }
+
+  void force() {
+    int pos = buffer.position();
+    if (pos > forcedUpTo) {
+      buffer.force(forcedUpTo, pos - forcedUpTo);
+      forcedUpTo = pos;
+    }
+  }
+
+  int sizeBytes() {
+    return buffer.position();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  void delete() throws IOException {
+    close();
+    Files.deleteIfExists(path);
+  }
+}
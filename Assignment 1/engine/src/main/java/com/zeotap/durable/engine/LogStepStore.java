@@ -0,0 +1,512 @@
+package com.zeotap.durable.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public final class LogStepStore extends IndexedStepStore {
+  private static final System.Logger LOGGER = System.getLogger(LogStepStore.class.getName());
+  private static final byte TYPE = 1;
+  private static final byte STEP = 2;
+  private static final byte STEP_DELETE = 3;
+  private static final byte HEARTBEAT = 4;
+  private static final byte WORKFLOW_DELETE = 5;
+  private static final byte TIMER = 6;
+  private static final byte WORKFLOW = 7;
+  private static final byte CHECKPOINT = 8;
+  private static final byte SIGNAL = 9;
+  private static final byte CACHED_RESULT = 10;
+
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  private static final class RecordBuffer extends ByteArrayOutputStream {
+    byte[] array() {
+      return buf;
+    }
+  }
+
+  private final Path directory;
+  private final LogStoreOptions options;
+  private final List<LogSegment> segments = new ArrayList<>();
+  private final RecordBuffer record = new RecordBuffer();
+  private final DataOutputStream out = new DataOutputStream(record);
+  private final ScheduledExecutorService maintenance;
+  private LogSegment active;
+  private int segmentsAfterCompaction = 1;
+  private boolean closed;
+
+  public LogStepStore(Path directory, Duration zombieTimeout) {
+    this(directory, zombieTimeout, LogStoreOptions.defaults());
+  }
+
+  public LogStepStore(Path directory, Duration zombieTimeout, LogStoreOptions options) {
+    super(zombieTimeout);
+    this.directory = Objects.requireNonNull(directory, "directory");
+    this.options = Objects.requireNonNull(options, "options");
+    LeaseHeartbeat.requireWithin(options.heartbeatInterval(), zombieTimeout);
+    try {
+      Files.createDirectories(directory);
+      recover();
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to open step log", e);
+    }
+
+    this.maintenance =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "step-log-maintenance");
+              t.setDaemon(true);
+              return t;
+            });
+    if (options.fsyncPolicy() == FsyncPolicy.INTERVAL) {
+      long periodMs = options.fsyncInterval().toMillis();
+      maintenance.scheduleWithFixedDelay(this::forceQuietly, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+    if (!options.compactionInterval().isZero()) {
+      long periodMs = options.compactionInterval().toMillis();
+      maintenance.scheduleWithFixedDelay(this::compactQuietly, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+    startHeartbeat(options.heartbeatInterval());
+  }
+
+  public int segmentCount() {
+    lock.lock();
+    try {
+      return segments.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public boolean compact() {
+    lock.lock();
+    try {
+      if (closed || segments.size() - segmentsAfterCompaction < options.compactionSegmentThreshold()) {
+        return false;
+      }
+      LogSegment snapshotStart = roll(options.segmentSizeBytes());
+      writeSnapshot();
+      if (options.fsyncPolicy() != FsyncPolicy.NEVER) {
+        active.force();
+      }
+      List<LogSegment> obsolete = new ArrayList<>();
+      for (LogSegment segment : segments) {
+        if (segment.id < snapshotStart.id) {
+          obsolete.add(segment);
+        }
+      }
+      for (LogSegment segment : obsolete) {
+        segment.delete();
+        segments.remove(segment);
+      }
+      segmentsAfterCompaction = segments.size();
+      return true;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to compact step log", e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void recover() throws IOException {
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path p : stream) {
+        files.add(p);
+      }
+    }
+    files.sort((a, b) -> Long.compare(segmentId(a), segmentId(b)));
+
+    for (Path file : files) {
+      LogSegment segment = LogSegment.open(file, segmentId(file));
+      segment.recover(this::replay);
+      segments.add(segment);
+    }
+    if (segments.isEmpty()) {
+      roll(options.segmentSizeBytes());
+    } else {
+      active = segments.get(segments.size() - 1);
+    }
+  }
+
+  private void replay(ByteBuffer in) {
+    byte kind = in.get();
+    switch (kind) {
+      case TYPE:
+        applyType(in.getInt(), readString(in));
+        break;
+      case STEP:
+        {
+          String workflowId = readString(in);
+          String stepKey = readString(in);
+          StepStatus status = StepStatus.values()[in.get()];
+          String runId = readString(in);
+          int attempts = in.getInt();
+          long nextAttemptAt = in.getLong();
+          int outputTypeId = in.getInt();
+          byte[] outputBlob = readBytes(in);
+          String error = readString(in);
+          long updatedAt = in.getLong();
+          applyStep(
+              workflowId,
+              stepKey,
+              new StepRecord(
+                  status, null, null, outputTypeId, outputBlob, error, updatedAt, runId, attempts, nextAttemptAt));
+          break;
+        }
+      case STEP_DELETE:
+        applyStep(readString(in), readString(in), null);
+        break;
+      case HEARTBEAT:
+        {
+          long now = in.getLong();
+          int count = in.getInt();
+          List<String> runIds = new ArrayList<>(count);
+          for (int i = 0; i < count; i++) {
+            runIds.add(readString(in));
+          }
+          applyHeartbeat(runIds, now);
+          break;
+        }
+      case WORKFLOW_DELETE:
+        applyWorkflowDeletion(readString(in));
+        break;
+      case TIMER:
+        applyTimer(new TimerRecord(readString(in), readString(in), in.getLong(), in.get() != 0));
+        break;
+      case WORKFLOW:
+        {
+          String workflowId = readString(in);
+          String workflowType = readString(in);
+          String input = readString(in);
+          WorkflowStatus status = WorkflowStatus.values()[in.get()];
+          String ownerRunId = readString(in);
+          long leaseExpiresAt = in.getLong();
+          WorkflowPriority priority = WorkflowPriority.values()[in.get()];
+          String error = readString(in);
+          long createdAt = in.getLong();
+          long updatedAt = in.getLong();
+          applyWorkflow(
+              new WorkflowRow(
+                  workflowId,
+                  workflowType,
+                  input,
+                  status,
+                  ownerRunId,
+                  leaseExpiresAt,
+                  priority,
+                  error,
+                  createdAt,
+                  updatedAt));
+          break;
+        }
+      case CHECKPOINT:
+        {
+          String workflowId = readString(in);
+          int sequence = in.getInt();
+          int stateTypeId = in.getInt();
+          byte[] stateBlob = readBytes(in);
+          byte[] counters = readBytes(in);
+          long updatedAt = in.getLong();
+          applyCheckpoint(
+              workflowId,
+              new CheckpointRecord(
+                  sequence, stateTypeId, stateBlob, CheckpointRecord.decodeCounters(counters), updatedAt));
+          break;
+        }
+      case SIGNAL:
+        {
+          String workflowId = readString(in);
+          String name = readString(in);
+          int sequence = in.getInt();
+          int payloadTypeId = in.getInt();
+          byte[] payload = readBytes(in);
+          long sentAt = in.getLong();
+          applySignal(workflowId, new SignalRecord(name, sequence, payloadTypeId, payload, sentAt));
+          break;
+        }
+      case CACHED_RESULT:
+        applyCachedResult(new CachedResult(readString(in), in.getInt(), readBytes(in), in.getLong()));
+        break;
+      default:
+        throw new IllegalStateException("Unknown step log record type: " + kind);
+    }
+  }
+
+  @Override
+  void persistType(int typeId, String className) {
+    try {
+      begin(TYPE);
+      out.writeInt(typeId);
+      writeString(className);
+      commit();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to append to step log", e);
+    }
+  }
+
+  @Override
+  void persistStep(String workflowId, String stepKey, StepRecord rec) {
+    try {
+      if (rec == null) {
+        begin(STEP_DELETE);
+        writeString(workflowId);
+        writeString(stepKey);
+        commit();
+        return;
+      }
+      begin(STEP);
+      writeString(workflowId);
+      writeString(stepKey);
+      out.writeByte(rec.status.ordinal());
+      writeString(rec.runId);
+      out.writeInt(rec.attempts);
+      out.writeLong(rec.nextAttemptAtEpochMs);
+      out.writeInt(rec.outputTypeId);
+      writeBytes(rec.outputBlob);
+      writeString(rec.error);
+      out.writeLong(rec.updatedAtEpochMs);
+      commit();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to append to step log", e);
+    }
+  }
+
+  @Override
+  void persistHeartbeat(List<String> runIds, long now) {
+    try {
+      begin(HEARTBEAT);
+      out.writeLong(now);
+      out.writeInt(runIds.size());
+      for (String runId : runIds) {
+        writeString(runId);
+      }
+      commit();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to append to step log", e);
+    }
+  }
+
+  @Override
+  void persistWorkflowDeletion(String workflowId) {
+    try {
+      begin(WORKFLOW_DELETE);
+      writeString(workflowId);
+      commit();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to append to step log", e);
+    }
+  }
+
+  @Override
+  void persistTimer(TimerRecord timer) {
+    try {
+      begin(TIMER);
+      writeString(timer.workflowId);
+      writeString(timer.timerKey);
+      out.writeLong(timer.wakeAtEpochMs);
+      out.writeBoolean(timer.fired);
+      commit();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to append to step log", e);
+    }
+  }
+
+  @Override
+  void persistWorkflow(WorkflowRow row) {
+    try {
+      begin(WORKFLOW);
+      writeString(row.workflowId);
+      writeString(row.workflowType);
+      writeString(row.input);
+      out.writeByte(row.status.ordinal());
+      writeString(row.ownerRunId);
+      out.writeLong(row.leaseExpiresAtEpochMs);
+      out.writeByte(row.priority.ordinal());
+      writeString(row.error);
+      out.writeLong(row.createdAtEpochMs);
+      out.writeLong(row.updatedAtEpochMs);
+      commit();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to append to step log", e);
+    }
+  }
+
+  @Override
+  void persistCheckpoint(String workflowId, CheckpointRecord checkpoint) {
+    try {
+      begin(CHECKPOINT);
+      writeString(workflowId);
+      out.writeInt(checkpoint.sequence);
+      out.writeInt(checkpoint.stateTypeId);
+      writeBytes(checkpoint.stateBlob);
+      writeBytes(checkpoint.encodeCounters());
+      out.writeLong(checkpoint.updatedAtEpochMs);
+      commit();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to append to step log", e);
+    }
+  }
+
+  @Override
+  void persistSignal(String workflowId, SignalRecord signal) {
+    try {
+      begin(SIGNAL);
+      writeString(workflowId);
+      writeString(signal.name);
+      out.writeInt(signal.sequence);
+      out.writeInt(signal.payloadTypeId);
+      writeBytes(signal.payload);
+      out.writeLong(signal.sentAtEpochMs);
+      commit();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to append to step log", e);
+    }
+  }
+
+  @Override
+  void persistCachedResult(CachedResult result) {
+    try {
+      begin(CACHED_RESULT);
+      writeString(result.cacheKey);
+      out.writeInt(result.outputTypeId);
+      writeBytes(result.outputBlob);
+      out.writeLong(result.expiresAtEpochMs);
+      commit();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to append to step log", e);
+    }
+  }
+
+  @Override
+  void afterWrite() {
+    if (options.fsyncPolicy() == FsyncPolicy.ALWAYS) {
+      active.force();
+    }
+  }
+
+  private void begin(byte kind) throws IOException {
+    if (closed) {
+      throw new IllegalStateException("Step log is closed");
+    }
+    record.reset();
+    out.writeByte(kind);
+  }
+
+  private void commit() throws IOException {
+    int length = record.size();
+    if (active.append(record.array(), length)) {
+      return;
+    }
+    roll(Math.max(options.segmentSizeBytes(), length + LogSegment.HEADER_BYTES));
+    if (!active.append(record.array(), length)) {
+      throw new IllegalStateException("Step log record does not fit in a fresh segment");
+    }
+  }
+
+  private LogSegment roll(int sizeBytes) throws IOException {
+    if (active != null && options.fsyncPolicy() != FsyncPolicy.NEVER) {
+      active.force();
+    }
+    long nextId = active == null ? 0 : active.id + 1;
+    LogSegment segment = LogSegment.create(directory.resolve(segmentName(nextId)), nextId, sizeBytes);
+    segments.add(segment);
+    active = segment;
+    return segment;
+  }
+
+  private void forceQuietly() {
+    lock.lock();
+    try {
+      if (!closed && active.isDirty()) {
+        active.force();
+      }
+    } catch (RuntimeException e) {
+      LOGGER.log(System.Logger.Level.WARNING, "Step log fsync failed", e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void compactQuietly() {
+    try {
+      compact();
+    } catch (RuntimeException e) {
+      LOGGER.log(System.Logger.Level.WARNING, "Step log compaction failed", e);
+    }
+  }
+
+  private void writeString(String value) throws IOException {
+    writeBytes(value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void writeBytes(byte[] value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(value.length);
+    out.write(value);
+  }
+
+  private static String readString(ByteBuffer in) {
+    byte[] bytes = readBytes(in);
+    return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static byte[] readBytes(ByteBuffer in) {
+    int length = in.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return bytes;
+  }
+
+  private static String segmentName(long id) {
+    return String.format("%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX);
+  }
+
+  private static long segmentId(Path file) {
+    String name = file.getFileName().toString();
+    return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    maintenance.shutdownNow();
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      if (options.fsyncPolicy() != FsyncPolicy.NEVER) {
+        active.force();
+      }
+      for (LogSegment segment : segments) {
+        segment.close();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to close step log", e);
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.zeotap.durable.engine;
+
+import java.time.Duration;
+import java.util.Objects;
+
+public final class LogStoreOptions {
+  public static final int DEFAULT_SEGMENT_SIZE_BYTES = 64 * 1024 * 1024;
+  public static final Duration DEFAULT_FSYNC_INTERVAL = Duration.ofMillis(100);
+  public static final Duration DEFAULT_COMPACTION_INTERVAL = Duration.ofMinutes(1);
+  public static final int DEFAULT_COMPACTION_SEGMENT_THRESHOLD = 4;
+
+  private static final LogStoreOptions DEFAULTS =
+      new LogStoreOptions(
+          DEFAULT_SEGMENT_SIZE_BYTES,
+          FsyncPolicy.INTERVAL,
+          DEFAULT_FSYNC_INTERVAL,
+          DEFAULT_COMPACTION_INTERVAL,
+          DEFAULT_COMPACTION_SEGMENT_THRESHOLD,
+          StoreOptions.DEFAULT_HEARTBEAT_INTERVAL);
+
+  private final int segmentSizeBytes;
+  private final FsyncPolicy fsyncPolicy;
+  private final Duration fsyncInterval;
+  private final Duration compactionInterval;
+  private final int compactionSegmentThreshold;
+  private final Duration heartbeatInterval;
+
+  private LogStoreOptions(
+      int segmentSizeBytes,
+      FsyncPolicy fsyncPolicy,
+      Duration fsyncInterval,
+      Duration compactionInterval,
+      int compactionSegmentThreshold,
+      Duration heartbeatInterval) {
+    this.segmentSizeBytes = segmentSizeBytes;
+    this.fsyncPolicy = fsyncPolicy;
+    this.fsyncInterval = fsyncInterval;
+    this.compactionInterval = compactionInterval;
+    this.compactionSegmentThreshold = compactionSegmentThreshold;
+    this.heartbeatInterval = heartbeatInterval;
+  }
+
+  public static LogStoreOptions defaults() {
+    return DEFAULTS;
+  }
+
+  public LogStoreOptions withSegmentSizeBytes(int segmentSizeBytes) {
+    if (segmentSizeBytes < 4096) {
+      throw new IllegalArgumentException("segmentSizeBytes must be >= 4096");
+    }
+    return new LogStoreOptions(
+        segmentSizeBytes, fsyncPolicy, fsyncInterval, compactionInterval, compactionSegmentThreshold,
+        heartbeatInterval);
+  }
+
+  public LogStoreOptions withFsyncPolicy(FsyncPolicy fsyncPolicy) {
+    return new LogStoreOptions(
+        segmentSizeBytes,
+        Objects.requireNonNull(fsyncPolicy, "fsyncPolicy"),
+        fsyncInterval,
+        compactionInterval,
+        compactionSegmentThreshold,
+        heartbeatInterval);
+  }
+
+  public LogStoreOptions withFsyncInterval(Duration fsyncInterval) {
+    Objects.requireNonNull(fsyncInterval, "fsyncInterval");
+    if (fsyncInterval.isZero() || fsyncInterval.isNegative()) {
+      throw new IllegalArgumentException("fsyncInterval must be > 0");
+    }
+    return new LogStoreOptions(
+        segmentSizeBytes, fsyncPolicy, fsyncInterval, compactionInterval, compactionSegmentThreshold,
+        heartbeatInterval);
+  }
+
+  public LogStoreOptions withCompactionInterval(Duration compactionInterval) {
+    Objects.requireNonNull(compactionInterval, "compactionInterval");
+    if (compactionInterval.isNegative()) {
+      throw new IllegalArgumentException("compactionInterval must be >= 0");
+    }
+    return new LogStoreOptions(
+        segmentSizeBytes, fsyncPolicy, fsyncInterval, compactionInterval, compactionSegmentThreshold,
+        heartbeatInterval);
+  }
+
+  public LogStoreOptions withCompactionSegmentThreshold(int compactionSegmentThreshold) {
+    if (compactionSegmentThreshold < 1) {
+      throw new IllegalArgumentException("compactionSegmentThreshold must be >= 1");
+    }
+    return new LogStoreOptions(
+        segmentSizeBytes, fsyncPolicy, fsyncInterval, compactionInterval, compactionSegmentThreshold,
+        heartbeatInterval);
+  }
+
+  public LogStoreOptions withHeartbeatInterval(Duration heartbeatInterval) {
+    Objects.requireNonNull(heartbeatInterval, "heartbeatInterval");
+    if (heartbeatInterval.isNegative()) {
+      throw new IllegalArgumentException("heartbeatInterval must be >= 0");
+    }
+    return new LogStoreOptions(
+        segmentSizeBytes, fsyncPolicy, fsyncInterval, compactionInterval, compactionSegmentThreshold,
+        heartbeatInterval);
+  }
+
+  public int segmentSizeBytes() {
+    return segmentSizeBytes;
+  }
+
+  public FsyncPolicy fsyncPolicy() {
+    return fsyncPolicy;
+  }
+
+  public Duration fsyncInterval() {
+    return fsyncInterval;
+  }
+
+  public Duration compactionInterval() {
+    return compactionInterval;
+  }
+
+  public int compactionSegmentThreshold() {
+    return compactionSegmentThreshold;
+  }
+
+  public Duration heartbeatInterval() {
+    return heartbeatInterval;
+  }
+}
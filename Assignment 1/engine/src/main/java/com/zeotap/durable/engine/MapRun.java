@@ -0,0 +1,218 @@
+package com.zeotap.durable.engine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class MapRun<I, O> {
+  static final int BATCH_SIZE = 256;
+  static final String ITEM_ID = "$item";
+
+  private record Completed(int index, StepKey key, Object value, StepRecord record, long activityNanos) {}
+
+  private final DurableContext ctx;
+  private final String itemId;
+  private final List<I> items;
+  private final int concurrency;
+  private final Class<O> clazz;
+  private final ItemCallable<I, O> fn;
+  private final Object lock = new Object();
+  private final List<Thread> workers = new ArrayList<>();
+  private final AtomicInteger cursor = new AtomicInteger();
+  private Object[] results;
+  private List<Completed> pending = new ArrayList<>();
+  private volatile boolean failed;
+  private Throwable firstFailure;
+
+  MapRun(DurableContext ctx, String mapKey, List<I> items, int concurrency, Class<O> clazz, ItemCallable<I, O> fn) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("concurrency must be >= 1");
+    }
+    this.ctx = Objects.requireNonNull(ctx, "ctx");
+    this.itemId = mapKey + "/" + ITEM_ID;
+    this.items = Objects.requireNonNull(items, "items");
+    this.concurrency = concurrency;
+    this.clazz = clazz;
+    this.fn = Objects.requireNonNull(fn, "fn");
+  }
+
+  List<O> run() throws Exception {
+    int n = items.size();
+    results = new Object[n];
+    boolean[] done = new boolean[n];
+
+    Map<String, StepRecord> completed = ctx.readCompletedItems(itemId);
+    for (Map.Entry<String, StepRecord> e : completed.entrySet()) {
+      StepKey key = StepKey.parse(e.getKey());
+      int index = key.id().equals(itemId) ? key.sequence() : -1;
+      if (index >= 0 && index < n && !done[index]) {
+        results[index] = ctx.decodeRecord(e.getValue(), clazz);
+        done[index] = true;
+        ctx.replayed(e.getKey());
+      }
+    }
+
+    int[] missing = new int[n];
+    int missingCount = 0;
+    for (int i = 0; i < n; i++) {
+      if (!done[i]) {
+        missing[missingCount++] = i;
+      }
+    }
+    if (missingCount > 0) {
+      execute(missing, missingCount);
+    }
+    ctx.itemsCompleted(itemId, n);
+
+    List<O> out = new ArrayList<>(n);
+    for (Object r : results) {
+      @SuppressWarnings("unchecked")
+      O value = (O) r;
+      out.add(value);
+    }
+    return out;
+  }
+
+  private void execute(int[] missing, int missingCount) throws Exception {
+    int workerCount = Math.min(concurrency, missingCount);
+    synchronized (lock) {
+      for (int w = 0; w < workerCount; w++) {
+        Thread worker =
+            Thread.ofVirtual()
+                .name("map-" + itemId + "-" + w)
+                .unstarted(() -> work(missing, missingCount));
+        workers.add(worker);
+        worker.start();
+      }
+    }
+
+    InterruptedException interrupted = null;
+    for (Thread worker : workers) {
+      while (true) {
+        try {
+          worker.join();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = e;
+          fail(e);
+        }
+      }
+    }
+
+    List<Completed> rest;
+    synchronized (lock) {
+      rest = pending;
+      pending = new ArrayList<>();
+    }
+    try {
+      flush(rest);
+    } catch (Exception e) {
+      fail(e);
+    }
+
+    if (interrupted != null) {
+      Thread.currentThread().interrupt();
+      throw interrupted;
+    }
+    Throwable failure;
+    synchronized (lock) {
+      failure = firstFailure;
+    }
+    if (failure instanceof Exception) {
+      throw (Exception) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+  }
+
+  private void work(int[] missing, int missingCount) {
+    RunTimeline previous = ctx.bindTimeline();
+    long workerStartedAt = System.nanoTime();
+    try {
+      while (!failed) {
+        int next = cursor.getAndIncrement();
+        if (next >= missingCount) {
+          return;
+        }
+        int index = missing[next];
+        long startedAt = System.nanoTime();
+        O value = fn.call(items.get(index));
+        long activity = System.nanoTime() - startedAt;
+        StepKey key = new StepKey(itemId, index);
+        ctx.trace(RunTimeline.STEP, key.keyString(), startedAt, activity);
+
+        StepRecord record = ctx.completedRecord(clazz, value);
+        List<Completed> batch = null;
+        synchronized (lock) {
+          pending.add(new Completed(index, key, value, record, activity));
+          if (pending.size() >= BATCH_SIZE) {
+            batch = pending;
+            pending = new ArrayList<>();
+          }
+        }
+        if (batch != null) {
+          flush(batch);
+        }
+      }
+    } catch (Throwable t) {
+      fail(t);
+    } finally {
+      ctx.trace(RunTimeline.BRANCH, itemId, workerStartedAt, System.nanoTime() - workerStartedAt);
+      ctx.unbindTimeline(previous);
+    }
+  }
+
+  private void flush(List<Completed> batch) throws Exception {
+    if (batch.isEmpty()) {
+      return;
+    }
+    Map<String, StepRecord> records = new LinkedHashMap<>();
+    for (Completed c : batch) {
+      records.put(c.key.keyString(), c.record);
+    }
+    long flushedAt = System.nanoTime();
+    int inserted = ctx.completeItems(records);
+    long share = (System.nanoTime() - flushedAt) / batch.size();
+    for (Completed c : batch) {
+      StepRecord stored = c.record;
+      if (inserted < batch.size()) {
+        stored = ctx.readItem(c.key).orElse(null);
+        if (stored == null || stored.status != StepStatus.COMPLETED) {
+          throw new IllegalStateException("Map item was not persisted: " + c.key);
+        }
+      }
+      if (stored == c.record || ctx.runId().equals(stored.runId)) {
+        results[c.index] = c.value;
+        byte[] blob = c.record.outputBlob;
+        ctx.executed(c.key.keyString(), c.activityNanos, share, blob == null ? 0 : blob.length);
+      } else {
+        results[c.index] = ctx.decodeRecord(stored, clazz);
+        ctx.replayed(c.key.keyString());
+      }
+    }
+  }
+
+  private void fail(Throwable t) {
+    List<Thread> toInterrupt;
+    synchronized (lock) {
+      if (firstFailure == null) {
+        firstFailure = t;
+      }
+      if (failed) {
+        return;
+      }
+      failed = true;
+      toInterrupt = new ArrayList<>(workers);
+    }
+    Thread self = Thread.currentThread();
+    for (Thread worker : toInterrupt) {
+      if (worker != self) {
+        worker.interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package com.zeotap.durable.engine;
+
+public interface MetricsListener {
+  default void onStepExecuted(
+      String workflowId, String stepKey, long activityNanos, long persistenceNanos, int outputBytes) {}
+
+  default void onStepReplayed(String workflowId, String stepKey) {}
+
+  default void onStoreOperation(StoreOperation operation, long nanos) {}
+
+  default void onLockWait(long nanos) {}
+
+  default void onZombieTakeover(String workflowId, String stepKey) {}
+
+  default void onStepTimedOut(String workflowId, String stepKey) {}
+
+  default void onResultCacheLookup(String stepId, boolean hit) {}
+
+  default void onBulkheadWait(String workflowId, String pool, long waitNanos) {}
+
+  default void onWorkflowFinished(WorkflowSummary summary) {}
+
+  default void onWorkflowRecovered(String workflowId, long recoveryNanos) {}
+}
@@ -0,0 +1,177 @@
+package com.zeotap.durable.engine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class OutputSerializer {
+  private static final byte TAG_STRING = 1;
+  private static final byte TAG_INTEGER = 2;
+  private static final byte TAG_LONG = 3;
+  private static final byte TAG_BOOLEAN = 4;
+  private static final byte TAG_DOUBLE = 5;
+  private static final byte TAG_BYTES = 6;
+  private static final byte TAG_CODEC = 16;
+  private static final byte TAG_BLOB_REF = 32;
+  private static final int HASH_LENGTH = 64;
+  static final int BLOB_REFERENCE_LENGTH = HASH_LENGTH + 1;
+
+  private final StepCodec codec;
+  private final Map<Integer, StepCodec> codecsById = new ConcurrentHashMap<>();
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  OutputSerializer(StepCodec codec) {
+    this.codec = Objects.requireNonNull(codec, "codec");
+    register(JacksonStepCodec.json());
+    register(JacksonStepCodec.smile());
+    register(JacksonStepCodec.cbor());
+    int id = codec.id();
+    if (id < 1 || id > 255) {
+      throw new IllegalArgumentException("codec id must be in 1..255");
+    }
+    StepCodec builtIn = codecsById.get(id);
+    if (builtIn != null && builtIn != codec) {
+      throw new IllegalArgumentException("codec id " + id + " is reserved for a built-in codec");
+    }
+    register(codec);
+  }
+
+  private void register(StepCodec c) {
+    codecsById.put(c.id(), c);
+  }
+
+  byte[] encode(Object value) {
+    if (value == null) {
+      return null;
+    }
+    if (value instanceof String) {
+      return tagged(TAG_STRING, ((String) value).getBytes(StandardCharsets.UTF_8));
+    }
+    if (value instanceof Integer) {
+      return ByteBuffer.allocate(5).put(TAG_INTEGER).putInt((Integer) value).array();
+    }
+    if (value instanceof Long) {
+      return ByteBuffer.allocate(9).put(TAG_LONG).putLong((Long) value).array();
+    }
+    if (value instanceof Boolean) {
+      return new byte[] {TAG_BOOLEAN, (byte) (((Boolean) value) ? 1 : 0)};
+    }
+    if (value instanceof Double) {
+      return ByteBuffer.allocate(9).put(TAG_DOUBLE).putDouble((Double) value).array();
+    }
+    if (value instanceof byte[]) {
+      return tagged(TAG_BYTES, (byte[]) value);
+    }
+    try {
+      byte[] payload = codec.encode(value);
+      byte[] out = new byte[payload.length + 2];
+      out[0] = TAG_CODEC;
+      out[1] = (byte) codec.id();
+      System.arraycopy(payload, 0, out, 2, payload.length);
+      return out;
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to serialize step output", e);
+    }
+  }
+
+  static byte[] blobReference(String hash) {
+    return tagged(TAG_BLOB_REF, hash.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  static String blobHash(byte[] blob) {
+    if (blob == null || blob.length != BLOB_REFERENCE_LENGTH || blob[0] != TAG_BLOB_REF) {
+      return null;
+    }
+    return new String(blob, 1, HASH_LENGTH, StandardCharsets.US_ASCII);
+  }
+
+  <T> T decode(byte[] blob, Class<T> type, StepStore store) throws IOException {
+    String hash = blobHash(blob);
+    if (hash == null) {
+      return decode(blob, type);
+    }
+    try (InputStream in = store.openBlob(hash)) {
+      int tag = in.read();
+      if (tag == TAG_CODEC) {
+        int codecId = in.read();
+        StepCodec c = codecsById.get(codecId);
+        if (c == null) {
+          throw new IOException("Unknown step codec id: " + codecId);
+        }
+        return c.decode(in, type);
+      }
+      byte[] rest = in.readAllBytes();
+      byte[] full = new byte[rest.length + 1];
+      full[0] = (byte) tag;
+      System.arraycopy(rest, 0, full, 1, rest.length);
+      return decode(full, type);
+    }
+  }
+
+  <T> T decode(byte[] blob, Class<T> type) throws IOException {
+    if (blob == null || blob.length == 0) {
+      return null;
+    }
+    Object value;
+    switch (blob[0]) {
+      case TAG_STRING:
+        value = new String(blob, 1, blob.length - 1, StandardCharsets.UTF_8);
+        break;
+      case TAG_INTEGER:
+        value = ByteBuffer.wrap(blob, 1, 4).getInt();
+        break;
+      case TAG_LONG:
+        value = ByteBuffer.wrap(blob, 1, 8).getLong();
+        break;
+      case TAG_BOOLEAN:
+        value = blob[1] != 0;
+        break;
+      case TAG_DOUBLE:
+        value = ByteBuffer.wrap(blob, 1, 8).getDouble();
+        break;
+      case TAG_BYTES:
+        value = Arrays.copyOfRange(blob, 1, blob.length);
+        break;
+      case TAG_CODEC:
+        StepCodec c = codecsById.get(blob[1] & 0xFF);
+        if (c == null) {
+          throw new IOException("Unknown step codec id: " + (blob[1] & 0xFF));
+        }
+        return c.decode(blob, 2, blob.length - 2, type);
+      case TAG_BLOB_REF:
+        throw new IOException("Step output is stored as a blob and needs a store to resolve it");
+      default:
+        throw new IOException("Unknown step output tag: " + blob[0]);
+    }
+    if (type.isInstance(value)) {
+      return type.cast(value);
+    }
+    return objectMapper.convertValue(value, type);
+  }
+
+  <T> T decodeLegacyJson(String json, Class<T> type) throws IOException {
+    return objectMapper.readValue(json, type);
+  }
+
+  byte[] transcodeLegacyJson(String json, Class<?> type) throws IOException {
+    if (type != null) {
+      return encode(objectMapper.readValue(json, type));
+    }
+    JsonNode tree = objectMapper.readTree(json);
+    return encode(tree);
+  }
+
+  private static byte[] tagged(byte tag, byte[] payload) {
+    byte[] out = new byte[payload.length + 1];
+    out[0] = tag;
+    System.arraycopy(payload, 0, out, 1, payload.length);
+    return out;
+  }
+}
@@ -0,0 +1,182 @@
+package com.zeotap.durable.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+public final class ParallelScope implements AutoCloseable {
+  private final DurableContext ctx;
+  private final Semaphore permits;
+  private final List<Thread> branches = new ArrayList<>();
+  private final Object lock = new Object();
+  private volatile boolean cancelled;
+  private Throwable firstFailure;
+  private boolean joined;
+
+  ParallelScope(DurableContext ctx, int maxConcurrency) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be >= 1");
+    }
+    this.ctx = Objects.requireNonNull(ctx, "ctx");
+    this.permits = new Semaphore(maxConcurrency, true);
+  }
+
+  public <T> CompletableFuture<T> stepAsync(String id, Class<T> clazz, StepCallable<T> fn) {
+    Objects.requireNonNull(clazz, "clazz");
+    return fork(id, StepOptions.defaults(), clazz, fn);
+  }
+
+  public <T> CompletableFuture<T> stepAsync(String id, StepCallable<T> fn) {
+    return fork(id, StepOptions.defaults(), null, fn);
+  }
+
+  public <T> CompletableFuture<T> stepAsync(String id, StepOptions options, Class<T> clazz, StepCallable<T> fn) {
+    Objects.requireNonNull(clazz, "clazz");
+    return fork(id, options, clazz, fn);
+  }
+
+  public <T> CompletableFuture<T> stepAsync(String id, StepOptions options, StepCallable<T> fn) {
+    return fork(id, options, null, fn);
+  }
+
+  public void join() throws Exception {
+    List<Thread> snapshot;
+    synchronized (lock) {
+      snapshot = new ArrayList<>(branches);
+    }
+    for (Thread t : snapshot) {
+      t.join();
+    }
+    Throwable failure;
+    synchronized (lock) {
+      joined = true;
+      failure = firstFailure;
+    }
+    if (failure instanceof Exception) {
+      throw (Exception) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  private <T> CompletableFuture<T> fork(String id, StepOptions options, Class<T> clazz, StepCallable<T> fn) {
+    Objects.requireNonNull(id, "id");
+    Objects.requireNonNull(options, "options");
+    Objects.requireNonNull(fn, "fn");
+    if (options.pool() != null) {
+      ctx.bulkhead(options.pool());
+    }
+
+    CompletableFuture<T> result = new CompletableFuture<>();
+    synchronized (lock) {
+      if (joined) {
+        throw new IllegalStateException("ParallelScope already joined");
+      }
+      ctx.enterStep();
+      StepKey stepKey = ctx.nextStepKey(id);
+      Thread branch =
+          Thread.ofVirtual()
+              .name("step-" + stepKey.keyString())
+              .unstarted(() -> runBranch(stepKey, options, clazz, fn, result));
+      branches.add(branch);
+      branch.start();
+    }
+    return result;
+  }
+
+  private <T> void runBranch(
+      StepKey stepKey, StepOptions options, Class<T> clazz, StepCallable<T> fn, CompletableFuture<T> result) {
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      ctx.exitStep();
+      result.cancel(false);
+      return;
+    }
+    RunTimeline previous = ctx.bindTimeline();
+    long startedAt = System.nanoTime();
+    boolean skipped = cancelled;
+    T value = null;
+    Throwable failure = null;
+    try {
+      if (!skipped) {
+        value = ctx.runStep(stepKey, clazz, options, fn, this);
+      }
+    } catch (Throwable t) {
+      failure = t;
+    } finally {
+      ctx.trace(RunTimeline.BRANCH, stepKey.keyString(), startedAt, System.nanoTime() - startedAt);
+      ctx.unbindTimeline(previous);
+      permits.release();
+      ctx.exitStep();
+    }
+    if (skipped) {
+      result.cancel(false);
+    } else if (failure != null) {
+      result.completeExceptionally(failure);
+      fail(failure);
+    } else {
+      result.complete(value);
+    }
+  }
+
+  private void fail(Throwable t) {
+    synchronized (lock) {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      firstFailure = t;
+    }
+    cancelBranches();
+  }
+
+  private void cancelBranches() {
+    List<Thread> toInterrupt;
+    synchronized (lock) {
+      cancelled = true;
+      toInterrupt = new ArrayList<>(branches);
+    }
+    Thread self = Thread.currentThread();
+    for (Thread branch : toInterrupt) {
+      if (branch != self) {
+        branch.interrupt();
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    List<Thread> snapshot;
+    synchronized (lock) {
+      if (joined) {
+        return;
+      }
+      joined = true;
+      snapshot = new ArrayList<>(branches);
+    }
+    cancelBranches();
+    boolean interrupted = false;
+    for (Thread t : snapshot) {
+      while (true) {
+        try {
+          t.join();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+          cancelBranches();
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
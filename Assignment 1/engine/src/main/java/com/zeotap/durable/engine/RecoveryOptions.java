@@ -0,0 +1,61 @@
+package com.zeotap.durable.engine;
+
+import java.time.Duration;
+import java.util.Objects;
+
+public final class RecoveryOptions {
+  public static final Duration DEFAULT_SWEEP_INTERVAL = Duration.ofSeconds(5);
+  public static final int DEFAULT_MAX_CONCURRENT_RECOVERIES = 16;
+  public static final int DEFAULT_SCAN_LIMIT = 100;
+
+  private static final RecoveryOptions DEFAULTS =
+      new RecoveryOptions(DEFAULT_SWEEP_INTERVAL, DEFAULT_MAX_CONCURRENT_RECOVERIES, DEFAULT_SCAN_LIMIT);
+
+  private final Duration sweepInterval;
+  private final int maxConcurrentRecoveries;
+  private final int scanLimit;
+
+  private RecoveryOptions(Duration sweepInterval, int maxConcurrentRecoveries, int scanLimit) {
+    this.sweepInterval = sweepInterval;
+    this.maxConcurrentRecoveries = maxConcurrentRecoveries;
+    this.scanLimit = scanLimit;
+  }
+
+  public static RecoveryOptions defaults() {
+    return DEFAULTS;
+  }
+
+  public RecoveryOptions withSweepInterval(Duration sweepInterval) {
+    Objects.requireNonNull(sweepInterval, "sweepInterval");
+    if (sweepInterval.isZero() || sweepInterval.isNegative()) {
+      throw new IllegalArgumentException("sweepInterval must be > 0");
+    }
+    return new RecoveryOptions(sweepInterval, maxConcurrentRecoveries, scanLimit);
+  }
+
+  public RecoveryOptions withMaxConcurrentRecoveries(int maxConcurrentRecoveries) {
+    if (maxConcurrentRecoveries < 1) {
+      throw new IllegalArgumentException("maxConcurrentRecoveries must be >= 1");
+    }
+    return new RecoveryOptions(sweepInterval, maxConcurrentRecoveries, scanLimit);
+  }
+
+  public RecoveryOptions withScanLimit(int scanLimit) {
+    if (scanLimit < 1) {
+      throw new IllegalArgumentException("scanLimit must be >= 1");
+    }
+    return new RecoveryOptions(sweepInterval, maxConcurrentRecoveries, scanLimit);
+  }
+
+  public Duration sweepInterval() {
+    return sweepInterval;
+  }
+
+  public int maxConcurrentRecoveries() {
+    return maxConcurrentRecoveries;
+  }
+
+  public int scanLimit() {
+    return scanLimit;
+  }
+}
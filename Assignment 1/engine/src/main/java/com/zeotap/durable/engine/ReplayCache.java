@@ -0,0 +1,82 @@
+package com.zeotap.durable.engine;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+final class ReplayCache {
+  private final int maxEntries;
+  private final ConcurrentHashMap<String, StepRecord> entries = new ConcurrentHashMap<>();
+  private final ConcurrentLinkedQueue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+  private volatile boolean complete;
+
+  ReplayCache(int maxEntries) {
+    if (maxEntries < 0) {
+      throw new IllegalArgumentException("maxEntries must be >= 0");
+    }
+    this.maxEntries = maxEntries;
+  }
+
+  int maxEntries() {
+    return maxEntries;
+  }
+
+  boolean isComplete() {
+    return complete;
+  }
+
+  void preload(StepStore store, String workflowId) {
+    if (maxEntries == 0) {
+      return;
+    }
+    Map<String, StepRecord> history = store.readCompletedSteps(workflowId, maxEntries + 1);
+    complete = history.size() <= maxEntries;
+    for (Map.Entry<String, StepRecord> e : history.entrySet()) {
+      if (entries.size() >= maxEntries) {
+        break;
+      }
+      put(e.getKey(), e.getValue());
+    }
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  StepRecord get(String stepKey) {
+    return entries.get(stepKey);
+  }
+
+  void put(String stepKey, StepRecord record) {
+    if (maxEntries == 0) {
+      return;
+    }
+    if (entries.put(stepKey, record) == null) {
+      insertionOrder.add(stepKey);
+      evictIfNeeded();
+    }
+  }
+
+  void remove(String stepKey) {
+    if (entries.remove(stepKey) != null) {
+      insertionOrder.remove(stepKey);
+    }
+  }
+
+  void clear() {
+    entries.clear();
+    insertionOrder.clear();
+    complete = maxEntries > 0;
+  }
+
+  private void evictIfNeeded() {
+    while (entries.size() > maxEntries) {
+      String oldest = insertionOrder.poll();
+      if (oldest == null) {
+        return;
+      }
+      entries.remove(oldest);
+      complete = false;
+    }
+  }
+}
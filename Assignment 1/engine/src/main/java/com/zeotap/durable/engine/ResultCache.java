@@ -0,0 +1,47 @@
+package com.zeotap.durable.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+final class ResultCache {
+  private final int maxEntries;
+  private final LinkedHashMap<String, CachedResult> entries;
+
+  ResultCache(int maxEntries) {
+    if (maxEntries < 0) {
+      throw new IllegalArgumentException("maxEntries must be >= 0");
+    }
+    this.maxEntries = maxEntries;
+    this.entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+            return size() > ResultCache.this.maxEntries;
+          }
+        };
+  }
+
+  synchronized CachedResult get(String cacheKey, long nowEpochMs) {
+    CachedResult cached = entries.get(cacheKey);
+    if (cached != null && cached.expired(nowEpochMs)) {
+      entries.remove(cacheKey);
+      return null;
+    }
+    return cached;
+  }
+
+  synchronized void put(CachedResult result) {
+    if (maxEntries == 0) {
+      return;
+    }
+    entries.put(result.cacheKey, result);
+  }
+
+  synchronized void remove(String cacheKey) {
+    entries.remove(cacheKey);
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+}
@@ -0,0 +1,92 @@
+package com.zeotap.durable.engine;
+
+import java.time.Duration;
+import java.util.Objects;
+
+public final class RetentionOptions {
+  public static final Duration DEFAULT_TTL = Duration.ofDays(7);
+  public static final Duration DEFAULT_INTERVAL = Duration.ofMinutes(1);
+  public static final int DEFAULT_ARCHIVE_BATCH_SIZE = 100;
+  public static final int DEFAULT_DELETE_BATCH_SIZE = 1_000;
+  public static final int DEFAULT_VACUUM_PAGES = 1_000;
+
+  private static final RetentionOptions DEFAULTS =
+      new RetentionOptions(
+          DEFAULT_TTL, DEFAULT_INTERVAL, DEFAULT_ARCHIVE_BATCH_SIZE, DEFAULT_DELETE_BATCH_SIZE, DEFAULT_VACUUM_PAGES);
+
+  private final Duration ttl;
+  private final Duration interval;
+  private final int archiveBatchSize;
+  private final int deleteBatchSize;
+  private final int vacuumPages;
+
+  private RetentionOptions(
+      Duration ttl, Duration interval, int archiveBatchSize, int deleteBatchSize, int vacuumPages) {
+    this.ttl = ttl;
+    this.interval = interval;
+    this.archiveBatchSize = archiveBatchSize;
+    this.deleteBatchSize = deleteBatchSize;
+    this.vacuumPages = vacuumPages;
+  }
+
+  public static RetentionOptions defaults() {
+    return DEFAULTS;
+  }
+
+  public RetentionOptions withTtl(Duration ttl) {
+    Objects.requireNonNull(ttl, "ttl");
+    if (ttl.isNegative()) {
+      throw new IllegalArgumentException("ttl must be >= 0");
+    }
+    return new RetentionOptions(ttl, interval, archiveBatchSize, deleteBatchSize, vacuumPages);
+  }
+
+  public RetentionOptions withInterval(Duration interval) {
+    Objects.requireNonNull(interval, "interval");
+    if (interval.isZero() || interval.isNegative()) {
+      throw new IllegalArgumentException("interval must be > 0");
+    }
+    return new RetentionOptions(ttl, interval, archiveBatchSize, deleteBatchSize, vacuumPages);
+  }
+
+  public RetentionOptions withArchiveBatchSize(int archiveBatchSize) {
+    if (archiveBatchSize < 1) {
+      throw new IllegalArgumentException("archiveBatchSize must be >= 1");
+    }
+    return new RetentionOptions(ttl, interval, archiveBatchSize, deleteBatchSize, vacuumPages);
+  }
+
+  public RetentionOptions withDeleteBatchSize(int deleteBatchSize) {
+    if (deleteBatchSize < 1) {
+      throw new IllegalArgumentException("deleteBatchSize must be >= 1");
+    }
+    return new RetentionOptions(ttl, interval, archiveBatchSize, deleteBatchSize, vacuumPages);
+  }
+
+  public RetentionOptions withVacuumPages(int vacuumPages) {
+    if (vacuumPages < 0) {
+      throw new IllegalArgumentException("vacuumPages must be >= 0");
+    }
+    return new RetentionOptions(ttl, interval, archiveBatchSize, deleteBatchSize, vacuumPages);
+  }
+
+  public Duration ttl() {
+    return ttl;
+  }
+
+  public Duration interval() {
+    return interval;
+  }
+
+  public int archiveBatchSize() {
+    return archiveBatchSize;
+  }
+
+  public int deleteBatchSize() {
+    return deleteBatchSize;
+  }
+
+  public int vacuumPages() {
+    return vacuumPages;
+  }
+}
@@ -0,0 +1,98 @@
+package com.zeotap.durable.engine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public final class RetentionService implements AutoCloseable {
+  private static final System.Logger LOGGER = System.getLogger(RetentionService.class.getName());
+
+  private final SQLiteStepStore store;
+  private final WorkflowArchive archive;
+  private final RetentionOptions options;
+  private final Object runLock = new Object();
+  private ScheduledExecutorService scheduler;
+
+  public RetentionService(SQLiteStepStore store, Path archiveDirectory, RetentionOptions options) {
+    this.store = Objects.requireNonNull(store, "store");
+    this.archive = new WorkflowArchive(Objects.requireNonNull(archiveDirectory, "archiveDirectory"));
+    this.options = Objects.requireNonNull(options, "options");
+  }
+
+  public synchronized void start() {
+    if (scheduler != null) {
+      throw new IllegalStateException("RetentionService is already started");
+    }
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "workflow-retention");
+              t.setDaemon(true);
+              return t;
+            });
+    long periodMs = options.interval().toMillis();
+    scheduler.scheduleWithFixedDelay(
+        () -> {
+          try {
+            runOnce();
+          } catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Workflow retention pass failed", e);
+          }
+        },
+        periodMs,
+        periodMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  public int runOnce() {
+    synchronized (runLock) {
+      int archived = 0;
+      long cutoff = System.currentTimeMillis() - options.ttl().toMillis();
+      while (true) {
+        List<ArchivedWorkflow> batch = store.readFinishedWorkflows(cutoff, options.archiveBatchSize());
+        if (batch.isEmpty()) {
+          break;
+        }
+        try {
+          archive.write(batch, store::typeName);
+        } catch (IOException e) {
+          throw new RuntimeException("Failed to write workflow archive", e);
+        }
+        archived += store.markArchived(batch);
+        purge();
+        if (batch.size() < options.archiveBatchSize() || Thread.currentThread().isInterrupted()) {
+          break;
+        }
+      }
+      purge();
+      if (options.vacuumPages() > 0) {
+        store.incrementalVacuum(options.vacuumPages());
+      }
+      return archived;
+    }
+  }
+
+  private void purge() {
+    while (store.purgeArchived(options.deleteBatchSize()) > 0) {
+      Thread.yield();
+    }
+    long now = System.currentTimeMillis();
+    while (store.purgeExpiredResults(now, options.deleteBatchSize()) > 0) {
+      Thread.yield();
+    }
+    while (store.collectBlobs(options.deleteBatchSize()) > 0) {
+      Thread.yield();
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package com.zeotap.durable.engine;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+public final class RetryPolicy {
+  public static final int DEFAULT_MAX_ATTEMPTS = 3;
+  public static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofSeconds(1);
+  public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofMinutes(1);
+  public static final double DEFAULT_MULTIPLIER = 2.0;
+  public static final double DEFAULT_JITTER = 0.2;
+
+  private static final Predicate<Throwable> RETRY_ALL = t -> !(t instanceof InterruptedException);
+
+  private static final RetryPolicy DEFAULTS =
+      new RetryPolicy(
+          DEFAULT_MAX_ATTEMPTS,
+          DEFAULT_INITIAL_BACKOFF,
+          DEFAULT_MAX_BACKOFF,
+          DEFAULT_MULTIPLIER,
+          DEFAULT_JITTER,
+          RETRY_ALL);
+
+  private final int maxAttempts;
+  private final Duration initialBackoff;
+  private final Duration maxBackoff;
+  private final double multiplier;
+  private final double jitter;
+  private final Predicate<Throwable> retryable;
+
+  private RetryPolicy(
+      int maxAttempts,
+      Duration initialBackoff,
+      Duration maxBackoff,
+      double multiplier,
+      double jitter,
+      Predicate<Throwable> retryable) {
+    this.maxAttempts = maxAttempts;
+    this.initialBackoff = initialBackoff;
+    this.maxBackoff = maxBackoff;
+    this.multiplier = multiplier;
+    this.jitter = jitter;
+    this.retryable = retryable;
+  }
+
+  public static RetryPolicy defaults() {
+    return DEFAULTS;
+  }
+
+  public RetryPolicy withMaxAttempts(int maxAttempts) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("maxAttempts must be >= 1");
+    }
+    return new RetryPolicy(maxAttempts, initialBackoff, maxBackoff, multiplier, jitter, retryable);
+  }
+
+  public RetryPolicy withInitialBackoff(Duration initialBackoff) {
+    Objects.requireNonNull(initialBackoff, "initialBackoff");
+    if (initialBackoff.isNegative()) {
+      throw new IllegalArgumentException("initialBackoff must be >= 0");
+    }
+    return new RetryPolicy(maxAttempts, initialBackoff, maxBackoff, multiplier, jitter, retryable);
+  }
+
+  public RetryPolicy withMaxBackoff(Duration maxBackoff) {
+    Objects.requireNonNull(maxBackoff, "maxBackoff");
+    if (maxBackoff.isNegative()) {
+      throw new IllegalArgumentException("maxBackoff must be >= 0");
+    }
+    return new RetryPolicy(maxAttempts, initialBackoff, maxBackoff, multiplier, jitter, retryable);
+  }
+
+  public RetryPolicy withMultiplier(double multiplier) {
+    if (multiplier < 1.0) {
+      throw new IllegalArgumentException("multiplier must be >= 1.0");
+    }
+    return new RetryPolicy(maxAttempts, initialBackoff, maxBackoff, multiplier, jitter, retryable);
+  }
+
+  public RetryPolicy withJitter(double jitter) {
+    if (jitter < 0.0 || jitter > 1.0) {
+      throw new IllegalArgumentException("jitter must be between 0.0 and 1.0");
+    }
+    return new RetryPolicy(maxAttempts, initialBackoff, maxBackoff, multiplier, jitter, retryable);
+  }
+
+  @SafeVarargs
+  public final RetryPolicy withRetryOn(Class<? extends Throwable>... types) {
+    Objects.requireNonNull(types, "types");
+    List<Class<? extends Throwable>> copy = new ArrayList<>(types.length);
+    for (Class<? extends Throwable> type : types) {
+      copy.add(Objects.requireNonNull(type, "type"));
+    }
+    return withRetryIf(
+        t -> {
+          for (Class<? extends Throwable> type : copy) {
+            if (type.isInstance(t)) {
+              return true;
+            }
+          }
+          return false;
+        });
+  }
+
+  public RetryPolicy withRetryIf(Predicate<Throwable> retryable) {
+    Objects.requireNonNull(retryable, "retryable");
+    return new RetryPolicy(maxAttempts, initialBackoff, maxBackoff, multiplier, jitter, retryable);
+  }
+
+  public int maxAttempts() {
+    return maxAttempts;
+  }
+
+  public Duration initialBackoff() {
+    return initialBackoff;
+  }
+
+  public Duration maxBackoff() {
+    return maxBackoff;
+  }
+
+  public double multiplier() {
+    return multiplier;
+  }
+
+  public double jitter() {
+    return jitter;
+  }
+
+  boolean shouldRetry(int attempt, Throwable failure) {
+    return attempt < maxAttempts && retryable.test(failure);
+  }
+
+  long backoffMillis(int attempt) {
+    double base = initialBackoff.toMillis() * Math.pow(multiplier, Math.max(0, attempt - 1));
+    double capped = Math.min(base, maxBackoff.toMillis());
+    double spread = jitter == 0.0 ? 0.0 : ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+    return Math.max(0L, Math.round(capped * (1.0 + spread)));
+  }
+}
@@ -0,0 +1,76 @@
+package com.zeotap.durable.engine;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+final class RunState {
+  final String workflowId;
+  final String runId;
+  final StepStore stepStore;
+  final OutputSerializer serializer;
+  final ReplayCache replayCache;
+  final HashedTimerWheel timers;
+  final ConcurrentHashMap<String, StepPath> paths = new ConcurrentHashMap<>();
+  final WorkflowStats stats = new WorkflowStats();
+  final RunTimeline timeline;
+  final Map<String, Bulkhead> bulkheads;
+  private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile Thread suspendableThread;
+  volatile boolean restored;
+
+  RunState(
+      String workflowId,
+      String runId,
+      StepStore stepStore,
+      OutputSerializer serializer,
+      ReplayCache replayCache,
+      HashedTimerWheel timers,
+      RunTimeline timeline,
+      Map<String, Bulkhead> bulkheads) {
+    this.workflowId = Objects.requireNonNull(workflowId, "workflowId");
+    this.runId = Objects.requireNonNull(runId, "runId");
+    this.stepStore = Objects.requireNonNull(stepStore, "stepStore");
+    this.serializer = Objects.requireNonNull(serializer, "serializer");
+    this.replayCache = Objects.requireNonNull(replayCache, "replayCache");
+    this.timers = Objects.requireNonNull(timers, "timers");
+    this.timeline = timeline;
+    this.bulkheads = Objects.requireNonNull(bulkheads, "bulkheads");
+  }
+
+  void allowSuspension(Thread workflowThread) {
+    this.suspendableThread = workflowThread;
+  }
+
+  boolean canSuspend() {
+    return suspendableThread != null && suspendableThread == Thread.currentThread();
+  }
+
+  void enterStep() {
+    snapshotLock.readLock().lock();
+    try {
+      inFlight.incrementAndGet();
+    } finally {
+      snapshotLock.readLock().unlock();
+    }
+  }
+
+  void exitStep() {
+    inFlight.decrementAndGet();
+  }
+
+  void beginSnapshot() {
+    snapshotLock.writeLock().lock();
+    if (inFlight.get() > 0) {
+      snapshotLock.writeLock().unlock();
+      throw new IllegalStateException("checkpoint must not be called while steps are running");
+    }
+  }
+
+  void endSnapshot() {
+    snapshotLock.writeLock().unlock();
+  }
+}
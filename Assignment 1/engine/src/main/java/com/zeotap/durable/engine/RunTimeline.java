@@ -0,0 +1,112 @@
+package com.zeotap.durable.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class RunTimeline {
+  static final int MAGIC = 0x444c544c;
+  static final int VERSION = 1;
+  static final String FILE_SUFFIX = ".timeline";
+
+  static final byte WORKFLOW = 0;
+  static final byte STEP = 1;
+  static final byte REPLAY = 2;
+  static final byte STORE = 3;
+  static final byte LOCK_WAIT = 4;
+  static final byte WAIT = 5;
+  static final byte BRANCH = 6;
+
+  static final long LOCK_WAIT_TRACE_NANOS = 1_000;
+
+  private static final ThreadLocal<RunTimeline> CURRENT = new ThreadLocal<>();
+
+  private final Path directory;
+  private final int capacity;
+  private final byte[] kinds;
+  private final String[] names;
+  private final long[] starts;
+  private final long[] durations;
+  private final long[] threads;
+  private final AtomicLong next = new AtomicLong();
+  private final long originNanos = System.nanoTime();
+  private final long startedAtEpochMs = System.currentTimeMillis();
+
+  RunTimeline(TimelineConfig config) {
+    this.directory = config.directory();
+    this.capacity = config.capacity();
+    this.kinds = new byte[capacity];
+    this.names = new String[capacity];
+    this.starts = new long[capacity];
+    this.durations = new long[capacity];
+    this.threads = new long[capacity];
+  }
+
+  static RunTimeline current() {
+    return CURRENT.get();
+  }
+
+  RunTimeline bind() {
+    RunTimeline previous = CURRENT.get();
+    CURRENT.set(this);
+    return previous;
+  }
+
+  static void unbind(RunTimeline previous) {
+    if (previous == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(previous);
+    }
+  }
+
+  long originNanos() {
+    return originNanos;
+  }
+
+  void record(byte kind, String name, long startNanos, long durationNanos) {
+    int slot = (int) (next.getAndIncrement() % capacity);
+    kinds[slot] = kind;
+    names[slot] = name;
+    starts[slot] = startNanos;
+    durations[slot] = durationNanos;
+    threads[slot] = Thread.currentThread().threadId();
+  }
+
+  Path write(String workflowId, String runId) throws IOException {
+    Path file = file(directory, workflowId, runId);
+    Files.createDirectories(file.getParent());
+    long recorded = next.get();
+    int count = (int) Math.min(recorded, capacity);
+    int first = (int) ((recorded - count) % capacity);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(workflowId);
+      out.writeUTF(runId);
+      out.writeLong(startedAtEpochMs);
+      out.writeLong(recorded - count);
+      out.writeInt(count);
+      for (int i = 0; i < count; i++) {
+        int slot = (first + i) % capacity;
+        out.writeByte(kinds[slot]);
+        out.writeUTF(names[slot] == null ? "" : names[slot]);
+        out.writeLong(starts[slot] - originNanos);
+        out.writeLong(durations[slot]);
+        out.writeLong(threads[slot]);
+      }
+    }
+    return file;
+  }
+
+  static Path file(Path directory, String workflowId, String runId) {
+    return directory
+        .resolve(URLEncoder.encode(workflowId, StandardCharsets.UTF_8))
+        .resolve(URLEncoder.encode(runId, StandardCharsets.UTF_8) + FILE_SUFFIX);
+  }
+}
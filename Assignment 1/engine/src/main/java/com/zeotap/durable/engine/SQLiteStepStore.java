@@ -1,133 +1,838 @@
 package com.zeotap.durable.engine;
 
-import java.sql.Connection;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.sqlite.SQLiteConfig;
 
-final class SQLiteStepStore implements AutoCloseable {
-  private final Connection connection;
-  private final ReentrantLock dbLock = new ReentrantLock(true);
+public final class SQLiteStepStore implements StepStore {
+  private static final System.Logger LOGGER = System.getLogger(SQLiteStepStore.class.getName());
+
+  @FunctionalInterface
+  interface SqlRead<T> {
+    T apply(StoreConnection conn) throws SQLException;
+  }
+
+  private record RowKey(long workflowIntId, int pathId, int seq) {
+    int bind(PreparedStatement ps, int index) throws SQLException {
+      ps.setLong(index, workflowIntId);
+      ps.setInt(index + 1, pathId);
+      ps.setInt(index + 2, seq);
+      return index + 3;
+    }
+  }
+
+  private static final String SELECT_STEP =
+      "SELECT status, run_id, output_class, output_json, output_type_id, output_blob, error, updated_at_ms, attempts, next_attempt_at_ms FROM step_rows WHERE workflow_int_id = ? AND path_id = ? AND seq = ?";
+  private static final String SELECT_COMPLETED =
+      "SELECT p.path, s.seq, s.status, s.run_id, s.output_class, s.output_json, s.output_type_id, s.output_blob, s.error, s.updated_at_ms FROM step_rows s JOIN step_paths p ON p.path_id = s.path_id WHERE s.workflow_int_id = ? AND s.status = 'COMPLETED' ORDER BY s.updated_at_ms LIMIT ?";
+  private static final String SELECT_COMPLETED_OCCURRENCES =
+      "SELECT p.path, s.seq, s.status, s.run_id, s.output_class, s.output_json, s.output_type_id, s.output_blob, s.error, s.updated_at_ms FROM step_rows s JOIN step_paths p ON p.path_id = s.path_id WHERE s.workflow_int_id = ? AND s.path_id = ? AND s.seq >= 0 AND s.status = 'COMPLETED' ORDER BY s.seq";
+  private static final String INSERT_COMPLETED =
+      "INSERT OR IGNORE INTO step_rows(workflow_int_id, path_id, seq, status, run_id, output_type_id, output_blob, attempts, updated_at_ms) VALUES(?, ?, ?, 'COMPLETED', ?, ?, ?, 1, ?)";
+  private static final String INSERT_RUNNING =
+      "INSERT OR IGNORE INTO step_rows(workflow_int_id, path_id, seq, status, run_id, attempts, updated_at_ms) VALUES(?, ?, ?, 'RUNNING', ?, 1, ?)";
+  private static final String TAKEOVER =
+      "UPDATE step_rows SET status='RUNNING', run_id=?, error=NULL, output_class=NULL, output_json=NULL, output_type_id=NULL, output_blob=NULL, attempts=?, next_attempt_at_ms=NULL, updated_at_ms=? WHERE workflow_int_id=? AND path_id=? AND seq=? AND run_id IS ? AND updated_at_ms=?";
+  private static final String COMPLETE =
+      "UPDATE step_rows SET status='COMPLETED', output_class=NULL, output_json=NULL, output_type_id=?, output_blob=?, error=NULL, updated_at_ms=? WHERE workflow_int_id=? AND path_id=? AND seq=? AND run_id=?";
+  private static final String FAIL =
+      "UPDATE step_rows SET status=?, error=?, updated_at_ms=? WHERE workflow_int_id=? AND path_id=? AND seq=? AND run_id=?";
+  private static final String SCHEDULE_RETRY =
+      "UPDATE step_rows SET status='RETRYING', error=?, next_attempt_at_ms=?, updated_at_ms=? WHERE workflow_int_id=? AND path_id=? AND seq=? AND run_id=?";
+  private static final String RELEASE =
+      "DELETE FROM step_rows WHERE workflow_int_id=? AND path_id=? AND seq=? AND run_id=? AND status='RUNNING'";
+  private static final int HEARTBEAT_CHUNK = 500;
+  private static final String DELETE_WORKFLOW = "DELETE FROM step_rows WHERE workflow_int_id = ?";
+  private static final String SELECT_CHECKPOINT =
+      "SELECT sequence, state_type_id, state_blob, counters, updated_at_ms FROM checkpoints WHERE workflow_int_id = ?";
+  private static final String SAVE_CHECKPOINT =
+      "INSERT INTO checkpoints(workflow_int_id, sequence, state_type_id, state_blob, counters, updated_at_ms) VALUES(?, ?, ?, ?, ?, ?) "
+          + "ON CONFLICT(workflow_int_id) DO UPDATE SET sequence=excluded.sequence, state_type_id=excluded.state_type_id, "
+          + "state_blob=excluded.state_blob, counters=excluded.counters, updated_at_ms=excluded.updated_at_ms "
+          + "WHERE excluded.sequence > checkpoints.sequence";
+  private static final String PRUNE_CHECKPOINTED =
+      "DELETE FROM step_rows WHERE workflow_int_id = ? AND path_id = ? AND seq >= 0 AND seq < ? AND status = 'COMPLETED' "
+          + "RETURNING CASE WHEN length(output_blob) = " + OutputSerializer.BLOB_REFERENCE_LENGTH + " THEN output_blob END";
+  private static final String DELETE_WORKFLOW_CHECKPOINT = "DELETE FROM checkpoints WHERE workflow_int_id = ?";
+  private static final String INSERT_SIGNAL =
+      "INSERT INTO signal_inbox(workflow_int_id, name, seq, payload_type_id, payload, sent_at_ms) "
+          + "SELECT ?, ?, COALESCE(MAX(seq) + 1, 0), ?, ?, ? FROM signal_inbox WHERE workflow_int_id = ? AND name = ? RETURNING seq";
+  private static final String SELECT_SIGNAL =
+      "SELECT payload_type_id, payload, sent_at_ms FROM signal_inbox WHERE workflow_int_id = ? AND name = ? AND seq = ?";
+  private static final String SIGNALS_ARRIVED =
+      "SELECT w.key, w.top FROM (SELECT j.key AS key, json_extract(j.value, '$[2]') AS wanted, "
+          + "(SELECT MAX(s.seq) FROM signal_inbox s JOIN workflow_ids k ON k.workflow_int_id = s.workflow_int_id "
+          + "WHERE k.workflow_id = json_extract(j.value, '$[0]') AND s.name = json_extract(j.value, '$[1]')) AS top "
+          + "FROM json_each(?) j) w WHERE w.top >= w.wanted";
+  private static final String DELETE_WORKFLOW_SIGNALS = "DELETE FROM signal_inbox WHERE workflow_int_id = ?";
+  private static final String SELECT_CACHED_RESULT =
+      "SELECT output_type_id, output_blob, expires_at_ms FROM result_cache WHERE cache_key = ? AND expires_at_ms > ?";
+  private static final String SAVE_CACHED_RESULT =
+      "INSERT INTO result_cache(cache_key, output_type_id, output_blob, expires_at_ms) VALUES(?, ?, ?, ?) "
+          + "ON CONFLICT(cache_key) DO UPDATE SET output_type_id=excluded.output_type_id, output_blob=excluded.output_blob, "
+          + "expires_at_ms=excluded.expires_at_ms";
+  private static final String PURGE_EXPIRED_RESULTS =
+      "DELETE FROM result_cache WHERE cache_key IN (SELECT cache_key FROM result_cache WHERE expires_at_ms <= ? LIMIT ?)";
+  private static final String SELECT_ORPHANED_WORKFLOWS =
+      "SELECT w.workflow_id, MIN(s.updated_at_ms) FROM step_rows s JOIN workflow_ids w ON w.workflow_int_id = s.workflow_int_id "
+          + "WHERE s.status = 'RUNNING' AND s.updated_at_ms < ? GROUP BY s.workflow_int_id ORDER BY 2 LIMIT ?";
+  private static final String SELECT_WORKFLOW_INT_ID = "SELECT workflow_int_id FROM workflow_ids WHERE workflow_id = ?";
+  private static final String INSERT_WORKFLOW_ID = "INSERT OR IGNORE INTO workflow_ids(workflow_id) VALUES(?)";
+  private static final String SELECT_PATH_ID = "SELECT path_id FROM step_paths WHERE path = ?";
+  private static final String INSERT_PATH = "INSERT OR IGNORE INTO step_paths(path) VALUES(?)";
+  private static final String SELECT_LEGACY_STEPS =
+      "SELECT workflow_id, step_key, status, run_id, output_class, output_json, output_type_id, output_blob, error, updated_at_ms, attempts, next_attempt_at_ms FROM steps";
+  private static final String COPY_LEGACY_STEP =
+      "INSERT OR IGNORE INTO step_rows(workflow_int_id, path_id, seq, status, run_id, output_class, output_json, output_type_id, output_blob, error, updated_at_ms, attempts, next_attempt_at_ms) VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+  private static final String INSERT_TIMER =
+      "INSERT OR IGNORE INTO timers(workflow_id, timer_key, wake_at_ms, status) VALUES(?, ?, ?, 'PENDING')";
+  private static final String SELECT_TIMER =
+      "SELECT wake_at_ms, status FROM timers WHERE workflow_id = ? AND timer_key = ?";
+  private static final String FIRE_TIMER =
+      "UPDATE timers SET status='FIRED' WHERE workflow_id = ? AND timer_key = ?";
+  private static final String SELECT_PENDING_TIMERS =
+      "SELECT workflow_id, timer_key, wake_at_ms FROM timers WHERE status = 'PENDING' ORDER BY wake_at_ms LIMIT ?";
+  private static final String DELETE_WORKFLOW_TIMERS = "DELETE FROM timers WHERE workflow_id = ?";
+  private static final String SELECT_TYPE_ID = "SELECT type_id FROM step_types WHERE class_name = ?";
+  private static final String SELECT_TYPE_NAME = "SELECT class_name FROM step_types WHERE type_id = ?";
+  private static final String INSERT_TYPE = "INSERT OR IGNORE INTO step_types(class_name) VALUES(?)";
+  private static final String SELECT_LEGACY_OUTPUTS =
+      "SELECT workflow_int_id, path_id, seq, output_class, output_json FROM step_rows WHERE output_json IS NOT NULL LIMIT ?";
+  private static final String MIGRATE_OUTPUT =
+      "UPDATE step_rows SET output_class=NULL, output_json=NULL, output_type_id=?, output_blob=? WHERE workflow_int_id=? AND path_id=? AND seq=? AND output_json IS NOT NULL";
+  private static final String ENQUEUE_WORKFLOW =
+      "INSERT OR IGNORE INTO workflows(workflow_id, workflow_type, input, status, lease_expires_ms, priority, created_at_ms, updated_at_ms) VALUES(?, ?, ?, 'PENDING', 0, ?, ?, ?)";
+  private static final String START_WORKFLOW =
+      "INSERT INTO workflows(workflow_id, status, owner_run_id, lease_expires_ms, priority, created_at_ms, updated_at_ms) VALUES(?, 'RUNNING', ?, ?, ?, ?, ?) "
+          + "ON CONFLICT(workflow_id) DO UPDATE SET status='RUNNING', owner_run_id=excluded.owner_run_id, "
+          + "lease_expires_ms=MAX(workflows.lease_expires_ms, excluded.lease_expires_ms), error=NULL, updated_at_ms=excluded.updated_at_ms "
+          + "WHERE workflows.lease_expires_ms < excluded.updated_at_ms OR workflows.owner_run_id = excluded.owner_run_id";
+  private static final String FINISH_WORKFLOW =
+      "UPDATE workflows SET status=?, error=?, lease_expires_ms=0, updated_at_ms=? WHERE workflow_id=? AND owner_run_id=?";
+  private static final String RELEASE_WORKFLOW =
+      "UPDATE workflows SET status='PENDING', owner_run_id=NULL, lease_expires_ms=0, updated_at_ms=? WHERE workflow_id=? AND owner_run_id=? AND status='RUNNING'";
+  private static final String SELECT_FINISHED_WORKFLOWS =
+      "SELECT workflow_id, workflow_type, input, status, error, created_at_ms, updated_at_ms FROM workflows "
+          + "WHERE status IN ('COMPLETED', 'FAILED', 'CANCELLED') AND updated_at_ms < ? ORDER BY updated_at_ms LIMIT ?";
+  private static final String SELECT_ALL_STEPS =
+      "SELECT p.path, s.seq, s.status, s.run_id, s.output_class, s.output_json, s.output_type_id, s.output_blob, s.error, s.updated_at_ms, s.attempts, s.next_attempt_at_ms "
+          + "FROM workflow_ids w JOIN step_rows s ON s.workflow_int_id = w.workflow_int_id JOIN step_paths p ON p.path_id = s.path_id WHERE w.workflow_id = ?";
+  private static final String MARK_ARCHIVED =
+      "UPDATE workflows SET status='ARCHIVED', updated_at_ms=? WHERE workflow_id=? AND status=? AND updated_at_ms=?";
+  private static final String PURGE_ARCHIVED_STEPS =
+      "DELETE FROM step_rows WHERE (workflow_int_id, path_id, seq) IN (SELECT s.workflow_int_id, s.path_id, s.seq FROM workflows w "
+          + "JOIN workflow_ids k ON k.workflow_id = w.workflow_id JOIN step_rows s ON s.workflow_int_id = k.workflow_int_id WHERE w.status = 'ARCHIVED' LIMIT ?) "
+          + "RETURNING CASE WHEN length(output_blob) = " + OutputSerializer.BLOB_REFERENCE_LENGTH + " THEN output_blob END";
+  private static final String SELECT_WORKFLOW_BLOB_REFS =
+      "SELECT output_blob FROM step_rows WHERE workflow_int_id = ? AND length(output_blob) = " + OutputSerializer.BLOB_REFERENCE_LENGTH;
+  private static final String RETAIN_BLOB =
+      "INSERT INTO blobs(hash, ref_count, size_bytes, created_at_ms) VALUES(?, 1, ?, ?) "
+          + "ON CONFLICT(hash) DO UPDATE SET ref_count = ref_count + 1, released_at_ms = NULL";
+  private static final String TOUCH_BLOB = "UPDATE blobs SET ref_count = ref_count WHERE hash = ?";
+  private static final String RELEASE_BLOB =
+      "UPDATE blobs SET ref_count = ref_count - 1, "
+          + "released_at_ms = CASE WHEN ref_count <= 1 THEN ? ELSE released_at_ms END WHERE hash = ?";
+  private static final String COLLECT_BLOBS =
+      "DELETE FROM blobs WHERE hash IN (SELECT hash FROM blobs WHERE ref_count <= 0 AND released_at_ms < ? LIMIT ?) "
+          + "RETURNING hash";
+  private static final int COLLECT_BLOBS_BATCH = 256;
+  private static final String PURGE_ARCHIVED_TIMERS =
+      "DELETE FROM timers WHERE rowid IN (SELECT t.rowid FROM workflows w JOIN timers t ON t.workflow_id = w.workflow_id WHERE w.status = 'ARCHIVED' LIMIT ?)";
+  private static final String PURGE_ARCHIVED_CHECKPOINTS =
+      "DELETE FROM checkpoints WHERE workflow_int_id IN (SELECT c.workflow_int_id FROM workflows w JOIN workflow_ids k ON k.workflow_id = w.workflow_id "
+          + "JOIN checkpoints c ON c.workflow_int_id = k.workflow_int_id WHERE w.status = 'ARCHIVED' LIMIT ?)";
+  private static final String PURGE_ARCHIVED_SIGNALS =
+      "DELETE FROM signal_inbox WHERE (workflow_int_id, name, seq) IN (SELECT s.workflow_int_id, s.name, s.seq FROM workflows w "
+          + "JOIN workflow_ids k ON k.workflow_id = w.workflow_id JOIN signal_inbox s ON s.workflow_int_id = k.workflow_int_id WHERE w.status = 'ARCHIVED' LIMIT ?)";
+  private static final String PURGE_ARCHIVED_WORKFLOW_IDS =
+      "DELETE FROM workflow_ids WHERE workflow_id IN (SELECT w.workflow_id FROM workflows w JOIN workflow_ids k ON k.workflow_id = w.workflow_id WHERE w.status = 'ARCHIVED' LIMIT ?) "
+          + "RETURNING workflow_id";
+  private static final String PURGE_ARCHIVED_WORKFLOWS =
+      "DELETE FROM workflows WHERE rowid IN (SELECT rowid FROM workflows WHERE status = 'ARCHIVED' LIMIT ?)";
+  private static final String RENEW_WORKFLOW_LEASES =
+      "UPDATE workflows SET lease_expires_ms=? WHERE owner_run_id=? AND status='RUNNING'";
+  private static final String CLAIM_WORKFLOWS =
+      "UPDATE workflows SET status='RUNNING', owner_run_id=?, lease_expires_ms=?, updated_at_ms=? "
+          + "WHERE workflow_id IN (SELECT workflow_id FROM workflows "
+          + "WHERE (status='PENDING' OR (status='RUNNING' AND lease_expires_ms < ?)) "
+          + "AND workflow_type IN (SELECT value FROM json_each(?)) ORDER BY priority, created_at_ms LIMIT ?) "
+          + "RETURNING workflow_id, workflow_type, input, priority";
+  private static final String RENEW_STEP_LEASES =
+      "UPDATE step_rows SET updated_at_ms=? WHERE status='RUNNING' AND run_id IN (SELECT value FROM json_each(?))";
+  private static final ObjectMapper JSON = new ObjectMapper();
+
+  private final StoreConnection writer;
+  private final EngineMetrics metrics = new EngineMetrics();
+  private final TimedLock dbLock = new TimedLock(metrics);
+  private final ArrayBlockingQueue<StoreConnection> readers;
+  private final int readerPoolSize;
+  private final LongAdder readerAcquisitions = new LongAdder();
+  private final LongAdder readerWaitNanos = new LongAdder();
   private final Duration zombieTimeout;
+  private final GroupCommitWriter groupCommit;
+  private final TypeRegistry types = new TypeRegistry();
+  private final StepKeyRegistry keys = new StepKeyRegistry();
+  private final ResultCache results;
+  private final LeaseHeartbeat heartbeat;
+  private final BlobStore blobs;
+  private final int blobThresholdBytes;
+  private final long blobGcGraceMs;
+  private final SignalNotifier signalWaiters = new SignalNotifier();
+  private final SingleFlight cachedCalls = new SingleFlight();
+  private final ScheduledExecutorService signalPoller;
+
+  public SQLiteStepStore(String sqliteFilePath, Duration zombieTimeout) {
+    this(sqliteFilePath, zombieTimeout, StoreOptions.defaults());
+  }
 
-  SQLiteStepStore(String sqliteFilePath, Duration zombieTimeout) {
+  public SQLiteStepStore(String sqliteFilePath, Duration zombieTimeout, StoreOptions options) {
+    Objects.requireNonNull(options, "options");
+    this.zombieTimeout = Objects.requireNonNull(zombieTimeout, "zombieTimeout");
+    LeaseHeartbeat.requireWithin(options.heartbeatInterval(), zombieTimeout);
+    String url = "jdbc:sqlite:" + sqliteFilePath;
     try {
-      this.connection = DriverManager.getConnection("jdbc:sqlite:" + sqliteFilePath);
-      this.connection.setAutoCommit(true);
-      this.zombieTimeout = Objects.requireNonNull(zombieTimeout, "zombieTimeout");
+      this.writer = new StoreConnection(DriverManager.getConnection(url));
+      this.writer.raw().setAutoCommit(true);
       init();
+
+      this.readerPoolSize = options.readerPoolSize();
+      this.readers = new ArrayBlockingQueue<>(Math.max(1, readerPoolSize));
+      if (readerPoolSize > 0) {
+        SQLiteConfig readOnly = new SQLiteConfig();
+        readOnly.setReadOnly(true);
+        readOnly.setBusyTimeout(5000);
+        for (int i = 0; i < readerPoolSize; i++) {
+          readers.add(new StoreConnection(DriverManager.getConnection(url, readOnly.toProperties())));
+        }
+      }
+
+      GroupCommitConfig groupCommitConfig = options.groupCommit();
+      this.groupCommit =
+          groupCommitConfig.enabled() ? new GroupCommitWriter(writer.raw(), dbLock, groupCommitConfig) : null;
+      this.heartbeat =
+          new LeaseHeartbeat(
+              options.heartbeatInterval(),
+              zombieTimeout,
+              this::renewLeases,
+              this::renewOwnedWorkflows);
+      BlobSpillConfig blobSpill = options.blobSpill();
+      this.blobs = blobSpill.enabled() ? new BlobStore(blobSpill.directory(), blobSpill.compress()) : null;
+      this.blobThresholdBytes = blobSpill.thresholdBytes();
+      this.blobGcGraceMs = blobSpill.gcGrace().toMillis();
+      this.results = new ResultCache(options.resultCacheMaxEntries());
+      this.signalPoller = startSignalPoller(options.signalPollInterval());
     } catch (SQLException e) {
       throw new RuntimeException("Failed to open SQLite connection", e);
     }
   }
 
-  Duration zombieTimeout() {
+  @Override
+  public Duration zombieTimeout() {
     return zombieTimeout;
   }
 
+  @Override
+  public LockWaitStats lockWaitStats() {
+    return new LockWaitStats(
+        dbLock.acquisitions(), dbLock.waitNanos(), readerAcquisitions.sum(), readerWaitNanos.sum());
+  }
+
+  @Override
+  public EngineMetrics metrics() {
+    return metrics;
+  }
+
   private void init() throws SQLException {
-    try (Statement st = connection.createStatement()) {
+    try (Statement st = writer.raw().createStatement()) {
+      st.execute("PRAGMA auto_vacuum=INCREMENTAL");
       st.execute("PRAGMA journal_mode=WAL");
       st.execute("PRAGMA synchronous=NORMAL");
       st.execute("PRAGMA busy_timeout=5000");
     }
 
     String ddl =
-        "CREATE TABLE IF NOT EXISTS steps ("
-            + "workflow_id TEXT NOT NULL,"
-            + "step_key TEXT NOT NULL,"
+        "CREATE TABLE IF NOT EXISTS step_rows ("
+            + "workflow_int_id INTEGER NOT NULL,"
+            + "path_id INTEGER NOT NULL,"
+            + "seq INTEGER NOT NULL,"
             + "status TEXT NOT NULL,"
             + "run_id TEXT NOT NULL,"
             + "output_class TEXT,"
             + "output_json TEXT,"
+            + "output_type_id INTEGER,"
+            + "output_blob BLOB,"
             + "error TEXT,"
+            + "attempts INTEGER NOT NULL DEFAULT 0,"
+            + "next_attempt_at_ms INTEGER,"
             + "updated_at_ms INTEGER NOT NULL,"
-            + "PRIMARY KEY (workflow_id, step_key)"
+            + "PRIMARY KEY (workflow_int_id, path_id, seq)"
+            + ") WITHOUT ROWID";
+
+    String workflowIdsDdl =
+        "CREATE TABLE IF NOT EXISTS workflow_ids ("
+            + "workflow_int_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+            + "workflow_id TEXT NOT NULL UNIQUE"
+            + ")";
+
+    String pathsDdl =
+        "CREATE TABLE IF NOT EXISTS step_paths ("
+            + "path_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+            + "path TEXT NOT NULL UNIQUE"
+            + ")";
+
+    String checkpointsDdl =
+        "CREATE TABLE IF NOT EXISTS checkpoints ("
+            + "workflow_int_id INTEGER PRIMARY KEY,"
+            + "sequence INTEGER NOT NULL,"
+            + "state_type_id INTEGER NOT NULL,"
+            + "state_blob BLOB,"
+            + "counters BLOB NOT NULL,"
+            + "updated_at_ms INTEGER NOT NULL"
+            + ")";
+
+    String signalsDdl =
+        "CREATE TABLE IF NOT EXISTS signal_inbox ("
+            + "workflow_int_id INTEGER NOT NULL,"
+            + "name TEXT NOT NULL,"
+            + "seq INTEGER NOT NULL,"
+            + "payload_type_id INTEGER NOT NULL,"
+            + "payload BLOB,"
+            + "sent_at_ms INTEGER NOT NULL,"
+            + "PRIMARY KEY (workflow_int_id, name, seq)"
+            + ") WITHOUT ROWID";
+
+    String resultCacheDdl =
+        "CREATE TABLE IF NOT EXISTS result_cache ("
+            + "cache_key TEXT PRIMARY KEY,"
+            + "output_type_id INTEGER NOT NULL,"
+            + "output_blob BLOB,"
+            + "expires_at_ms INTEGER NOT NULL"
+            + ") WITHOUT ROWID";
+
+    String typesDdl =
+        "CREATE TABLE IF NOT EXISTS step_types ("
+            + "type_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+            + "class_name TEXT NOT NULL UNIQUE"
+            + ")";
+
+    String timersDdl =
+        "CREATE TABLE IF NOT EXISTS timers ("
+            + "workflow_id TEXT NOT NULL,"
+            + "timer_key TEXT NOT NULL,"
+            + "wake_at_ms INTEGER NOT NULL,"
+            + "status TEXT NOT NULL,"
+            + "PRIMARY KEY (workflow_id, timer_key)"
+            + ")";
+
+    String workflowsDdl =
+        "CREATE TABLE IF NOT EXISTS workflows ("
+            + "workflow_id TEXT PRIMARY KEY,"
+            + "workflow_type TEXT,"
+            + "input TEXT,"
+            + "status TEXT NOT NULL,"
+            + "owner_run_id TEXT,"
+            + "lease_expires_ms INTEGER NOT NULL,"
+            + "priority INTEGER NOT NULL,"
+            + "error TEXT,"
+            + "created_at_ms INTEGER NOT NULL,"
+            + "updated_at_ms INTEGER NOT NULL"
             + ")";
 
-    try (Statement st = connection.createStatement()) {
+    String blobsDdl =
+        "CREATE TABLE IF NOT EXISTS blobs ("
+            + "hash TEXT PRIMARY KEY,"
+            + "ref_count INTEGER NOT NULL,"
+            + "size_bytes INTEGER NOT NULL,"
+            + "created_at_ms INTEGER NOT NULL,"
+            + "released_at_ms INTEGER"
+            + ") WITHOUT ROWID";
+
+    try (Statement st = writer.raw().createStatement()) {
       st.execute(ddl);
+      st.execute(workflowIdsDdl);
+      st.execute(pathsDdl);
+      st.execute(checkpointsDdl);
+      st.execute(signalsDdl);
+      st.execute(resultCacheDdl);
+      st.execute(typesDdl);
+      st.execute(timersDdl);
+      st.execute(workflowsDdl);
+      st.execute(blobsDdl);
+      addColumnIfMissing("blobs", "released_at_ms", "INTEGER");
+      st.execute("CREATE INDEX IF NOT EXISTS blobs_released ON blobs(released_at_ms) WHERE ref_count <= 0");
+      st.execute("CREATE INDEX IF NOT EXISTS timers_pending ON timers(status, wake_at_ms)");
+      st.execute("CREATE INDEX IF NOT EXISTS result_cache_expiry ON result_cache(expires_at_ms)");
+      st.execute("CREATE INDEX IF NOT EXISTS step_rows_running_by_run ON step_rows(run_id) WHERE status = 'RUNNING'");
+      st.execute(
+          "CREATE INDEX IF NOT EXISTS step_rows_running_since ON step_rows(status, updated_at_ms) WHERE status = 'RUNNING'");
+      st.execute("CREATE INDEX IF NOT EXISTS workflows_claimable ON workflows(status, priority, created_at_ms)");
+      st.execute("CREATE INDEX IF NOT EXISTS workflows_by_owner ON workflows(owner_run_id) WHERE status = 'RUNNING'");
+      st.execute(
+          "CREATE INDEX IF NOT EXISTS workflows_finished ON workflows(updated_at_ms) "
+              + "WHERE status IN ('COMPLETED', 'FAILED', 'CANCELLED')");
+      st.execute("CREATE INDEX IF NOT EXISTS workflows_archived ON workflows(status) WHERE status = 'ARCHIVED'");
+    }
+
+    migrateLegacySteps();
+  }
+
+  private void migrateLegacySteps() throws SQLException {
+    try (Statement st = writer.raw().createStatement();
+        ResultSet rs = st.executeQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'steps'")) {
+      if (!rs.next()) {
+        return;
+      }
+    }
+    addColumnIfMissing("steps", "output_type_id", "INTEGER");
+    addColumnIfMissing("steps", "output_blob", "BLOB");
+    addColumnIfMissing("steps", "attempts", "INTEGER NOT NULL DEFAULT 0");
+    addColumnIfMissing("steps", "next_attempt_at_ms", "INTEGER");
+
+    writer.raw().setAutoCommit(false);
+    try {
+      PreparedStatement copy = writer.prepare(COPY_LEGACY_STEP);
+      try (Statement st = writer.raw().createStatement();
+          ResultSet rs = st.executeQuery(SELECT_LEGACY_STEPS)) {
+        while (rs.next()) {
+          StepKey key = StepKey.parse(rs.getString(2));
+          copy.setLong(1, internWorkflowNoLock(rs.getString(1)));
+          copy.setInt(2, internPathNoLock(key.id()));
+          copy.setInt(3, key.sequence());
+          for (int i = 3; i <= 12; i++) {
+            copy.setObject(i + 1, rs.getObject(i));
+          }
+          copy.executeUpdate();
+        }
+      }
+      try (Statement st = writer.raw().createStatement()) {
+        st.execute("DROP TABLE steps");
+      }
+      writer.raw().commit();
+    } catch (SQLException | RuntimeException e) {
+      writer.raw().rollback();
+      throw e;
+    } finally {
+      writer.raw().setAutoCommit(true);
+    }
+  }
+
+  private void addColumnIfMissing(String table, String column, String type) throws SQLException {
+    try (Statement st = writer.raw().createStatement();
+        ResultSet rs = st.executeQuery("PRAGMA table_info(" + table + ")")) {
+      while (rs.next()) {
+        if (column.equalsIgnoreCase(rs.getString("name"))) {
+          return;
+        }
+      }
+    }
+    try (Statement st = writer.raw().createStatement()) {
+      st.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
     }
   }
 
-  Optional<StepRecord> readStep(String workflowId, String stepKey) {
+  @Override
+  public int internType(String className) {
+    Objects.requireNonNull(className, "className");
+    Integer cached = types.cachedId(className);
+    if (cached != null) {
+      return cached;
+    }
+
     dbLock.lock();
-    try (PreparedStatement ps =
-        connection.prepareStatement(
-            "SELECT status, run_id, output_class, output_json, error, updated_at_ms FROM steps WHERE workflow_id = ? AND step_key = ?")) {
-      ps.setString(1, workflowId);
-      ps.setString(2, stepKey);
+    try {
+      return internTypeNoLock(className);
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to intern output type", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
 
-      try (ResultSet rs = ps.executeQuery()) {
-        if (!rs.next()) {
-          return Optional.empty();
+  @Override
+  public Class<?> resolveType(int typeId) throws ClassNotFoundException {
+    Class<?> cached = types.cachedClass(typeId);
+    if (cached != null) {
+      return cached;
+    }
+    String className = types.cachedName(typeId);
+    if (className == null) {
+      className =
+          read(
+              conn -> {
+                PreparedStatement ps = conn.prepare(SELECT_TYPE_NAME);
+                ps.setInt(1, typeId);
+                try (ResultSet rs = ps.executeQuery()) {
+                  return rs.next() ? rs.getString(1) : null;
+                }
+              },
+              "Failed to resolve output type");
+      if (className == null) {
+        throw new ClassNotFoundException("Unknown output type id: " + typeId);
+      }
+      types.put(typeId, className);
+    }
+    Class<?> clazz = Class.forName(className);
+    types.putClass(typeId, clazz);
+    return clazz;
+  }
+
+  int migrateLegacyOutputs(OutputSerializer serializer, int batchSize) {
+    int migrated = 0;
+    while (true) {
+      List<Object[]> batch = new ArrayList<>();
+      dbLock.lock();
+      try {
+        PreparedStatement select = writer.prepare(SELECT_LEGACY_OUTPUTS);
+        select.setInt(1, batchSize);
+        try (ResultSet rs = select.executeQuery()) {
+          while (rs.next()) {
+            batch.add(new Object[] {rs.getLong(1), rs.getInt(2), rs.getInt(3), rs.getString(4), rs.getString(5)});
+          }
+        }
+        if (batch.isEmpty()) {
+          return migrated;
         }
 
-        StepStatus status = StepStatus.valueOf(rs.getString(1));
-        String runId = rs.getString(2);
-        String outputClass = rs.getString(3);
-        String outputJson = rs.getString(4);
-        String error = rs.getString(5);
-        long updatedAt = rs.getLong(6);
+        writer.raw().setAutoCommit(false);
+        try {
+          for (Object[] row : batch) {
+            String className = (String) row[3];
+            Class<?> type = loadClassOrNull(className);
+            String effectiveName = (className == null || className.isBlank()) ? Void.class.getName() : className;
+            byte[] blob =
+                Void.class.getName().equals(effectiveName)
+                    ? null
+                    : serializer.transcodeLegacyJson((String) row[4], type);
+
+            PreparedStatement update = writer.prepare(MIGRATE_OUTPUT);
+            update.setInt(1, internTypeNoLock(effectiveName));
+            update.setBytes(2, blob);
+            update.setLong(3, (Long) row[0]);
+            update.setInt(4, (Integer) row[1]);
+            update.setInt(5, (Integer) row[2]);
+            update.executeUpdate();
+            migrated++;
+          }
+          writer.raw().commit();
+        } catch (SQLException | IOException | RuntimeException e) {
+          writer.raw().rollback();
+          throw new RuntimeException("Failed to migrate legacy step outputs", e);
+        } finally {
+          writer.raw().setAutoCommit(true);
+        }
+      } catch (SQLException e) {
+        throw new RuntimeException("Failed to migrate legacy step outputs", e);
+      } finally {
+        dbLock.unlock();
+      }
+    }
+  }
+
+  private int internTypeNoLock(String className) throws SQLException {
+    Integer cached = types.cachedId(className);
+    if (cached != null) {
+      return cached;
+    }
+    PreparedStatement insert = writer.prepare(INSERT_TYPE);
+    insert.setString(1, className);
+    insert.executeUpdate();
 
-        return Optional.of(new StepRecord(status, outputJson, outputClass, error, updatedAt, runId));
+    PreparedStatement select = writer.prepare(SELECT_TYPE_ID);
+    select.setString(1, className);
+    try (ResultSet rs = select.executeQuery()) {
+      if (!rs.next()) {
+        throw new IllegalStateException("Type was not interned: " + className);
       }
+      int typeId = rs.getInt(1);
+      types.put(typeId, className);
+      return typeId;
+    }
+  }
+
+  private RowKey rowKey(String workflowId, StepKey key) {
+    return new RowKey(workflowIntId(workflowId), pathId(key), key.sequence());
+  }
+
+  private int pathId(StepKey key) {
+    StepPath path = key.path();
+    if (path == null) {
+      return pathId(key.id());
+    }
+    int pathId = path.pathId();
+    if (pathId < 0) {
+      pathId = pathId(key.id());
+      path.pathId(pathId);
+    }
+    return pathId;
+  }
+
+  private long workflowIntId(String workflowId) {
+    Long cached = keys.cachedWorkflowId(workflowId);
+    if (cached != null) {
+      return cached;
+    }
+
+    dbLock.lock();
+    try {
+      return internWorkflowNoLock(workflowId);
     } catch (SQLException e) {
-      throw new RuntimeException("Failed to read step", e);
+      throw new RuntimeException("Failed to intern workflow id", e);
     } finally {
       dbLock.unlock();
     }
   }
 
-  boolean tryStartStep(String workflowId, String stepKey, String runId) {
-    long now = System.currentTimeMillis();
+  private int pathId(String path) {
+    Integer cached = keys.cachedPathId(path);
+    if (cached != null) {
+      return cached;
+    }
 
     dbLock.lock();
     try {
-      try (PreparedStatement insert =
-          connection.prepareStatement(
-              "INSERT OR IGNORE INTO steps(workflow_id, step_key, status, run_id, updated_at_ms) VALUES(?, ?, 'RUNNING', ?, ?)")) {
-        insert.setString(1, workflowId);
-        insert.setString(2, stepKey);
-        insert.setString(3, runId);
-        insert.setLong(4, now);
-        insert.executeUpdate();
-      }
+      return internPathNoLock(path);
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to intern step path", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
 
-      Optional<StepRecord> existing = readStepNoLock(workflowId, stepKey);
-      if (existing.isEmpty()) {
-        return false;
+  private long internWorkflowNoLock(String workflowId) throws SQLException {
+    Long cached = keys.cachedWorkflowId(workflowId);
+    if (cached != null) {
+      return cached;
+    }
+    PreparedStatement insert = writer.prepare(INSERT_WORKFLOW_ID);
+    insert.setString(1, workflowId);
+    insert.executeUpdate();
+
+    Long id = findWorkflowIntId(writer, workflowId);
+    if (id == null) {
+      throw new IllegalStateException("Workflow id was not interned: " + workflowId);
+    }
+    return id;
+  }
+
+  private int internPathNoLock(String path) throws SQLException {
+    Integer cached = keys.cachedPathId(path);
+    if (cached != null) {
+      return cached;
+    }
+    PreparedStatement insert = writer.prepare(INSERT_PATH);
+    insert.setString(1, path);
+    insert.executeUpdate();
+
+    Integer id = findPathId(writer, path);
+    if (id == null) {
+      throw new IllegalStateException("Step path was not interned: " + path);
+    }
+    return id;
+  }
+
+  private Long findWorkflowIntId(StoreConnection conn, String workflowId) throws SQLException {
+    Long cached = keys.cachedWorkflowId(workflowId);
+    if (cached != null) {
+      return cached;
+    }
+    PreparedStatement select = conn.prepare(SELECT_WORKFLOW_INT_ID);
+    select.setString(1, workflowId);
+    try (ResultSet rs = select.executeQuery()) {
+      if (!rs.next()) {
+        return null;
       }
+      long id = rs.getLong(1);
+      keys.putWorkflowId(workflowId, id);
+      return id;
+    }
+  }
 
-      StepRecord rec = existing.get();
-      if (rec.status == StepStatus.COMPLETED) {
-        return false;
+  private Integer findPathId(StoreConnection conn, StepKey key) throws SQLException {
+    StepPath path = key.path();
+    if (path != null && path.pathId() >= 0) {
+      return path.pathId();
+    }
+    Integer pathId = findPathId(conn, key.id());
+    if (path != null && pathId != null) {
+      path.pathId(pathId);
+    }
+    return pathId;
+  }
+
+  private Integer findPathId(StoreConnection conn, String path) throws SQLException {
+    Integer cached = keys.cachedPathId(path);
+    if (cached != null) {
+      return cached;
+    }
+    PreparedStatement select = conn.prepare(SELECT_PATH_ID);
+    select.setString(1, path);
+    try (ResultSet rs = select.executeQuery()) {
+      if (!rs.next()) {
+        return null;
       }
+      int id = rs.getInt(1);
+      keys.putPathId(path, id);
+      return id;
+    }
+  }
 
-      if (rec.status == StepStatus.RUNNING) {
-        long ageMs = now - rec.updatedAtEpochMs;
-        if (ageMs < zombieTimeout.toMillis()) {
-          return false;
-        }
+  private static Class<?> loadClassOrNull(String className) {
+    if (className == null || className.isBlank()) {
+      return null;
+    }
+    try {
+      return Class.forName(className);
+    } catch (ClassNotFoundException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public Optional<StepRecord> readStep(String workflowId, StepKey key) {
+    return read(
+        conn -> {
+          Long workflowIntId = findWorkflowIntId(conn, workflowId);
+          Integer pathId = workflowIntId == null ? null : findPathId(conn, key);
+          if (pathId == null) {
+            return Optional.<StepRecord>empty();
+          }
+          return readStep(conn, workflowIntId, pathId, key.sequence());
+        },
+        "Failed to read step");
+  }
+
+  @Override
+  public Map<String, StepRecord> readCompletedSteps(String workflowId, int limit) {
+    if (limit <= 0) {
+      return new LinkedHashMap<>();
+    }
+    return read(
+        conn -> {
+          Long workflowIntId = findWorkflowIntId(conn, workflowId);
+          if (workflowIntId == null) {
+            return new LinkedHashMap<String, StepRecord>();
+          }
+          PreparedStatement ps = conn.prepare(SELECT_COMPLETED);
+          ps.setLong(1, workflowIntId);
+          ps.setInt(2, limit);
+          return completedRows(ps);
+        },
+        "Failed to read workflow history");
+  }
+
+  private static Optional<StepRecord> readStep(StoreConnection conn, long workflowIntId, int pathId, int seq)
+      throws SQLException {
+    PreparedStatement ps = conn.prepare(SELECT_STEP);
+    ps.setLong(1, workflowIntId);
+    ps.setInt(2, pathId);
+    ps.setInt(3, seq);
+
+    try (ResultSet rs = ps.executeQuery()) {
+      if (!rs.next()) {
+        return Optional.empty();
       }
 
-      try (PreparedStatement takeover =
-          connection.prepareStatement(
-              "UPDATE steps SET status='RUNNING', run_id=?, error=NULL, output_class=NULL, output_json=NULL, updated_at_ms=? WHERE workflow_id=? AND step_key=?")) {
-        takeover.setString(1, runId);
-        takeover.setLong(2, now);
-        takeover.setString(3, workflowId);
-        takeover.setString(4, stepKey);
-        takeover.executeUpdate();
+      StepStatus status = StepStatus.valueOf(rs.getString(1));
+      String runId = rs.getString(2);
+      String outputClass = rs.getString(3);
+      String outputJson = rs.getString(4);
+      int outputTypeId = rs.getInt(5);
+      byte[] outputBlob = rs.getBytes(6);
+      String error = rs.getString(7);
+      long updatedAt = rs.getLong(8);
+      int attempts = rs.getInt(9);
+      long nextAttemptAt = rs.getLong(10);
+
+      return Optional.of(
+          new StepRecord(
+              status, outputJson, outputClass, outputTypeId, outputBlob, error, updatedAt, runId, attempts,
+              nextAttemptAt));
+    }
+  }
+
+  @Override
+  public Map<String, StepRecord> readCompletedOccurrences(String workflowId, String stepId) {
+    Objects.requireNonNull(stepId, "stepId");
+    return read(
+        conn -> {
+          Long workflowIntId = findWorkflowIntId(conn, workflowId);
+          Integer pathId = workflowIntId == null ? null : findPathId(conn, stepId);
+          if (pathId == null) {
+            return new LinkedHashMap<String, StepRecord>();
+          }
+          PreparedStatement ps = conn.prepare(SELECT_COMPLETED_OCCURRENCES);
+          ps.setLong(1, workflowIntId);
+          ps.setInt(2, pathId);
+          return completedRows(ps);
+        },
+        "Failed to read completed steps");
+  }
+
+  private static Map<String, StepRecord> completedRows(PreparedStatement ps) throws SQLException {
+    Map<String, StepRecord> out = new LinkedHashMap<>();
+    try (ResultSet rs = ps.executeQuery()) {
+      while (rs.next()) {
+        String stepKey = new StepKey(rs.getString(1), rs.getInt(2)).keyString();
+        StepStatus status = StepStatus.valueOf(rs.getString(3));
+        String runId = rs.getString(4);
+        String outputClass = rs.getString(5);
+        String outputJson = rs.getString(6);
+        int outputTypeId = rs.getInt(7);
+        byte[] outputBlob = rs.getBytes(8);
+        String error = rs.getString(9);
+        long updatedAt = rs.getLong(10);
+
+        out.put(
+            stepKey,
+            new StepRecord(status, outputJson, outputClass, outputTypeId, outputBlob, error, updatedAt, runId, 0, 0));
       }
+    }
+    return out;
+  }
 
-      return true;
+  @Override
+  public int tryStartStep(String workflowId, StepKey key, String runId) {
+    int attempt = startStep(workflowId, key, runId);
+    if (attempt > 0) {
+      heartbeat.acquired(workflowId, key.keyString(), runId);
+    }
+    return attempt;
+  }
+
+  private int startStep(String workflowId, StepKey key, String runId) {
+    String stepKey = key.keyString();
+    RowKey row = rowKey(workflowId, key);
+    if (groupCommit != null) {
+      return await(
+          groupCommit.submit(() -> tryStartStepNoLock(workflowId, stepKey, row, runId)), "Failed to start step");
+    }
+
+    dbLock.lock();
+    try {
+      return tryStartStepNoLock(workflowId, stepKey, row, runId);
     } catch (SQLException e) {
       throw new RuntimeException("Failed to start step", e);
     } finally {
@@ -135,12 +840,98 @@ final class SQLiteStepStore implements AutoCloseable {
     }
   }
 
-  void deleteWorkflow(String workflowId) {
+  private int tryStartStepNoLock(String workflowId, String stepKey, RowKey row, String runId)
+      throws SQLException {
+    long now = System.currentTimeMillis();
+
+    PreparedStatement insert = writer.prepare(INSERT_RUNNING);
+    int i = row.bind(insert, 1);
+    insert.setString(i, runId);
+    insert.setLong(i + 1, now);
+    if (insert.executeUpdate() == 1) {
+      return 1;
+    }
+
+    Optional<StepRecord> existing = readStep(writer, row.workflowIntId(), row.pathId(), row.seq());
+    if (existing.isEmpty()) {
+      return 0;
+    }
+
+    StepRecord rec = existing.get();
+    if (rec.status == StepStatus.COMPLETED) {
+      return 0;
+    }
+
+    if (rec.status == StepStatus.RUNNING) {
+      long ageMs = now - rec.updatedAtEpochMs;
+      if (ageMs < zombieTimeout.toMillis()) {
+        return 0;
+      }
+    }
+
+    if (rec.status == StepStatus.RETRYING && now < rec.nextAttemptAtEpochMs) {
+      return 0;
+    }
+
+    int attempt = rec.status == StepStatus.FAILED || rec.status == StepStatus.TIMED_OUT ? 1 : rec.attempts + 1;
+    PreparedStatement takeover = writer.prepare(TAKEOVER);
+    takeover.setString(1, runId);
+    takeover.setInt(2, attempt);
+    takeover.setLong(3, now);
+    i = row.bind(takeover, 4);
+    takeover.setString(i, rec.runId);
+    takeover.setLong(i + 1, rec.updatedAtEpochMs);
+    if (takeover.executeUpdate() != 1) {
+      return 0;
+    }
+    if (rec.status == StepStatus.RUNNING) {
+      metrics.recordZombieTakeover(workflowId, stepKey);
+    }
+    return attempt;
+  }
+
+  @Override
+  public void deleteWorkflow(String workflowId) {
     dbLock.lock();
-    try (PreparedStatement ps =
-        connection.prepareStatement("DELETE FROM steps WHERE workflow_id = ?")) {
-      ps.setString(1, workflowId);
-      ps.executeUpdate();
+    try {
+      Long workflowIntId = findWorkflowIntId(writer, workflowId);
+      writer.raw().setAutoCommit(false);
+      try {
+        List<String> refs = new ArrayList<>();
+        if (workflowIntId != null) {
+          PreparedStatement select = writer.prepare(SELECT_WORKFLOW_BLOB_REFS);
+          select.setLong(1, workflowIntId);
+          try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+              addBlobRef(refs, rs.getBytes(1));
+            }
+          }
+
+          PreparedStatement ps = writer.prepare(DELETE_WORKFLOW);
+          ps.setLong(1, workflowIntId);
+          ps.executeUpdate();
+
+          PreparedStatement checkpoint = writer.prepare(DELETE_WORKFLOW_CHECKPOINT);
+          checkpoint.setLong(1, workflowIntId);
+          checkpoint.executeUpdate();
+
+          PreparedStatement signals = writer.prepare(DELETE_WORKFLOW_SIGNALS);
+          signals.setLong(1, workflowIntId);
+          signals.executeUpdate();
+        }
+
+        PreparedStatement timers = writer.prepare(DELETE_WORKFLOW_TIMERS);
+        timers.setString(1, workflowId);
+        timers.executeUpdate();
+
+        releaseBlobsNoLock(refs);
+        writer.raw().commit();
+      } catch (SQLException | RuntimeException e) {
+        writer.raw().rollback();
+        throw e;
+      } finally {
+        writer.raw().setAutoCommit(true);
+      }
     } catch (SQLException e) {
       throw new RuntimeException("Failed to delete workflow state", e);
     } finally {
@@ -148,81 +939,1154 @@ final class SQLiteStepStore implements AutoCloseable {
     }
   }
 
-  void completeStep(String workflowId, String stepKey, String runId, String outputClass, String outputJson) {
-    long now = System.currentTimeMillis();
+  @Override
+  public Map<String, Long> findOrphanedWorkflows(long staleBeforeEpochMs, int limit) {
+    if (limit <= 0) {
+      return new LinkedHashMap<>();
+    }
+    return read(
+        conn -> {
+          Map<String, Long> out = new LinkedHashMap<>();
+          PreparedStatement ps = conn.prepare(SELECT_ORPHANED_WORKFLOWS);
+          ps.setLong(1, staleBeforeEpochMs);
+          ps.setInt(2, limit);
+          try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+              out.put(rs.getString(1), rs.getLong(2));
+            }
+          }
+          return out;
+        },
+        "Failed to find orphaned workflows");
+  }
+
+  @Override
+  public Optional<CheckpointRecord> readCheckpoint(String workflowId) {
+    return read(
+        conn -> {
+          Long workflowIntId = findWorkflowIntId(conn, workflowId);
+          if (workflowIntId == null) {
+            return Optional.<CheckpointRecord>empty();
+          }
+          PreparedStatement ps = conn.prepare(SELECT_CHECKPOINT);
+          ps.setLong(1, workflowIntId);
+          try (ResultSet rs = ps.executeQuery()) {
+            if (!rs.next()) {
+              return Optional.<CheckpointRecord>empty();
+            }
+            return Optional.of(
+                new CheckpointRecord(
+                    rs.getInt(1),
+                    rs.getInt(2),
+                    rs.getBytes(3),
+                    CheckpointRecord.decodeCounters(rs.getBytes(4)),
+                    rs.getLong(5)));
+          }
+        },
+        "Failed to read checkpoint");
+  }
 
+  @Override
+  public int saveCheckpoint(String workflowId, CheckpointRecord checkpoint) {
+    Objects.requireNonNull(checkpoint, "checkpoint");
+    long workflowIntId = workflowIntId(workflowId);
     dbLock.lock();
-    try (PreparedStatement ps =
-        connection.prepareStatement(
-            "UPDATE steps SET status='COMPLETED', output_class=?, output_json=?, error=NULL, updated_at_ms=? WHERE workflow_id=? AND step_key=? AND run_id=?")) {
-      ps.setString(1, outputClass);
-      ps.setString(2, outputJson);
-      ps.setLong(3, now);
-      ps.setString(4, workflowId);
-      ps.setString(5, stepKey);
-      ps.setString(6, runId);
+    try {
+      int pruned = 0;
+      writer.raw().setAutoCommit(false);
+      try {
+        PreparedStatement save = writer.prepare(SAVE_CHECKPOINT);
+        save.setLong(1, workflowIntId);
+        save.setInt(2, checkpoint.sequence);
+        save.setInt(3, checkpoint.stateTypeId);
+        save.setBytes(4, checkpoint.stateBlob);
+        save.setBytes(5, checkpoint.encodeCounters());
+        save.setLong(6, checkpoint.updatedAtEpochMs);
+        List<String> refs = new ArrayList<>();
+        if (save.executeUpdate() == 1) {
+          PreparedStatement prune = writer.prepare(PRUNE_CHECKPOINTED);
+          for (Map.Entry<String, Integer> e : checkpoint.counters.entrySet()) {
+            Integer pathId = findPathId(writer, e.getKey());
+            if (pathId == null) {
+              continue;
+            }
+            prune.setLong(1, workflowIntId);
+            prune.setInt(2, pathId);
+            prune.setInt(3, e.getValue());
+            try (ResultSet rs = prune.executeQuery()) {
+              while (rs.next()) {
+                pruned++;
+                addBlobRef(refs, rs.getBytes(1));
+              }
+            }
+          }
+        }
+        releaseBlobsNoLock(refs);
+        writer.raw().commit();
+      } catch (SQLException | RuntimeException e) {
+        writer.raw().rollback();
+        throw e;
+      } finally {
+        writer.raw().setAutoCommit(true);
+      }
+      return pruned;
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to save checkpoint", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
 
-      int updated = ps.executeUpdate();
-      if (updated != 1) {
-        throw new RuntimeException("Failed to complete step: lost lease or missing record for " + stepKey);
+  @Override
+  public int sendSignal(String workflowId, String name, int payloadTypeId, byte[] payload) {
+    Objects.requireNonNull(name, "name");
+    long workflowIntId = workflowIntId(workflowId);
+    int sequence;
+    dbLock.lock();
+    try {
+      PreparedStatement ps = writer.prepare(INSERT_SIGNAL);
+      ps.setLong(1, workflowIntId);
+      ps.setString(2, name);
+      ps.setInt(3, payloadTypeId);
+      ps.setBytes(4, payload);
+      ps.setLong(5, System.currentTimeMillis());
+      ps.setLong(6, workflowIntId);
+      ps.setString(7, name);
+      try (ResultSet rs = ps.executeQuery()) {
+        rs.next();
+        sequence = rs.getInt(1);
       }
     } catch (SQLException e) {
-      throw new RuntimeException("Failed to complete step", e);
+      throw new RuntimeException("Failed to send signal", e);
     } finally {
       dbLock.unlock();
     }
+    signalWaiters.signalled(workflowId, name, sequence);
+    return sequence;
   }
 
-  void failStep(String workflowId, String stepKey, String runId, String error) {
-    long now = System.currentTimeMillis();
+  @Override
+  public CompletableFuture<Void> watchSignal(String workflowId, String name, int sequence) {
+    Objects.requireNonNull(workflowId, "workflowId");
+    Objects.requireNonNull(name, "name");
+    return signalWaiters.register(workflowId, name, sequence);
+  }
 
-    dbLock.lock();
-    try (PreparedStatement ps =
-        connection.prepareStatement(
-            "UPDATE steps SET status='FAILED', error=?, updated_at_ms=? WHERE workflow_id=? AND step_key=? AND run_id=?")) {
-      ps.setString(1, error);
-      ps.setLong(2, now);
-      ps.setString(3, workflowId);
-      ps.setString(4, stepKey);
-      ps.setString(5, runId);
+  private ScheduledExecutorService startSignalPoller(Duration interval) {
+    if (interval.isZero()) {
+      return null;
+    }
+    ScheduledExecutorService poller =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "sqlite-signal-poll");
+              t.setDaemon(true);
+              return t;
+            });
+    long periodMs = Math.max(1, interval.toMillis());
+    poller.scheduleWithFixedDelay(
+        () -> {
+          try {
+            pollSignals();
+          } catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Signal poll failed", e);
+          }
+        },
+        periodMs,
+        periodMs,
+        TimeUnit.MILLISECONDS);
+    return poller;
+  }
+
+  int pollSignals() {
+    List<SignalNotifier.Watch> watches = signalWaiters.pending();
+    if (watches.isEmpty()) {
+      return 0;
+    }
+    List<List<Object>> wanted = new ArrayList<>(watches.size());
+    for (SignalNotifier.Watch w : watches) {
+      wanted.add(List.of(w.workflowId, w.name, w.sequence));
+    }
+    String json = jsonArray(wanted);
+    return read(
+        conn -> {
+          PreparedStatement ps = conn.prepare(SIGNALS_ARRIVED);
+          ps.setString(1, json);
+          int woken = 0;
+          try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+              SignalNotifier.Watch w = watches.get(rs.getInt(1));
+              signalWaiters.signalled(w.workflowId, w.name, rs.getInt(2));
+              woken++;
+            }
+          }
+          return woken;
+        },
+        "Failed to poll signals");
+  }
+
+  @Override
+  public Optional<SignalRecord> readSignal(String workflowId, String name, int sequence) {
+    return read(
+        conn -> {
+          Long workflowIntId = findWorkflowIntId(conn, workflowId);
+          if (workflowIntId == null) {
+            return Optional.<SignalRecord>empty();
+          }
+          PreparedStatement ps = conn.prepare(SELECT_SIGNAL);
+          ps.setLong(1, workflowIntId);
+          ps.setString(2, name);
+          ps.setInt(3, sequence);
+          try (ResultSet rs = ps.executeQuery()) {
+            if (!rs.next()) {
+              return Optional.<SignalRecord>empty();
+            }
+            return Optional.of(new SignalRecord(name, sequence, rs.getInt(1), rs.getBytes(2), rs.getLong(3)));
+          }
+        },
+        "Failed to read signal");
+  }
+
+  @Override
+  public Optional<CachedResult> readCachedResult(String cacheKey, long nowEpochMs) {
+    CachedResult cached = results.get(cacheKey, nowEpochMs);
+    if (cached != null) {
+      return Optional.of(cached);
+    }
+    Optional<CachedResult> stored =
+        read(
+            conn -> {
+              PreparedStatement ps = conn.prepare(SELECT_CACHED_RESULT);
+              ps.setString(1, cacheKey);
+              ps.setLong(2, nowEpochMs);
+              try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                  return Optional.<CachedResult>empty();
+                }
+                return Optional.of(new CachedResult(cacheKey, rs.getInt(1), rs.getBytes(2), rs.getLong(3)));
+              }
+            },
+            "Failed to read cached result");
+    stored.ifPresent(results::put);
+    return stored;
+  }
 
+  @Override
+  public void saveCachedResult(CachedResult result) {
+    Objects.requireNonNull(result, "result");
+    dbLock.lock();
+    try {
+      PreparedStatement ps = writer.prepare(SAVE_CACHED_RESULT);
+      ps.setString(1, result.cacheKey);
+      ps.setInt(2, result.outputTypeId);
+      ps.setBytes(3, result.outputBlob);
+      ps.setLong(4, result.expiresAtEpochMs);
       ps.executeUpdate();
     } catch (SQLException e) {
-      throw new RuntimeException("Failed to fail step", e);
+      throw new RuntimeException("Failed to save cached result", e);
     } finally {
       dbLock.unlock();
     }
+    results.put(result);
   }
 
-  private Optional<StepRecord> readStepNoLock(String workflowId, String stepKey) throws SQLException {
-    try (PreparedStatement ps =
-        connection.prepareStatement(
-            "SELECT status, run_id, output_class, output_json, error, updated_at_ms FROM steps WHERE workflow_id = ? AND step_key = ?")) {
-      ps.setString(1, workflowId);
-      ps.setString(2, stepKey);
-
-      try (ResultSet rs = ps.executeQuery()) {
-        if (!rs.next()) {
-          return Optional.empty();
-        }
+  @Override
+  public SingleFlight cachedCalls() {
+    return cachedCalls;
+  }
 
-        StepStatus status = StepStatus.valueOf(rs.getString(1));
-        String runId = rs.getString(2);
-        String outputClass = rs.getString(3);
-        String outputJson = rs.getString(4);
-        String error = rs.getString(5);
-        long updatedAt = rs.getLong(6);
+  int purgeExpiredResults(long nowEpochMs, int maxRows) {
+    dbLock.lock();
+    try {
+      PreparedStatement ps = writer.prepare(PURGE_EXPIRED_RESULTS);
+      ps.setLong(1, nowEpochMs);
+      ps.setInt(2, maxRows);
+      return ps.executeUpdate();
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to purge expired results", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
 
-        return Optional.of(new StepRecord(status, outputJson, outputClass, error, updatedAt, runId));
+  @Override
+  public void completeStep(String workflowId, StepKey key, String runId, int outputTypeId, byte[] outputBlob) {
+    String stepKey = key.keyString();
+    try {
+      String hash = spillHash(outputBlob);
+      boolean created = hash != null && writeBlob(hash, outputBlob);
+      try {
+        completeRow(stepKey, rowKey(workflowId, key), runId, outputTypeId, outputBlob, hash);
+      } catch (RuntimeException e) {
+        if (created) {
+          discardBlob(hash, e);
+        }
+        throw e;
       }
+    } finally {
+      heartbeat.released(workflowId, stepKey, runId);
     }
   }
 
-  @Override
-  public void close() {
+  private void completeRow(String stepKey, RowKey row, String runId, int outputTypeId, byte[] outputBlob, String hash) {
+    if (groupCommit != null) {
+      await(
+          groupCommit.submit(() -> completeStepNoLock(stepKey, row, runId, outputTypeId, outputBlob, hash)),
+          "Failed to complete step");
+      return;
+    }
+
     dbLock.lock();
     try {
-      connection.close();
+      if (hash == null) {
+        completeStepNoLock(stepKey, row, runId, outputTypeId, outputBlob, null);
+        return;
+      }
+      writer.raw().setAutoCommit(false);
+      try {
+        completeStepNoLock(stepKey, row, runId, outputTypeId, outputBlob, hash);
+        writer.raw().commit();
+      } catch (SQLException | RuntimeException e) {
+        writer.raw().rollback();
+        throw e;
+      } finally {
+        writer.raw().setAutoCommit(true);
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to complete step", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
+
+  @Override
+  public int completeSteps(String workflowId, Map<String, StepRecord> records) {
+    if (records.isEmpty()) {
+      return 0;
+    }
+    Map<String, String> hashes = new LinkedHashMap<>();
+    Map<String, RowKey> rows = new LinkedHashMap<>();
+    Set<String> created = new HashSet<>();
+    Set<String> retained = new HashSet<>();
+    int inserted;
+    try {
+      for (Map.Entry<String, StepRecord> e : records.entrySet()) {
+        String hash = spillHash(e.getValue().outputBlob);
+        if (hash != null) {
+          hashes.put(e.getKey(), hash);
+          if (writeBlob(hash, e.getValue().outputBlob)) {
+            created.add(hash);
+          }
+        }
+        rows.put(e.getKey(), rowKey(workflowId, StepKey.parse(e.getKey())));
+      }
+      inserted = insertCompleted(records, hashes, rows, retained);
+    } catch (RuntimeException e) {
+      for (String hash : created) {
+        discardBlob(hash, e);
+      }
+      throw e;
+    }
+    created.removeAll(retained);
+    for (String hash : created) {
+      discardBlob(hash, null);
+    }
+    return inserted;
+  }
+
+  private int insertCompleted(
+      Map<String, StepRecord> records, Map<String, String> hashes, Map<String, RowKey> rows, Set<String> retained) {
+    dbLock.lock();
+    try {
+      int inserted = 0;
+      writer.raw().setAutoCommit(false);
+      try {
+        PreparedStatement ps = writer.prepare(INSERT_COMPLETED);
+        for (Map.Entry<String, StepRecord> e : records.entrySet()) {
+          StepRecord rec = e.getValue();
+          String hash = hashes.get(e.getKey());
+          int i = rows.get(e.getKey()).bind(ps, 1);
+          ps.setString(i, rec.runId);
+          ps.setInt(i + 1, rec.outputTypeId);
+          ps.setBytes(i + 2, hash != null ? OutputSerializer.blobReference(hash) : rec.outputBlob);
+          ps.setLong(i + 3, rec.updatedAtEpochMs);
+          if (ps.executeUpdate() == 1) {
+            inserted++;
+            if (hash != null) {
+              retainBlobNoLock(hash, rec.outputBlob, rec.updatedAtEpochMs);
+              retained.add(hash);
+            }
+          }
+        }
+        writer.raw().commit();
+      } catch (SQLException | RuntimeException e) {
+        writer.raw().rollback();
+        throw e;
+      } finally {
+        writer.raw().setAutoCommit(true);
+      }
+      return inserted;
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to complete steps", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
+
+  private String spillHash(byte[] outputBlob) {
+    if (blobs == null || outputBlob == null || outputBlob.length < blobThresholdBytes) {
+      return null;
+    }
+    return BlobStore.hash(outputBlob);
+  }
+
+  private Void completeStepNoLock(
+      String stepKey, RowKey row, String runId, int outputTypeId, byte[] outputBlob, String hash)
+      throws SQLException {
+    long now = System.currentTimeMillis();
+
+    PreparedStatement ps = writer.prepare(COMPLETE);
+    ps.setInt(1, outputTypeId);
+    ps.setBytes(2, hash != null ? OutputSerializer.blobReference(hash) : outputBlob);
+    ps.setLong(3, now);
+    ps.setString(row.bind(ps, 4), runId);
+
+    int updated = ps.executeUpdate();
+    if (updated != 1) {
+      throw new RuntimeException("Failed to complete step: lost lease or missing record for " + stepKey);
+    }
+    if (hash != null) {
+      retainBlobNoLock(hash, outputBlob, now);
+    }
+    return null;
+  }
+
+  private void retainBlobNoLock(String hash, byte[] payload, long now) throws SQLException {
+    PreparedStatement retain = writer.prepare(RETAIN_BLOB);
+    retain.setString(1, hash);
+    retain.setLong(2, payload.length);
+    retain.setLong(3, now);
+    retain.executeUpdate();
+    if (!blobs.exists(hash)) {
+      writeBlob(hash, payload);
+    }
+  }
+
+  private boolean writeBlob(String hash, byte[] payload) {
+    try {
+      return blobs.write(hash, payload);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to write step output blob", e);
+    }
+  }
+
+  private void discardBlob(String hash, RuntimeException failure) {
+    dbLock.lock();
+    try {
+      writer.raw().setAutoCommit(false);
+      try {
+        PreparedStatement touch = writer.prepare(TOUCH_BLOB);
+        touch.setString(1, hash);
+        if (touch.executeUpdate() == 0) {
+          blobs.delete(hash);
+        }
+        writer.raw().commit();
+      } catch (SQLException | IOException | RuntimeException e) {
+        writer.raw().rollback();
+        throw e;
+      } finally {
+        writer.raw().setAutoCommit(true);
+      }
+    } catch (SQLException | IOException | RuntimeException e) {
+      if (failure == null) {
+        throw new RuntimeException("Failed to discard step output blob " + hash, e);
+      }
+      failure.addSuppressed(e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
+
+  private void releaseBlobsNoLock(List<String> hashes) throws SQLException {
+    if (hashes.isEmpty()) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    PreparedStatement release = writer.prepare(RELEASE_BLOB);
+    for (String hash : hashes) {
+      release.setLong(1, now);
+      release.setString(2, hash);
+      release.executeUpdate();
+    }
+    collectBlobsNoLock(now, COLLECT_BLOBS_BATCH);
+  }
+
+  int collectBlobs(int maxRows) {
+    if (blobs == null) {
+      return 0;
+    }
+    dbLock.lock();
+    try {
+      writer.raw().setAutoCommit(false);
+      try {
+        int collected = collectBlobsNoLock(System.currentTimeMillis(), maxRows);
+        writer.raw().commit();
+        return collected;
+      } catch (SQLException | RuntimeException e) {
+        writer.raw().rollback();
+        throw e;
+      } finally {
+        writer.raw().setAutoCommit(true);
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to collect step output blobs", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
+
+  private int collectBlobsNoLock(long now, int maxRows) throws SQLException {
+    if (blobs == null) {
+      return 0;
+    }
+    PreparedStatement collect = writer.prepare(COLLECT_BLOBS);
+    collect.setLong(1, now - blobGcGraceMs);
+    collect.setInt(2, maxRows);
+    int collected = 0;
+    try (ResultSet rs = collect.executeQuery()) {
+      while (rs.next()) {
+        String hash = rs.getString(1);
+        try {
+          blobs.delete(hash);
+        } catch (IOException e) {
+          throw new RuntimeException("Failed to delete step output blob " + hash, e);
+        }
+        collected++;
+      }
+    }
+    return collected;
+  }
+
+  private static void addBlobRef(List<String> refs, byte[] outputBlob) {
+    String hash = OutputSerializer.blobHash(outputBlob);
+    if (hash != null) {
+      refs.add(hash);
+    }
+  }
+
+  @Override
+  public InputStream openBlob(String hash) throws IOException {
+    if (blobs == null) {
+      throw new IOException("Blob spill-over is not configured; cannot read step output blob " + hash);
+    }
+    return blobs.open(hash);
+  }
+
+  @Override
+  public void failStep(String workflowId, StepKey key, String runId, String error) {
+    failStep(workflowId, key, runId, error, StepStatus.FAILED);
+  }
+
+  @Override
+  public void timeOutStep(String workflowId, StepKey key, String runId, String error) {
+    failStep(workflowId, key, runId, error, StepStatus.TIMED_OUT);
+  }
+
+  private void failStep(String workflowId, StepKey key, String runId, String error, StepStatus status) {
+    try {
+      RowKey row = rowKey(workflowId, key);
+      if (groupCommit != null) {
+        await(groupCommit.submit(() -> failStepNoLock(row, runId, error, status)), "Failed to fail step");
+        return;
+      }
+
+      dbLock.lock();
+      try {
+        failStepNoLock(row, runId, error, status);
+      } catch (SQLException e) {
+        throw new RuntimeException("Failed to fail step", e);
+      } finally {
+        dbLock.unlock();
+      }
+    } finally {
+      heartbeat.released(workflowId, key.keyString(), runId);
+    }
+  }
+
+  private Void failStepNoLock(RowKey row, String runId, String error, StepStatus status) throws SQLException {
+    long now = System.currentTimeMillis();
+
+    PreparedStatement ps = writer.prepare(FAIL);
+    ps.setString(1, status.name());
+    ps.setString(2, error);
+    ps.setLong(3, now);
+    ps.setString(row.bind(ps, 4), runId);
+
+    ps.executeUpdate();
+    return null;
+  }
+
+  @Override
+  public void scheduleRetry(String workflowId, StepKey key, String runId, String error, long nextAttemptAtEpochMs) {
+    String stepKey = key.keyString();
+    try {
+      RowKey row = rowKey(workflowId, key);
+      if (groupCommit != null) {
+        await(
+            groupCommit.submit(() -> scheduleRetryNoLock(stepKey, row, runId, error, nextAttemptAtEpochMs)),
+            "Failed to schedule step retry");
+        return;
+      }
+
+      dbLock.lock();
+      try {
+        scheduleRetryNoLock(stepKey, row, runId, error, nextAttemptAtEpochMs);
+      } catch (SQLException e) {
+        throw new RuntimeException("Failed to schedule step retry", e);
+      } finally {
+        dbLock.unlock();
+      }
+    } finally {
+      heartbeat.released(workflowId, stepKey, runId);
+    }
+  }
+
+  private Void scheduleRetryNoLock(
+      String stepKey, RowKey row, String runId, String error, long nextAttemptAtEpochMs) throws SQLException {
+    PreparedStatement ps = writer.prepare(SCHEDULE_RETRY);
+    ps.setString(1, error);
+    ps.setLong(2, nextAttemptAtEpochMs);
+    ps.setLong(3, System.currentTimeMillis());
+    ps.setString(row.bind(ps, 4), runId);
+
+    if (ps.executeUpdate() != 1) {
+      throw new RuntimeException("Failed to schedule step retry: lost lease or missing record for " + stepKey);
+    }
+    return null;
+  }
+
+  @Override
+  public TimerRecord scheduleTimer(String workflowId, String timerKey, long wakeAtEpochMs) {
+    dbLock.lock();
+    try {
+      PreparedStatement insert = writer.prepare(INSERT_TIMER);
+      insert.setString(1, workflowId);
+      insert.setString(2, timerKey);
+      insert.setLong(3, wakeAtEpochMs);
+      insert.executeUpdate();
+
+      PreparedStatement select = writer.prepare(SELECT_TIMER);
+      select.setString(1, workflowId);
+      select.setString(2, timerKey);
+      try (ResultSet rs = select.executeQuery()) {
+        if (!rs.next()) {
+          throw new IllegalStateException("Timer was not recorded: " + timerKey);
+        }
+        return new TimerRecord(workflowId, timerKey, rs.getLong(1), "FIRED".equals(rs.getString(2)));
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to schedule timer", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
+
+  @Override
+  public void fireTimer(String workflowId, String timerKey) {
+    dbLock.lock();
+    try {
+      PreparedStatement ps = writer.prepare(FIRE_TIMER);
+      ps.setString(1, workflowId);
+      ps.setString(2, timerKey);
+      ps.executeUpdate();
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to fire timer", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
+
+  @Override
+  public List<TimerRecord> pendingTimers(int limit) {
+    return read(
+        conn -> {
+          List<TimerRecord> out = new ArrayList<>();
+          PreparedStatement ps = conn.prepare(SELECT_PENDING_TIMERS);
+          ps.setInt(1, limit);
+          try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+              out.add(new TimerRecord(rs.getString(1), rs.getString(2), rs.getLong(3), false));
+            }
+          }
+          return out;
+        },
+        "Failed to read pending timers");
+  }
+
+  @Override
+  public boolean enqueueWorkflow(String workflowId, String workflowType, String input, WorkflowPriority priority) {
+    dbLock.lock();
+    try {
+      long now = System.currentTimeMillis();
+      PreparedStatement ps = writer.prepare(ENQUEUE_WORKFLOW);
+      ps.setString(1, workflowId);
+      ps.setString(2, workflowType);
+      ps.setString(3, input);
+      ps.setInt(4, priority.ordinal());
+      ps.setLong(5, now);
+      ps.setLong(6, now);
+      return ps.executeUpdate() == 1;
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to enqueue workflow", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean startWorkflow(
+      String workflowId, String ownerRunId, WorkflowPriority priority, long leaseExpiresAtEpochMs) {
+    dbLock.lock();
+    try {
+      long now = System.currentTimeMillis();
+      PreparedStatement ps = writer.prepare(START_WORKFLOW);
+      ps.setString(1, workflowId);
+      ps.setString(2, ownerRunId);
+      ps.setLong(3, leaseExpiresAtEpochMs);
+      ps.setInt(4, priority.ordinal());
+      ps.setLong(5, now);
+      ps.setLong(6, now);
+      if (ps.executeUpdate() != 1) {
+        return false;
+      }
+      heartbeat.workflowStarted(workflowId, ownerRunId, leaseExpiresAtEpochMs - now);
+      return true;
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to record workflow start", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
+
+  @Override
+  public List<WorkflowRecord> claimWorkflows(
+      String ownerRunId, List<String> workflowTypes, int limit, long leaseExpiresAtEpochMs) {
+    if (workflowTypes.isEmpty() || limit <= 0) {
+      return new ArrayList<>();
+    }
+    String types = jsonArray(workflowTypes);
+    dbLock.lock();
+    try {
+      long now = System.currentTimeMillis();
+      PreparedStatement ps = writer.prepare(CLAIM_WORKFLOWS);
+      ps.setString(1, ownerRunId);
+      ps.setLong(2, leaseExpiresAtEpochMs);
+      ps.setLong(3, now);
+      ps.setLong(4, now);
+      ps.setString(5, types);
+      ps.setInt(6, limit);
+
+      List<WorkflowRecord> out = new ArrayList<>();
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          out.add(
+              new WorkflowRecord(
+                  rs.getString(1), rs.getString(2), rs.getString(3), WorkflowPriority.values()[rs.getInt(4)]));
+        }
+      }
+      return out;
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to claim workflows", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
+
+  @Override
+  public int renewWorkflowLeases(String ownerRunId, long leaseExpiresAtEpochMs) {
+    dbLock.lock();
+    try {
+      PreparedStatement ps = writer.prepare(RENEW_WORKFLOW_LEASES);
+      ps.setLong(1, leaseExpiresAtEpochMs);
+      ps.setString(2, ownerRunId);
+      return ps.executeUpdate();
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to renew workflow leases", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
+
+  @Override
+  public void finishWorkflow(String workflowId, String ownerRunId, WorkflowStatus status, String error) {
+    heartbeat.workflowEnded(workflowId, ownerRunId);
+    dbLock.lock();
+    try {
+      PreparedStatement ps = writer.prepare(FINISH_WORKFLOW);
+      ps.setString(1, status.name());
+      ps.setString(2, error);
+      ps.setLong(3, System.currentTimeMillis());
+      ps.setString(4, workflowId);
+      ps.setString(5, ownerRunId);
+      ps.executeUpdate();
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to record workflow completion", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
+
+  @Override
+  public void releaseWorkflow(String workflowId, String ownerRunId) {
+    heartbeat.workflowEnded(workflowId, ownerRunId);
+    dbLock.lock();
+    try {
+      PreparedStatement ps = writer.prepare(RELEASE_WORKFLOW);
+      ps.setLong(1, System.currentTimeMillis());
+      ps.setString(2, workflowId);
+      ps.setString(3, ownerRunId);
+      ps.executeUpdate();
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to release workflow", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
+
+  List<ArchivedWorkflow> readFinishedWorkflows(long finishedBeforeEpochMs, int limit) {
+    return read(
+        conn -> {
+          List<ArchivedWorkflow> out = new ArrayList<>();
+          PreparedStatement ps = conn.prepare(SELECT_FINISHED_WORKFLOWS);
+          ps.setLong(1, finishedBeforeEpochMs);
+          ps.setInt(2, limit);
+          try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+              out.add(
+                  new ArchivedWorkflow(
+                      rs.getString(1),
+                      rs.getString(2),
+                      rs.getString(3),
+                      rs.getString(4),
+                      rs.getString(5),
+                      rs.getLong(6),
+                      rs.getLong(7)));
+            }
+          }
+
+          PreparedStatement steps = conn.prepare(SELECT_ALL_STEPS);
+          for (ArchivedWorkflow workflow : out) {
+            steps.setString(1, workflow.workflowId);
+            try (ResultSet rs = steps.executeQuery()) {
+              while (rs.next()) {
+                workflow.steps.put(
+                    new StepKey(rs.getString(1), rs.getInt(2)).keyString(),
+                    new StepRecord(
+                        StepStatus.valueOf(rs.getString(3)),
+                        rs.getString(6),
+                        rs.getString(5),
+                        rs.getInt(7),
+                        inlineBlob(rs.getBytes(8)),
+                        rs.getString(9),
+                        rs.getLong(10),
+                        rs.getString(4),
+                        rs.getInt(11),
+                        rs.getLong(12)));
+              }
+            }
+          }
+          return out;
+        },
+        "Failed to read finished workflows");
+  }
+
+  private byte[] inlineBlob(byte[] outputBlob) throws SQLException {
+    String hash = OutputSerializer.blobHash(outputBlob);
+    if (hash == null) {
+      return outputBlob;
+    }
+    try (InputStream in = openBlob(hash)) {
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new SQLException("Failed to read step output blob " + hash, e);
+    }
+  }
+
+  String typeName(int typeId) {
+    try {
+      return resolveType(typeId).getName();
+    } catch (ClassNotFoundException e) {
+      return types.cachedName(typeId);
+    }
+  }
+
+  int markArchived(List<ArchivedWorkflow> workflows) {
+    dbLock.lock();
+    try {
+      long now = System.currentTimeMillis();
+      int marked = 0;
+      writer.raw().setAutoCommit(false);
+      try {
+        PreparedStatement ps = writer.prepare(MARK_ARCHIVED);
+        for (ArchivedWorkflow workflow : workflows) {
+          ps.setLong(1, now);
+          ps.setString(2, workflow.workflowId);
+          ps.setString(3, workflow.status);
+          ps.setLong(4, workflow.updatedAtEpochMs);
+          marked += ps.executeUpdate();
+        }
+        writer.raw().commit();
+      } catch (SQLException | RuntimeException e) {
+        writer.raw().rollback();
+        throw e;
+      } finally {
+        writer.raw().setAutoCommit(true);
+      }
+      return marked;
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to mark workflows archived", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
+
+  int purgeArchived(int maxRows) {
+    dbLock.lock();
+    try {
+      int deleted = 0;
+      writer.raw().setAutoCommit(false);
+      try {
+        List<String> refs = new ArrayList<>();
+        PreparedStatement steps = writer.prepare(PURGE_ARCHIVED_STEPS);
+        steps.setInt(1, maxRows);
+        try (ResultSet rs = steps.executeQuery()) {
+          while (rs.next()) {
+            deleted++;
+            addBlobRef(refs, rs.getBytes(1));
+          }
+        }
+        releaseBlobsNoLock(refs);
+        writer.raw().commit();
+      } catch (SQLException | RuntimeException e) {
+        writer.raw().rollback();
+        throw e;
+      } finally {
+        writer.raw().setAutoCommit(true);
+      }
+      if (deleted > 0) {
+        return deleted;
+      }
+
+      PreparedStatement timers = writer.prepare(PURGE_ARCHIVED_TIMERS);
+      timers.setInt(1, maxRows);
+      deleted = timers.executeUpdate();
+      if (deleted > 0) {
+        return deleted;
+      }
+
+      PreparedStatement checkpoints = writer.prepare(PURGE_ARCHIVED_CHECKPOINTS);
+      checkpoints.setInt(1, maxRows);
+      deleted = checkpoints.executeUpdate();
+      if (deleted > 0) {
+        return deleted;
+      }
+
+      PreparedStatement signals = writer.prepare(PURGE_ARCHIVED_SIGNALS);
+      signals.setInt(1, maxRows);
+      deleted = signals.executeUpdate();
+      if (deleted > 0) {
+        return deleted;
+      }
+
+      PreparedStatement ids = writer.prepare(PURGE_ARCHIVED_WORKFLOW_IDS);
+      ids.setInt(1, maxRows);
+      deleted = 0;
+      try (ResultSet rs = ids.executeQuery()) {
+        while (rs.next()) {
+          keys.evictWorkflowId(rs.getString(1));
+          deleted++;
+        }
+      }
+      if (deleted > 0) {
+        return deleted;
+      }
+
+      PreparedStatement workflows = writer.prepare(PURGE_ARCHIVED_WORKFLOWS);
+      workflows.setInt(1, maxRows);
+      return workflows.executeUpdate();
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to purge archived workflows", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
+
+  int incrementalVacuum(int maxPages) {
+    dbLock.lock();
+    try (Statement st = writer.raw().createStatement()) {
+      try (ResultSet rs = st.executeQuery("PRAGMA auto_vacuum")) {
+        if (!rs.next() || rs.getInt(1) != 2) {
+          return 0;
+        }
+      }
+      int freePages;
+      try (ResultSet rs = st.executeQuery("PRAGMA freelist_count")) {
+        freePages = rs.next() ? rs.getInt(1) : 0;
+      }
+      int pages = Math.min(freePages, maxPages);
+      if (pages > 0) {
+        st.executeUpdate("PRAGMA incremental_vacuum(" + pages + ")");
+      }
+      return pages;
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to run incremental vacuum", e);
+    } finally {
+      dbLock.unlock();
+    }
+  }
+
+  @Override
+  public void releaseStep(String workflowId, StepKey key, String runId) {
+    try {
+      RowKey row = rowKey(workflowId, key);
+      if (groupCommit != null) {
+        await(groupCommit.submit(() -> releaseStepNoLock(row, runId)), "Failed to release step");
+        return;
+      }
+
+      dbLock.lock();
+      try {
+        releaseStepNoLock(row, runId);
+      } catch (SQLException e) {
+        throw new RuntimeException("Failed to release step", e);
+      } finally {
+        dbLock.unlock();
+      }
+    } finally {
+      heartbeat.released(workflowId, key.keyString(), runId);
+    }
+  }
+
+  private void renewLeases(List<String> runIds) {
+    long now = System.currentTimeMillis();
+    for (int from = 0; from < runIds.size(); from += HEARTBEAT_CHUNK) {
+      List<String> chunk = runIds.subList(from, Math.min(runIds.size(), from + HEARTBEAT_CHUNK));
+      if (groupCommit != null) {
+        await(groupCommit.submit(() -> renewLeasesNoLock(chunk, now)), "Failed to renew step leases");
+        continue;
+      }
+
+      dbLock.lock();
+      try {
+        renewLeasesNoLock(chunk, now);
+      } catch (SQLException e) {
+        throw new RuntimeException("Failed to renew step leases", e);
+      } finally {
+        dbLock.unlock();
+      }
+    }
+  }
+
+  private void renewOwnedWorkflows(Map<String, Long> leaseMillisByOwner) {
+    long now = System.currentTimeMillis();
+    for (Map.Entry<String, Long> e : leaseMillisByOwner.entrySet()) {
+      renewWorkflowLeases(e.getKey(), now + e.getValue());
+    }
+  }
+
+  private Integer renewLeasesNoLock(List<String> runIds, long now) throws SQLException {
+    PreparedStatement ps = writer.prepare(RENEW_STEP_LEASES);
+    ps.setLong(1, now);
+    ps.setString(2, jsonArray(runIds));
+    return ps.executeUpdate();
+  }
+
+  private static String jsonArray(List<?> values) {
+    try {
+      return JSON.writeValueAsString(values);
+    } catch (JsonProcessingException e) {
+      throw new RuntimeException("Failed to encode " + values.size() + " ids", e);
+    }
+  }
+
+  private Void releaseStepNoLock(RowKey row, String runId) throws SQLException {
+    PreparedStatement ps = writer.prepare(RELEASE);
+    ps.setString(row.bind(ps, 1), runId);
+    ps.executeUpdate();
+    return null;
+  }
+
+  <T> T read(SqlRead<T> fn, String message) {
+    if (readerPoolSize == 0) {
+      dbLock.lock();
+      try {
+        return fn.apply(writer);
+      } catch (SQLException e) {
+        throw new RuntimeException(message, e);
+      } finally {
+        dbLock.unlock();
+      }
+    }
+
+    StoreConnection reader = borrowReader();
+    try {
+      return fn.apply(reader);
+    } catch (SQLException e) {
+      throw new RuntimeException(message, e);
+    } finally {
+      readers.add(reader);
+    }
+  }
+
+  private StoreConnection borrowReader() {
+    readerAcquisitions.increment();
+    StoreConnection reader = readers.poll();
+    if (reader != null) {
+      return reader;
+    }
+    long start = System.nanoTime();
+    try {
+      reader = readers.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for a read connection", e);
+    }
+    readerWaitNanos.add(System.nanoTime() - start);
+    return reader;
+  }
+
+  private static <T> T await(CompletableFuture<T> future, String message) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw new RuntimeException(message, cause);
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new RuntimeException(message, cause);
+    }
+  }
+
+  @Override
+  public void close() {
+    heartbeat.close();
+    if (signalPoller != null) {
+      signalPoller.shutdownNow();
+    }
+    signalWaiters.cancelAll();
+    if (groupCommit != null) {
+      groupCommit.close();
+    }
+    dbLock.lock();
+    try {
+      StoreConnection reader;
+      while ((reader = readers.poll()) != null) {
+        reader.close();
+      }
+      writer.close();
     } catch (SQLException e) {
       throw new RuntimeException("Failed to close connection", e);
     } finally {
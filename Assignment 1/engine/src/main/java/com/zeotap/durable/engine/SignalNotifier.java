@@ -0,0 +1,95 @@
+package com.zeotap.durable.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class SignalNotifier {
+  static final class Watch {
+    final String workflowId;
+    final String name;
+    final int sequence;
+
+    Watch(String workflowId, String name, int sequence) {
+      this.workflowId = workflowId;
+      this.name = name;
+      this.sequence = sequence;
+    }
+  }
+
+  private static final class Waiters {
+    final String workflowId;
+    final String name;
+    final Map<CompletableFuture<Void>, Integer> sequences = new ConcurrentHashMap<>();
+
+    Waiters(String workflowId, String name) {
+      this.workflowId = workflowId;
+      this.name = name;
+    }
+  }
+
+  private final ConcurrentHashMap<String, Waiters> waiters = new ConcurrentHashMap<>();
+
+  CompletableFuture<Void> register(String workflowId, String name, int sequence) {
+    String key = key(workflowId, name);
+    CompletableFuture<Void> waiter = new CompletableFuture<>();
+    waiters.compute(
+        key,
+        (ignored, existing) -> {
+          Waiters out = existing == null ? new Waiters(workflowId, name) : existing;
+          out.sequences.put(waiter, sequence);
+          return out;
+        });
+    waiter.whenComplete((ignored, error) -> unregister(key, waiter));
+    return waiter;
+  }
+
+  List<Watch> pending() {
+    List<Watch> out = new ArrayList<>();
+    for (Waiters w : waiters.values()) {
+      int lowest = Integer.MAX_VALUE;
+      for (int sequence : w.sequences.values()) {
+        lowest = Math.min(lowest, sequence);
+      }
+      if (lowest != Integer.MAX_VALUE) {
+        out.add(new Watch(w.workflowId, w.name, lowest));
+      }
+    }
+    return out;
+  }
+
+  void signalled(String workflowId, String name, int sequence) {
+    Waiters w = waiters.get(key(workflowId, name));
+    if (w == null) {
+      return;
+    }
+    for (Map.Entry<CompletableFuture<Void>, Integer> e : w.sequences.entrySet()) {
+      if (e.getValue() <= sequence) {
+        e.getKey().complete(null);
+      }
+    }
+  }
+
+  void cancelAll() {
+    for (Waiters w : waiters.values()) {
+      for (CompletableFuture<Void> waiter : w.sequences.keySet()) {
+        waiter.cancel(false);
+      }
+    }
+  }
+
+  private void unregister(String key, CompletableFuture<Void> waiter) {
+    waiters.computeIfPresent(
+        key,
+        (ignored, w) -> {
+          w.sequences.remove(waiter);
+          return w.sequences.isEmpty() ? null : w;
+        });
+  }
+
+  private static String key(String workflowId, String name) {
+    return workflowId + '\u0000' + name;
+  }
+}
@@ -0,0 +1,37 @@
+package com.zeotap.durable.engine;
+
+public final class SignalRecord {
+  final String name;
+  final int sequence;
+  final int payloadTypeId;
+  final byte[] payload;
+  final long sentAtEpochMs;
+
+  public SignalRecord(String name, int sequence, int payloadTypeId, byte[] payload, long sentAtEpochMs) {
+    this.name = name;
+    this.sequence = sequence;
+    this.payloadTypeId = payloadTypeId;
+    this.payload = payload;
+    this.sentAtEpochMs = sentAtEpochMs;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public int sequence() {
+    return sequence;
+  }
+
+  public int payloadTypeId() {
+    return payloadTypeId;
+  }
+
+  public byte[] payload() {
+    return payload;
+  }
+
+  public long sentAtEpochMs() {
+    return sentAtEpochMs;
+  }
+}
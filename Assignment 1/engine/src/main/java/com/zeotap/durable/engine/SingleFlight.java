@@ -0,0 +1,20 @@
+package com.zeotap.durable.engine;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class SingleFlight {
+  private final ConcurrentHashMap<String, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
+  CompletableFuture<Object> join(String key, CompletableFuture<Object> flight) {
+    return flights.putIfAbsent(key, flight);
+  }
+
+  void leave(String key, CompletableFuture<Object> flight) {
+    flights.remove(key, flight);
+  }
+
+  int inFlight() {
+    return flights.size();
+  }
+}
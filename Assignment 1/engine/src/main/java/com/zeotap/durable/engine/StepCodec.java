@@ -0,0 +1,17 @@
+package com.zeotap.durable.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface StepCodec {
+  int id();
+
+  byte[] encode(Object value) throws IOException;
+
+  <T> T decode(byte[] data, int offset, int length, Class<T> type) throws IOException;
+
+  default <T> T decode(InputStream in, Class<T> type) throws IOException {
+    byte[] data = in.readAllBytes();
+    return decode(data, 0, data.length, type);
+  }
+}
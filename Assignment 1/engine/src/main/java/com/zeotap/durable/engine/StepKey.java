@@ -2,24 +2,72 @@ package com.zeotap.durable.engine;
 
 import java.util.Objects;
 
-final class StepKey {
+public final class StepKey {
   private final String id;
   private final int sequence;
+  private final StepPath path;
+  private String keyString;
 
   StepKey(String id, int sequence) {
+    this(id, sequence, null);
+  }
+
+  StepKey(StepPath path, int sequence) {
+    this(path.path(), sequence, path);
+  }
+
+  private StepKey(String id, int sequence, StepPath path) {
     this.id = Objects.requireNonNull(id, "id");
     this.sequence = sequence;
+    this.path = path;
+  }
+
+  public static StepKey of(String id, int sequence) {
+    if (sequence < 0) {
+      throw new IllegalArgumentException("sequence must be >= 0");
+    }
+    return new StepKey(id, sequence);
   }
 
-  String id() {
+  public String id() {
     return id;
   }
 
-  int sequence() {
+  public int sequence() {
     return sequence;
   }
 
-  String keyString() {
-    return id + "#" + sequence;
+  StepPath path() {
+    return path;
+  }
+
+  public String keyString() {
+    String key = keyString;
+    if (key == null) {
+      key = sequence < 0 ? id : id + "#" + sequence;
+      keyString = key;
+    }
+    return key;
+  }
+
+  @Override
+  public String toString() {
+    return keyString();
+  }
+
+  static StepKey parse(String keyString) {
+    int hash = keyString.lastIndexOf('#');
+    if (hash < 0 || hash == keyString.length() - 1 || keyString.length() - hash > 10) {
+      return new StepKey(keyString, -1);
+    }
+    int sequence = 0;
+    for (int i = hash + 1; i < keyString.length(); i++) {
+      char c = keyString.charAt(i);
+      if (c < '0' || c > '9' || (c == '0' && i == hash + 1 && i < keyString.length() - 1)) {
+        return new StepKey(keyString, -1);
+      }
+      sequence = sequence * 10 + (c - '0');
+    }
+    return new StepKey(keyString.substring(0, hash), sequence);
   }
 }
@@ -0,0 +1,101 @@
+package com.zeotap.durable.engine;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+final class StepKeyRegistry {
+  static final int MAX_CACHED_WORKFLOWS = 100_000;
+  static final int MAX_CACHED_PATHS = 100_000;
+
+  private final Generations<String, Long> workflowIds;
+  private final Generations<String, Integer> pathIds;
+
+  StepKeyRegistry() {
+    this(MAX_CACHED_WORKFLOWS, MAX_CACHED_PATHS);
+  }
+
+  StepKeyRegistry(int maxWorkflows, int maxPaths) {
+    if (maxWorkflows < 2) {
+      throw new IllegalArgumentException("maxWorkflows must be >= 2");
+    }
+    if (maxPaths < 2) {
+      throw new IllegalArgumentException("maxPaths must be >= 2");
+    }
+    this.workflowIds = new Generations<>(maxWorkflows / 2);
+    this.pathIds = new Generations<>(maxPaths / 2);
+  }
+
+  Long cachedWorkflowId(String workflowId) {
+    return workflowIds.get(workflowId);
+  }
+
+  void putWorkflowId(String workflowId, long workflowIntId) {
+    workflowIds.put(workflowId, workflowIntId);
+  }
+
+  void evictWorkflowId(String workflowId) {
+    workflowIds.remove(workflowId);
+  }
+
+  Integer cachedPathId(String path) {
+    return pathIds.get(path);
+  }
+
+  void putPathId(String path, int pathId) {
+    pathIds.put(path, pathId);
+  }
+
+  int cachedWorkflows() {
+    return workflowIds.size();
+  }
+
+  int cachedPaths() {
+    return pathIds.size();
+  }
+
+  private static final class Generations<K, V> {
+    private final int generationSize;
+    private volatile ConcurrentHashMap<K, V> current = new ConcurrentHashMap<>();
+    private volatile ConcurrentHashMap<K, V> previous = new ConcurrentHashMap<>();
+
+    Generations(int generationSize) {
+      this.generationSize = generationSize;
+    }
+
+    V get(K key) {
+      V value = current.get(key);
+      if (value != null) {
+        return value;
+      }
+      value = previous.get(key);
+      if (value != null) {
+        put(key, value);
+      }
+      return value;
+    }
+
+    void put(K key, V value) {
+      ConcurrentHashMap<K, V> generation = current;
+      if (generation.size() >= generationSize) {
+        generation = rotate(generation);
+      }
+      generation.put(key, value);
+    }
+
+    void remove(K key) {
+      current.remove(key);
+      previous.remove(key);
+    }
+
+    int size() {
+      return current.size() + previous.size();
+    }
+
+    private synchronized ConcurrentHashMap<K, V> rotate(ConcurrentHashMap<K, V> full) {
+      if (current == full) {
+        previous = full;
+        current = new ConcurrentHashMap<>();
+      }
+      return current;
+    }
+  }
+}
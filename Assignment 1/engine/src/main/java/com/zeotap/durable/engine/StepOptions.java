@@ -0,0 +1,50 @@
+package com.zeotap.durable.engine;
+
+import java.time.Duration;
+import java.util.Objects;
+
+public final class StepOptions {
+  private static final StepOptions DEFAULTS = new StepOptions(null, null, null);
+
+  private final RetryPolicy retryPolicy;
+  private final Duration timeout;
+  private final String pool;
+
+  private StepOptions(RetryPolicy retryPolicy, Duration timeout, String pool) {
+    this.retryPolicy = retryPolicy;
+    this.timeout = timeout;
+    this.pool = pool;
+  }
+
+  public static StepOptions defaults() {
+    return DEFAULTS;
+  }
+
+  public StepOptions withRetry(RetryPolicy retryPolicy) {
+    return new StepOptions(Objects.requireNonNull(retryPolicy, "retryPolicy"), timeout, pool);
+  }
+
+  public StepOptions withTimeout(Duration timeout) {
+    Objects.requireNonNull(timeout, "timeout");
+    if (timeout.isNegative() || timeout.isZero()) {
+      throw new IllegalArgumentException("timeout must be > 0");
+    }
+    return new StepOptions(retryPolicy, timeout, pool);
+  }
+
+  public StepOptions withPool(String pool) {
+    return new StepOptions(retryPolicy, timeout, Objects.requireNonNull(pool, "pool"));
+  }
+
+  public RetryPolicy retryPolicy() {
+    return retryPolicy;
+  }
+
+  public Duration timeout() {
+    return timeout;
+  }
+
+  public String pool() {
+    return pool;
+  }
+}
@@ -0,0 +1,47 @@
+package com.zeotap.durable.engine;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class StepPath {
+  private final String path;
+  private final AtomicInteger sequence;
+  private volatile int pathId = -1;
+
+  StepPath(String path) {
+    this(path, 0);
+  }
+
+  StepPath(String path, int nextSequence) {
+    this.path = Objects.requireNonNull(path, "path");
+    this.sequence = new AtomicInteger(nextSequence);
+  }
+
+  String path() {
+    return path;
+  }
+
+  StepKey next() {
+    return new StepKey(this, sequence.getAndIncrement());
+  }
+
+  int nextSequence() {
+    return sequence.getAndIncrement();
+  }
+
+  int current() {
+    return sequence.get();
+  }
+
+  void advanceTo(int nextSequence) {
+    sequence.accumulateAndGet(nextSequence, Math::max);
+  }
+
+  int pathId() {
+    return pathId;
+  }
+
+  void pathId(int pathId) {
+    this.pathId = pathId;
+  }
+}
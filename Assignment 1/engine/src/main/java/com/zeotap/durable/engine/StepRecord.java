@@ -1,25 +1,77 @@
 package com.zeotap.durable.engine;
 
-final class StepRecord {
+public final class StepRecord {
   final StepStatus status;
   final String outputJson;
   final String outputClass;
+  final int outputTypeId;
+  final byte[] outputBlob;
   final String error;
   final long updatedAtEpochMs;
   final String runId;
+  final int attempts;
+  final long nextAttemptAtEpochMs;
 
-  StepRecord(
+  public StepRecord(
       StepStatus status,
       String outputJson,
       String outputClass,
+      int outputTypeId,
+      byte[] outputBlob,
       String error,
       long updatedAtEpochMs,
-      String runId) {
+      String runId,
+      int attempts,
+      long nextAttemptAtEpochMs) {
     this.status = status;
     this.outputJson = outputJson;
     this.outputClass = outputClass;
+    this.outputTypeId = outputTypeId;
+    this.outputBlob = outputBlob;
     this.error = error;
     this.updatedAtEpochMs = updatedAtEpochMs;
     this.runId = runId;
+    this.attempts = attempts;
+    this.nextAttemptAtEpochMs = nextAttemptAtEpochMs;
+  }
+
+  public StepStatus status() {
+    return status;
+  }
+
+  public String outputJson() {
+    return outputJson;
+  }
+
+  public String outputClass() {
+    return outputClass;
+  }
+
+  public int outputTypeId() {
+    return outputTypeId;
+  }
+
+  public byte[] outputBlob() {
+    return outputBlob;
+  }
+
+  public String error() {
+    return error;
+  }
+
+  public long updatedAtEpochMs() {
+    return updatedAtEpochMs;
+  }
+
+  public String runId() {
+    return runId;
+  }
+
+  public int attempts() {
+    return attempts;
+  }
+
+  public long nextAttemptAtEpochMs() {
+    return nextAttemptAtEpochMs;
   }
 }
@@ -3,5 +3,7 @@ package com.zeotap.durable.engine;
 public enum StepStatus {
   RUNNING,
   COMPLETED,
-  FAILED
+  RETRYING,
+  FAILED,
+  TIMED_OUT
 }
@@ -0,0 +1,85 @@
+package com.zeotap.durable.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+public interface StepStore extends AutoCloseable {
+  Duration zombieTimeout();
+
+  LockWaitStats lockWaitStats();
+
+  EngineMetrics metrics();
+
+  int internType(String className);
+
+  Class<?> resolveType(int typeId) throws ClassNotFoundException;
+
+  InputStream openBlob(String hash) throws IOException;
+
+  Optional<StepRecord> readStep(String workflowId, StepKey key);
+
+  Map<String, StepRecord> readCompletedSteps(String workflowId, int limit);
+
+  int tryStartStep(String workflowId, StepKey key, String runId);
+
+  void completeStep(String workflowId, StepKey key, String runId, int outputTypeId, byte[] outputBlob);
+
+  Map<String, StepRecord> readCompletedOccurrences(String workflowId, String stepId);
+
+  int completeSteps(String workflowId, Map<String, StepRecord> records);
+
+  void failStep(String workflowId, StepKey key, String runId, String error);
+
+  void timeOutStep(String workflowId, StepKey key, String runId, String error);
+
+  void scheduleRetry(String workflowId, StepKey key, String runId, String error, long nextAttemptAtEpochMs);
+
+  void releaseStep(String workflowId, StepKey key, String runId);
+
+  void deleteWorkflow(String workflowId);
+
+  Map<String, Long> findOrphanedWorkflows(long staleBeforeEpochMs, int limit);
+
+  Optional<CheckpointRecord> readCheckpoint(String workflowId);
+
+  int saveCheckpoint(String workflowId, CheckpointRecord checkpoint);
+
+  int sendSignal(String workflowId, String name, int payloadTypeId, byte[] payload);
+
+  Optional<SignalRecord> readSignal(String workflowId, String name, int sequence);
+
+  CompletableFuture<Void> watchSignal(String workflowId, String name, int sequence);
+
+  Optional<CachedResult> readCachedResult(String cacheKey, long nowEpochMs);
+
+  void saveCachedResult(CachedResult result);
+
+  SingleFlight cachedCalls();
+
+  TimerRecord scheduleTimer(String workflowId, String timerKey, long wakeAtEpochMs);
+
+  void fireTimer(String workflowId, String timerKey);
+
+  List<TimerRecord> pendingTimers(int limit);
+
+  boolean enqueueWorkflow(String workflowId, String workflowType, String input, WorkflowPriority priority);
+
+  boolean startWorkflow(String workflowId, String ownerRunId, WorkflowPriority priority, long leaseExpiresAtEpochMs);
+
+  List<WorkflowRecord> claimWorkflows(
+      String ownerRunId, List<String> workflowTypes, int limit, long leaseExpiresAtEpochMs);
+
+  int renewWorkflowLeases(String ownerRunId, long leaseExpiresAtEpochMs);
+
+  void finishWorkflow(String workflowId, String ownerRunId, WorkflowStatus status, String error);
+
+  void releaseWorkflow(String workflowId, String ownerRunId);
+
+  @Override
+  void close();
+}
@@ -0,0 +1,25 @@
+package com.zeotap.durable.engine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+public final class StepTimeoutException extends TimeoutException {
+  private static final long serialVersionUID = 1L;
+
+  private final String stepKey;
+  private final Duration timeout;
+
+  StepTimeoutException(String stepKey, Duration timeout) {
+    super("Step " + stepKey + " timed out after " + timeout.toMillis() + " ms");
+    this.stepKey = stepKey;
+    this.timeout = timeout;
+  }
+
+  public String stepKey() {
+    return stepKey;
+  }
+
+  public Duration timeout() {
+    return timeout;
+  }
+}
@@ -0,0 +1,9 @@
+package com.zeotap.durable.engine;
+
+public enum StoreOperation {
+  READ,
+  START,
+  COMPLETE,
+  SAVE,
+  FAIL
+}
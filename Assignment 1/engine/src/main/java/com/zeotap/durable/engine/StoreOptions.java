@@ -0,0 +1,196 @@
+package com.zeotap.durable.engine;
+
+import java.time.Duration;
+import java.util.Objects;
+
+public final class StoreOptions {
+  public static final int DEFAULT_READER_POOL_SIZE = 4;
+  public static final Duration DEFAULT_HEARTBEAT_INTERVAL = Duration.ofSeconds(1);
+  public static final int DEFAULT_RESULT_CACHE_MAX_ENTRIES = 10_000;
+  public static final Duration DEFAULT_SIGNAL_POLL_INTERVAL = Duration.ofMillis(250);
+
+  private static final StoreOptions DEFAULTS =
+      new StoreOptions(
+          GroupCommitConfig.disabled(),
+          DEFAULT_READER_POOL_SIZE,
+          JacksonStepCodec.smile(),
+          DEFAULT_HEARTBEAT_INTERVAL,
+          BlobSpillConfig.disabled(),
+          DEFAULT_RESULT_CACHE_MAX_ENTRIES,
+          TimelineConfig.disabled(),
+          DEFAULT_SIGNAL_POLL_INTERVAL);
+
+  private final GroupCommitConfig groupCommit;
+  private final int readerPoolSize;
+  private final StepCodec codec;
+  private final Duration heartbeatInterval;
+  private final BlobSpillConfig blobSpill;
+  private final int resultCacheMaxEntries;
+  private final TimelineConfig timeline;
+  private final Duration signalPollInterval;
+
+  private StoreOptions(
+      GroupCommitConfig groupCommit,
+      int readerPoolSize,
+      StepCodec codec,
+      Duration heartbeatInterval,
+      BlobSpillConfig blobSpill,
+      int resultCacheMaxEntries,
+      TimelineConfig timeline,
+      Duration signalPollInterval) {
+    this.groupCommit = groupCommit;
+    this.readerPoolSize = readerPoolSize;
+    this.codec = codec;
+    this.heartbeatInterval = heartbeatInterval;
+    this.blobSpill = blobSpill;
+    this.resultCacheMaxEntries = resultCacheMaxEntries;
+    this.timeline = timeline;
+    this.signalPollInterval = signalPollInterval;
+  }
+
+  public static StoreOptions defaults() {
+    return DEFAULTS;
+  }
+
+  public StoreOptions withGroupCommit(GroupCommitConfig groupCommit) {
+    return new StoreOptions(
+        Objects.requireNonNull(groupCommit, "groupCommit"),
+        readerPoolSize,
+        codec,
+        heartbeatInterval,
+        blobSpill,
+        resultCacheMaxEntries,
+        timeline,
+        signalPollInterval);
+  }
+
+  public StoreOptions withReaderPoolSize(int readerPoolSize) {
+    if (readerPoolSize < 0) {
+      throw new IllegalArgumentException("readerPoolSize must be >= 0");
+    }
+    return new StoreOptions(
+        groupCommit,
+        readerPoolSize,
+        codec,
+        heartbeatInterval,
+        blobSpill,
+        resultCacheMaxEntries,
+        timeline,
+        signalPollInterval);
+  }
+
+  public StoreOptions withCodec(StepCodec codec) {
+    return new StoreOptions(
+        groupCommit,
+        readerPoolSize,
+        Objects.requireNonNull(codec, "codec"),
+        heartbeatInterval,
+        blobSpill,
+        resultCacheMaxEntries,
+        timeline,
+        signalPollInterval);
+  }
+
+  public StoreOptions withHeartbeatInterval(Duration heartbeatInterval) {
+    Objects.requireNonNull(heartbeatInterval, "heartbeatInterval");
+    if (heartbeatInterval.isNegative()) {
+      throw new IllegalArgumentException("heartbeatInterval must be >= 0");
+    }
+    return new StoreOptions(
+        groupCommit,
+        readerPoolSize,
+        codec,
+        heartbeatInterval,
+        blobSpill,
+        resultCacheMaxEntries,
+        timeline,
+        signalPollInterval);
+  }
+
+  public StoreOptions withBlobSpill(BlobSpillConfig blobSpill) {
+    return new StoreOptions(
+        groupCommit,
+        readerPoolSize,
+        codec,
+        heartbeatInterval,
+        Objects.requireNonNull(blobSpill, "blobSpill"),
+        resultCacheMaxEntries,
+        timeline,
+        signalPollInterval);
+  }
+
+  public StoreOptions withResultCacheMaxEntries(int resultCacheMaxEntries) {
+    if (resultCacheMaxEntries < 0) {
+      throw new IllegalArgumentException("resultCacheMaxEntries must be >= 0");
+    }
+    return new StoreOptions(
+        groupCommit,
+        readerPoolSize,
+        codec,
+        heartbeatInterval,
+        blobSpill,
+        resultCacheMaxEntries,
+        timeline,
+        signalPollInterval);
+  }
+
+  public StoreOptions withTimeline(TimelineConfig timeline) {
+    return new StoreOptions(
+        groupCommit,
+        readerPoolSize,
+        codec,
+        heartbeatInterval,
+        blobSpill,
+        resultCacheMaxEntries,
+        Objects.requireNonNull(timeline, "timeline"),
+        signalPollInterval);
+  }
+
+  public StoreOptions withSignalPollInterval(Duration signalPollInterval) {
+    Objects.requireNonNull(signalPollInterval, "signalPollInterval");
+    if (signalPollInterval.isNegative()) {
+      throw new IllegalArgumentException("signalPollInterval must be >= 0");
+    }
+    return new StoreOptions(
+        groupCommit,
+        readerPoolSize,
+        codec,
+        heartbeatInterval,
+        blobSpill,
+        resultCacheMaxEntries,
+        timeline,
+        signalPollInterval);
+  }
+
+  public GroupCommitConfig groupCommit() {
+    return groupCommit;
+  }
+
+  public int readerPoolSize() {
+    return readerPoolSize;
+  }
+
+  public StepCodec codec() {
+    return codec;
+  }
+
+  public Duration heartbeatInterval() {
+    return heartbeatInterval;
+  }
+
+  public BlobSpillConfig blobSpill() {
+    return blobSpill;
+  }
+
+  public int resultCacheMaxEntries() {
+    return resultCacheMaxEntries;
+  }
+
+  public TimelineConfig timeline() {
+    return timeline;
+  }
+
+  public Duration signalPollInterval() {
+    return signalPollInterval;
+  }
+}
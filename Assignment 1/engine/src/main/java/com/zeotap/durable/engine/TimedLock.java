@@ -0,0 +1,42 @@
+package com.zeotap.durable.engine;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+final class TimedLock {
+  private final ReentrantLock lock = new ReentrantLock(true);
+  private final LongAdder acquisitions = new LongAdder();
+  private final LongAdder waitNanos = new LongAdder();
+  private final EngineMetrics metrics;
+
+  TimedLock(EngineMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  void lock() {
+    acquisitions.increment();
+    long start = System.nanoTime();
+    lock.lock();
+    long waited = System.nanoTime() - start;
+    waitNanos.add(waited);
+    metrics.recordLockWait(waited);
+    if (waited >= RunTimeline.LOCK_WAIT_TRACE_NANOS) {
+      RunTimeline timeline = RunTimeline.current();
+      if (timeline != null) {
+        timeline.record(RunTimeline.LOCK_WAIT, null, start, waited);
+      }
+    }
+  }
+
+  void unlock() {
+    lock.unlock();
+  }
+
+  long acquisitions() {
+    return acquisitions.sum();
+  }
+
+  long waitNanos() {
+    return waitNanos.sum();
+  }
+}
@@ -0,0 +1,48 @@
+package com.zeotap.durable.engine;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+public final class TimelineConfig {
+  public static final int DEFAULT_CAPACITY = 16_384;
+
+  private static final TimelineConfig DISABLED = new TimelineConfig(false, null, 0);
+
+  private final boolean enabled;
+  private final Path directory;
+  private final int capacity;
+
+  private TimelineConfig(boolean enabled, Path directory, int capacity) {
+    this.enabled = enabled;
+    this.directory = directory;
+    this.capacity = capacity;
+  }
+
+  public static TimelineConfig disabled() {
+    return DISABLED;
+  }
+
+  public static TimelineConfig of(Path directory) {
+    return of(directory, DEFAULT_CAPACITY);
+  }
+
+  public static TimelineConfig of(Path directory, int capacity) {
+    Objects.requireNonNull(directory, "directory");
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be >= 1");
+    }
+    return new TimelineConfig(true, directory, capacity);
+  }
+
+  public boolean enabled() {
+    return enabled;
+  }
+
+  public Path directory() {
+    return directory;
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+}
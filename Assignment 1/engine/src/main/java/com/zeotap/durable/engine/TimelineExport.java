@@ -0,0 +1,135 @@
+package com.zeotap.durable.engine;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public final class TimelineExport {
+  private static final String[] CATEGORIES = {"workflow", "step", "replay", "store", "lock", "wait", "branch"};
+  private static final JsonFactory JSON =
+      JsonFactory.builder().disable(StreamWriteFeature.AUTO_CLOSE_TARGET).build();
+
+  private TimelineExport() {}
+
+  public static List<String> runIds(Path directory, String workflowId) throws IOException {
+    Path dir = directory.resolve(URLEncoder.encode(workflowId, StandardCharsets.UTF_8));
+    if (!Files.isDirectory(dir)) {
+      return new ArrayList<>();
+    }
+    List<Path> files = new ArrayList<>();
+    try (Stream<Path> s = Files.list(dir)) {
+      s.filter(p -> p.getFileName().toString().endsWith(RunTimeline.FILE_SUFFIX)).forEach(files::add);
+    }
+    files.sort(Comparator.comparing(TimelineExport::modifiedAt));
+    List<String> out = new ArrayList<>();
+    for (Path file : files) {
+      String name = file.getFileName().toString();
+      out.add(
+          URLDecoder.decode(
+              name.substring(0, name.length() - RunTimeline.FILE_SUFFIX.length()), StandardCharsets.UTF_8));
+    }
+    return out;
+  }
+
+  public static int writeChromeTrace(Path directory, String workflowId, String runId, OutputStream out)
+      throws IOException {
+    Path file = RunTimeline.file(directory, workflowId, runId);
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        JsonGenerator json = JSON.createGenerator(out)) {
+      if (in.readInt() != RunTimeline.MAGIC || in.readInt() != RunTimeline.VERSION) {
+        throw new IOException("Not a workflow timeline: " + file);
+      }
+      String recordedWorkflowId = in.readUTF();
+      String recordedRunId = in.readUTF();
+      long startedAtEpochMs = in.readLong();
+      long dropped = in.readLong();
+      int count = in.readInt();
+
+      json.writeStartObject();
+      json.writeArrayFieldStart("traceEvents");
+      json.writeStartObject();
+      json.writeStringField("ph", "M");
+      json.writeStringField("name", "process_name");
+      json.writeNumberField("pid", 1);
+      json.writeObjectFieldStart("args");
+      json.writeStringField("name", recordedWorkflowId + " run " + recordedRunId);
+      json.writeEndObject();
+      json.writeEndObject();
+
+      Map<Long, String> threadNames = new LinkedHashMap<>();
+      for (int i = 0; i < count; i++) {
+        byte kind = in.readByte();
+        String name = in.readUTF();
+        double ts = in.readLong() / 1_000.0;
+        double dur = in.readLong() / 1_000.0;
+        long tid = in.readLong();
+        if (kind == RunTimeline.WORKFLOW) {
+          threadNames.putIfAbsent(tid, "workflow");
+        } else if (kind == RunTimeline.BRANCH) {
+          threadNames.putIfAbsent(tid, "branch " + name);
+        }
+
+        json.writeStartObject();
+        json.writeStringField("cat", CATEGORIES[kind]);
+        json.writeStringField("name", name.isEmpty() ? CATEGORIES[kind] : name);
+        json.writeNumberField("pid", 1);
+        json.writeNumberField("tid", tid);
+        json.writeNumberField("ts", ts);
+        if (kind == RunTimeline.REPLAY) {
+          json.writeStringField("ph", "i");
+          json.writeStringField("s", "t");
+        } else {
+          json.writeStringField("ph", "X");
+          json.writeNumberField("dur", dur);
+        }
+        json.writeEndObject();
+      }
+
+      for (Map.Entry<Long, String> e : threadNames.entrySet()) {
+        json.writeStartObject();
+        json.writeStringField("ph", "M");
+        json.writeStringField("name", "thread_name");
+        json.writeNumberField("pid", 1);
+        json.writeNumberField("tid", e.getKey());
+        json.writeObjectFieldStart("args");
+        json.writeStringField("name", e.getValue());
+        json.writeEndObject();
+        json.writeEndObject();
+      }
+      json.writeEndArray();
+
+      json.writeStringField("displayTimeUnit", "ms");
+      json.writeObjectFieldStart("otherData");
+      json.writeStringField("workflowId", recordedWorkflowId);
+      json.writeStringField("runId", recordedRunId);
+      json.writeNumberField("startedAtEpochMs", startedAtEpochMs);
+      json.writeNumberField("droppedEvents", dropped);
+      json.writeEndObject();
+      json.writeEndObject();
+      return count;
+    }
+  }
+
+  private static long modifiedAt(Path file) {
+    try {
+      return Files.getLastModifiedTime(file).toMillis();
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to read timeline file time", e);
+    }
+  }
+}
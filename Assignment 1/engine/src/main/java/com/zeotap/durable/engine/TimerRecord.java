@@ -0,0 +1,31 @@
+package com.zeotap.durable.engine;
+
+public final class TimerRecord {
+  final String workflowId;
+  final String timerKey;
+  final long wakeAtEpochMs;
+  final boolean fired;
+
+  public TimerRecord(String workflowId, String timerKey, long wakeAtEpochMs, boolean fired) {
+    this.workflowId = workflowId;
+    this.timerKey = timerKey;
+    this.wakeAtEpochMs = wakeAtEpochMs;
+    this.fired = fired;
+  }
+
+  public String workflowId() {
+    return workflowId;
+  }
+
+  public String timerKey() {
+    return timerKey;
+  }
+
+  public long wakeAtEpochMs() {
+    return wakeAtEpochMs;
+  }
+
+  public boolean fired() {
+    return fired;
+  }
+}
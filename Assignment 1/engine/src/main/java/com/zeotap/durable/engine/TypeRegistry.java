@@ -0,0 +1,30 @@
+package com.zeotap.durable.engine;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+final class TypeRegistry {
+  private final ConcurrentHashMap<String, Integer> idsByName = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Integer, String> namesById = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Integer, Class<?>> classesById = new ConcurrentHashMap<>();
+
+  Integer cachedId(String className) {
+    return idsByName.get(className);
+  }
+
+  String cachedName(int typeId) {
+    return namesById.get(typeId);
+  }
+
+  void put(int typeId, String className) {
+    idsByName.put(className, typeId);
+    namesById.put(typeId, className);
+  }
+
+  Class<?> cachedClass(int typeId) {
+    return classesById.get(typeId);
+  }
+
+  void putClass(int typeId, Class<?> clazz) {
+    classesById.put(typeId, clazz);
+  }
+}
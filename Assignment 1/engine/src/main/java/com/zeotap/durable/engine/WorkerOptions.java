@@ -0,0 +1,62 @@
+package com.zeotap.durable.engine;
+
+import java.time.Duration;
+import java.util.Objects;
+
+public final class WorkerOptions {
+  public static final int DEFAULT_CLAIM_BATCH_SIZE = 32;
+  public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofMillis(500);
+  public static final Duration DEFAULT_LEASE_DURATION = Duration.ofSeconds(30);
+
+  private static final WorkerOptions DEFAULTS =
+      new WorkerOptions(DEFAULT_CLAIM_BATCH_SIZE, DEFAULT_POLL_INTERVAL, DEFAULT_LEASE_DURATION);
+
+  private final int claimBatchSize;
+  private final Duration pollInterval;
+  private final Duration leaseDuration;
+
+  private WorkerOptions(int claimBatchSize, Duration pollInterval, Duration leaseDuration) {
+    this.claimBatchSize = claimBatchSize;
+    this.pollInterval = pollInterval;
+    this.leaseDuration = leaseDuration;
+  }
+
+  public static WorkerOptions defaults() {
+    return DEFAULTS;
+  }
+
+  public WorkerOptions withClaimBatchSize(int claimBatchSize) {
+    if (claimBatchSize < 1) {
+      throw new IllegalArgumentException("claimBatchSize must be >= 1");
+    }
+    return new WorkerOptions(claimBatchSize, pollInterval, leaseDuration);
+  }
+
+  public WorkerOptions withPollInterval(Duration pollInterval) {
+    Objects.requireNonNull(pollInterval, "pollInterval");
+    if (pollInterval.isZero() || pollInterval.isNegative()) {
+      throw new IllegalArgumentException("pollInterval must be > 0");
+    }
+    return new WorkerOptions(claimBatchSize, pollInterval, leaseDuration);
+  }
+
+  public WorkerOptions withLeaseDuration(Duration leaseDuration) {
+    Objects.requireNonNull(leaseDuration, "leaseDuration");
+    if (leaseDuration.compareTo(pollInterval) <= 0) {
+      throw new IllegalArgumentException("leaseDuration must be longer than pollInterval");
+    }
+    return new WorkerOptions(claimBatchSize, pollInterval, leaseDuration);
+  }
+
+  public int claimBatchSize() {
+    return claimBatchSize;
+  }
+
+  public Duration pollInterval() {
+    return pollInterval;
+  }
+
+  public Duration leaseDuration() {
+    return leaseDuration;
+  }
+}
@@ -0,0 +1,82 @@
+package com.zeotap.durable.engine;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.zip.GZIPOutputStream;
+
+final class WorkflowArchive {
+  private final Path directory;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private long sequence;
+
+  WorkflowArchive(Path directory) {
+    this.directory = directory;
+  }
+
+  Path write(List<ArchivedWorkflow> workflows, IntFunction<String> typeNames) throws IOException {
+    Files.createDirectories(directory);
+    String name = String.format("archive-%d-%06d.jsonl.gz", System.currentTimeMillis(), sequence++);
+    Path target = directory.resolve(name);
+    Path partial = directory.resolve(name + ".partial");
+
+    try (FileOutputStream file = new FileOutputStream(partial.toFile())) {
+      GZIPOutputStream gzip = new GZIPOutputStream(file, 64 * 1024);
+      JsonGenerator gen = objectMapper.getFactory().createGenerator(gzip);
+      gen.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+      for (ArchivedWorkflow workflow : workflows) {
+        writeWorkflow(gen, workflow, typeNames);
+        gen.writeRaw('\n');
+      }
+      gen.close();
+      gzip.finish();
+      file.getFD().sync();
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(partial);
+      throw e;
+    }
+    Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+    return target;
+  }
+
+  private static void writeWorkflow(JsonGenerator gen, ArchivedWorkflow workflow, IntFunction<String> typeNames)
+      throws IOException {
+    gen.writeStartObject();
+    gen.writeStringField("workflowId", workflow.workflowId);
+    gen.writeStringField("workflowType", workflow.workflowType);
+    gen.writeStringField("input", workflow.input);
+    gen.writeStringField("status", workflow.status);
+    gen.writeStringField("error", workflow.error);
+    gen.writeNumberField("createdAtMs", workflow.createdAtEpochMs);
+    gen.writeNumberField("updatedAtMs", workflow.updatedAtEpochMs);
+    gen.writeArrayFieldStart("steps");
+    for (Map.Entry<String, StepRecord> e : workflow.steps.entrySet()) {
+      StepRecord rec = e.getValue();
+      gen.writeStartObject();
+      gen.writeStringField("stepKey", e.getKey());
+      gen.writeStringField("status", rec.status.name());
+      gen.writeStringField("runId", rec.runId);
+      gen.writeNumberField("attempts", rec.attempts);
+      gen.writeStringField(
+          "outputClass", rec.outputTypeId != 0 ? typeNames.apply(rec.outputTypeId) : rec.outputClass);
+      if (rec.outputBlob != null) {
+        gen.writeBinaryField("outputBlob", rec.outputBlob);
+      }
+      if (rec.outputJson != null) {
+        gen.writeStringField("outputJson", rec.outputJson);
+      }
+      gen.writeStringField("error", rec.error);
+      gen.writeNumberField("updatedAtMs", rec.updatedAtEpochMs);
+      gen.writeEndObject();
+    }
+    gen.writeEndArray();
+    gen.writeEndObject();
+  }
+}
@@ -0,0 +1,613 @@
+package com.zeotap.durable.engine;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+public final class WorkflowEngine implements AutoCloseable {
+  private static final System.Logger LOGGER = System.getLogger(WorkflowEngine.class.getName());
+
+  private static final class Admission {
+    final WorkflowHandle handle;
+    final Workflow workflow;
+    final long sequence;
+    final long orphanedAtEpochMs;
+
+    Admission(WorkflowHandle handle, Workflow workflow, long sequence) {
+      this(handle, workflow, sequence, 0);
+    }
+
+    Admission(WorkflowHandle handle, Workflow workflow, long sequence, long orphanedAtEpochMs) {
+      this.handle = handle;
+      this.workflow = workflow;
+      this.sequence = sequence;
+      this.orphanedAtEpochMs = orphanedAtEpochMs;
+    }
+  }
+
+  private static final Comparator<Admission> ADMISSION_ORDER =
+      Comparator.<Admission, WorkflowPriority>comparing(a -> a.handle.priority())
+          .thenComparingLong(a -> a.sequence);
+
+  private final StepStore stepStore;
+  private final boolean ownsStore;
+  private final OutputSerializer serializer;
+  private final EngineOptions options;
+  private final PriorityQueue<Admission> admissionQueue = new PriorityQueue<>(ADMISSION_ORDER);
+  private final ConcurrentHashMap<String, WorkflowHandle> active = new ConcurrentHashMap<>();
+  private final HashMap<String, Runnable> suspended = new HashMap<>();
+  private final HashedTimerWheel timers =
+      new HashedTimerWheel(Duration.ofMillis(10), 512, "workflow-engine-timers");
+  private final AtomicLong submissions = new AtomicLong();
+  private final Object admissionLock = new Object();
+  private final String workerId = UUID.randomUUID().toString();
+  private final ConcurrentHashMap<String, WorkflowFactory> workflowTypes = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+  private final AtomicInteger recovering = new AtomicInteger();
+  private ScheduledExecutorService worker;
+  private ScheduledExecutorService recovery;
+  private volatile Duration leaseDuration = WorkerOptions.DEFAULT_LEASE_DURATION;
+  private int running;
+  private volatile boolean closed;
+
+  public WorkflowEngine(String sqliteFilePath, Duration zombieTimeout) {
+    this(sqliteFilePath, zombieTimeout, EngineOptions.defaults());
+  }
+
+  public WorkflowEngine(String sqliteFilePath, Duration zombieTimeout, EngineOptions options) {
+    Objects.requireNonNull(sqliteFilePath, "sqliteFilePath");
+    Objects.requireNonNull(zombieTimeout, "zombieTimeout");
+    this.options = Objects.requireNonNull(options, "options");
+    this.serializer = new OutputSerializer(options.storeOptions().codec());
+    this.stepStore = new SQLiteStepStore(sqliteFilePath, zombieTimeout, options.storeOptions());
+    this.ownsStore = true;
+    stepStore.metrics().registerMBean(mbeanName());
+  }
+
+  public WorkflowEngine(StepStore stepStore, EngineOptions options) {
+    this.stepStore = Objects.requireNonNull(stepStore, "stepStore");
+    this.options = Objects.requireNonNull(options, "options");
+    this.ownsStore = false;
+    this.serializer = new OutputSerializer(options.storeOptions().codec());
+    stepStore.metrics().registerMBean(mbeanName());
+  }
+
+  public WorkflowHandle submit(String workflowId, Workflow workflow) {
+    return submit(workflowId, workflow, WorkflowPriority.NORMAL);
+  }
+
+  public WorkflowHandle submit(String workflowId, Workflow workflow, WorkflowPriority priority) {
+    Objects.requireNonNull(workflowId, "workflowId");
+    Objects.requireNonNull(workflow, "workflow");
+    Objects.requireNonNull(priority, "priority");
+
+    synchronized (admissionLock) {
+      if (closed) {
+        throw new RejectedExecutionException("WorkflowEngine is closed");
+      }
+      WorkflowHandle existing = active.get(workflowId);
+      if (existing != null) {
+        return existing;
+      }
+      if (running >= options.maxConcurrentWorkflows()
+          && admissionQueue.size() >= options.maxQueuedWorkflows()) {
+        throw new RejectedExecutionException("Admission queue is full; rejected workflowId=" + workflowId);
+      }
+
+      WorkflowHandle handle = track(new WorkflowHandle(workflowId, priority));
+      admissionQueue.add(new Admission(handle, workflow, submissions.getAndIncrement()));
+      dispatch();
+      return handle;
+    }
+  }
+
+  public boolean enqueue(String workflowId, String workflowType, String input) {
+    return enqueue(workflowId, workflowType, input, WorkflowPriority.NORMAL);
+  }
+
+  public boolean enqueue(String workflowId, String workflowType, String input, WorkflowPriority priority) {
+    Objects.requireNonNull(workflowId, "workflowId");
+    Objects.requireNonNull(workflowType, "workflowType");
+    Objects.requireNonNull(priority, "priority");
+    return stepStore.enqueueWorkflow(workflowId, workflowType, input, priority);
+  }
+
+  public int signal(String workflowId, String name, Object payload) {
+    return DurableContext.sendSignal(stepStore, serializer, workflowId, name, payload);
+  }
+
+  public void registerWorkflowType(String workflowType, WorkflowFactory factory) {
+    Objects.requireNonNull(workflowType, "workflowType");
+    Objects.requireNonNull(factory, "factory");
+    workflowTypes.put(workflowType, factory);
+  }
+
+  public void registerBulkhead(String pool, BulkheadConfig config) {
+    Objects.requireNonNull(pool, "pool");
+    Objects.requireNonNull(config, "config");
+    Bulkhead bulkhead = new Bulkhead(pool, config);
+    bulkheads.put(pool, bulkhead);
+    stepStore.metrics().trackBulkhead(bulkhead);
+  }
+
+  public void startWorker(WorkerOptions workerOptions) {
+    Objects.requireNonNull(workerOptions, "workerOptions");
+    synchronized (admissionLock) {
+      if (closed) {
+        throw new RejectedExecutionException("WorkflowEngine is closed");
+      }
+      if (worker != null) {
+        throw new IllegalStateException("Worker is already started");
+      }
+      leaseDuration = workerOptions.leaseDuration();
+      worker =
+          Executors.newSingleThreadScheduledExecutor(
+              r -> {
+                Thread t = new Thread(r, "workflow-worker");
+                t.setDaemon(true);
+                return t;
+              });
+      worker.scheduleWithFixedDelay(
+          () -> {
+            try {
+              poll(workerOptions);
+            } catch (RuntimeException e) {
+              LOGGER.log(System.Logger.Level.WARNING, "Workflow worker poll failed", e);
+            }
+          },
+          0,
+          workerOptions.pollInterval().toMillis(),
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public void startRecovery(RecoveryOptions recoveryOptions, Function<String, Workflow> workflowFactory) {
+    Objects.requireNonNull(recoveryOptions, "recoveryOptions");
+    Objects.requireNonNull(workflowFactory, "workflowFactory");
+    requireZombieTimeout();
+    synchronized (admissionLock) {
+      if (closed) {
+        throw new RejectedExecutionException("WorkflowEngine is closed");
+      }
+      if (recovery != null) {
+        throw new IllegalStateException("Recovery is already started");
+      }
+      recovery =
+          Executors.newSingleThreadScheduledExecutor(
+              r -> {
+                Thread t = new Thread(r, "workflow-recovery");
+                t.setDaemon(true);
+                return t;
+              });
+      recovery.scheduleWithFixedDelay(
+          () -> {
+            try {
+              recoverOnce(recoveryOptions, workflowFactory);
+            } catch (RuntimeException e) {
+              LOGGER.log(System.Logger.Level.WARNING, "Workflow recovery sweep failed", e);
+            }
+          },
+          0,
+          recoveryOptions.sweepInterval().toMillis(),
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public int recoverOnce(RecoveryOptions recoveryOptions, Function<String, Workflow> workflowFactory) {
+    Objects.requireNonNull(recoveryOptions, "recoveryOptions");
+    Objects.requireNonNull(workflowFactory, "workflowFactory");
+    requireZombieTimeout();
+    int capacity = recoveryOptions.maxConcurrentRecoveries() - recovering.get();
+    if (capacity <= 0) {
+      return 0;
+    }
+    long staleBefore = System.currentTimeMillis() - stepStore.zombieTimeout().toMillis();
+    Map<String, Long> orphaned = stepStore.findOrphanedWorkflows(staleBefore, recoveryOptions.scanLimit());
+
+    int submitted = 0;
+    for (Map.Entry<String, Long> e : orphaned.entrySet()) {
+      if (submitted >= capacity) {
+        break;
+      }
+      String workflowId = e.getKey();
+      if (active.containsKey(workflowId)) {
+        continue;
+      }
+      Workflow workflow = workflowFactory.apply(workflowId);
+      if (workflow == null) {
+        continue;
+      }
+      long leaseExpiresAt = System.currentTimeMillis() + leaseDuration.toMillis();
+      if (!stepStore.startWorkflow(workflowId, workerId, WorkflowPriority.NORMAL, leaseExpiresAt)) {
+        continue;
+      }
+      synchronized (admissionLock) {
+        if (active.containsKey(workflowId)) {
+          continue;
+        }
+        if (closed) {
+          stepStore.releaseWorkflow(workflowId, workerId);
+          return submitted;
+        }
+        WorkflowHandle handle = track(new WorkflowHandle(workflowId, WorkflowPriority.NORMAL));
+        recovering.incrementAndGet();
+        handle.future().whenComplete((ignored, error) -> recovering.decrementAndGet());
+        admissionQueue.add(new Admission(handle, workflow, submissions.getAndIncrement(), e.getValue()));
+        dispatch();
+      }
+      submitted++;
+    }
+    return submitted;
+  }
+
+  private void requireZombieTimeout() {
+    if (stepStore.zombieTimeout().isZero()) {
+      throw new IllegalArgumentException("zombieTimeout must be > 0 when recovery is enabled");
+    }
+  }
+
+  public int recoveringWorkflows() {
+    return recovering.get();
+  }
+
+  public EngineMetrics metrics() {
+    return stepStore.metrics();
+  }
+
+  public String workerId() {
+    return workerId;
+  }
+
+  public int runningWorkflows() {
+    synchronized (admissionLock) {
+      return running;
+    }
+  }
+
+  public int queuedWorkflows() {
+    synchronized (admissionLock) {
+      return admissionQueue.size();
+    }
+  }
+
+  public int suspendedWorkflows() {
+    synchronized (admissionLock) {
+      return suspended.size();
+    }
+  }
+
+  public int resumeTimers(Function<String, Workflow> workflowFactory) {
+    Objects.requireNonNull(workflowFactory, "workflowFactory");
+    Map<String, Long> earliest = new LinkedHashMap<>();
+    for (TimerRecord timer : stepStore.pendingTimers(Integer.MAX_VALUE)) {
+      earliest.merge(timer.workflowId, timer.wakeAtEpochMs, Math::min);
+    }
+
+    int scheduled = 0;
+    for (Map.Entry<String, Long> e : earliest.entrySet()) {
+      String workflowId = e.getKey();
+      if (active.containsKey(workflowId)) {
+        continue;
+      }
+      Workflow workflow = workflowFactory.apply(workflowId);
+      if (workflow == null) {
+        continue;
+      }
+      synchronized (admissionLock) {
+        if (closed) {
+          return scheduled;
+        }
+        if (active.containsKey(workflowId)) {
+          continue;
+        }
+        WorkflowHandle handle = track(new WorkflowHandle(workflowId, WorkflowPriority.NORMAL));
+        suspend(new Admission(handle, workflow, submissions.getAndIncrement()), e.getValue());
+      }
+      scheduled++;
+    }
+    return scheduled;
+  }
+
+  public int migrateLegacyOutputs(int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be >= 1");
+    }
+    if (!(stepStore instanceof SQLiteStepStore)) {
+      return 0;
+    }
+    return ((SQLiteStepStore) stepStore).migrateLegacyOutputs(serializer, batchSize);
+  }
+
+  public LockWaitStats lockWaitStats() {
+    return stepStore.lockWaitStats();
+  }
+
+  public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    synchronized (admissionLock) {
+      while (running > 0 || !admissionQueue.isEmpty() || !suspended.isEmpty()) {
+        long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remainingMs <= 0) {
+          return false;
+        }
+        admissionLock.wait(remainingMs);
+      }
+      return true;
+    }
+  }
+
+  private WorkflowHandle track(WorkflowHandle handle) {
+    String workflowId = handle.workflowId();
+    active.put(workflowId, handle);
+    handle.future().whenComplete(
+        (ignored, error) -> {
+          active.remove(workflowId, handle);
+          recordOutcome(workflowId, error);
+        });
+    return handle;
+  }
+
+  private void recordOutcome(String workflowId, Throwable error) {
+    try {
+      if (error == null) {
+        stepStore.finishWorkflow(workflowId, workerId, WorkflowStatus.COMPLETED, null);
+      } else if (error instanceof CancellationException) {
+        if (closed) {
+          stepStore.releaseWorkflow(workflowId, workerId);
+        } else {
+          stepStore.finishWorkflow(workflowId, workerId, WorkflowStatus.CANCELLED, null);
+        }
+      } else {
+        stepStore.finishWorkflow(workflowId, workerId, WorkflowStatus.FAILED, error.toString());
+      }
+    } catch (RuntimeException e) {
+      LOGGER.log(System.Logger.Level.WARNING, "Failed to record outcome for workflowId=" + workflowId, e);
+    }
+  }
+
+  private void poll(WorkerOptions workerOptions) {
+    long leaseExpiresAt = System.currentTimeMillis() + workerOptions.leaseDuration().toMillis();
+    stepStore.renewWorkflowLeases(workerId, leaseExpiresAt);
+
+    int capacity;
+    synchronized (admissionLock) {
+      if (closed) {
+        return;
+      }
+      capacity = options.maxConcurrentWorkflows() - running - admissionQueue.size();
+    }
+    int limit = Math.min(workerOptions.claimBatchSize(), capacity);
+    if (limit <= 0) {
+      return;
+    }
+
+    List<String> types = new ArrayList<>(workflowTypes.keySet());
+    for (WorkflowRecord claimed : stepStore.claimWorkflows(workerId, types, limit, leaseExpiresAt)) {
+      admitClaimed(claimed);
+    }
+  }
+
+  private void admitClaimed(WorkflowRecord claimed) {
+    Workflow workflow;
+    try {
+      workflow = workflowTypes.get(claimed.workflowType).create(claimed.workflowId, claimed.input);
+    } catch (Exception e) {
+      stepStore.finishWorkflow(claimed.workflowId, workerId, WorkflowStatus.FAILED, e.toString());
+      return;
+    }
+
+    synchronized (admissionLock) {
+      if (!closed) {
+        if (!active.containsKey(claimed.workflowId)) {
+          WorkflowHandle handle = track(new WorkflowHandle(claimed.workflowId, claimed.priority));
+          admissionQueue.add(new Admission(handle, workflow, submissions.getAndIncrement()));
+          dispatch();
+        }
+        return;
+      }
+    }
+    stepStore.releaseWorkflow(claimed.workflowId, workerId);
+  }
+
+  private void dispatch() {
+    while (running < options.maxConcurrentWorkflows()) {
+      Admission next = admissionQueue.poll();
+      if (next == null) {
+        return;
+      }
+      if (next.handle.isDone()) {
+        continue;
+      }
+      running++;
+      Thread.ofVirtual().name("workflow-" + next.handle.workflowId()).start(() -> execute(next));
+    }
+  }
+
+  private void execute(Admission admission) {
+    WorkflowHandle handle = admission.handle;
+    DurableContext ctx = null;
+    RunTimeline previous = null;
+    long startedAt = System.nanoTime();
+    try {
+      boolean started =
+          stepStore.startWorkflow(
+              handle.workflowId(),
+              workerId,
+              handle.priority(),
+              System.currentTimeMillis() + leaseDuration.toMillis());
+      if (!started) {
+        throw new IllegalStateException("Workflow is leased by another worker: " + handle.workflowId());
+      }
+      ctx =
+          DurableContext.createForRun(
+              handle.workflowId(),
+              stepStore,
+              serializer,
+              timers,
+              options.replayCacheMaxEntries(),
+              options.storeOptions().timeline(),
+              bulkheads);
+      previous = ctx.bindTimeline();
+      ctx.run().allowSuspension(Thread.currentThread());
+      handle.started(Thread.currentThread(), ctx.runId());
+      if (admission.orphanedAtEpochMs > 0) {
+        stepStore.metrics().recordWorkflowRecovered(
+            handle.workflowId(),
+            TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - admission.orphanedAtEpochMs));
+      }
+      if (!handle.isDone()) {
+        admission.workflow.run(ctx);
+      }
+      stepStore.metrics().recordWorkflowFinished(ctx.summarize(WorkflowStatus.COMPLETED));
+      handle.future().complete(null);
+    } catch (Throwable t) {
+      WorkflowSuspendedException suspended = findSuspension(t);
+      if (suspended != null) {
+        suspend(admission, suspended);
+      } else {
+        if (ctx != null) {
+          stepStore.metrics().recordWorkflowFinished(ctx.summarize(WorkflowStatus.FAILED));
+        }
+        handle.future().completeExceptionally(t);
+      }
+    } finally {
+      if (ctx != null) {
+        ctx.finishTimeline(startedAt);
+        ctx.unbindTimeline(previous);
+      }
+      synchronized (admissionLock) {
+        running--;
+        dispatch();
+        admissionLock.notifyAll();
+      }
+    }
+  }
+
+  private void suspend(Admission admission, WorkflowSuspendedException suspension) {
+    CompletableFuture<Void> wake = suspension.wake();
+    if (wake == null) {
+      suspend(admission, suspension.resumeAtEpochMs());
+      return;
+    }
+    synchronized (admissionLock) {
+      if (!closed) {
+        suspended.put(admission.handle.workflowId(), () -> wake.cancel(false));
+        wake.whenComplete((ignored, error) -> resume(admission));
+        return;
+      }
+    }
+    wake.cancel(false);
+    admission.handle.future().cancel(false);
+  }
+
+  private void suspend(Admission admission, long resumeAtEpochMs) {
+    synchronized (admissionLock) {
+      if (!closed) {
+        HashedTimerWheel.Timeout timeout = timers.schedule(resumeAtEpochMs, () -> resume(admission));
+        suspended.put(admission.handle.workflowId(), timeout::cancel);
+        return;
+      }
+    }
+    admission.handle.future().cancel(false);
+  }
+
+  private void resume(Admission admission) {
+    synchronized (admissionLock) {
+      suspended.remove(admission.handle.workflowId());
+      if (closed || admission.handle.isDone()) {
+        admissionLock.notifyAll();
+        return;
+      }
+      admissionQueue.add(new Admission(admission.handle, admission.workflow, submissions.getAndIncrement()));
+      dispatch();
+    }
+  }
+
+  private static WorkflowSuspendedException findSuspension(Throwable t) {
+    for (Throwable cur = t; cur != null; cur = cur.getCause()) {
+      if (cur instanceof WorkflowSuspendedException) {
+        return (WorkflowSuspendedException) cur;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void close() {
+    List<ScheduledExecutorService> stopped = new ArrayList<>();
+    synchronized (admissionLock) {
+      closed = true;
+      if (worker != null) {
+        stopped.add(worker);
+      }
+      if (recovery != null) {
+        stopped.add(recovery);
+      }
+    }
+    for (ScheduledExecutorService executor : stopped) {
+      executor.shutdown();
+      try {
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    List<WorkflowHandle> abandoned = new ArrayList<>();
+    synchronized (admissionLock) {
+      Admission queued;
+      while ((queued = admissionQueue.poll()) != null) {
+        abandoned.add(queued.handle);
+      }
+      List<Runnable> cancels = new ArrayList<>(suspended.values());
+      for (String workflowId : suspended.keySet()) {
+        WorkflowHandle handle = active.get(workflowId);
+        if (handle != null) {
+          abandoned.add(handle);
+        }
+      }
+      suspended.clear();
+      cancels.forEach(Runnable::run);
+    }
+    for (WorkflowHandle handle : abandoned) {
+      handle.future().cancel(false);
+    }
+
+    synchronized (admissionLock) {
+      while (running > 0) {
+        try {
+          admissionLock.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+    timers.close();
+    stepStore.metrics().unregisterMBean(mbeanName());
+    if (ownsStore) {
+      stepStore.close();
+    }
+  }
+
+  private String mbeanName() {
+    return "engine-" + workerId;
+  }
+}
@@ -0,0 +1,6 @@
+package com.zeotap.durable.engine;
+
+@FunctionalInterface
+public interface WorkflowFactory {
+  Workflow create(String workflowId, String input) throws Exception;
+}
@@ -0,0 +1,83 @@
+package com.zeotap.durable.engine;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public final class WorkflowHandle {
+  private final String workflowId;
+  private final WorkflowPriority priority;
+  private final CompletableFuture<Void> future = new CompletableFuture<>();
+  private volatile Thread thread;
+  private volatile String runId;
+
+  WorkflowHandle(String workflowId, WorkflowPriority priority) {
+    this.workflowId = workflowId;
+    this.priority = priority;
+  }
+
+  public String workflowId() {
+    return workflowId;
+  }
+
+  public WorkflowPriority priority() {
+    return priority;
+  }
+
+  public String runId() {
+    return runId;
+  }
+
+  public CompletableFuture<Void> future() {
+    return future;
+  }
+
+  public boolean isDone() {
+    return future.isDone();
+  }
+
+  public void await() throws Exception {
+    try {
+      future.get();
+    } catch (ExecutionException e) {
+      throw unwrap(e.getCause());
+    }
+  }
+
+  public void await(long timeout, TimeUnit unit) throws Exception {
+    try {
+      future.get(timeout, unit);
+    } catch (ExecutionException e) {
+      throw unwrap(e.getCause());
+    }
+  }
+
+  public boolean cancel() {
+    boolean cancelled = future.cancel(false);
+    Thread t = thread;
+    if (cancelled && t != null) {
+      t.interrupt();
+    }
+    return cancelled;
+  }
+
+  void started(Thread thread, String runId) {
+    this.thread = thread;
+    this.runId = runId;
+  }
+
+  private static Exception unwrap(Throwable cause) {
+    if (cause instanceof CompletionException && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    if (cause instanceof Exception) {
+      return (Exception) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new CancellationException(String.valueOf(cause));
+  }
+}
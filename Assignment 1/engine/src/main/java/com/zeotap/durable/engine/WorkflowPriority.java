@@ -0,0 +1,7 @@
+package com.zeotap.durable.engine;
+
+public enum WorkflowPriority {
+  HIGH,
+  NORMAL,
+  LOW
+}
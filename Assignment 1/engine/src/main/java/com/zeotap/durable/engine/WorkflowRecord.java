@@ -0,0 +1,31 @@
+package com.zeotap.durable.engine;
+
+public final class WorkflowRecord {
+  final String workflowId;
+  final String workflowType;
+  final String input;
+  final WorkflowPriority priority;
+
+  public WorkflowRecord(String workflowId, String workflowType, String input, WorkflowPriority priority) {
+    this.workflowId = workflowId;
+    this.workflowType = workflowType;
+    this.input = input;
+    this.priority = priority;
+  }
+
+  public String workflowId() {
+    return workflowId;
+  }
+
+  public String workflowType() {
+    return workflowType;
+  }
+
+  public String input() {
+    return input;
+  }
+
+  public WorkflowPriority priority() {
+    return priority;
+  }
+}
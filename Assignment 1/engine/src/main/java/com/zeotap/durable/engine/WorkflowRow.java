@@ -0,0 +1,42 @@
+package com.zeotap.durable.engine;
+
+final class WorkflowRow {
+  final String workflowId;
+  final String workflowType;
+  final String input;
+  WorkflowStatus status;
+  String ownerRunId;
+  long leaseExpiresAtEpochMs;
+  WorkflowPriority priority;
+  String error;
+  final long createdAtEpochMs;
+  long updatedAtEpochMs;
+
+  WorkflowRow(
+      String workflowId,
+      String workflowType,
+      String input,
+      WorkflowStatus status,
+      String ownerRunId,
+      long leaseExpiresAtEpochMs,
+      WorkflowPriority priority,
+      String error,
+      long createdAtEpochMs,
+      long updatedAtEpochMs) {
+    this.workflowId = workflowId;
+    this.workflowType = workflowType;
+    this.input = input;
+    this.status = status;
+    this.ownerRunId = ownerRunId;
+    this.leaseExpiresAtEpochMs = leaseExpiresAtEpochMs;
+    this.priority = priority;
+    this.error = error;
+    this.createdAtEpochMs = createdAtEpochMs;
+    this.updatedAtEpochMs = updatedAtEpochMs;
+  }
+
+  boolean claimable(long now) {
+    return status == WorkflowStatus.PENDING
+        || (status == WorkflowStatus.RUNNING && leaseExpiresAtEpochMs < now);
+  }
+}
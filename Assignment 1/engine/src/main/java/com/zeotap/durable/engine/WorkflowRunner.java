@@ -1,26 +1,100 @@
 package com.zeotap.durable.engine;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public final class WorkflowRunner implements AutoCloseable {
+  public static final int DEFAULT_REPLAY_CACHE_MAX_ENTRIES = 100_000;
 
-public final class WorkflowRunner {
   private final String sqliteFilePath;
+  private final StepStore stepStore;
   private final Duration zombieTimeout;
+  private final int replayCacheMaxEntries;
+  private final StoreOptions storeOptions;
+  private final List<MetricsListener> listeners = new CopyOnWriteArrayList<>();
+  private final ConcurrentHashMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+  private HashedTimerWheel timers;
+  private boolean closed;
 
   public WorkflowRunner(String sqliteFilePath, Duration zombieTimeout) {
+    this(sqliteFilePath, zombieTimeout, DEFAULT_REPLAY_CACHE_MAX_ENTRIES);
+  }
+
+  public WorkflowRunner(String sqliteFilePath, Duration zombieTimeout, int replayCacheMaxEntries) {
+    this(sqliteFilePath, zombieTimeout, replayCacheMaxEntries, StoreOptions.defaults());
+  }
+
+  public WorkflowRunner(
+      String sqliteFilePath,
+      Duration zombieTimeout,
+      int replayCacheMaxEntries,
+      StoreOptions storeOptions) {
+    if (replayCacheMaxEntries < 0) {
+      throw new IllegalArgumentException("replayCacheMaxEntries must be >= 0");
+    }
     this.sqliteFilePath = Objects.requireNonNull(sqliteFilePath, "sqliteFilePath");
+    this.stepStore = null;
     this.zombieTimeout = Objects.requireNonNull(zombieTimeout, "zombieTimeout");
+    this.replayCacheMaxEntries = replayCacheMaxEntries;
+    this.storeOptions = Objects.requireNonNull(storeOptions, "storeOptions");
+  }
+
+  public WorkflowRunner(StepStore stepStore) {
+    this(stepStore, DEFAULT_REPLAY_CACHE_MAX_ENTRIES, StoreOptions.defaults());
+  }
+
+  public WorkflowRunner(StepStore stepStore, int replayCacheMaxEntries, StoreOptions storeOptions) {
+    if (replayCacheMaxEntries < 0) {
+      throw new IllegalArgumentException("replayCacheMaxEntries must be >= 0");
+    }
+    this.sqliteFilePath = null;
+    this.stepStore = Objects.requireNonNull(stepStore, "stepStore");
+    this.zombieTimeout = stepStore.zombieTimeout();
+    this.replayCacheMaxEntries = replayCacheMaxEntries;
+    this.storeOptions = Objects.requireNonNull(storeOptions, "storeOptions");
+  }
+
+  public void addMetricsListener(MetricsListener listener) {
+    Objects.requireNonNull(listener, "listener");
+    if (stepStore != null) {
+      stepStore.metrics().addListener(listener);
+    } else {
+      listeners.add(listener);
+    }
+  }
+
+  public void registerBulkhead(String pool, BulkheadConfig config) {
+    Objects.requireNonNull(pool, "pool");
+    Objects.requireNonNull(config, "config");
+    Bulkhead bulkhead = new Bulkhead(pool, config);
+    bulkheads.put(pool, bulkhead);
+    if (stepStore != null) {
+      stepStore.metrics().trackBulkhead(bulkhead);
+    }
+  }
+
+  public int signal(String workflowId, String name, Object payload) {
+    OutputSerializer serializer = new OutputSerializer(storeOptions.codec());
+    if (stepStore != null) {
+      return DurableContext.sendSignal(stepStore, serializer, workflowId, name, payload);
+    }
+    try (SQLiteStepStore store = new SQLiteStepStore(sqliteFilePath, zombieTimeout, storeOptions)) {
+      return DurableContext.sendSignal(store, serializer, workflowId, name, payload);
+    }
   }
 
   public void run(String workflowId, Workflow workflow) throws Exception {
     Objects.requireNonNull(workflowId, "workflowId");
     Objects.requireNonNull(workflow, "workflow");
 
-    DurableContext ctx = DurableContext.createRoot(workflowId, sqliteFilePath, zombieTimeout);
+    DurableContext ctx = open(workflowId, zombieTimeout);
     try {
-      workflow.run(ctx);
+      execute(ctx, workflow);
     } finally {
-      ctx.close();
+      close(ctx);
     }
   }
 
@@ -30,14 +104,85 @@ public final class WorkflowRunner {
     Objects.requireNonNull(workflow, "workflow");
     Objects.requireNonNull(zombieTimeout, "zombieTimeout");
 
-    DurableContext ctx = DurableContext.createRoot(workflowId, sqliteFilePath, zombieTimeout);
+    DurableContext ctx = open(workflowId, zombieTimeout);
     try {
       if (reset) {
         ctx.resetWorkflowState();
       }
-      workflow.run(ctx);
+      execute(ctx, workflow);
     } finally {
+      close(ctx);
+    }
+  }
+
+  private static void execute(DurableContext ctx, Workflow workflow) throws Exception {
+    StepStore store = ctx.stepStore();
+    RunTimeline previous = ctx.bindTimeline();
+    long startedAt = System.nanoTime();
+    try {
+      boolean started =
+          store.startWorkflow(
+              ctx.workflowId(),
+              ctx.runId(),
+              WorkflowPriority.NORMAL,
+              System.currentTimeMillis() + store.zombieTimeout().toMillis());
+      if (!started) {
+        throw new IllegalStateException("Workflow is leased by another run: " + ctx.workflowId());
+      }
+      try {
+        workflow.run(ctx);
+      } catch (Exception | Error e) {
+        store.finishWorkflow(ctx.workflowId(), ctx.runId(), WorkflowStatus.FAILED, e.toString());
+        store.metrics().recordWorkflowFinished(ctx.summarize(WorkflowStatus.FAILED));
+        throw e;
+      }
+      store.finishWorkflow(ctx.workflowId(), ctx.runId(), WorkflowStatus.COMPLETED, null);
+      store.metrics().recordWorkflowFinished(ctx.summarize(WorkflowStatus.COMPLETED));
+    } finally {
+      ctx.finishTimeline(startedAt);
+      ctx.unbindTimeline(previous);
+    }
+  }
+
+  private DurableContext open(String workflowId, Duration zombieTimeout) {
+    if (stepStore != null) {
+      return DurableContext.createRoot(
+          workflowId, stepStore, timers(), replayCacheMaxEntries, storeOptions, bulkheads);
+    }
+    DurableContext ctx =
+        DurableContext.createRoot(
+            workflowId, sqliteFilePath, zombieTimeout, timers(), replayCacheMaxEntries, storeOptions, bulkheads);
+    for (MetricsListener listener : listeners) {
+      ctx.stepStore().metrics().addListener(listener);
+    }
+    for (Bulkhead bulkhead : bulkheads.values()) {
+      ctx.stepStore().metrics().trackBulkhead(bulkhead);
+    }
+    return ctx;
+  }
+
+  private synchronized HashedTimerWheel timers() {
+    if (closed) {
+      throw new IllegalStateException("WorkflowRunner is closed");
+    }
+    if (timers == null) {
+      timers = new HashedTimerWheel(Duration.ofMillis(10), 512, "workflow-runner-timers");
+    }
+    return timers;
+  }
+
+  private void close(DurableContext ctx) {
+    if (stepStore == null) {
       ctx.close();
     }
   }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (timers != null) {
+      timers.close();
+      timers = null;
+    }
+  }
 }
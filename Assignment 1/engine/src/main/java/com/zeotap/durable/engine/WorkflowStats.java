@@ -0,0 +1,36 @@
+package com.zeotap.durable.engine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+final class WorkflowStats {
+  private final long startedAtNanos = System.nanoTime();
+  private final LongAdder stepsExecuted = new LongAdder();
+  private final LongAdder stepsReplayed = new LongAdder();
+  private final LongAdder activityNanos = new LongAdder();
+  private final LongAdder persistenceNanos = new LongAdder();
+  private final LongAdder serializedBytes = new LongAdder();
+
+  void stepExecuted(long activity, long persistence, int bytes) {
+    stepsExecuted.increment();
+    activityNanos.add(activity);
+    persistenceNanos.add(persistence);
+    serializedBytes.add(bytes);
+  }
+
+  void stepReplayed() {
+    stepsReplayed.increment();
+  }
+
+  WorkflowSummary summarize(String workflowId, String runId, WorkflowStatus status) {
+    return new WorkflowSummary(
+        workflowId,
+        runId,
+        status,
+        System.nanoTime() - startedAtNanos,
+        stepsExecuted.sum(),
+        stepsReplayed.sum(),
+        activityNanos.sum(),
+        persistenceNanos.sum(),
+        serializedBytes.sum());
+  }
+}
@@ -0,0 +1,10 @@
+package com.zeotap.durable.engine;
+
+public enum WorkflowStatus {
+  PENDING,
+  RUNNING,
+  COMPLETED,
+  FAILED,
+  CANCELLED,
+  ARCHIVED
+}
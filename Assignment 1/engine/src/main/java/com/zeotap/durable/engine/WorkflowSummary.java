@@ -0,0 +1,84 @@
+package com.zeotap.durable.engine;
+
+public final class WorkflowSummary {
+  private final String workflowId;
+  private final String runId;
+  private final WorkflowStatus status;
+  private final long wallNanos;
+  private final long stepsExecuted;
+  private final long stepsReplayed;
+  private final long activityNanos;
+  private final long persistenceNanos;
+  private final long serializedBytes;
+
+  WorkflowSummary(
+      String workflowId,
+      String runId,
+      WorkflowStatus status,
+      long wallNanos,
+      long stepsExecuted,
+      long stepsReplayed,
+      long activityNanos,
+      long persistenceNanos,
+      long serializedBytes) {
+    this.workflowId = workflowId;
+    this.runId = runId;
+    this.status = status;
+    this.wallNanos = wallNanos;
+    this.stepsExecuted = stepsExecuted;
+    this.stepsReplayed = stepsReplayed;
+    this.activityNanos = activityNanos;
+    this.persistenceNanos = persistenceNanos;
+    this.serializedBytes = serializedBytes;
+  }
+
+  public String workflowId() {
+    return workflowId;
+  }
+
+  public String runId() {
+    return runId;
+  }
+
+  public WorkflowStatus status() {
+    return status;
+  }
+
+  public long wallNanos() {
+    return wallNanos;
+  }
+
+  public long stepsExecuted() {
+    return stepsExecuted;
+  }
+
+  public long stepsReplayed() {
+    return stepsReplayed;
+  }
+
+  public long activityNanos() {
+    return activityNanos;
+  }
+
+  public long persistenceNanos() {
+    return persistenceNanos;
+  }
+
+  public long serializedBytes() {
+    return serializedBytes;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "workflowId=%s status=%s wallMs=%.2f steps: executed=%d replayed=%d activityMs=%.2f persistenceMs=%.2f bytes=%d",
+        workflowId,
+        status,
+        wallNanos / 1_000_000.0,
+        stepsExecuted,
+        stepsReplayed,
+        activityNanos / 1_000_000.0,
+        persistenceNanos / 1_000_000.0,
+        serializedBytes);
+  }
+}
@@ -0,0 +1,38 @@
+package com.zeotap.durable.engine;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+public final class WorkflowSuspendedException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  private final String workflowId;
+  private final long resumeAtEpochMs;
+  private final transient CompletableFuture<Void> wake;
+
+  WorkflowSuspendedException(String workflowId, long resumeAtEpochMs) {
+    super("Workflow " + workflowId + " suspended until " + Instant.ofEpochMilli(resumeAtEpochMs), null, false, false);
+    this.workflowId = workflowId;
+    this.resumeAtEpochMs = resumeAtEpochMs;
+    this.wake = null;
+  }
+
+  WorkflowSuspendedException(String workflowId, String signalName, CompletableFuture<Void> wake) {
+    super("Workflow " + workflowId + " suspended until signal " + signalName, null, false, false);
+    this.workflowId = workflowId;
+    this.resumeAtEpochMs = Long.MAX_VALUE;
+    this.wake = wake;
+  }
+
+  public String workflowId() {
+    return workflowId;
+  }
+
+  public long resumeAtEpochMs() {
+    return resumeAtEpochMs;
+  }
+
+  CompletableFuture<Void> wake() {
+    return wake;
+  }
+}
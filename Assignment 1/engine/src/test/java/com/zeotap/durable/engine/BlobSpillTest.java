@@ -0,0 +1,164 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BlobSpillTest {
+  private static final byte[] PAYLOAD = payload();
+
+  @TempDir Path tmp;
+
+  @Test
+  void lostLeaseLeavesNoBlobFile() throws Exception {
+    try (SQLiteStepStore store = open(Duration.ZERO)) {
+      assertEquals(1, store.tryStartStep("wf", StepKey.of("s", 0), "run-a"));
+      assertThrows(RuntimeException.class, () -> store.completeStep("wf", StepKey.of("s", 0), "run-b", 0, PAYLOAD));
+      assertEquals(0, blobFiles());
+
+      store.completeStep("wf", StepKey.of("s", 0), "run-a", 0, PAYLOAD);
+      assertEquals(1, blobFiles());
+      assertArrayEquals(PAYLOAD, readOutput(store, "wf", StepKey.of("s", 0)));
+    }
+  }
+
+  @Test
+  void lostLeaseUnderGroupCommitLeavesNoBlobFile() throws Exception {
+    BlobSpillConfig spill = BlobSpillConfig.of(tmp.resolve("blobs"), 1_024, true);
+    StoreOptions options =
+        StoreOptions.defaults().withBlobSpill(spill).withGroupCommit(GroupCommitConfig.of(8, Duration.ofMillis(1)));
+    try (SQLiteStepStore store = new SQLiteStepStore(tmp.resolve("group.sqlite").toString(), Duration.ZERO, options)) {
+      assertEquals(1, store.tryStartStep("wf", StepKey.of("s", 0), "run-a"));
+      assertThrows(RuntimeException.class, () -> store.completeStep("wf", StepKey.of("s", 0), "run-b", 0, PAYLOAD));
+      assertEquals(0, blobFiles());
+
+      store.completeStep("wf", StepKey.of("s", 0), "run-a", 0, PAYLOAD);
+      assertArrayEquals(PAYLOAD, readOutput(store, "wf", StepKey.of("s", 0)));
+    }
+  }
+
+  @Test
+  void batchRowThatAlreadyExistsLeavesNoBlobFile() throws Exception {
+    try (SQLiteStepStore store = open(Duration.ZERO)) {
+      assertEquals(1, store.tryStartStep("wf", StepKey.of("map/$item", 0), "run-a"));
+      store.completeStep("wf", StepKey.of("map/$item", 0), "run-a", 0, new byte[] {1});
+
+      StepRecord duplicate = new StepRecord(StepStatus.COMPLETED, null, null, 0, PAYLOAD, null, 0, "run-b", 1, 0);
+      assertEquals(0, store.completeSteps("wf", Map.of("map/$item#0", duplicate)));
+      assertEquals(0, blobFiles());
+
+      StepRecord fresh = new StepRecord(StepStatus.COMPLETED, null, null, 0, PAYLOAD, null, 0, "run-b", 1, 0);
+      assertEquals(1, store.completeSteps("wf", Map.of("map/$item#1", fresh)));
+      assertEquals(1, blobFiles());
+      assertArrayEquals(PAYLOAD, readOutput(store, "wf", StepKey.of("map/$item", 1)));
+    }
+  }
+
+  @Test
+  void releasedBlobSurvivesGracePeriod() throws Exception {
+    try (SQLiteStepStore store = open(Duration.ofMinutes(1))) {
+      complete(store, "wf", StepKey.of("s", 0));
+      store.deleteWorkflow("wf");
+      assertEquals(0, store.collectBlobs(100));
+      assertEquals(1, blobFiles());
+    }
+  }
+
+  @Test
+  void releasedBlobIsCollectedAfterGracePeriod() throws Exception {
+    try (SQLiteStepStore store = open(Duration.ZERO)) {
+      complete(store, "wf", StepKey.of("s", 0));
+      store.deleteWorkflow("wf");
+      Thread.sleep(5);
+      assertEquals(1, store.collectBlobs(100));
+      assertEquals(0, blobFiles());
+    }
+  }
+
+  @Test
+  void sharedBlobIsKeptWhileReferenced() throws Exception {
+    try (SQLiteStepStore store = open(Duration.ZERO)) {
+      complete(store, "wf-1", StepKey.of("s", 0));
+      complete(store, "wf-2", StepKey.of("s", 0));
+      store.deleteWorkflow("wf-1");
+      Thread.sleep(5);
+      assertEquals(0, store.collectBlobs(100));
+      assertArrayEquals(PAYLOAD, readOutput(store, "wf-2", StepKey.of("s", 0)));
+    }
+  }
+
+  @Test
+  void otherProcessRetainingAfterCollectionRewritesTheFile() throws Exception {
+    try (SQLiteStepStore a = open(Duration.ZERO);
+        SQLiteStepStore b = open(Duration.ZERO)) {
+      complete(a, "wf-1", StepKey.of("s", 0));
+      a.deleteWorkflow("wf-1");
+      Thread.sleep(5);
+      assertEquals(1, a.collectBlobs(100));
+
+      complete(b, "wf-2", StepKey.of("s", 0));
+      assertEquals(0, a.collectBlobs(100));
+      assertArrayEquals(PAYLOAD, readOutput(a, "wf-2", StepKey.of("s", 0)));
+    }
+  }
+
+  @Test
+  void otherProcessRetainingBeforeCollectionKeepsTheFile() throws Exception {
+    try (SQLiteStepStore a = open(Duration.ZERO);
+        SQLiteStepStore b = open(Duration.ZERO)) {
+      complete(a, "wf-1", StepKey.of("s", 0));
+      a.deleteWorkflow("wf-1");
+      complete(b, "wf-2", StepKey.of("s", 0));
+      Thread.sleep(5);
+      assertEquals(0, a.collectBlobs(100));
+      assertArrayEquals(PAYLOAD, readOutput(b, "wf-2", StepKey.of("s", 0)));
+    }
+  }
+
+  @Test
+  void rejectsNegativeGrace() {
+    BlobSpillConfig config = BlobSpillConfig.of(tmp);
+    assertThrows(IllegalArgumentException.class, () -> config.withGcGrace(Duration.ofMillis(-1)));
+  }
+
+  private SQLiteStepStore open(Duration grace) {
+    BlobSpillConfig spill = BlobSpillConfig.of(tmp.resolve("blobs"), 1_024, true).withGcGrace(grace);
+    return new SQLiteStepStore(
+        tmp.resolve("blobs.sqlite").toString(), Duration.ZERO, StoreOptions.defaults().withBlobSpill(spill));
+  }
+
+  private static void complete(StepStore store, String workflowId, StepKey stepKey) {
+    assertEquals(1, store.tryStartStep(workflowId, stepKey, "run-" + workflowId));
+    store.completeStep(workflowId, stepKey, "run-" + workflowId, 0, PAYLOAD);
+  }
+
+  private static byte[] readOutput(StepStore store, String workflowId, StepKey stepKey) throws Exception {
+    StepRecord rec = store.readStep(workflowId, stepKey).orElseThrow();
+    String hash = OutputSerializer.blobHash(rec.outputBlob);
+    assertNotNull(hash);
+    try (InputStream in = store.openBlob(hash)) {
+      return in.readAllBytes();
+    }
+  }
+
+  private long blobFiles() throws Exception {
+    Path dir = tmp.resolve("blobs");
+    try (Stream<Path> files = Files.walk(dir)) {
+      return files.filter(Files::isRegularFile).count();
+    }
+  }
+
+  private static byte[] payload() {
+    byte[] bytes = new byte[8 * 1_024];
+    Arrays.fill(bytes, (byte) 7);
+    return bytes;
+  }
+}
@@ -0,0 +1,114 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class BulkheadTest {
+  @Test
+  void limitsConcurrency() throws Exception {
+    Bulkhead bulkhead = new Bulkhead("pool", BulkheadConfig.of(2));
+    bulkhead.acquire();
+    bulkhead.acquire();
+    assertEquals(2, bulkhead.active());
+
+    CompletableFuture<Void> third = CompletableFuture.runAsync(() -> acquireQuietly(bulkhead));
+    Thread.sleep(50);
+    assertFalse(third.isDone());
+    assertEquals(1, bulkhead.queueDepth());
+
+    bulkhead.release();
+    third.get(5, TimeUnit.SECONDS);
+    assertEquals(2, bulkhead.active());
+    assertEquals(0, bulkhead.queueDepth());
+  }
+
+  @Test
+  void pacesStarts() throws Exception {
+    Bulkhead bulkhead = new Bulkhead("pool", BulkheadConfig.of(10, 20));
+    long startedAt = System.nanoTime();
+    for (int i = 0; i < 4; i++) {
+      bulkhead.acquire();
+      bulkhead.release();
+    }
+    assertTrue(System.nanoTime() - startedAt >= TimeUnit.MILLISECONDS.toNanos(140));
+  }
+
+  @Test
+  void pacingDoesNotHoldAPermit() throws Exception {
+    Bulkhead bulkhead = new Bulkhead("pool", BulkheadConfig.of(1, 2));
+    bulkhead.acquire();
+    bulkhead.release();
+
+    CompletableFuture<Void> paced = CompletableFuture.runAsync(() -> acquireQuietly(bulkhead));
+    Thread.sleep(100);
+    assertFalse(paced.isDone());
+    assertEquals(0, bulkhead.active());
+    assertEquals(1, bulkhead.queueDepth());
+
+    paced.get(5, TimeUnit.SECONDS);
+    assertEquals(1, bulkhead.active());
+  }
+
+  @Test
+  void interruptWhileWaitingForAPermitReleasesTheStep() throws Exception {
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    StepOptions pooled = StepOptions.defaults().withPool("one");
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      runner.registerBulkhead("one", BulkheadConfig.of(1));
+      CompletableFuture<Void> holder =
+          CompletableFuture.runAsync(
+              () -> run(runner, "holder", ctx -> ctx.step("a", pooled, () -> hold(entered, release))));
+      assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+      Thread waiter = new Thread(() -> run(runner, "waiter", ctx -> ctx.step("b", pooled, () -> "b")));
+      waiter.start();
+      Thread.sleep(100);
+      waiter.interrupt();
+      waiter.join(5_000);
+      assertFalse(waiter.isAlive());
+      assertTrue(store.readStep("waiter", StepKey.of("b", 0)).isEmpty());
+
+      release.countDown();
+      holder.get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  void validatesConfig() {
+    assertThrows(IllegalArgumentException.class, () -> BulkheadConfig.of(0));
+    assertThrows(IllegalArgumentException.class, () -> BulkheadConfig.of(1, -1));
+    assertThrows(IllegalArgumentException.class, () -> BulkheadConfig.of(1, Double.NaN));
+    assertFalse(BulkheadConfig.of(1).rateLimited());
+  }
+
+  private static String hold(CountDownLatch entered, CountDownLatch release) throws InterruptedException {
+    entered.countDown();
+    assertTrue(release.await(5, TimeUnit.SECONDS));
+    return "a";
+  }
+
+  private static void run(WorkflowRunner runner, String workflowId, Workflow workflow) {
+    try {
+      runner.run(workflowId, workflow);
+    } catch (Exception e) {
+      if (!(e instanceof InterruptedException)) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  private static void acquireQuietly(Bulkhead bulkhead) {
+    try {
+      bulkhead.acquire();
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class CachedStepTest {
+  private final CountDownLatch entered = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final AtomicInteger calls = new AtomicInteger();
+
+  @Test
+  void concurrentCallsOnOneStoreShareOneExecution() throws Exception {
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      CompletableFuture<Void> leader = runAsync(runner, "wf-1", String.class, this::blockingLookup);
+      assertTrue(entered.await(5, TimeUnit.SECONDS));
+      CompletableFuture<Void> follower = runAsync(runner, "wf-2", String.class, this::blockingLookup);
+      Thread.sleep(100);
+      assertFalse(follower.isDone());
+
+      release.countDown();
+      leader.get(5, TimeUnit.SECONDS);
+      follower.get(5, TimeUnit.SECONDS);
+      assertEquals(0, store.cachedCalls().inFlight());
+    }
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void differentOutputClassesDoNotShareAFlight() throws Exception {
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      CompletableFuture<Void> leader = runAsync(runner, "wf-1", String.class, this::blockingLookup);
+      assertTrue(entered.await(5, TimeUnit.SECONDS));
+      runAsync(runner, "wf-2", Integer.class, () -> calls.incrementAndGet()).get(5, TimeUnit.SECONDS);
+      release.countDown();
+      leader.get(5, TimeUnit.SECONDS);
+    }
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  void storesDoNotShareFlights() throws Exception {
+    try (InMemoryStepStore a = new InMemoryStepStore(Duration.ZERO);
+        InMemoryStepStore b = new InMemoryStepStore(Duration.ZERO);
+        WorkflowRunner runnerA = new WorkflowRunner(a);
+        WorkflowRunner runnerB = new WorkflowRunner(b)) {
+      CompletableFuture<Void> leader = runAsync(runnerA, "wf", String.class, this::blockingLookup);
+      assertTrue(entered.await(5, TimeUnit.SECONDS));
+      runAsync(runnerB, "wf", String.class, () -> "b-" + calls.incrementAndGet()).get(5, TimeUnit.SECONDS);
+      release.countDown();
+      leader.get(5, TimeUnit.SECONDS);
+    }
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  void cacheAndCheckpointSavesAreTimedAsSave() throws Exception {
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      runner.run(
+          "wf",
+          ctx -> {
+            ctx.restore(String.class);
+            ctx.cachedStep("lookup", "key", String.class, () -> "value");
+            ctx.checkpoint("state");
+          });
+      EngineMetrics metrics = store.metrics();
+      assertEquals(2, metrics.storeOperation(StoreOperation.SAVE).count());
+      assertEquals(1, metrics.storeOperation(StoreOperation.COMPLETE).count());
+    }
+  }
+
+  private String blockingLookup() throws Exception {
+    calls.incrementAndGet();
+    entered.countDown();
+    assertTrue(release.await(5, TimeUnit.SECONDS));
+    return "value";
+  }
+
+  private static <T> CompletableFuture<Void> runAsync(
+      WorkflowRunner runner, String workflowId, Class<T> clazz, StepCallable<T> fn) {
+    return CompletableFuture.runAsync(
+        () -> {
+          try {
+            runner.run(workflowId, ctx -> ctx.cachedStep("lookup", "key", clazz, fn));
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+        });
+  }
+}
@@ -0,0 +1,124 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CheckpointTest {
+  @TempDir Path tmp;
+
+  @Test
+  void restoresCountersAndPrunesCoveredSteps() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    try (SQLiteStepStore store = new SQLiteStepStore(tmp.resolve("cp.sqlite").toString(), Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      Workflow workflow =
+          ctx -> {
+            Optional<Integer> restored = ctx.restore(Integer.class);
+            int next = restored.orElse(0);
+            for (int i = next; i < 4; i++) {
+              ctx.step("s", () -> calls.incrementAndGet());
+              if (i == 1) {
+                ctx.checkpoint(i + 1);
+              }
+            }
+          };
+      runner.run("wf", workflow);
+      assertEquals(4, calls.get());
+      assertTrue(store.readStep("wf", StepKey.of("s", 0)).isEmpty());
+      assertTrue(store.readStep("wf", StepKey.of("s", 1)).isEmpty());
+      assertTrue(store.readStep("wf", StepKey.of("s", 2)).isPresent());
+
+      runner.run("wf", workflow);
+      assertEquals(4, calls.get());
+    }
+  }
+
+  @Test
+  void prunesMapItems() throws Exception {
+    AtomicReference<List<Integer>> out = new AtomicReference<>();
+    try (SQLiteStepStore store = new SQLiteStepStore(tmp.resolve("map.sqlite").toString(), Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      runner.run(
+          "wf",
+          ctx -> {
+            ctx.restore(Integer.class);
+            out.set(ctx.map("m", List.of(1, 2, 3), 2, Integer.class, i -> i * 2));
+            ctx.checkpoint(1);
+          });
+      assertEquals(List.of(2, 4, 6), out.get());
+      for (int i = 0; i < 3; i++) {
+        assertTrue(store.readStep("wf", StepKey.of("m#0/$item", i)).isEmpty(), "item " + i);
+      }
+      CheckpointRecord checkpoint = store.readCheckpoint("wf").orElseThrow();
+      assertEquals(3, checkpoint.counters().get("m#0/$item"));
+    }
+  }
+
+  @Test
+  void rejectsCheckpointInsideStep() throws Exception {
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      IllegalStateException e =
+          assertThrows(
+              IllegalStateException.class,
+              () ->
+                  runner.run(
+                      "wf",
+                      ctx -> {
+                        ctx.restore(Integer.class);
+                        ctx.step(
+                            "s",
+                            () -> {
+                              ctx.checkpoint(1);
+                              return 1;
+                            });
+                      }));
+      assertTrue(e.getMessage().contains("while steps are running"), e.getMessage());
+    }
+  }
+
+  @Test
+  void rejectsCheckpointWhileBranchIsRunning() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicReference<Throwable> duringBranch = new AtomicReference<>();
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      runner.run(
+          "wf",
+          ctx -> {
+            ctx.restore(Integer.class);
+            try (ParallelScope scope = ctx.parallel("p")) {
+              CompletableFuture<Integer> branch =
+                  scope.stepAsync(
+                      "b",
+                      () -> {
+                        release.await();
+                        return 1;
+                      });
+              try {
+                ctx.checkpoint(1);
+              } catch (IllegalStateException e) {
+                duringBranch.set(e);
+              }
+              release.countDown();
+              scope.join();
+              assertEquals(1, branch.get());
+            }
+            ctx.checkpoint(2);
+          });
+      assertNotNull(duringBranch.get());
+      assertTrue(store.readCheckpoint("wf").isPresent());
+      assertTrue(store.readStep("wf", StepKey.of("p/b", 0)).isEmpty());
+    }
+  }
+}
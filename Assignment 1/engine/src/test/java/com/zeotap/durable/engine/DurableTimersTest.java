@@ -0,0 +1,56 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class DurableTimersTest {
+  @Test
+  void resumeTimersSkipsWorkflowsTheFactoryDoesNotKnow() throws Exception {
+    AtomicInteger resumed = new AtomicInteger();
+    try (InMemoryStepStore store = new InMemoryStepStore()) {
+      long wakeAt = System.currentTimeMillis() + 100;
+      store.scheduleTimer("known", "$sleep#0", wakeAt);
+      store.scheduleTimer("unknown", "$sleep#0", wakeAt);
+
+      try (WorkflowEngine engine = new WorkflowEngine(store, EngineOptions.defaults())) {
+        int scheduled =
+            engine.resumeTimers(
+                workflowId ->
+                    "known".equals(workflowId)
+                        ? ctx -> {
+                          ctx.sleep(Duration.ofMillis(100));
+                          resumed.incrementAndGet();
+                        }
+                        : null);
+        assertEquals(1, scheduled);
+        assertEquals(1, engine.suspendedWorkflows());
+        assertTrue(engine.awaitIdle(5, TimeUnit.SECONDS));
+      }
+    }
+    assertEquals(1, resumed.get());
+  }
+
+  @Test
+  void runnerSharesOneTimerWheelAcrossRuns() throws Exception {
+    try (InMemoryStepStore store = new InMemoryStepStore()) {
+      WorkflowRunner runner = new WorkflowRunner(store);
+      for (int i = 0; i < 3; i++) {
+        runner.run("wf-" + i, ctx -> ctx.sleep(Duration.ofMillis(20)));
+        assertEquals(1, timerThreads());
+      }
+      runner.close();
+      assertEquals(0, timerThreads());
+      assertThrows(IllegalStateException.class, () -> runner.run("wf-late", ctx -> {}));
+    }
+  }
+
+  private static long timerThreads() {
+    return Thread.getAllStackTraces().keySet().stream()
+        .filter(t -> t.getName().equals("workflow-runner-timers") && t.isAlive())
+        .count();
+  }
+}
@@ -0,0 +1,145 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EngineMetricsTest {
+  @TempDir Path tmp;
+
+  @Test
+  void countsExecutedAndReplayedSteps() throws Exception {
+    List<WorkflowSummary> summaries = new CopyOnWriteArrayList<>();
+    AtomicInteger executed = new AtomicInteger();
+    AtomicInteger replayed = new AtomicInteger();
+    try (SQLiteStepStore store = new SQLiteStepStore(tmp.resolve("m.sqlite").toString(), Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      runner.addMetricsListener(
+          new MetricsListener() {
+            @Override
+            public void onStepExecuted(
+                String workflowId, String stepKey, long activityNanos, long persistenceNanos, int outputBytes) {
+              executed.incrementAndGet();
+            }
+
+            @Override
+            public void onStepReplayed(String workflowId, String stepKey) {
+              replayed.incrementAndGet();
+            }
+
+            @Override
+            public void onWorkflowFinished(WorkflowSummary summary) {
+              summaries.add(summary);
+            }
+          });
+      Workflow workflow =
+          ctx -> {
+            for (int i = 0; i < 3; i++) {
+              int value = i;
+              ctx.step("s", () -> value);
+            }
+          };
+      runner.run("wf", workflow);
+      runner.run("wf", workflow);
+
+      EngineMetrics metrics = store.metrics();
+      assertEquals(3, metrics.getStepExecutions());
+      assertEquals(3, metrics.getReplayHits());
+      assertEquals(3, executed.get());
+      assertEquals(3, replayed.get());
+      assertTrue(metrics.getSerializedBytes() > 0);
+      assertTrue(metrics.storeOperation(StoreOperation.START).count() >= 3);
+      assertTrue(metrics.storeOperation(StoreOperation.COMPLETE).count() >= 3);
+      assertTrue(metrics.getLockAcquisitions() > 0);
+
+      assertEquals(2, summaries.size());
+      assertEquals(WorkflowStatus.COMPLETED, summaries.get(0).status());
+      assertEquals(3, summaries.get(0).stepsExecuted());
+      assertEquals(0, summaries.get(0).stepsReplayed());
+      assertEquals(0, summaries.get(1).stepsExecuted());
+      assertEquals(3, summaries.get(1).stepsReplayed());
+    }
+  }
+
+  @Test
+  void reportsFailedWorkflows() throws Exception {
+    List<WorkflowSummary> summaries = new CopyOnWriteArrayList<>();
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      runner.addMetricsListener(
+          new MetricsListener() {
+            @Override
+            public void onWorkflowFinished(WorkflowSummary summary) {
+              summaries.add(summary);
+            }
+          });
+      assertThrows(
+          IllegalStateException.class,
+          () ->
+              runner.run(
+                  "wf",
+                  ctx -> {
+                    throw new IllegalStateException("boom");
+                  }));
+    }
+    assertEquals(1, summaries.size());
+    assertEquals(WorkflowStatus.FAILED, summaries.get(0).status());
+  }
+
+  @Test
+  void listenersCanBeRemoved() {
+    EngineMetrics metrics = new EngineMetrics();
+    AtomicInteger calls = new AtomicInteger();
+    MetricsListener listener =
+        new MetricsListener() {
+          @Override
+          public void onStoreOperation(StoreOperation operation, long nanos) {
+            calls.incrementAndGet();
+          }
+        };
+    metrics.addListener(listener);
+    metrics.recordStoreOperation(StoreOperation.READ, 1_000);
+    metrics.removeListener(listener);
+    metrics.recordStoreOperation(StoreOperation.READ, 2_000);
+
+    assertEquals(1, calls.get());
+    assertEquals(2, metrics.storeOperation(StoreOperation.READ).count());
+    assertEquals(2L, metrics.getStoreOperationCounts().get("READ"));
+  }
+
+  @Test
+  void registersAsMBean() throws Exception {
+    EngineMetrics metrics = new EngineMetrics();
+    metrics.recordStepTimeout("wf", "s#0");
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = metrics.registerMBean("metrics-test");
+    try {
+      assertEquals(1L, server.getAttribute(name, "StepTimeouts"));
+    } finally {
+      metrics.unregisterMBean("metrics-test");
+    }
+    assertFalse(server.isRegistered(name));
+  }
+
+  @Test
+  void histogramTracksCountMeanAndPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i * 1_000L);
+    }
+    assertEquals(100, histogram.count());
+    assertEquals(100_000, histogram.maxNanos());
+    assertEquals(50_500.0, histogram.meanNanos(), 0.001);
+    assertTrue(histogram.percentileNanos(99) >= 99_000);
+    assertTrue(histogram.percentileNanos(50) <= histogram.percentileNanos(99));
+  }
+}
@@ -0,0 +1,94 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GroupCommitWriterTest {
+  @TempDir Path tmp;
+
+  @Test
+  void failedOpIsRolledBackWithoutFailingTheBatch() throws Exception {
+    try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + tmp.resolve("batch.sqlite"))) {
+      try (Statement st = connection.createStatement()) {
+        st.execute("CREATE TABLE t(x INTEGER PRIMARY KEY)");
+      }
+      GroupCommitWriter writer =
+          new GroupCommitWriter(
+              connection, new TimedLock(new EngineMetrics()), GroupCommitConfig.of(16, Duration.ofMillis(50)));
+      try {
+        CompletableFuture<Integer> first = writer.submit(() -> insert(connection, 1));
+        CompletableFuture<Integer> partial =
+            writer.submit(
+                () -> {
+                  insert(connection, 2);
+                  throw new IllegalStateException("boom");
+                });
+        CompletableFuture<Integer> duplicate = writer.submit(() -> insert(connection, 1));
+        CompletableFuture<Integer> last = writer.submit(() -> insert(connection, 3));
+
+        assertEquals(1, first.join());
+        assertInstanceOf(IllegalStateException.class, assertThrows(CompletionException.class, partial::join).getCause());
+        assertInstanceOf(SQLException.class, assertThrows(CompletionException.class, duplicate::join).getCause());
+        assertEquals(1, last.join());
+      } finally {
+        writer.close();
+      }
+      try (Statement st = connection.createStatement();
+          ResultSet rs = st.executeQuery("SELECT group_concat(x) FROM (SELECT x FROM t ORDER BY x)")) {
+        assertTrue(rs.next());
+        assertEquals("1,3", rs.getString(1));
+      }
+    }
+  }
+
+  @Test
+  void errorFailsTheBatchAndStopsTheWriter() throws Exception {
+    try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + tmp.resolve("error.sqlite"))) {
+      try (Statement st = connection.createStatement()) {
+        st.execute("CREATE TABLE t(x INTEGER PRIMARY KEY)");
+      }
+      GroupCommitWriter writer =
+          new GroupCommitWriter(
+              connection, new TimedLock(new EngineMetrics()), GroupCommitConfig.of(16, Duration.ofMillis(50)));
+      try {
+        CompletableFuture<Integer> first = writer.submit(() -> insert(connection, 1));
+        CompletableFuture<Integer> broken =
+            writer.submit(
+                () -> {
+                  throw new AssertionError("broken");
+                });
+        assertInstanceOf(AssertionError.class, assertThrows(CompletionException.class, first::join).getCause());
+        assertInstanceOf(AssertionError.class, assertThrows(CompletionException.class, broken::join).getCause());
+
+        CompletableFuture<Integer> later = writer.submit(() -> insert(connection, 2));
+        Throwable rejected = assertThrows(CompletionException.class, later::join).getCause();
+        assertInstanceOf(IllegalStateException.class, rejected);
+        assertInstanceOf(AssertionError.class, rejected.getCause());
+      } finally {
+        writer.close();
+      }
+      try (Statement st = connection.createStatement();
+          ResultSet rs = st.executeQuery("SELECT count(*) FROM t")) {
+        assertTrue(rs.next());
+        assertEquals(0, rs.getInt(1));
+      }
+    }
+  }
+
+  private static int insert(Connection connection, int x) throws SQLException {
+    try (Statement st = connection.createStatement()) {
+      return st.executeUpdate("INSERT INTO t VALUES(" + x + ")");
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package com.zeotap.durable.engine;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+class InMemoryStepStoreTest extends StepStoreContractTest {
+  @Override
+  StepStore open(Path directory, Duration zombieTimeout) {
+    return new InMemoryStepStore(zombieTimeout);
+  }
+
+  @Override
+  boolean durable() {
+    return false;
+  }
+}
@@ -0,0 +1,96 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LeaseHeartbeatTest {
+  @TempDir Path tmp;
+
+  @Test
+  void releasingALeaseTwiceKeepsTheSiblingLeaseRenewed() throws Exception {
+    List<List<String>> renewals = new CopyOnWriteArrayList<>();
+    try (LeaseHeartbeat heartbeat =
+        new LeaseHeartbeat(Duration.ofMillis(10), Duration.ZERO, renewals::add, owners -> {})) {
+      heartbeat.acquired("wf", "left#0", "run");
+      heartbeat.acquired("wf", "right#0", "run");
+      heartbeat.released("wf", "left#0", "run");
+      heartbeat.released("wf", "left#0", "run");
+
+      renewals.clear();
+      Thread.sleep(60);
+      assertFalse(renewals.isEmpty());
+      assertEquals(List.of("run"), renewals.get(renewals.size() - 1));
+
+      heartbeat.released("wf", "right#0", "run");
+      Thread.sleep(30);
+      renewals.clear();
+      Thread.sleep(60);
+      assertTrue(renewals.isEmpty());
+    }
+  }
+
+  @Test
+  void storesRejectAHeartbeatSlowerThanHalfTheZombieTimeout() {
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class,
+            () ->
+                new SQLiteStepStore(
+                    tmp.resolve("slow.sqlite").toString(),
+                    Duration.ofSeconds(1),
+                    StoreOptions.defaults().withHeartbeatInterval(Duration.ofMillis(600))));
+    assertTrue(e.getMessage().startsWith("heartbeatInterval must be <= zombieTimeout / 2"));
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new LogStepStore(
+                tmp.resolve("log"),
+                Duration.ofSeconds(1),
+                LogStoreOptions.defaults().withHeartbeatInterval(Duration.ofSeconds(1))));
+
+    new SQLiteStepStore(
+            tmp.resolve("ok.sqlite").toString(),
+            Duration.ofSeconds(2),
+            StoreOptions.defaults().withHeartbeatInterval(Duration.ofSeconds(1)))
+        .close();
+    new InMemoryStepStore(Duration.ofMillis(200)).close();
+  }
+
+  @Test
+  void completionFailureAfterTheActivityIsNotRetried() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      RuntimeException e =
+          assertThrows(
+              RuntimeException.class,
+              () ->
+                  runner.run(
+                      "wf",
+                      ctx ->
+                          ctx.step(
+                              "charge",
+                              StepOptions.defaults()
+                                  .withRetry(
+                                      RetryPolicy.defaults()
+                                          .withMaxAttempts(5)
+                                          .withInitialBackoff(Duration.ofMillis(1))),
+                              String.class,
+                              () -> {
+                                calls.incrementAndGet();
+                                assertEquals(2, store.tryStartStep("wf", StepKey.of("charge", 0), "intruder"));
+                                return "charged";
+                              })));
+      assertTrue(e.getMessage().contains("lost lease"), e.getMessage());
+      assertEquals(1, calls.get());
+      assertEquals("intruder", store.readStep("wf", StepKey.of("charge", 0)).orElseThrow().runId());
+    }
+  }
+}
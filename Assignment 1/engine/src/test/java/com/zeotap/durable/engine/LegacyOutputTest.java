@@ -0,0 +1,102 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LegacyOutputTest {
+  record Order(String id, double amount) {}
+
+  @TempDir Path tmp;
+
+  @Test
+  void legacyRowsReadBackAfterOpening() throws Exception {
+    String db = writeFixture();
+    try (SQLiteStepStore store = new SQLiteStepStore(db, Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      StepRecord rec = store.readStep("wf", StepKey.of("order", 0)).orElseThrow();
+      assertNotNull(rec.outputJson);
+      assertNull(rec.outputBlob);
+
+      assertEquals(List.of(42, "alice", new Order("o-1", 12.5), "null"), replay(runner));
+    }
+  }
+
+  @Test
+  void migrationTranscodesLegacyRows() throws Exception {
+    String db = writeFixture();
+    try (SQLiteStepStore store = new SQLiteStepStore(db, Duration.ZERO);
+        WorkflowEngine engine = new WorkflowEngine(store, EngineOptions.defaults());
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      assertEquals(4, engine.migrateLegacyOutputs(3));
+      assertEquals(0, engine.migrateLegacyOutputs(3));
+
+      StepRecord order = store.readStep("wf", StepKey.of("order", 0)).orElseThrow();
+      assertNull(order.outputJson);
+      assertNotNull(order.outputBlob);
+      assertEquals(Order.class, store.resolveType(order.outputTypeId));
+      StepRecord empty = store.readStep("wf", StepKey.of("notify", 0)).orElseThrow();
+      assertNull(empty.outputBlob);
+      assertEquals(Void.class, store.resolveType(empty.outputTypeId));
+
+      assertEquals(List.of(42, "alice", new Order("o-1", 12.5), "null"), replay(runner));
+    }
+  }
+
+  private static List<Object> replay(WorkflowRunner runner) throws Exception {
+    List<Object> out = new ArrayList<>();
+    runner.run(
+        "wf",
+        ctx -> {
+          out.add(ctx.step("total", Integer.class, LegacyOutputTest::neverRuns));
+          out.add(ctx.step("name", String.class, LegacyOutputTest::neverRuns));
+          out.add(ctx.step("order", Order.class, LegacyOutputTest::neverRuns));
+          Object notify = ctx.step("notify", LegacyOutputTest::neverRuns);
+          out.add(String.valueOf(notify));
+        });
+    return out;
+  }
+
+  private static <T> T neverRuns() {
+    throw new IllegalStateException("legacy step was executed instead of replayed");
+  }
+
+  private String writeFixture() throws Exception {
+    String db = tmp.resolve("legacy.sqlite").toString();
+    try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + db)) {
+      try (Statement st = conn.createStatement()) {
+        st.execute(
+            "CREATE TABLE steps (workflow_id TEXT NOT NULL, step_key TEXT NOT NULL, status TEXT NOT NULL, "
+                + "run_id TEXT NOT NULL, output_class TEXT, output_json TEXT, error TEXT, "
+                + "updated_at_ms INTEGER NOT NULL, PRIMARY KEY (workflow_id, step_key))");
+      }
+      try (PreparedStatement ps =
+          conn.prepareStatement("INSERT INTO steps VALUES(?, ?, 'COMPLETED', 'old-run', ?, ?, NULL, ?)")) {
+        insert(ps, "total#0", Integer.class.getName(), "42");
+        insert(ps, "name#0", String.class.getName(), "\"alice\"");
+        insert(ps, "order#0", Order.class.getName(), "{\"id\":\"o-1\",\"amount\":12.5}");
+        insert(ps, "notify#0", Void.class.getName(), "null");
+      }
+    }
+    return db;
+  }
+
+  private static void insert(PreparedStatement ps, String stepKey, String outputClass, String outputJson)
+      throws Exception {
+    ps.setString(1, "wf");
+    ps.setString(2, stepKey);
+    ps.setString(3, outputClass);
+    ps.setString(4, outputJson);
+    ps.setLong(5, System.currentTimeMillis());
+    ps.executeUpdate();
+  }
+}
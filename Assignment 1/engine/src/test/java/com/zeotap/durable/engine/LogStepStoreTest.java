@@ -0,0 +1,113 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class LogStepStoreTest extends StepStoreContractTest {
+  @Override
+  StepStore open(Path directory, Duration zombieTimeout) {
+    return new LogStepStore(
+        directory.resolve("log"),
+        zombieTimeout,
+        LogStoreOptions.defaults()
+            .withSegmentSizeBytes(1024 * 1024)
+            .withFsyncPolicy(FsyncPolicy.ALWAYS)
+            .withHeartbeatInterval(Duration.ZERO));
+  }
+
+  @Test
+  void recoveryStopsAtRecordWithCrcMismatch() throws IOException {
+    StepStore s = completeSteps(3);
+    s.close();
+
+    Path segment = onlySegment();
+    int last = lastRecordOffset(segment);
+    flipByte(segment, last + LogSegment.HEADER_BYTES + 1);
+
+    s = reopen(LONG_TIMEOUT);
+    assertEquals(2, s.readCompletedSteps("wf", 100).size());
+    assertTrue(s.readStep("wf", StepKey.of("step", 2)).isPresent());
+
+    int typeId = s.internType(String.class.getName());
+    s.completeStep("wf", StepKey.of("step", 2), "run-a", typeId, bytes("again"));
+    s = reopen(LONG_TIMEOUT);
+    assertArrayEquals(bytes("again"), s.readStep("wf", StepKey.of("step", 2)).orElseThrow().outputBlob());
+  }
+
+  @Test
+  void recoveryIgnoresTornTail() throws IOException {
+    StepStore s = completeSteps(3);
+    s.close();
+
+    Path segment = onlySegment();
+    int last = lastRecordOffset(segment);
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.truncate(last + LogSegment.HEADER_BYTES + 2);
+    }
+
+    s = reopen(LONG_TIMEOUT);
+    assertEquals(2, s.readCompletedSteps("wf", 100).size());
+
+    int typeId = s.internType(String.class.getName());
+    assertEquals(1, s.tryStartStep("wf", StepKey.of("step", 3), "run-b"));
+    s.completeStep("wf", StepKey.of("step", 3), "run-b", typeId, bytes("after"));
+    s = reopen(LONG_TIMEOUT);
+    assertArrayEquals(bytes("after"), s.readStep("wf", StepKey.of("step", 3)).orElseThrow().outputBlob());
+    assertEquals(3, s.readCompletedSteps("wf", 100).size());
+  }
+
+  private StepStore completeSteps(int count) {
+    StepStore s = store(LONG_TIMEOUT);
+    int typeId = s.internType(String.class.getName());
+    for (int i = 0; i < count; i++) {
+      StepKey key = StepKey.of("step", i);
+      assertEquals(1, s.tryStartStep("wf", key, "run-a"));
+      s.completeStep("wf", key, "run-a", typeId, bytes("out-" + i));
+    }
+    return s;
+  }
+
+  private Path onlySegment() throws IOException {
+    try (Stream<Path> files = Files.list(tmp.resolve("log"))) {
+      List<Path> segments = files.filter(p -> p.getFileName().toString().endsWith(".log")).toList();
+      assertEquals(1, segments.size());
+      return segments.get(0);
+    }
+  }
+
+  private static int lastRecordOffset(Path segment) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+    int pos = 0;
+    int last = -1;
+    while (pos + LogSegment.HEADER_BYTES <= buffer.capacity()) {
+      int length = buffer.getInt(pos);
+      if (length <= 0) {
+        break;
+      }
+      last = pos;
+      pos += LogSegment.HEADER_BYTES + length;
+    }
+    assertTrue(last >= 0);
+    return last;
+  }
+
+  private static void flipByte(Path segment, int offset) throws IOException {
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ByteBuffer one = ByteBuffer.allocate(1);
+      channel.read(one, offset);
+      one.put(0, (byte) (one.get(0) ^ 0xFF));
+      one.rewind();
+      channel.write(one, offset);
+    }
+  }
+}
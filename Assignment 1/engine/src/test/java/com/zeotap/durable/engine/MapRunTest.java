@@ -0,0 +1,93 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MapRunTest {
+  private static final List<Integer> ITEMS = List.of(0, 1, 2, 3, 4);
+
+  @TempDir Path tmp;
+
+  @Test
+  void mapsAndReplaysItems() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    AtomicReference<List<Integer>> out = new AtomicReference<>();
+    try (SQLiteStepStore store = new SQLiteStepStore(tmp.resolve("map.sqlite").toString(), Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      Workflow workflow =
+          ctx ->
+              out.set(
+                  ctx.map(
+                      "m",
+                      ITEMS,
+                      3,
+                      Integer.class,
+                      i -> {
+                        calls.incrementAndGet();
+                        return i * 10;
+                      }));
+      runner.run("wf", workflow);
+      assertEquals(List.of(0, 10, 20, 30, 40), out.get());
+      runner.run("wf", workflow);
+      assertEquals(List.of(0, 10, 20, 30, 40), out.get());
+    }
+    assertEquals(ITEMS.size(), calls.get());
+  }
+
+  @Test
+  void sqliteReturnsStoredValueForConflictingItems() throws Exception {
+    try (SQLiteStepStore store = new SQLiteStepStore(tmp.resolve("map.sqlite").toString(), Duration.ZERO)) {
+      assertStoredValueWins(store);
+    }
+  }
+
+  @Test
+  void inMemoryReturnsStoredValueForConflictingItems() throws Exception {
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO)) {
+      assertStoredValueWins(store);
+    }
+  }
+
+  @Test
+  void logStoreReturnsStoredValueForConflictingItems() throws Exception {
+    try (LogStepStore store = new LogStepStore(tmp.resolve("log"), Duration.ZERO)) {
+      assertStoredValueWins(store);
+    }
+  }
+
+  private static void assertStoredValueWins(StepStore store) throws Exception {
+    AtomicReference<List<Integer>> out = new AtomicReference<>();
+    try (WorkflowRunner runner = new WorkflowRunner(store)) {
+      runner.run("other", ctx -> ctx.map("m", ITEMS, 1, Integer.class, i -> i * 100));
+      StepRecord foreign = store.readStep("other", StepKey.of("m#0/$item", 3)).orElseThrow();
+
+      Workflow workflow =
+          ctx ->
+              out.set(
+                  ctx.map(
+                      "m",
+                      ITEMS,
+                      1,
+                      Integer.class,
+                      i -> {
+                        if (i == 0) {
+                          store.completeSteps("wf", Map.of("m#0/$item#3", foreign));
+                        }
+                        return i * 10;
+                      }));
+      runner.run("wf", workflow);
+      assertEquals(List.of(0, 10, 20, 300, 40), out.get());
+
+      runner.run("wf", workflow);
+      assertEquals(List.of(0, 10, 20, 300, 40), out.get());
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class OutputSerializerTest {
+  record Order(String id, double amount, List<String> items) {}
+
+  private static final Order ORDER = new Order("o-1", 12.5, List.of("apple", "pear"));
+
+  @Test
+  void builtInCodecsRoundTrip() throws Exception {
+    for (StepCodec codec : List.of(JacksonStepCodec.json(), JacksonStepCodec.smile(), JacksonStepCodec.cbor())) {
+      OutputSerializer serializer = new OutputSerializer(codec);
+      byte[] blob = serializer.encode(ORDER);
+      assertEquals(codec.id(), blob[1] & 0xFF);
+      assertEquals(ORDER, serializer.decode(blob, Order.class));
+      assertEquals(Map.of("k", 1), serializer.decode(serializer.encode(Map.of("k", 1)), Map.class));
+    }
+  }
+
+  @Test
+  void fastPathValuesRoundTrip() throws Exception {
+    OutputSerializer serializer = new OutputSerializer(JacksonStepCodec.smile());
+    assertEquals("text", serializer.decode(serializer.encode("text"), String.class));
+    assertEquals(7, serializer.decode(serializer.encode(7), Integer.class));
+    assertEquals(7L, serializer.decode(serializer.encode(7L), Long.class));
+    assertEquals(true, serializer.decode(serializer.encode(true), Boolean.class));
+    assertEquals(1.5, serializer.decode(serializer.encode(1.5), Double.class));
+    assertArrayEquals(new byte[] {1, 2}, serializer.decode(serializer.encode(new byte[] {1, 2}), byte[].class));
+    assertNull(serializer.encode(null));
+    assertNull(serializer.decode(null, String.class));
+  }
+
+  @Test
+  void decodesByTheCodecIdInTheBlob() throws Exception {
+    byte[] json = new OutputSerializer(JacksonStepCodec.json()).encode(ORDER);
+    byte[] smile = new OutputSerializer(JacksonStepCodec.smile()).encode(ORDER);
+    byte[] cbor = new OutputSerializer(JacksonStepCodec.cbor()).encode(ORDER);
+    assertFalse(Arrays.equals(json, cbor));
+
+    OutputSerializer reader = new OutputSerializer(JacksonStepCodec.smile());
+    assertEquals(ORDER, reader.decode(json, Order.class));
+    assertEquals(ORDER, reader.decode(smile, Order.class));
+    assertEquals(ORDER, reader.decode(cbor, Order.class));
+  }
+
+  @Test
+  void decodesCustomCodecById() throws Exception {
+    StepCodec custom = new JacksonStepCodec(9, new ObjectMapper());
+    byte[] blob = new OutputSerializer(custom).encode(ORDER);
+    assertEquals(9, blob[1] & 0xFF);
+    assertEquals(ORDER, new OutputSerializer(custom).decode(blob, Order.class));
+
+    IOException unknown =
+        assertThrows(IOException.class, () -> new OutputSerializer(JacksonStepCodec.json()).decode(blob, Order.class));
+    assertTrue(unknown.getMessage().contains("9"));
+  }
+
+  @Test
+  void rejectsCustomCodecWithReservedId() {
+    for (int id = JacksonStepCodec.JSON_ID; id <= JacksonStepCodec.CBOR_ID; id++) {
+      JacksonStepCodec impostor = new JacksonStepCodec(id, new ObjectMapper());
+      assertThrows(IllegalArgumentException.class, () -> new OutputSerializer(impostor));
+    }
+    assertThrows(IllegalArgumentException.class, () -> new OutputSerializer(new FixedIdCodec(0)));
+    assertThrows(IllegalArgumentException.class, () -> new OutputSerializer(new FixedIdCodec(256)));
+    new OutputSerializer(new FixedIdCodec(4));
+  }
+
+  @Test
+  void engineRefusesCustomCodecWithReservedId() {
+    EngineOptions options =
+        EngineOptions.defaults().withStoreOptions(StoreOptions.defaults().withCodec(new FixedIdCodec(2)));
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO)) {
+      assertThrows(IllegalArgumentException.class, () -> new WorkflowEngine(store, options));
+    }
+  }
+
+  @Test
+  void transcodesLegacyJson() throws Exception {
+    OutputSerializer serializer = new OutputSerializer(JacksonStepCodec.cbor());
+    String json = "{\"id\":\"o-1\",\"amount\":12.5,\"items\":[\"apple\",\"pear\"]}";
+    assertEquals(ORDER, serializer.decodeLegacyJson(json, Order.class));
+    assertEquals(ORDER, serializer.decode(serializer.transcodeLegacyJson(json, Order.class), Order.class));
+    assertEquals(42, serializer.decode(serializer.transcodeLegacyJson("42", Integer.class), Integer.class));
+    assertEquals(
+        Map.of("id", "o-1"), serializer.decode(serializer.transcodeLegacyJson("{\"id\":\"o-1\"}", null), Map.class));
+  }
+
+  private static final class FixedIdCodec implements StepCodec {
+    private final int id;
+
+    FixedIdCodec(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public int id() {
+      return id;
+    }
+
+    @Override
+    public byte[] encode(Object value) throws IOException {
+      return new ObjectMapper().writeValueAsBytes(value);
+    }
+
+    @Override
+    public <T> T decode(byte[] data, int offset, int length, Class<T> type) throws IOException {
+      return new ObjectMapper().readValue(data, offset, length, type);
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class ParallelScopeTest {
+  @Test
+  void interruptedCloseCancelsBranchesAndRestoresTheFlag() throws Exception {
+    AtomicReference<CompletableFuture<String>> branch = new AtomicReference<>();
+    AtomicBoolean interrupted = new AtomicBoolean();
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      runner.run(
+          "wf",
+          ctx -> {
+            try (ParallelScope parallel = ctx.parallel("p")) {
+              branch.set(
+                  parallel.stepAsync(
+                      "slow",
+                      () -> {
+                        Thread.sleep(10_000);
+                        return "late";
+                      }));
+              Thread.currentThread().interrupt();
+            }
+            interrupted.set(Thread.interrupted());
+          });
+      assertTrue(store.readStep("wf", StepKey.of("p/slow", 0)).isEmpty());
+    }
+    assertTrue(interrupted.get());
+    assertTrue(branch.get().isDone());
+  }
+}
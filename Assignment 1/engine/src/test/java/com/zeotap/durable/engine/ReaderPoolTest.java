@@ -0,0 +1,125 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReaderPoolTest {
+  @TempDir Path tmp;
+
+  @Test
+  void readsProceedWhileAWriteTransactionIsOpen() throws Exception {
+    String db = tmp.resolve("wal.sqlite").toString();
+    try (SQLiteStepStore store = open(db, 2)) {
+      StepKey key = StepKey.of("a", 0);
+      assertEquals(1, store.tryStartStep("wf", key, "run"));
+      store.completeStep("wf", key, "run", 0, new byte[] {1});
+      assertEquals("wal", store.read(ReaderPoolTest::journalMode, "Failed to read journal mode"));
+
+      try (Connection writer = DriverManager.getConnection("jdbc:sqlite:" + db);
+          Statement st = writer.createStatement()) {
+        writer.setAutoCommit(false);
+        st.executeUpdate("UPDATE step_rows SET error = 'uncommitted'");
+
+        StepRecord rec =
+            CompletableFuture.supplyAsync(() -> store.readStep("wf", key).orElseThrow()).get(1, TimeUnit.SECONDS);
+        assertEquals(StepStatus.COMPLETED, rec.status());
+        assertNull(rec.error);
+        writer.rollback();
+      }
+    }
+  }
+
+  @Test
+  void concurrentReadsAreBoundedByThePoolSize() throws Exception {
+    AtomicInteger inside = new AtomicInteger();
+    AtomicInteger peak = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    try (SQLiteStepStore store = open(tmp.resolve("pool.sqlite").toString(), 2)) {
+      List<CompletableFuture<Void>> reads = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        reads.add(
+            CompletableFuture.runAsync(
+                () ->
+                    store.read(
+                        conn -> {
+                          peak.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                          try {
+                            assertTrue(release.await(5, TimeUnit.SECONDS));
+                          } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                          }
+                          inside.decrementAndGet();
+                          return null;
+                        },
+                        "Failed to read")));
+      }
+      for (int i = 0; i < 500 && inside.get() < 2; i++) {
+        Thread.sleep(10);
+      }
+      Thread.sleep(100);
+      assertEquals(2, inside.get());
+
+      release.countDown();
+      CompletableFuture.allOf(reads.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+      assertEquals(2, peak.get());
+      LockWaitStats stats = store.lockWaitStats();
+      assertEquals(3, stats.readerAcquisitions());
+      assertTrue(stats.readerWaitNanos() > 0);
+    }
+  }
+
+  @Test
+  void readerConnectionsAreReadOnly() throws Exception {
+    try (SQLiteStepStore store = open(tmp.resolve("ro.sqlite").toString(), 1)) {
+      boolean readOnly = store.read(conn -> conn.raw().isReadOnly(), "Failed to read");
+      assertTrue(readOnly);
+      assertThrows(
+          RuntimeException.class,
+          () ->
+              store.read(
+                  conn -> {
+                    try (Statement st = conn.raw().createStatement()) {
+                      return st.executeUpdate("DELETE FROM step_rows");
+                    }
+                  },
+                  "Failed to write through a reader"));
+    }
+  }
+
+  @Test
+  void emptyPoolReadsThroughTheWriter() throws Exception {
+    try (SQLiteStepStore store = open(tmp.resolve("writer.sqlite").toString(), 0)) {
+      boolean readOnly = store.read(conn -> conn.raw().isReadOnly(), "Failed to read");
+      assertFalse(readOnly);
+      assertTrue(store.readStep("wf", StepKey.of("a", 0)).isEmpty());
+      assertEquals(0, store.lockWaitStats().readerAcquisitions());
+    }
+    assertThrows(IllegalArgumentException.class, () -> StoreOptions.defaults().withReaderPoolSize(-1));
+  }
+
+  private static SQLiteStepStore open(String db, int readerPoolSize) {
+    return new SQLiteStepStore(db, Duration.ZERO, StoreOptions.defaults().withReaderPoolSize(readerPoolSize));
+  }
+
+  private static String journalMode(StoreConnection conn) throws SQLException {
+    try (Statement st = conn.raw().createStatement();
+        ResultSet rs = st.executeQuery("PRAGMA journal_mode")) {
+      return rs.next() ? rs.getString(1) : null;
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RecoveryTest {
+  private static final Duration ZOMBIE_TIMEOUT = Duration.ofMillis(100);
+  private static final StoreOptions OPTIONS = StoreOptions.defaults().withHeartbeatInterval(Duration.ofMillis(20));
+
+  @TempDir Path tmp;
+
+  @Test
+  void rejectsZeroZombieTimeout() {
+    try (SQLiteStepStore store = new SQLiteStepStore(tmp.resolve("zero.sqlite").toString(), Duration.ZERO);
+        WorkflowEngine engine = new WorkflowEngine(store, EngineOptions.defaults())) {
+      assertThrows(
+          IllegalArgumentException.class, () -> engine.recoverOnce(RecoveryOptions.defaults(), id -> ctx -> {}));
+      assertThrows(
+          IllegalArgumentException.class, () -> engine.startRecovery(RecoveryOptions.defaults(), id -> ctx -> {}));
+    }
+  }
+
+  @Test
+  void resumesOrphanedWorkflow() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    orphan("resume.sqlite", "wf");
+    try (SQLiteStepStore store = open("resume.sqlite");
+        WorkflowEngine engine = new WorkflowEngine(store, EngineOptions.defaults())) {
+      int recovered =
+          engine.recoverOnce(RecoveryOptions.defaults(), id -> ctx -> ctx.step("a", calls::incrementAndGet));
+      assertEquals(1, recovered);
+      assertTrue(engine.awaitIdle(5, TimeUnit.SECONDS));
+      assertEquals(1, calls.get());
+      assertEquals(StepStatus.COMPLETED, store.readStep("wf", StepKey.of("a", 0)).orElseThrow().status);
+      assertEquals(1, engine.metrics().getRecoveredWorkflows());
+    }
+  }
+
+  @Test
+  void onlyOneEngineClaimsAnOrphanedWorkflow() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger calls = new AtomicInteger();
+    Workflow workflow =
+        ctx -> {
+          release.await();
+          ctx.step("a", calls::incrementAndGet);
+        };
+    orphan("claim.sqlite", "wf");
+    try (SQLiteStepStore a = open("claim.sqlite");
+        SQLiteStepStore b = open("claim.sqlite");
+        WorkflowEngine engineA = new WorkflowEngine(a, EngineOptions.defaults());
+        WorkflowEngine engineB = new WorkflowEngine(b, EngineOptions.defaults())) {
+      assertEquals(1, engineA.recoverOnce(RecoveryOptions.defaults(), id -> workflow));
+      assertEquals(0, engineB.recoverOnce(RecoveryOptions.defaults(), id -> workflow));
+      release.countDown();
+      assertTrue(engineA.awaitIdle(5, TimeUnit.SECONDS));
+      assertTrue(engineB.awaitIdle(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, calls.get());
+  }
+
+  private SQLiteStepStore open(String file) {
+    return new SQLiteStepStore(tmp.resolve(file).toString(), ZOMBIE_TIMEOUT, OPTIONS);
+  }
+
+  private void orphan(String file, String workflowId) throws Exception {
+    try (SQLiteStepStore crashed = open(file)) {
+      assertEquals(1, crashed.tryStartStep(workflowId, StepKey.of("a", 0), "dead-run"));
+    }
+    Thread.sleep(ZOMBIE_TIMEOUT.toMillis() * 2);
+  }
+}
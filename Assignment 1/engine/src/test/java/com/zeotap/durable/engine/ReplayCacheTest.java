@@ -0,0 +1,143 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReplayCacheTest {
+  record Order(String id, List<String> items) {}
+
+  @TempDir Path tmp;
+
+  @Test
+  void evictsOldestEntriesAtTheBound() {
+    ReplayCache cache = new ReplayCache(3);
+    cache.clear();
+    assertTrue(cache.isComplete());
+    for (int i = 0; i < 3; i++) {
+      cache.put("a#" + i, record());
+    }
+    assertEquals(3, cache.size());
+    assertTrue(cache.isComplete());
+
+    cache.put("a#3", record());
+    cache.put("a#4", record());
+    assertEquals(3, cache.size());
+    assertNull(cache.get("a#0"));
+    assertNull(cache.get("a#1"));
+    assertNotNull(cache.get("a#4"));
+    assertFalse(cache.isComplete());
+
+    cache.put("a#4", record());
+    assertEquals(3, cache.size());
+    assertNotNull(cache.get("a#2"));
+  }
+
+  @Test
+  void preloadPastTheBoundLeavesTheCacheIncomplete() {
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO)) {
+      for (int i = 0; i < 5; i++) {
+        StepKey key = StepKey.of("a", i);
+        assertEquals(1, store.tryStartStep("wf", key, "run"));
+        store.completeStep("wf", key, "run", 0, new byte[] {1});
+      }
+      ReplayCache bounded = new ReplayCache(2);
+      bounded.preload(store, "wf");
+      assertEquals(2, bounded.size());
+      assertFalse(bounded.isComplete());
+
+      ReplayCache roomy = new ReplayCache(5);
+      roomy.preload(store, "wf");
+      assertEquals(5, roomy.size());
+      assertTrue(roomy.isComplete());
+
+      ReplayCache disabled = new ReplayCache(0);
+      disabled.preload(store, "wf");
+      disabled.put("a#0", record());
+      assertEquals(0, disabled.size());
+      assertFalse(disabled.isComplete());
+    }
+    assertThrows(IllegalArgumentException.class, () -> new ReplayCache(-1));
+  }
+
+  @Test
+  void cacheMissFallsBackToTheStore() throws Exception {
+    AtomicInteger executions = new AtomicInteger();
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO)) {
+      List<Integer> first;
+      try (WorkflowRunner runner = new WorkflowRunner(store)) {
+        first = runSteps(runner, executions);
+      }
+      assertEquals(5, executions.get());
+
+      for (int maxEntries : new int[] {0, 2}) {
+        try (WorkflowRunner runner = new WorkflowRunner(store, maxEntries, StoreOptions.defaults())) {
+          assertEquals(first, runSteps(runner, executions));
+        }
+      }
+      assertEquals(5, executions.get());
+    }
+  }
+
+  @Test
+  void cachedOutputsDecodeLikeStoreReads() throws Exception {
+    BlobSpillConfig spill = BlobSpillConfig.of(tmp.resolve("blobs"), 1_024, true);
+    StoreOptions options = StoreOptions.defaults().withBlobSpill(spill);
+    Order big = new Order("o-".repeat(1_000), List.of("a", "b"));
+    String text = "x".repeat(2_000);
+    List<Object> cached = new ArrayList<>();
+    List<Object> stored = new ArrayList<>();
+    try (SQLiteStepStore store = new SQLiteStepStore(tmp.resolve("cache.sqlite").toString(), Duration.ZERO, options);
+        WorkflowRunner runner = new WorkflowRunner(store, 100, options)) {
+      runner.run(
+          "wf",
+          ctx -> {
+            ctx.step("big", Order.class, () -> big);
+            ctx.step("text", String.class, () -> text);
+            ctx.step("small", Order.class, () -> new Order("o-2", List.of("a")));
+            ReplayCache cache = ctx.run().replayCache;
+            for (String id : List.of("big", "text", "small")) {
+              Class<?> type = id.equals("text") ? String.class : Order.class;
+              StepRecord fromCache = cache.get(id + "#0");
+              StepRecord fromStore = store.readStep("wf", StepKey.of(id, 0)).orElseThrow();
+              cached.add(ctx.decodeRecord(fromCache, type));
+              stored.add(ctx.decodeRecord(fromStore, type));
+            }
+            StepRecord spilled = store.readStep("wf", StepKey.of("big", 0)).orElseThrow();
+            assertNotNull(OutputSerializer.blobHash(spilled.outputBlob));
+          });
+    }
+    assertEquals(List.of(big, text, new Order("o-2", List.of("a"))), cached);
+    assertEquals(cached, stored);
+  }
+
+  private static List<Integer> runSteps(WorkflowRunner runner, AtomicInteger executions) throws Exception {
+    List<Integer> out = new ArrayList<>();
+    runner.run(
+        "wf",
+        ctx -> {
+          for (int i = 0; i < 5; i++) {
+            int value = i * 10;
+            out.add(
+                ctx.step(
+                    "s",
+                    Integer.class,
+                    () -> {
+                      executions.incrementAndGet();
+                      return value;
+                    }));
+          }
+        });
+    return out;
+  }
+
+  private static StepRecord record() {
+    return new StepRecord(StepStatus.COMPLETED, null, null, 0, null, null, 0, "run", 1, 0);
+  }
+}
@@ -0,0 +1,77 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RetentionServiceTest {
+  @TempDir Path tmp;
+
+  @Test
+  void archivesAndPurgesFinishedWorkflows() throws Exception {
+    Path archiveDir = tmp.resolve("archive");
+    try (SQLiteStepStore store = new SQLiteStepStore(tmp.resolve("state.sqlite").toString(), Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      runner.run("done", ctx -> ctx.step("a", () -> "value-a"));
+      assertTrue(store.startWorkflow("running", "run-x", WorkflowPriority.NORMAL, System.currentTimeMillis()));
+
+      RetentionService retention =
+          new RetentionService(store, archiveDir, RetentionOptions.defaults().withTtl(Duration.ZERO));
+      Thread.sleep(5);
+      assertEquals(1, retention.runOnce());
+      assertEquals(0, retention.runOnce());
+
+      assertTrue(store.readStep("done", StepKey.of("a", 0)).isEmpty());
+      assertTrue(store.readFinishedWorkflows(Long.MAX_VALUE, 10).isEmpty());
+      String archived = readArchive(archiveDir);
+      assertTrue(archived.contains("\"workflowId\":\"done\""));
+      assertTrue(archived.contains("\"stepKey\":\"a#0\""));
+      assertFalse(archived.contains("running"));
+    }
+  }
+
+  @Test
+  void keepsWorkflowsYoungerThanTtl() throws Exception {
+    Path archiveDir = tmp.resolve("archive");
+    try (SQLiteStepStore store = new SQLiteStepStore(tmp.resolve("state.sqlite").toString(), Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      runner.run("done", ctx -> ctx.step("a", () -> "value-a"));
+
+      RetentionService retention = new RetentionService(store, archiveDir, RetentionOptions.defaults());
+      assertEquals(0, retention.runOnce());
+      assertTrue(store.readStep("done", StepKey.of("a", 0)).isPresent());
+    }
+  }
+
+  @Test
+  void rejectsInvalidOptions() {
+    assertThrows(IllegalArgumentException.class, () -> RetentionOptions.defaults().withTtl(Duration.ofMillis(-1)));
+    assertThrows(IllegalArgumentException.class, () -> RetentionOptions.defaults().withInterval(Duration.ZERO));
+    assertThrows(IllegalArgumentException.class, () -> RetentionOptions.defaults().withArchiveBatchSize(0));
+    assertThrows(IllegalArgumentException.class, () -> RetentionOptions.defaults().withDeleteBatchSize(0));
+  }
+
+  private static String readArchive(Path dir) throws Exception {
+    List<Path> files;
+    try (Stream<Path> list = Files.list(dir)) {
+      files = list.filter(p -> p.toString().endsWith(".jsonl.gz")).collect(Collectors.toList());
+    }
+    assertEquals(1, files.size());
+    try (BufferedReader in =
+        new BufferedReader(
+            new InputStreamReader(new GZIPInputStream(Files.newInputStream(files.get(0))), StandardCharsets.UTF_8))) {
+      return in.lines().collect(Collectors.joining("\n"));
+    }
+  }
+}
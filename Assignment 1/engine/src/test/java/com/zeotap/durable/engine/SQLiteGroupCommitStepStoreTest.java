@@ -0,0 +1,16 @@
+package com.zeotap.durable.engine;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+class SQLiteGroupCommitStepStoreTest extends StepStoreContractTest {
+  @Override
+  StepStore open(Path directory, Duration zombieTimeout) {
+    return new SQLiteStepStore(
+        directory.resolve("state.sqlite").toString(),
+        zombieTimeout,
+        StoreOptions.defaults()
+            .withHeartbeatInterval(Duration.ZERO)
+            .withGroupCommit(GroupCommitConfig.of(64, Duration.ofMillis(1))));
+  }
+}
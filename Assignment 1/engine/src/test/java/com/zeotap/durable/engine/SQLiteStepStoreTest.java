@@ -0,0 +1,14 @@
+package com.zeotap.durable.engine;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+class SQLiteStepStoreTest extends StepStoreContractTest {
+  @Override
+  StepStore open(Path directory, Duration zombieTimeout) {
+    return new SQLiteStepStore(
+        directory.resolve("state.sqlite").toString(),
+        zombieTimeout,
+        StoreOptions.defaults().withHeartbeatInterval(Duration.ZERO));
+  }
+}
@@ -0,0 +1,129 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SignalTest {
+  @TempDir Path tmp;
+
+  @Test
+  void waiterIsWokenBySignal() throws Exception {
+    AtomicReference<String> received = new AtomicReference<>();
+    try (SQLiteStepStore store = new SQLiteStepStore(tmp.resolve("wake.sqlite").toString(), Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      CompletableFuture<Void> done =
+          CompletableFuture.runAsync(
+              () -> {
+                try {
+                  runner.run("wf", ctx -> received.set(ctx.awaitSignal("approval", String.class)));
+                } catch (Exception e) {
+                  throw new RuntimeException(e);
+                }
+              });
+      Thread.sleep(100);
+      runner.signal("wf", "approval", "yes");
+      done.get(1, TimeUnit.SECONDS);
+    }
+    assertEquals("yes", received.get());
+  }
+
+  @Test
+  void watchersAreScopedToTheirStore() throws Exception {
+    try (InMemoryStepStore a = new InMemoryStepStore(Duration.ZERO);
+        InMemoryStepStore b = new InMemoryStepStore(Duration.ZERO)) {
+      CompletableFuture<Void> wakeA = a.watchSignal("wf", "go", 0);
+      CompletableFuture<Void> wakeB = b.watchSignal("wf", "go", 0);
+      b.sendSignal("wf", "go", 0, null);
+      assertTrue(wakeB.isDone());
+      assertFalse(wakeA.isDone());
+      wakeA.cancel(false);
+    }
+  }
+
+  @Test
+  void signalFromAnotherStoreWakesWaiterWithoutHeartbeat() throws Exception {
+    String db = tmp.resolve("foreign.sqlite").toString();
+    StoreOptions options =
+        StoreOptions.defaults()
+            .withHeartbeatInterval(Duration.ZERO)
+            .withSignalPollInterval(Duration.ofMillis(20));
+    try (SQLiteStepStore waiter = new SQLiteStepStore(db, Duration.ZERO, options);
+        SQLiteStepStore sender = new SQLiteStepStore(db, Duration.ZERO, options)) {
+      CompletableFuture<Void> wake = waiter.watchSignal("wf", "go", 0);
+      sender.sendSignal("wf", "go", 0, null);
+      wake.get(1, TimeUnit.SECONDS);
+      assertTrue(waiter.readSignal("wf", "go", 0).isPresent());
+    }
+  }
+
+  @Test
+  void pollWakesOnlyWaitersWhoseSignalArrived() throws Exception {
+    String db = tmp.resolve("poll.sqlite").toString();
+    StoreOptions options = StoreOptions.defaults().withSignalPollInterval(Duration.ZERO);
+    try (SQLiteStepStore waiter = new SQLiteStepStore(db, Duration.ZERO, options);
+        SQLiteStepStore sender = new SQLiteStepStore(db, Duration.ZERO, options)) {
+      CompletableFuture<Void> first = waiter.watchSignal("wf", "go", 0);
+      CompletableFuture<Void> second = waiter.watchSignal("wf", "go", 1);
+      CompletableFuture<Void> other = waiter.watchSignal("wf", "stop", 0);
+      sender.sendSignal("wf", "go", 0, null);
+      sender.sendSignal("other", "stop", 0, null);
+      sender.tryStartStep("wf", StepKey.of("a", 0), "run");
+
+      assertEquals(1, waiter.pollSignals());
+      assertTrue(first.isDone());
+      assertFalse(second.isDone());
+      assertFalse(other.isDone());
+
+      sender.sendSignal("wf", "go", 1, null);
+      assertEquals(1, waiter.pollSignals());
+      assertTrue(second.isDone());
+      assertFalse(other.isDone());
+      assertEquals(0, waiter.pollSignals());
+    }
+  }
+
+  @Test
+  void signalPollIntervalIsValidated() {
+    assertEquals(StoreOptions.DEFAULT_SIGNAL_POLL_INTERVAL, StoreOptions.defaults().signalPollInterval());
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> StoreOptions.defaults().withSignalPollInterval(Duration.ofMillis(-1)));
+    assertThrows(NullPointerException.class, () -> StoreOptions.defaults().withSignalPollInterval(null));
+  }
+
+  @Test
+  void engineReleasesSlotWhileAwaitingSignal() throws Exception {
+    EngineOptions options = EngineOptions.defaults().withMaxConcurrentWorkflows(1);
+    AtomicReference<String> received = new AtomicReference<>();
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowEngine engine = new WorkflowEngine(store, options)) {
+      WorkflowHandle waiting =
+          engine.submit("waiting", ctx -> received.set(ctx.awaitSignal("approval", String.class)));
+      awaitSuspended(engine);
+
+      WorkflowHandle other = engine.submit("other", ctx -> ctx.step("a", () -> 1));
+      other.future().get(5, TimeUnit.SECONDS);
+      assertFalse(waiting.isDone());
+      assertEquals(1, engine.suspendedWorkflows());
+
+      engine.signal("waiting", "approval", "yes");
+      waiting.future().get(5, TimeUnit.SECONDS);
+      assertEquals(0, engine.suspendedWorkflows());
+    }
+    assertEquals("yes", received.get());
+  }
+
+  private static void awaitSuspended(WorkflowEngine engine) throws Exception {
+    for (int i = 0; i < 500 && engine.suspendedWorkflows() == 0; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, engine.suspendedWorkflows());
+  }
+}
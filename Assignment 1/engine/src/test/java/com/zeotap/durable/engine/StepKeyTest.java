@@ -0,0 +1,105 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StepKeyTest {
+  @TempDir Path tmp;
+
+  @Test
+  void parsesKeyStrings() {
+    StepKey key = StepKey.parse("scope/charge#12");
+    assertEquals("scope/charge", key.id());
+    assertEquals(12, key.sequence());
+    assertEquals("scope/charge#12", key.keyString());
+
+    assertEquals(-1, StepKey.parse("plain").sequence());
+    assertEquals("a#01", StepKey.parse("a#01").id());
+    assertEquals("a#", StepKey.parse("a#").keyString());
+  }
+
+  @Test
+  void buildsKeysFromIdAndSequence() {
+    StepKey key = StepKey.of("scope/charge", 12);
+    assertEquals("scope/charge#12", key.keyString());
+    assertNull(key.path());
+    assertThrows(IllegalArgumentException.class, () -> StepKey.of("charge", -1));
+    assertThrows(NullPointerException.class, () -> StepKey.of(null, 0));
+  }
+
+  @Test
+  void pathHandsOutSequentialKeys() {
+    StepPath path = new StepPath("charge", 3);
+    StepKey first = path.next();
+    StepKey second = path.next();
+    assertEquals("charge#3", first.keyString());
+    assertEquals("charge#4", second.keyString());
+    assertSame(path, first.path());
+    assertEquals(5, path.current());
+  }
+
+  @Test
+  void sqliteCachesPathIdOnTheStepPath() throws Exception {
+    try (SQLiteStepStore store = new SQLiteStepStore(tmp.resolve("keys.sqlite").toString(), Duration.ZERO)) {
+      StepPath path = new StepPath("charge");
+      StepKey key = path.next();
+      assertEquals(-1, path.pathId());
+
+      assertEquals(1, store.tryStartStep("wf", key, "run-a"));
+      assertTrue(path.pathId() >= 0);
+      store.completeStep("wf", key, "run-a", 0, new byte[] {1});
+
+      assertEquals(StepStatus.COMPLETED, store.readStep("wf", StepKey.of("charge", 0)).orElseThrow().status);
+      assertEquals(StepStatus.COMPLETED, store.readStep("wf", key).orElseThrow().status);
+      assertTrue(store.readStep("wf", path.next()).isEmpty());
+    }
+  }
+
+  @Test
+  void contextKeysMatchBuiltKeys() throws Exception {
+    try (SQLiteStepStore store = new SQLiteStepStore(tmp.resolve("ctx.sqlite").toString(), Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      runner.run(
+          "wf",
+          ctx -> {
+            ctx.step("a", () -> 1);
+            ctx.step("a", () -> 2);
+            ctx.scoped("inner").step("a", () -> 3);
+          });
+      assertTrue(store.readStep("wf", StepKey.of("a", 0)).isPresent());
+      assertTrue(store.readStep("wf", StepKey.of("a", 1)).isPresent());
+      assertTrue(store.readStep("wf", StepKey.of("inner/a", 0)).isPresent());
+    }
+  }
+
+  @Test
+  void registryKeepsRecentEntriesWithinBound() {
+    StepKeyRegistry registry = new StepKeyRegistry(10, 10);
+    registry.putWorkflowId("hot", 0);
+    for (int i = 1; i <= 100; i++) {
+      registry.putWorkflowId("wf-" + i, i);
+      assertEquals(0L, registry.cachedWorkflowId("hot"));
+      assertTrue(registry.cachedWorkflows() <= 10);
+    }
+    assertNull(registry.cachedWorkflowId("wf-1"));
+    assertEquals(100L, registry.cachedWorkflowId("wf-100"));
+
+    registry.evictWorkflowId("hot");
+    assertNull(registry.cachedWorkflowId("hot"));
+  }
+
+  @Test
+  void registryBoundsPathIds() {
+    StepKeyRegistry registry = new StepKeyRegistry(10, 10);
+    for (int i = 0; i < 1_000; i++) {
+      registry.putPathId("path-" + i, i);
+    }
+    assertTrue(registry.cachedPaths() <= 10);
+    assertEquals(999, registry.cachedPathId("path-999"));
+    assertThrows(IllegalArgumentException.class, () -> new StepKeyRegistry(1, 10));
+  }
+}
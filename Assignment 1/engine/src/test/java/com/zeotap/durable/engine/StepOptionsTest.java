@@ -0,0 +1,191 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StepOptionsTest {
+  private static final RetryPolicy FAST_RETRY =
+      RetryPolicy.defaults().withMaxAttempts(3).withInitialBackoff(Duration.ofMillis(1));
+
+  @TempDir Path tmp;
+
+  @Test
+  void validatesOptions() {
+    assertNull(StepOptions.defaults().retryPolicy());
+    assertNull(StepOptions.defaults().timeout());
+    assertNull(StepOptions.defaults().pool());
+    assertThrows(IllegalArgumentException.class, () -> StepOptions.defaults().withTimeout(Duration.ZERO));
+    assertThrows(IllegalArgumentException.class, () -> StepOptions.defaults().withTimeout(Duration.ofMillis(-1)));
+    assertThrows(NullPointerException.class, () -> StepOptions.defaults().withRetry(null));
+    assertThrows(NullPointerException.class, () -> StepOptions.defaults().withPool(null));
+
+    StepOptions options = StepOptions.defaults().withPool("p").withTimeout(Duration.ofSeconds(1));
+    assertEquals("p", options.pool());
+    assertEquals(Duration.ofSeconds(1), options.timeout());
+  }
+
+  @Test
+  void untypedStepRetries() throws Exception {
+    AtomicInteger attempts = new AtomicInteger();
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      runner.run(
+          "wf",
+          ctx ->
+              ctx.step(
+                  "flaky",
+                  StepOptions.defaults().withRetry(FAST_RETRY),
+                  () -> {
+                    if (attempts.incrementAndGet() < 3) {
+                      throw new IllegalStateException("busy");
+                    }
+                    return "ok";
+                  }));
+      StepRecord rec = store.readStep("wf", StepKey.of("flaky", 0)).orElseThrow();
+      assertEquals(StepStatus.COMPLETED, rec.status());
+      assertEquals(3, rec.attempts());
+    }
+    assertEquals(3, attempts.get());
+  }
+
+  @Test
+  void finalTimeoutIsRecordedAsTimedOut() throws Exception {
+    try (SQLiteStepStore store = new SQLiteStepStore(tmp.resolve("timeout.sqlite").toString(), Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      StepOptions options = StepOptions.defaults().withTimeout(Duration.ofMillis(50));
+      assertThrows(
+          StepTimeoutException.class,
+          () -> runner.run("wf", ctx -> ctx.step("hang", options, String.class, StepOptionsTest::hang)));
+
+      StepRecord rec = store.readStep("wf", StepKey.of("hang", 0)).orElseThrow();
+      assertEquals(StepStatus.TIMED_OUT, rec.status());
+      assertEquals(1, store.metrics().getStepTimeouts());
+    }
+  }
+
+  @Test
+  void interruptedActivityExitsBeforeTimeoutIsRecorded() throws Exception {
+    AtomicBoolean exited = new AtomicBoolean();
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      StepOptions options = StepOptions.defaults().withTimeout(Duration.ofMillis(50));
+      assertThrows(
+          StepTimeoutException.class,
+          () ->
+              runner.run(
+                  "wf",
+                  ctx ->
+                      ctx.step(
+                          "hang",
+                          options,
+                          () -> {
+                            try {
+                              return hang();
+                            } finally {
+                              exited.set(true);
+                            }
+                          })));
+      assertTrue(exited.get());
+    }
+  }
+
+  @Test
+  void failureIsStillRecordedAsFailed() throws Exception {
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      StepOptions options = StepOptions.defaults().withTimeout(Duration.ofSeconds(5));
+      assertThrows(
+          IllegalStateException.class,
+          () ->
+              runner.run(
+                  "wf",
+                  ctx ->
+                      ctx.step(
+                          "boom",
+                          options,
+                          () -> {
+                            throw new IllegalStateException("boom");
+                          })));
+      assertEquals(StepStatus.FAILED, store.readStep("wf", StepKey.of("boom", 0)).orElseThrow().status());
+    }
+  }
+
+  @Test
+  void timeoutStartsOncePoolPermitIsTaken() throws Exception {
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      runner.registerBulkhead("slow", BulkheadConfig.of(1));
+      StepOptions options = StepOptions.defaults().withPool("slow").withTimeout(Duration.ofMillis(500));
+      runner.run(
+          "wf",
+          ctx -> {
+            try (ParallelScope parallel = ctx.parallel("p")) {
+              CompletableFuture<String> a = parallel.stepAsync("a", options, String.class, () -> sleep(300));
+              CompletableFuture<String> b = parallel.stepAsync("b", options, String.class, () -> sleep(300));
+              parallel.join();
+              assertEquals("done", a.join());
+              assertEquals("done", b.join());
+            }
+          });
+      assertEquals(0, store.metrics().getStepTimeouts());
+    }
+  }
+
+  @Test
+  void unknownPoolIsRejectedWhenForked() throws Exception {
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      StepOptions options = StepOptions.defaults().withPool("missing");
+      assertThrows(
+          IllegalArgumentException.class,
+          () ->
+              runner.run(
+                  "wf",
+                  ctx -> {
+                    try (ParallelScope parallel = ctx.parallel("p")) {
+                      parallel.stepAsync("a", options, () -> "never");
+                    }
+                  }));
+    }
+  }
+
+  @Test
+  void timedActivitySeesTheRunTimeline() throws Exception {
+    StoreOptions storeOptions = StoreOptions.defaults().withTimeline(TimelineConfig.of(tmp.resolve("timelines")));
+    AtomicBoolean bound = new AtomicBoolean();
+    try (SQLiteStepStore store =
+            new SQLiteStepStore(tmp.resolve("timeline.sqlite").toString(), Duration.ZERO, storeOptions);
+        WorkflowRunner runner =
+            new WorkflowRunner(store, WorkflowRunner.DEFAULT_REPLAY_CACHE_MAX_ENTRIES, storeOptions)) {
+      StepOptions options = StepOptions.defaults().withTimeout(Duration.ofSeconds(5));
+      runner.run(
+          "wf",
+          ctx ->
+              ctx.step(
+                  "a",
+                  options,
+                  () -> {
+                    bound.set(RunTimeline.current() != null);
+                    return 1;
+                  }));
+    }
+    assertTrue(bound.get());
+  }
+
+  private static String hang() throws InterruptedException {
+    Thread.sleep(10_000);
+    return "late";
+  }
+
+  private static String sleep(long millis) throws InterruptedException {
+    Thread.sleep(millis);
+    return "done";
+  }
+}
@@ -0,0 +1,328 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+abstract class StepStoreContractTest {
+  static final Duration LONG_TIMEOUT = Duration.ofHours(1);
+
+  @TempDir Path tmp;
+
+  private StepStore store;
+
+  abstract StepStore open(Path directory, Duration zombieTimeout);
+
+  boolean durable() {
+    return true;
+  }
+
+  StepStore store(Duration zombieTimeout) {
+    closeStore();
+    store = open(tmp, zombieTimeout);
+    return store;
+  }
+
+  StepStore reopen(Duration zombieTimeout) {
+    return store(zombieTimeout);
+  }
+
+  @AfterEach
+  void closeStore() {
+    if (store != null) {
+      store.close();
+      store = null;
+    }
+  }
+
+  static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void startThenCompleteIsReadBackAndNotStartedAgain() {
+    StepStore s = store(LONG_TIMEOUT);
+    int typeId = s.internType(String.class.getName());
+
+    assertEquals(1, s.tryStartStep("wf", StepKey.of("charge", 0), "run-a"));
+    assertEquals(StepStatus.RUNNING, s.readStep("wf", StepKey.of("charge", 0)).orElseThrow().status());
+
+    s.completeStep("wf", StepKey.of("charge", 0), "run-a", typeId, bytes("ok"));
+
+    StepRecord rec = s.readStep("wf", StepKey.of("charge", 0)).orElseThrow();
+    assertEquals(StepStatus.COMPLETED, rec.status());
+    assertEquals(typeId, rec.outputTypeId());
+    assertArrayEquals(bytes("ok"), rec.outputBlob());
+    assertEquals(0, s.tryStartStep("wf", StepKey.of("charge", 0), "run-b"));
+    assertEquals(1, s.readCompletedSteps("wf", 100).size());
+  }
+
+  @Test
+  void failedStepRestartsAtFirstAttempt() {
+    StepStore s = store(LONG_TIMEOUT);
+
+    assertEquals(1, s.tryStartStep("wf", StepKey.of("charge", 0), "run-a"));
+    s.failStep("wf", StepKey.of("charge", 0), "run-a", "boom");
+
+    StepRecord rec = s.readStep("wf", StepKey.of("charge", 0)).orElseThrow();
+    assertEquals(StepStatus.FAILED, rec.status());
+    assertEquals("boom", rec.error());
+    assertEquals(1, s.tryStartStep("wf", StepKey.of("charge", 0), "run-b"));
+  }
+
+  @Test
+  void timedOutStepIsDistinctFromFailedAndSurvivesReopen() {
+    StepStore s = store(LONG_TIMEOUT);
+
+    assertEquals(1, s.tryStartStep("wf", StepKey.of("charge", 0), "run-a"));
+    s.timeOutStep("wf", StepKey.of("charge", 0), "run-a", "timed out");
+
+    StepRecord rec = s.readStep("wf", StepKey.of("charge", 0)).orElseThrow();
+    assertEquals(StepStatus.TIMED_OUT, rec.status());
+    assertEquals("timed out", rec.error());
+
+    if (durable()) {
+      s = reopen(LONG_TIMEOUT);
+      assertEquals(StepStatus.TIMED_OUT, s.readStep("wf", StepKey.of("charge", 0)).orElseThrow().status());
+    }
+    assertEquals(1, s.tryStartStep("wf", StepKey.of("charge", 0), "run-b"));
+  }
+
+  @Test
+  void retryIsDeferredUntilNextAttemptIsDue() {
+    StepStore s = store(LONG_TIMEOUT);
+
+    assertEquals(1, s.tryStartStep("wf", StepKey.of("charge", 0), "run-a"));
+    s.scheduleRetry("wf", StepKey.of("charge", 0), "run-a", "busy", System.currentTimeMillis() + 60_000);
+
+    StepRecord rec = s.readStep("wf", StepKey.of("charge", 0)).orElseThrow();
+    assertEquals(StepStatus.RETRYING, rec.status());
+    assertEquals(1, rec.attempts());
+    assertEquals(0, s.tryStartStep("wf", StepKey.of("charge", 0), "run-a"));
+
+    assertEquals(1, s.tryStartStep("wf", StepKey.of("refund", 0), "run-a"));
+    s.scheduleRetry("wf", StepKey.of("refund", 0), "run-a", "busy", System.currentTimeMillis() - 1);
+    assertEquals(2, s.tryStartStep("wf", StepKey.of("refund", 0), "run-a"));
+  }
+
+  @Test
+  void releasedStepCanBeStartedByAnotherRun() {
+    StepStore s = store(LONG_TIMEOUT);
+
+    assertEquals(1, s.tryStartStep("wf", StepKey.of("charge", 0), "run-a"));
+    s.releaseStep("wf", StepKey.of("charge", 0), "run-a");
+
+    assertTrue(s.readStep("wf", StepKey.of("charge", 0)).isEmpty());
+    assertEquals(1, s.tryStartStep("wf", StepKey.of("charge", 0), "run-b"));
+  }
+
+  @Test
+  void runningStepWithinZombieTimeoutIsNotTakenOver() {
+    StepStore s = store(LONG_TIMEOUT);
+
+    assertEquals(1, s.tryStartStep("wf", StepKey.of("charge", 0), "run-a"));
+    assertEquals(0, s.tryStartStep("wf", StepKey.of("charge", 0), "run-b"));
+    assertEquals("run-a", s.readStep("wf", StepKey.of("charge", 0)).orElseThrow().runId());
+  }
+
+  @Test
+  void zombieTakeoverFencesTheOldRun() {
+    StepStore s = store(Duration.ZERO);
+    int typeId = s.internType(String.class.getName());
+
+    assertEquals(1, s.tryStartStep("wf", StepKey.of("charge", 0), "run-a"));
+    assertEquals(2, s.tryStartStep("wf", StepKey.of("charge", 0), "run-b"));
+
+    assertThrows(RuntimeException.class, () -> s.completeStep("wf", StepKey.of("charge", 0), "run-a", typeId, bytes("a")));
+    s.completeStep("wf", StepKey.of("charge", 0), "run-b", typeId, bytes("b"));
+
+    StepRecord rec = s.readStep("wf", StepKey.of("charge", 0)).orElseThrow();
+    assertEquals("run-b", rec.runId());
+    assertArrayEquals(bytes("b"), rec.outputBlob());
+    assertEquals(1, s.metrics().getZombieTakeovers());
+  }
+
+  @Test
+  void zombieTakeoverAfterCrashAndReopen() throws Exception {
+    assumeTrue(durable());
+    StepStore s = store(Duration.ofMillis(200));
+    assertEquals(1, s.tryStartStep("wf", StepKey.of("charge", 0), "run-a"));
+
+    s = reopen(Duration.ofMillis(200));
+    assertEquals(0, s.tryStartStep("wf", StepKey.of("charge", 0), "run-b"));
+    Thread.sleep(250);
+    assertEquals(2, s.tryStartStep("wf", StepKey.of("charge", 0), "run-b"));
+  }
+
+  @Test
+  void completedStepsReplayAfterReopen() {
+    assumeTrue(durable());
+    StepStore s = store(LONG_TIMEOUT);
+    int typeId = s.internType(String.class.getName());
+    for (int i = 0; i < 5; i++) {
+      StepKey key = StepKey.of("step", i);
+      assertEquals(1, s.tryStartStep("wf", key, "run-a"));
+      s.completeStep("wf", key, "run-a", typeId, bytes("out-" + i));
+    }
+    assertEquals(1, s.tryStartStep("wf", StepKey.of("step", 5), "run-a"));
+    s.failStep("wf", StepKey.of("step", 5), "run-a", "boom");
+
+    s = reopen(LONG_TIMEOUT);
+
+    Map<String, StepRecord> completed = s.readCompletedSteps("wf", 100);
+    assertEquals(5, completed.size());
+    for (int i = 0; i < 5; i++) {
+      assertArrayEquals(bytes("out-" + i), completed.get("step#" + i).outputBlob());
+    }
+    assertEquals(StepStatus.FAILED, s.readStep("wf", StepKey.of("step", 5)).orElseThrow().status());
+    assertEquals(String.class.getName(), typeName(s, typeId));
+  }
+
+  @Test
+  void batchCompletionKeepsExistingRows() {
+    StepStore s = store(LONG_TIMEOUT);
+    int typeId = s.internType(String.class.getName());
+    assertEquals(1, s.tryStartStep("wf", StepKey.of("map/$item", 1), "run-a"));
+    s.completeStep("wf", StepKey.of("map/$item", 1), "run-a", typeId, bytes("first"));
+
+    Map<String, StepRecord> records = new LinkedHashMap<>();
+    for (int i = 0; i < 3; i++) {
+      records.put(
+          "map/$item#" + i,
+          new StepRecord(StepStatus.COMPLETED, null, null, typeId, bytes("batch-" + i), null, 0, "run-b", 1, 0));
+    }
+    s.completeSteps("wf", records);
+
+    Map<String, StepRecord> items = s.readCompletedOccurrences("wf", "map/$item");
+    assertEquals(3, items.size());
+    assertArrayEquals(bytes("first"), items.get("map/$item#1").outputBlob());
+    assertArrayEquals(bytes("batch-2"), items.get("map/$item#2").outputBlob());
+  }
+
+  @Test
+  void deleteWorkflowRemovesItsSteps() {
+    StepStore s = store(LONG_TIMEOUT);
+    int typeId = s.internType(String.class.getName());
+    assertEquals(1, s.tryStartStep("wf", StepKey.of("charge", 0), "run-a"));
+    s.completeStep("wf", StepKey.of("charge", 0), "run-a", typeId, bytes("ok"));
+
+    s.deleteWorkflow("wf");
+
+    assertTrue(s.readStep("wf", StepKey.of("charge", 0)).isEmpty());
+    assertEquals(1, s.tryStartStep("wf", StepKey.of("charge", 0), "run-b"));
+  }
+
+  @Test
+  void timersAreRecordedOnceAndSurviveReopen() {
+    StepStore s = store(LONG_TIMEOUT);
+    long wakeAt = System.currentTimeMillis() + 60_000;
+
+    TimerRecord first = s.scheduleTimer("wf", "$sleep#0", wakeAt);
+    TimerRecord again = s.scheduleTimer("wf", "$sleep#0", wakeAt + 5_000);
+    assertEquals(wakeAt, first.wakeAtEpochMs);
+    assertEquals(wakeAt, again.wakeAtEpochMs);
+    assertEquals(1, s.pendingTimers(10).size());
+
+    if (durable()) {
+      s = reopen(LONG_TIMEOUT);
+      assertEquals(1, s.pendingTimers(10).size());
+    }
+    s.fireTimer("wf", "$sleep#0");
+    assertTrue(s.pendingTimers(10).isEmpty());
+    assertTrue(s.scheduleTimer("wf", "$sleep#0", wakeAt).fired);
+  }
+
+  @Test
+  void signalsAreSequencedPerName() {
+    StepStore s = store(LONG_TIMEOUT);
+    int typeId = s.internType(String.class.getName());
+
+    assertEquals(0, s.sendSignal("wf", "approved", typeId, bytes("one")));
+    assertEquals(1, s.sendSignal("wf", "approved", typeId, bytes("two")));
+
+    assertArrayEquals(bytes("two"), s.readSignal("wf", "approved", 1).orElseThrow().payload);
+    assertTrue(s.readSignal("wf", "approved", 2).isEmpty());
+    assertTrue(s.readSignal("wf", "rejected", 0).isEmpty());
+  }
+
+  @Test
+  void checkpointRoundTrips() {
+    StepStore s = store(LONG_TIMEOUT);
+    int typeId = s.internType(String.class.getName());
+    s.saveCheckpoint("wf", new CheckpointRecord(3, typeId, bytes("state"), Map.of("a", 4, "$checkpoint", 3), 1));
+
+    if (durable()) {
+      s = reopen(LONG_TIMEOUT);
+    }
+    Optional<CheckpointRecord> checkpoint = s.readCheckpoint("wf");
+    assertTrue(checkpoint.isPresent());
+    assertEquals(3, checkpoint.get().sequence);
+    assertArrayEquals(bytes("state"), checkpoint.get().stateBlob);
+    assertEquals(4, checkpoint.get().counters.get("a"));
+  }
+
+  @Test
+  void workflowLeaseIsExclusiveUntilFinished() {
+    StepStore s = store(LONG_TIMEOUT);
+    long leaseUntil = System.currentTimeMillis() + 60_000;
+
+    assertTrue(s.startWorkflow("wf", "owner-a", WorkflowPriority.NORMAL, leaseUntil));
+    assertFalse(s.startWorkflow("wf", "owner-b", WorkflowPriority.NORMAL, leaseUntil));
+    assertTrue(s.startWorkflow("wf", "owner-a", WorkflowPriority.NORMAL, leaseUntil));
+
+    s.finishWorkflow("wf", "owner-a", WorkflowStatus.COMPLETED, null);
+    assertTrue(s.startWorkflow("wf", "owner-b", WorkflowPriority.NORMAL, leaseUntil));
+  }
+
+  @Test
+  void claimedWorkflowsAreNotClaimedTwice() {
+    StepStore s = store(LONG_TIMEOUT);
+    long leaseUntil = System.currentTimeMillis() + 60_000;
+    assertTrue(s.enqueueWorkflow("wf-1", "onboarding", "Ada", WorkflowPriority.NORMAL));
+    assertTrue(s.enqueueWorkflow("wf-2", "onboarding", "Bob", WorkflowPriority.HIGH));
+    assertFalse(s.enqueueWorkflow("wf-1", "onboarding", "Ada", WorkflowPriority.NORMAL));
+
+    List<WorkflowRecord> claimed = s.claimWorkflows("worker-a", List.of("onboarding"), 1, leaseUntil);
+    assertEquals(1, claimed.size());
+    assertEquals("wf-2", claimed.get(0).workflowId);
+    assertEquals(1, s.claimWorkflows("worker-a", List.of("onboarding"), 10, leaseUntil).size());
+    assertTrue(s.claimWorkflows("worker-b", List.of("onboarding"), 10, leaseUntil).isEmpty());
+
+    s.releaseWorkflow("wf-1", "worker-a");
+    List<WorkflowRecord> reclaimed = s.claimWorkflows("worker-b", List.of("onboarding"), 10, leaseUntil);
+    assertEquals(1, reclaimed.size());
+    assertEquals("wf-1", reclaimed.get(0).workflowId);
+  }
+
+  @Test
+  void claimMatchesOnlyTheRequestedTypes() {
+    StepStore s = store(LONG_TIMEOUT);
+    long leaseUntil = System.currentTimeMillis() + 60_000;
+    assertTrue(s.enqueueWorkflow("wf-1", "a\"b", "1", WorkflowPriority.NORMAL));
+    assertTrue(s.enqueueWorkflow("wf-2", "c,d", "2", WorkflowPriority.NORMAL));
+    assertTrue(s.enqueueWorkflow("wf-3", "other", "3", WorkflowPriority.NORMAL));
+
+    assertTrue(s.claimWorkflows("worker", List.of("a"), 10, leaseUntil).isEmpty());
+    List<WorkflowRecord> claimed = s.claimWorkflows("worker", List.of("a\"b", "c,d"), 10, leaseUntil);
+    assertEquals(2, claimed.size());
+    assertEquals(1, s.claimWorkflows("worker", List.of("other"), 10, leaseUntil).size());
+  }
+
+  private static String typeName(StepStore s, int typeId) {
+    try {
+      return s.resolveType(typeId).getName();
+    } catch (ClassNotFoundException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TimelineExportTest {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @TempDir Path tmp;
+
+  @Test
+  void ringBufferKeepsNewestEvents() throws Exception {
+    RunTimeline timeline = new RunTimeline(TimelineConfig.of(tmp, 4));
+    long origin = timeline.originNanos();
+    for (int i = 0; i < 6; i++) {
+      timeline.record(RunTimeline.STEP, "s" + i, origin + i * 1_000L, 500);
+    }
+    timeline.write("wf", "run-1");
+
+    JsonNode trace = export("wf", "run-1", 4);
+    assertEquals(2, trace.get("otherData").get("droppedEvents").asLong());
+    assertEquals(List.of("s2", "s3", "s4", "s5"), names(trace, "step"));
+
+    JsonNode first = events(trace, "step").get(0);
+    assertEquals("X", first.get("ph").asText());
+    assertEquals(2.0, first.get("ts").asDouble());
+    assertEquals(0.5, first.get("dur").asDouble());
+  }
+
+  @Test
+  void replayEventsAreInstants() throws Exception {
+    RunTimeline timeline = new RunTimeline(TimelineConfig.of(tmp));
+    timeline.record(RunTimeline.REPLAY, "a#0", timeline.originNanos(), 0);
+    timeline.write("wf", "run-1");
+
+    JsonNode replay = events(export("wf", "run-1", 1), "replay").get(0);
+    assertEquals("i", replay.get("ph").asText());
+    assertNull(replay.get("dur"));
+  }
+
+  @Test
+  void runnerWritesOneTimelinePerRun() throws Exception {
+    Path dir = tmp.resolve("timelines");
+    StoreOptions options = StoreOptions.defaults().withTimeline(TimelineConfig.of(dir));
+    AtomicReference<String> runId = new AtomicReference<>();
+    try (SQLiteStepStore store = new SQLiteStepStore(tmp.resolve("t.sqlite").toString(), Duration.ZERO, options);
+        WorkflowRunner runner =
+            new WorkflowRunner(store, WorkflowRunner.DEFAULT_REPLAY_CACHE_MAX_ENTRIES, options)) {
+      Workflow workflow =
+          ctx -> {
+            runId.set(ctx.runId());
+            ctx.step("a", () -> 1);
+          };
+      runner.run("wf/1", workflow);
+      String first = runId.get();
+      runner.run("wf/1", workflow);
+
+      List<String> runs = TimelineExport.runIds(dir, "wf/1");
+      assertEquals(2, runs.size());
+      assertTrue(runs.contains(first));
+      assertTrue(runs.contains(runId.get()));
+
+      JsonNode trace = export(dir, "wf/1", first);
+      assertEquals("wf/1", trace.get("otherData").get("workflowId").asText());
+      assertFalse(events(trace, "workflow").isEmpty());
+      assertTrue(names(trace, "step").contains("a#0"));
+    }
+  }
+
+  @Test
+  void missingWorkflowHasNoRuns() throws Exception {
+    assertTrue(TimelineExport.runIds(tmp, "unknown").isEmpty());
+  }
+
+  @Test
+  void rejectsForeignFiles() throws Exception {
+    Path file = RunTimeline.file(tmp, "wf", "bad");
+    Files.createDirectories(file.getParent());
+    Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+    assertThrows(
+        IOException.class, () -> TimelineExport.writeChromeTrace(tmp, "wf", "bad", new ByteArrayOutputStream()));
+  }
+
+  @Test
+  void validatesConfig() {
+    assertFalse(TimelineConfig.disabled().enabled());
+    assertThrows(IllegalArgumentException.class, () -> TimelineConfig.of(tmp, 0));
+    assertThrows(NullPointerException.class, () -> TimelineConfig.of(null));
+  }
+
+  private JsonNode export(String workflowId, String runId, int expectedEvents) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertEquals(expectedEvents, TimelineExport.writeChromeTrace(tmp, workflowId, runId, out));
+    return MAPPER.readTree(out.toByteArray());
+  }
+
+  private static JsonNode export(Path dir, String workflowId, String runId) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TimelineExport.writeChromeTrace(dir, workflowId, runId, out);
+    return MAPPER.readTree(out.toByteArray());
+  }
+
+  private static List<JsonNode> events(JsonNode trace, String category) {
+    List<JsonNode> out = new ArrayList<>();
+    for (JsonNode event : trace.get("traceEvents")) {
+      if (event.has("cat") && event.get("cat").asText().equals(category)) {
+        out.add(event);
+      }
+    }
+    return out;
+  }
+
+  private static List<String> names(JsonNode trace, String category) {
+    List<String> out = new ArrayList<>();
+    for (JsonNode event : events(trace, category)) {
+      out.add(event.get("name").asText());
+    }
+    return out;
+  }
+}
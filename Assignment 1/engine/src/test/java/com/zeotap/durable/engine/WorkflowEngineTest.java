@@ -0,0 +1,88 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class WorkflowEngineTest {
+  @Test
+  void queuedWorkflowsStartByPriorityThenSubmissionOrder() throws Exception {
+    List<String> started = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch release = new CountDownLatch(1);
+    EngineOptions options = EngineOptions.defaults().withMaxConcurrentWorkflows(1);
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowEngine engine = new WorkflowEngine(store, options)) {
+      WorkflowHandle blocker = engine.submit("blocker", blockUntil(release));
+      awaitRunning(engine);
+
+      List<WorkflowHandle> handles = new ArrayList<>();
+      handles.add(engine.submit("low-1", record(started), WorkflowPriority.LOW));
+      handles.add(engine.submit("normal-1", record(started), WorkflowPriority.NORMAL));
+      handles.add(engine.submit("high-1", record(started), WorkflowPriority.HIGH));
+      handles.add(engine.submit("normal-2", record(started)));
+      handles.add(engine.submit("low-2", record(started), WorkflowPriority.LOW));
+      handles.add(engine.submit("high-2", record(started), WorkflowPriority.HIGH));
+      assertEquals(6, engine.queuedWorkflows());
+
+      release.countDown();
+      blocker.await(5, TimeUnit.SECONDS);
+      for (WorkflowHandle handle : handles) {
+        handle.await(5, TimeUnit.SECONDS);
+      }
+    }
+    assertEquals(List.of("high-1", "high-2", "normal-1", "normal-2", "low-1", "low-2"), started);
+  }
+
+  @Test
+  void rejectsSubmissionsWhenTheQueueIsFull() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    EngineOptions options = EngineOptions.defaults().withMaxConcurrentWorkflows(1).withMaxQueuedWorkflows(2);
+    try (InMemoryStepStore store = new InMemoryStepStore(Duration.ZERO);
+        WorkflowEngine engine = new WorkflowEngine(store, options)) {
+      WorkflowHandle blocker = engine.submit("blocker", blockUntil(release));
+      awaitRunning(engine);
+      WorkflowHandle a = engine.submit("a", ctx -> {});
+      WorkflowHandle b = engine.submit("b", ctx -> {}, WorkflowPriority.LOW);
+
+      assertThrows(RejectedExecutionException.class, () -> engine.submit("c", ctx -> {}));
+      assertThrows(RejectedExecutionException.class, () -> engine.submit("d", ctx -> {}, WorkflowPriority.HIGH));
+      assertSame(a, engine.submit("a", ctx -> {}));
+      assertEquals(2, engine.queuedWorkflows());
+
+      release.countDown();
+      blocker.await(5, TimeUnit.SECONDS);
+      a.await(5, TimeUnit.SECONDS);
+      b.await(5, TimeUnit.SECONDS);
+      engine.submit("c", ctx -> {}).await(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  void validatesOptions() {
+    assertThrows(IllegalArgumentException.class, () -> EngineOptions.defaults().withMaxConcurrentWorkflows(0));
+    assertThrows(IllegalArgumentException.class, () -> EngineOptions.defaults().withMaxQueuedWorkflows(-1));
+    assertThrows(IllegalArgumentException.class, () -> EngineOptions.defaults().withReplayCacheMaxEntries(-1));
+  }
+
+  private static Workflow blockUntil(CountDownLatch release) {
+    return ctx -> assertTrue(release.await(5, TimeUnit.SECONDS));
+  }
+
+  private static Workflow record(List<String> started) {
+    return ctx -> started.add(ctx.workflowId());
+  }
+
+  private static void awaitRunning(WorkflowEngine engine) throws Exception {
+    for (int i = 0; i < 500 && engine.runningWorkflows() == 0; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, engine.runningWorkflows());
+  }
+}
@@ -0,0 +1,55 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WorkflowLeaseTest {
+  @TempDir Path tmp;
+
+  @Test
+  void heartbeatRenewsWorkflowLeaseUntilFinished() throws Exception {
+    String db = tmp.resolve("lease.sqlite").toString();
+    StoreOptions options = StoreOptions.defaults().withHeartbeatInterval(Duration.ofMillis(20));
+    try (SQLiteStepStore store = new SQLiteStepStore(db, Duration.ofMillis(100), options)) {
+      assertTrue(store.startWorkflow("wf", "run-a", WorkflowPriority.NORMAL, System.currentTimeMillis() + 100));
+      Thread.sleep(300);
+      assertFalse(store.startWorkflow("wf", "run-b", WorkflowPriority.NORMAL, System.currentTimeMillis() + 100));
+
+      store.finishWorkflow("wf", "run-a", WorkflowStatus.COMPLETED, null);
+      assertTrue(store.startWorkflow("wf", "run-b", WorkflowPriority.NORMAL, System.currentTimeMillis() + 100));
+    }
+  }
+
+  @Test
+  void crashedRunnerLeaseExpiresAfterZombieTimeout() throws Exception {
+    String db = tmp.resolve("crash.sqlite").toString();
+    StoreOptions options = StoreOptions.defaults().withHeartbeatInterval(Duration.ofMillis(20));
+    try (SQLiteStepStore store = new SQLiteStepStore(db, Duration.ofMillis(100), options)) {
+      assertTrue(store.startWorkflow("wf", "crashed", WorkflowPriority.NORMAL, System.currentTimeMillis() + 100));
+    }
+    try (SQLiteStepStore store = new SQLiteStepStore(db, Duration.ofMillis(100), options);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      assertThrows(IllegalStateException.class, () -> runner.run("wf", ctx -> {}));
+      Thread.sleep(150);
+      runner.run("wf", ctx -> ctx.step("done", () -> "ok"));
+    }
+    assertEquals("COMPLETED", status(db, "wf"));
+  }
+
+  private static String status(String db, String workflowId) throws Exception {
+    try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + db);
+        Statement st = c.createStatement();
+        ResultSet rs = st.executeQuery("SELECT status FROM workflows WHERE workflow_id = '" + workflowId + "'")) {
+      assertTrue(rs.next());
+      return rs.getString(1);
+    }
+  }
+}
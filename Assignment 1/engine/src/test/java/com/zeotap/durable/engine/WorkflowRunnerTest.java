@@ -0,0 +1,197 @@
+package com.zeotap.durable.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class WorkflowRunnerTest {
+  private static final Duration ZOMBIE_TIMEOUT = Duration.ofMillis(200);
+  private static final RetryPolicy FAST_RETRY =
+      RetryPolicy.defaults().withMaxAttempts(3).withInitialBackoff(Duration.ofMillis(1));
+
+  record Receipt(String id, long cents) {}
+
+  enum Backend {
+    SQLITE(true) {
+      @Override
+      StepStore open(Path directory, Duration zombieTimeout) {
+        return new SQLiteStepStore(
+            directory.resolve("state.sqlite").toString(),
+            zombieTimeout,
+            StoreOptions.defaults().withHeartbeatInterval(Duration.ZERO));
+      }
+    },
+    LOG(true) {
+      @Override
+      StepStore open(Path directory, Duration zombieTimeout) {
+        return new LogStepStore(
+            directory.resolve("log"), zombieTimeout, LogStoreOptions.defaults().withHeartbeatInterval(Duration.ZERO));
+      }
+    },
+    IN_MEMORY(false) {
+      @Override
+      StepStore open(Path directory, Duration zombieTimeout) {
+        return new InMemoryStepStore(zombieTimeout);
+      }
+    };
+
+    final boolean durable;
+
+    Backend(boolean durable) {
+      this.durable = durable;
+    }
+
+    abstract StepStore open(Path directory, Duration zombieTimeout);
+  }
+
+  @TempDir Path tmp;
+
+  @ParameterizedTest
+  @EnumSource(Backend.class)
+  void replaysCompletedStepsWithoutRunningThemAgain(Backend backend) throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    List<Object> first;
+    try (StepStore store = backend.open(tmp, Duration.ZERO)) {
+      first = checkout(store, calls);
+      assertEquals(List.of(3, "paid", new Receipt("r-1", 1250)), first);
+      assertEquals(3, calls.get());
+      assertEquals(first, checkout(store, calls));
+      assertEquals(3, calls.get());
+      assertEquals(3, store.metrics().getReplayHits());
+    }
+    if (backend.durable) {
+      try (StepStore store = backend.open(tmp, Duration.ZERO)) {
+        assertEquals(first, checkout(store, calls));
+      }
+      assertEquals(3, calls.get());
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(Backend.class)
+  void retriesAFailingStepUntilItSucceeds(Backend backend) throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    StepOptions options = StepOptions.defaults().withRetry(FAST_RETRY);
+    try (StepStore store = backend.open(tmp, Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      runner.run(
+          "wf",
+          ctx ->
+              assertEquals(
+                  "ok",
+                  ctx.step(
+                      "flaky",
+                      options,
+                      String.class,
+                      () -> {
+                        if (calls.incrementAndGet() < 3) {
+                          throw new IllegalStateException("busy");
+                        }
+                        return "ok";
+                      })));
+      StepRecord rec = store.readStep("wf", StepKey.of("flaky", 0)).orElseThrow();
+      assertEquals(StepStatus.COMPLETED, rec.status());
+      assertEquals(3, rec.attempts());
+
+      assertThrows(
+          IllegalStateException.class,
+          () ->
+              runner.run(
+                  "doomed",
+                  ctx ->
+                      ctx.step(
+                          "down",
+                          options,
+                          String.class,
+                          () -> {
+                            throw new IllegalStateException("down");
+                          })));
+      StepRecord failed = store.readStep("doomed", StepKey.of("down", 0)).orElseThrow();
+      assertEquals(StepStatus.FAILED, failed.status());
+      assertEquals(3, failed.attempts());
+    }
+    assertEquals(3, calls.get());
+  }
+
+  @ParameterizedTest
+  @EnumSource(Backend.class)
+  void takesOverAStepAbandonedPastTheZombieTimeout(Backend backend) throws Exception {
+    StepKey key = StepKey.of("charge", 0);
+    Workflow charge = ctx -> ctx.step("charge", String.class, () -> "charged");
+    try (StepStore store = backend.open(tmp, ZOMBIE_TIMEOUT);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      assertEquals(1, store.tryStartStep("wf", key, "dead-run"));
+      if (store instanceof IndexedStepStore indexed) {
+        indexed.released("wf", key.keyString(), "dead-run");
+      }
+      IllegalStateException live = assertThrows(IllegalStateException.class, () -> runner.run("wf", charge));
+      assertTrue(live.getMessage().contains("zombie timeout"), live.getMessage());
+
+      Thread.sleep(ZOMBIE_TIMEOUT.toMillis() * 2);
+      runner.run("wf", charge);
+      StepRecord rec = store.readStep("wf", key).orElseThrow();
+      assertEquals(StepStatus.COMPLETED, rec.status());
+      assertNotEquals("dead-run", rec.runId());
+      assertEquals(2, rec.attempts());
+      assertEquals(1, store.metrics().getZombieTakeovers());
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(Backend.class)
+  void runsParallelStepsConcurrentlyAndReplaysThem(Backend backend) throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    Workflow fanOut =
+        ctx -> {
+          try (ParallelScope parallel = ctx.parallel("p")) {
+            CompletableFuture<String> a = parallel.stepAsync("a", String.class, () -> meet(bothStarted, calls, "A"));
+            CompletableFuture<String> b = parallel.stepAsync("b", String.class, () -> meet(bothStarted, calls, "B"));
+            parallel.join();
+            assertEquals("A", a.join());
+            assertEquals("B", b.join());
+          }
+        };
+    try (StepStore store = backend.open(tmp, Duration.ZERO);
+        WorkflowRunner runner = new WorkflowRunner(store)) {
+      runner.run("wf", fanOut);
+      assertEquals(2, calls.get());
+      assertEquals(StepStatus.COMPLETED, store.readStep("wf", StepKey.of("p/a", 0)).orElseThrow().status());
+      assertEquals(StepStatus.COMPLETED, store.readStep("wf", StepKey.of("p/b", 0)).orElseThrow().status());
+
+      runner.run("wf", fanOut);
+      assertEquals(2, calls.get());
+    }
+  }
+
+  private static List<Object> checkout(StepStore store, AtomicInteger calls) throws Exception {
+    List<Object> out = new ArrayList<>();
+    try (WorkflowRunner runner = new WorkflowRunner(store)) {
+      runner.run(
+          "wf",
+          ctx -> {
+            out.add(ctx.step("count", Integer.class, () -> calls.incrementAndGet() + 2));
+            out.add(ctx.step("pay", String.class, () -> calls.incrementAndGet() > 0 ? "paid" : "unpaid"));
+            out.add(ctx.step("receipt", Receipt.class, () -> new Receipt("r-" + (calls.incrementAndGet() - 2), 1250)));
+          });
+    }
+    return out;
+  }
+
+  private static String meet(CountDownLatch bothStarted, AtomicInteger calls, String value) throws Exception {
+    calls.incrementAndGet();
+    bothStarted.countDown();
+    assertTrue(bothStarted.await(5, TimeUnit.SECONDS), "parallel steps did not overlap");
+    return value;
+  }
+}
@@ -1,19 +1,17 @@
 package com.zeotap.durable.examples.onboarding;
 
 import com.zeotap.durable.engine.DurableContext;
+import com.zeotap.durable.engine.ParallelScope;
 import com.zeotap.durable.engine.Workflow;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
 
 public final class EmployeeOnboardingWorkflow implements Workflow {
   private final Activities activities = new Activities();
   private final String employeeName;
-  private final ExecutorService executor;
   private final CrashConfig crashConfig;
 
-  public EmployeeOnboardingWorkflow(String employeeName, ExecutorService executor, CrashConfig crashConfig) {
+  public EmployeeOnboardingWorkflow(String employeeName, CrashConfig crashConfig) {
     this.employeeName = employeeName;
-    this.executor = executor;
     this.crashConfig = crashConfig;
   }
 
@@ -29,44 +27,31 @@ public final class EmployeeOnboardingWorkflow implements Workflow {
               return id;
             });
 
-    DurableContext parallel = ctx.scoped("parallel");
+    String laptopTicket;
+    String accessTicket;
+    try (ParallelScope parallel = ctx.parallel("parallel")) {
+      CompletableFuture<String> laptopF =
+          parallel.stepAsync(
+              "provision-laptop",
+              String.class,
+              () -> {
+                crashConfig.maybeCrash("before-provision-laptop");
+                return activities.provisionLaptop(employeeId);
+              });
 
-    CompletableFuture<String> laptopF =
-        CompletableFuture.supplyAsync(
-            () -> {
-              try {
-                return parallel.step(
-                    "provision-laptop",
-                    String.class,
-                    () -> {
-                      crashConfig.maybeCrash("before-provision-laptop");
-                      return activities.provisionLaptop(employeeId);
-                    });
-              } catch (Exception e) {
-                throw new RuntimeException(e);
-              }
-            },
-            executor);
-
-    CompletableFuture<String> accessF =
-        CompletableFuture.supplyAsync(
-            () -> {
-              try {
-                return parallel.step(
-                    "provision-access",
-                    String.class,
-                    () -> {
-                      crashConfig.maybeCrash("before-provision-access");
-                      return activities.provisionAccess(employeeId);
-                    });
-              } catch (Exception e) {
-                throw new RuntimeException(e);
-              }
-            },
-            executor);
+      CompletableFuture<String> accessF =
+          parallel.stepAsync(
+              "provision-access",
+              String.class,
+              () -> {
+                crashConfig.maybeCrash("before-provision-access");
+                return activities.provisionAccess(employeeId);
+              });
 
-    String laptopTicket = laptopF.join();
-    String accessTicket = accessF.join();
+      parallel.join();
+      laptopTicket = laptopF.join();
+      accessTicket = accessF.join();
+    }
 
     ctx.step(
         "send-welcome-email",